@@ -1,28 +1,31 @@
 package hygieia.builder;
 
+import com.capitalone.dashboard.model.SCM;
 import com.capitalone.dashboard.request.BinaryArtifactCreateRequest;
 import hudson.EnvVars;
 import hudson.FilePath;
 import hudson.model.AbstractBuild;
 import hudson.model.Run;
 import hudson.model.TaskListener;
-import hudson.scm.ChangeLogSet;
+import hudson.tasks.Fingerprinter;
 import hygieia.utils.HygieiaUtils;
+import hygieia.utils.RunContext;
+import jenkins.plugins.hygieia.CommitList;
 import jenkins.plugins.hygieia.HygieiaPublisher;
+import jenkins.plugins.hygieia.RunContexts;
 import jenkins.plugins.hygieia.workflow.HygieiaArtifactPublishStep;
+import jenkins.util.VirtualFile;
 import org.apache.commons.io.FilenameUtils;
-import org.jenkinsci.plugins.workflow.job.WorkflowRun;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Set;
 
-import static hygieia.utils.HygieiaUtils.getEnvironment;
-
 
 public class ArtifactBuilder {
 
@@ -34,6 +37,7 @@ public class ArtifactBuilder {
     private String filePattern;
     private String group;
     private String version;
+    private boolean useArchivedArtifacts;
     private FilePath rootDirectory;
 
     public ArtifactBuilder(AbstractBuild<?, ?> build, HygieiaPublisher publisher, TaskListener listener, String hygieiaBuildId) {
@@ -44,9 +48,12 @@ public class ArtifactBuilder {
         filePattern = hygieiaArtifact.getArtifactName().trim();
         group = hygieiaArtifact.getArtifactGroup().trim();
         version = hygieiaArtifact.getArtifactVersion().trim();
+        useArchivedArtifacts = hygieiaArtifact.isUseArchivedArtifacts();
         this.hygieiaBuildId = HygieiaUtils.getBuildCollectionId(hygieiaBuildId);
         this.listener = listener;
-        this.rootDirectory = new FilePath(Objects.requireNonNull(build.getWorkspace()), directory);
+        // archived artifacts do not need the workspace, which is gone when the agent is offline
+        FilePath workspace = build.getWorkspace();
+        this.rootDirectory = (workspace == null) ? null : new FilePath(workspace, directory);
     }
 
     public ArtifactBuilder(Run<?, ?> run, FilePath filePath, HygieiaArtifactPublishStep publisher, TaskListener listener, String hygieiaBuildId) {
@@ -55,15 +62,16 @@ public class ArtifactBuilder {
         filePattern = publisher.getArtifactName().trim();
         group = publisher.getArtifactGroup().trim();
         version = publisher.getArtifactVersion().trim();
+        useArchivedArtifacts = publisher.isUseArchivedArtifacts();
         this.hygieiaBuildId = HygieiaUtils.getBuildCollectionId(hygieiaBuildId);
         this.listener = listener;
         this.rootDirectory = new FilePath(filePath, directory);
     }
 
     private Set<BinaryArtifactCreateRequest> buildArtifacts() {
-        List<ChangeLogSet<? extends ChangeLogSet.Entry>> changeLogSets = new ArrayList<>();
         Set<BinaryArtifactCreateRequest> artifacts = new HashSet<>();
-        EnvVars envVars = getEnvironment(run, listener);
+        RunContext context = RunContexts.get(run, listener);
+        EnvVars envVars = context.getEnvironment();
         if (envVars != null) {
             version = envVars.expand(version);
             group = envVars.expand(group);
@@ -71,65 +79,38 @@ public class ArtifactBuilder {
             filePattern = envVars.expand(filePattern);
         }
 
-        listener.getLogger().println("Hygieia Build Artifact Publisher - Looking for file pattern '" + filePattern + "' in directory " + rootDirectory);
+        // archived artifacts by their path relative to the archive
+        Map<String, VirtualFile> archivedFiles = new LinkedHashMap<>();
+        Map<String, String> fingerprints = Collections.emptyMap();
+        if (useArchivedArtifacts) {
+            listener.getLogger().println("Hygieia Build Artifact Publisher - Looking for file pattern '" + filePattern + "' in artifacts archived from directory " + directory);
+            Fingerprinter.FingerprintAction fingerprintAction = run.getAction(Fingerprinter.FingerprintAction.class);
+            if (fingerprintAction != null) fingerprints = fingerprintAction.getRecords();
+            // read through the artifact manager, archived artifacts need not be files on the master
+            VirtualFile archive = run.getArtifactManager().root();
+            for (Run.Artifact artifact : HygieiaUtils.getArchivedArtifacts(run, directory, filePattern)) {
+                archivedFiles.put(artifact.relativePath, archive.child(artifact.relativePath));
+            }
+        }
         try {
-            List<FilePath> artifactFiles = HygieiaUtils.getArtifactFiles(rootDirectory, filePattern, new ArrayList<FilePath>());
+            if (!archivedFiles.isEmpty()) {
+                List<SCM> commits = CommitList.getCommits(run);
+                for (Map.Entry<String, VirtualFile> f : archivedFiles.entrySet()) {
+                    listener.getLogger().println("Hygieia Artifact Publisher: Processing  archived file: " + f.getKey());
+                    artifacts.add(newArtifact(f.getValue().getName(), fingerprints.get(f.getKey()), commits, context));
+                }
+                return artifacts;
+            }
+            if (rootDirectory == null) {
+                listener.getLogger().println("Hygieia Build Artifact Publisher - No workspace to look for file pattern '" + filePattern + "' in");
+                return artifacts;
+            }
+            listener.getLogger().println("Hygieia Build Artifact Publisher - Looking for file pattern '" + filePattern + "' in directory " + rootDirectory);
+            List<FilePath> artifactFiles = HygieiaUtils.getArtifactFiles(run, rootDirectory, filePattern, new ArrayList<FilePath>());
+            List<SCM> commits = artifactFiles.isEmpty() ? Collections.<SCM>emptyList() : CommitList.getCommits(run);
             for (FilePath f : artifactFiles) {
                 listener.getLogger().println("Hygieia Artifact Publisher: Processing  file: " + f.getRemote());
-                BinaryArtifactCreateRequest bac = new BinaryArtifactCreateRequest();
-                bac.setArtifactGroup(group);
-                if ("".equals(version)) {
-                    version = HygieiaUtils.guessVersionNumber(f.getName());
-                }
-                String artifactName = HygieiaUtils.determineArtifactName(f, version);
-                
-                bac.setArtifactVersion(version);
-                bac.setCanonicalName(f.getName());
-
-                bac.setArtifactName(artifactName);
-                bac.setArtifactModule(artifactName); // for now assume maven artifact
-                bac.setArtifactExtension(FilenameUtils.getExtension(f.getName()));
-                bac.setTimestamp(run.getTimeInMillis());
-                bac.setBuildId(hygieiaBuildId);
-
-                if (run instanceof WorkflowRun) {
-                    changeLogSets = ((WorkflowRun) run).getChangeSets();
-                } else if (run instanceof AbstractBuild) {
-                    ChangeLogSet<? extends ChangeLogSet.Entry> sets = ((AbstractBuild) run).getChangeSet();
-                    changeLogSets = sets.isEmptySet() ? Collections.<ChangeLogSet<? extends ChangeLogSet.Entry>>emptyList() : Collections.<ChangeLogSet<? extends ChangeLogSet.Entry>>singletonList(sets);
-                }
-                CommitBuilder commitBuilder = new CommitBuilder(changeLogSets);
-
-                bac.getSourceChangeSet().addAll(commitBuilder.getCommits());
-
-                bac.getMetadata().put("buildUrl", HygieiaUtils.getBuildUrl(run));
-                bac.getMetadata().put("buildNumber", HygieiaUtils.getBuildNumber(run));
-                bac.getMetadata().put("jobUrl", HygieiaUtils.getJobUrl(run));
-                bac.getMetadata().put("jobName", HygieiaUtils.getJobName(run));
-                bac.getMetadata().put("instanceUrl", HygieiaUtils.getInstanceUrl(run, listener));
-
-
-                if (run instanceof AbstractBuild) {
-                    AbstractBuild abstractBuild = (AbstractBuild) run;
-                    String scmUrl = HygieiaUtils.getScmUrl(abstractBuild, listener);
-                    String scmBranch = HygieiaUtils.getScmBranch(abstractBuild, listener);
-                    String scmRevisionNumber = HygieiaUtils.getScmRevisionNumber(abstractBuild, listener);
-
-                    if (scmUrl != null) {
-                        bac.getMetadata().put("scmUrl", scmUrl);
-                    }
-                    if (scmBranch != null) {
-                        if (scmBranch.startsWith("origin/")) {
-                            scmBranch = scmBranch.substring(7);
-                        }
-                        bac.getMetadata().put("scmBranch", scmBranch);
-                    }
-                    if (scmRevisionNumber != null) {
-                        bac.getMetadata().put("scmRevisionNumber", scmRevisionNumber);
-                    }
-                }
-
-                artifacts.add(bac);
+                artifacts.add(newArtifact(f.getName(), null, commits, context));
             }
         } catch (IOException e) {
             listener.getLogger().println("Hygieia BuildArtifact Publisher - IOException on " + rootDirectory);
@@ -140,6 +121,56 @@ public class ArtifactBuilder {
         return artifacts;
     }
 
+    private BinaryArtifactCreateRequest newArtifact(String fileName, String fingerprint, List<SCM> commits, RunContext context) {
+        BinaryArtifactCreateRequest bac = new BinaryArtifactCreateRequest();
+        bac.setArtifactGroup(group);
+        if ("".equals(version)) {
+            version = HygieiaUtils.guessVersionNumber(fileName);
+        }
+        String artifactName = HygieiaUtils.determineArtifactName(FilenameUtils.getBaseName(fileName), version);
+
+        bac.setArtifactVersion(version);
+        bac.setCanonicalName(fileName);
+
+        bac.setArtifactName(artifactName);
+        bac.setArtifactModule(artifactName); // for now assume maven artifact
+        bac.setArtifactExtension(FilenameUtils.getExtension(fileName));
+        bac.setTimestamp(run.getTimeInMillis());
+        bac.setBuildId(hygieiaBuildId);
+
+        bac.getSourceChangeSet().addAll(commits);
+
+        bac.getMetadata().put("buildUrl", context.getBuildUrl());
+        bac.getMetadata().put("buildNumber", context.getBuildNumber());
+        bac.getMetadata().put("jobUrl", context.getJobUrl());
+        bac.getMetadata().put("jobName", context.getJobName());
+        bac.getMetadata().put("instanceUrl", context.getInstanceUrl());
+        if (fingerprint != null) {
+            bac.getMetadata().put("fingerprint", fingerprint);
+        }
+
+
+        if (run instanceof AbstractBuild) {
+            String scmUrl = context.getScmUrl();
+            String scmBranch = context.getScmBranch();
+            String scmRevisionNumber = context.getScmRevisionNumber();
+
+            if (scmUrl != null) {
+                bac.getMetadata().put("scmUrl", scmUrl);
+            }
+            if (scmBranch != null) {
+                if (scmBranch.startsWith("origin/")) {
+                    scmBranch = scmBranch.substring(7);
+                }
+                bac.getMetadata().put("scmBranch", scmBranch);
+            }
+            if (scmRevisionNumber != null) {
+                bac.getMetadata().put("scmRevisionNumber", scmRevisionNumber);
+            }
+        }
+        return bac;
+    }
+
     public Set<BinaryArtifactCreateRequest> getArtifacts() {
         return buildArtifacts();
     }
@@ -7,11 +7,12 @@ import com.capitalone.dashboard.request.BuildDataCreateRequest;
 import hudson.model.AbstractBuild;
 import hudson.model.Run;
 import hudson.model.TaskListener;
-import hudson.scm.ChangeLogSet;
 import hygieia.utils.HygieiaUtils;
+import jenkins.plugins.hygieia.CommitList;
+import jenkins.plugins.hygieia.RunContexts;
 import org.jenkinsci.plugins.workflow.job.WorkflowRun;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
@@ -30,7 +31,7 @@ public class BuildBuilder {
         request.setJobName(HygieiaUtils.getJobPath(run));
         request.setBuildUrl(HygieiaUtils.getBuildUrl(run));
         request.setJobUrl(HygieiaUtils.getJobUrl(run));
-        request.setInstanceUrl(HygieiaUtils.getInstanceUrl(run, listener));
+        request.setInstanceUrl(RunContexts.get(run, listener).getInstanceUrl());
         request.setNumber(HygieiaUtils.getBuildNumber(run));
         request.setStartTime(run.getStartTimeInMillis());
         request.setBuildStatus(result.toString());
@@ -43,8 +44,7 @@ public class BuildBuilder {
             if (buildChangeSet) {
                 request.setCodeRepos(getRepoBranch(run));
                 if( run instanceof WorkflowRun) {
-                    WorkflowRun wr = (WorkflowRun) run;
-                    request.setSourceChangeSet(getCommitList(wr.getChangeSets()));
+                    request.setSourceChangeSet(getCommitList(run));
                 }
             }
         }
@@ -62,7 +62,7 @@ public class BuildBuilder {
         request.setJobName(HygieiaUtils.getJobPath(build));
         request.setBuildUrl(HygieiaUtils.getBuildUrl(build));
         request.setJobUrl(HygieiaUtils.getJobUrl(build));
-        request.setInstanceUrl(HygieiaUtils.getInstanceUrl(build, listener));
+        request.setInstanceUrl(RunContexts.get(build, listener).getInstanceUrl());
         request.setNumber(HygieiaUtils.getBuildNumber(build));
         request.setStartTime(build.getStartTimeInMillis());
         request.setStages(stages);
@@ -73,9 +73,7 @@ public class BuildBuilder {
             request.setEndTime(build.getStartTimeInMillis() + build.getDuration());
             if (buildChangeSet) {
                 request.setCodeRepos(getRepoBranch(build));
-                ChangeLogSet<? extends ChangeLogSet.Entry> sets = build.getChangeSet();
-                List<ChangeLogSet<? extends ChangeLogSet.Entry>> changeLogSets = sets.isEmptySet() ? Collections.emptyList() : Collections.singletonList(sets);
-                request.setSourceChangeSet(getCommitList(changeLogSets));
+                request.setSourceChangeSet(getCommitList(build));
             }
         } else {
             request.setBuildStatus(BuildStatus.InProgress.toString());
@@ -83,9 +81,9 @@ public class BuildBuilder {
         return request;
     }
     
-    private List<SCM> getCommitList(List<ChangeLogSet<? extends ChangeLogSet.Entry>> changeLogSets) {
-        CommitBuilder commitBuilder = new CommitBuilder(changeLogSets);
-        return commitBuilder.getCommits();
+    private List<SCM> getCommitList(Run<?, ?> run) {
+        // the run's shared list is not to be modified
+        return new ArrayList<>(CommitList.getCommits(run));
     }
 
 }
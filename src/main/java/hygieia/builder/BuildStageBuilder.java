@@ -0,0 +1,366 @@
+package hygieia.builder;
+
+import com.capitalone.dashboard.model.BuildStage;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import hudson.model.Action;
+import hudson.model.Result;
+import hygieia.utils.HygieiaUtils;
+import org.jenkinsci.plugins.workflow.actions.ErrorAction;
+import org.jenkinsci.plugins.workflow.actions.LabelAction;
+import org.jenkinsci.plugins.workflow.actions.StageAction;
+import org.jenkinsci.plugins.workflow.actions.ThreadNameAction;
+import org.jenkinsci.plugins.workflow.actions.TimingAction;
+import org.jenkinsci.plugins.workflow.actions.WorkspaceAction;
+import org.jenkinsci.plugins.workflow.flow.FlowExecution;
+import org.jenkinsci.plugins.workflow.graph.BlockEndNode;
+import org.jenkinsci.plugins.workflow.graph.BlockStartNode;
+import org.jenkinsci.plugins.workflow.graph.FlowGraphWalker;
+import org.jenkinsci.plugins.workflow.graph.FlowNode;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.jenkinsci.plugins.workflow.steps.FlowInterruptedException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Builds the stages of a pipeline run straight from its flow graph, instead of asking this Jenkins for
+ * {@code /wfapi/describe} over HTTP. Stages come out in the order they started, with the same fields and links that
+ * the wfapi returns, so the rest of the publish path treats them the same way.
+ * <p>
+ * Both block scoped {@code stage('name') { }} and legacy {@code stage 'name'} stages are recognized. As in the wfapi, a
+ * stage fails when an error ended it: the end of its block carries the error, or for a legacy stage the last step
+ * before the next stage. It is aborted when that error was an interruption, and unstable when the interruption set the
+ * result to unstable. Errors caught inside a stage, by a retry, try/catch or {@code catchError}, leave it successful
+ * unless a step inside it left a warning, as {@code unstable} and {@code catchError(stageResult: ...)} do; the stage
+ * and the stages around it then take the result of the warning. A declarative stage skipped by {@code when} or by an
+ * earlier failure is not executed. Pause time is not tracked and is always reported as 0.
+ */
+public class BuildStageBuilder {
+    private static final Logger logger = Logger.getLogger(BuildStageBuilder.class.getName());
+
+    public static final String SUCCESS = "SUCCESS";
+    public static final String FAILED = "FAILED";
+    public static final String ABORTED = "ABORTED";
+    public static final String IN_PROGRESS = "IN_PROGRESS";
+    public static final String UNSTABLE = "UNSTABLE";
+    public static final String NOT_EXECUTED = "NOT_EXECUTED";
+
+    // declarative pipeline tags the start of a stage it skips with this tag, valued SKIPPED_FOR_CONDITIONAL and so on
+    private static final String STAGE_STATUS_TAG = "STAGE_STATUS";
+    private static final String SKIPPED_PREFIX = "SKIPPED";
+
+    // newer pipeline versions than the one this plugin builds against add these, so they are looked up by name
+    static Class<? extends Action> warningActionType = findActionType("org.jenkinsci.plugins.workflow.actions.WarningAction");
+    static Class<? extends Action> tagsActionType = findActionType("org.jenkinsci.plugins.workflow.actions.TagsAction");
+
+    private static final BuildStageBuilder INSTANCE = new BuildStageBuilder();
+
+    private static final Comparator<FlowNode> BY_ID = (a, b) -> {
+        // node ids are increasing integers, compare them numerically without parsing
+        String left = a.getId();
+        String right = b.getId();
+        return left.length() != right.length() ? left.length() - right.length() : left.compareTo(right);
+    };
+
+    public static BuildStageBuilder getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param logReader reads the log of each failed stage, or null to leave logs out
+     * @return the stages of {@code run} in start order, or null when the run has no flow graph yet
+     */
+    public LinkedList<BuildStage> getBuildStages(WorkflowRun run, StageLogReader logReader) {
+        List<Stage> stages = getStages(run);
+        if (stages == null) return null;
+        Gson gson = HygieiaUtils.getBuildStageGson();
+        LinkedList<BuildStage> buildStages = new LinkedList<>();
+        for (Stage stage : stages) {
+            BuildStage buildStage = gson.fromJson(stage.toJson(run), BuildStage.class);
+            // the wfapi links a stage's log to its first step, which is already known here
+            if (!stage.childIds.isEmpty()) buildStage.setExec_node_logUrl(getNodeUrl(run, stage.childIds.get(0)) + "wfapi/log");
+            if (logReader != null && FAILED.equals(stage.status)) {
+                try {
+                    buildStage.setLog(logReader.read(run, stage));
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Hygieia: Unable to read the log of stage " + stage.name + " in " + run.getFullDisplayName(), e);
+                }
+            }
+            buildStages.add(buildStage);
+        }
+        return buildStages;
+    }
+
+    /**
+     * @return the stages of {@code run} in start order, or null when the run has no flow graph yet
+     */
+    public List<Stage> getStages(WorkflowRun run) {
+        FlowExecution execution = run.getExecution();
+        if (execution == null) return null;
+
+        List<FlowNode> nodes = new ArrayList<>();
+        for (FlowNode node : new FlowGraphWalker(execution)) {
+            nodes.add(node);
+        }
+        // parents always have lower ids, so this is also a topological order
+        Collections.sort(nodes, BY_ID);
+
+        Map<String, BlockStartNode> enclosingBlocks = new HashMap<>();
+        Map<String, Stage> stagesById = new LinkedHashMap<>();
+        Stage legacyStage = null;
+        FlowNode legacyLastNode = null;
+        long runEnd = run.getDuration() > 0 ? run.getStartTimeInMillis() + run.getDuration() : System.currentTimeMillis();
+
+        for (FlowNode node : nodes) {
+            BlockStartNode enclosing = getEnclosingBlock(node, enclosingBlocks);
+            enclosingBlocks.put(node.getId(), enclosing);
+
+            if (node instanceof BlockStartNode && isBlockStage(node)) {
+                Stage parent = getEnclosingStage(enclosing, enclosingBlocks, stagesById);
+                Stage stage = new Stage(node, node.getAction(LabelAction.class).getDisplayName(), parent);
+                stage.execNode = getExecNode(node, enclosingBlocks);
+                if (isSkipped(node)) stage.status = NOT_EXECUTED;
+                stage.recordWarning(node);
+                stagesById.put(node.getId(), stage);
+                continue;
+            }
+            if (node.getAction(StageAction.class) != null) {
+                if (legacyStage != null) {
+                    if (legacyStage.endTimeMillis < 0) legacyStage.endTimeMillis = TimingAction.getStartTime(node);
+                    legacyStage.recordEnd(legacyLastNode);
+                }
+                legacyStage = new Stage(node, node.getAction(StageAction.class).getStageName(), null);
+                legacyLastNode = null;
+                legacyStage.execNode = getExecNode(node, enclosingBlocks);
+                legacyStage.recordWarning(node);
+                stagesById.put(node.getId(), legacyStage);
+                continue;
+            }
+
+            if (node instanceof BlockEndNode && stagesById.containsKey(((BlockEndNode<?>) node).getStartNode().getId())) {
+                Stage ended = stagesById.get(((BlockEndNode<?>) node).getStartNode().getId());
+                ended.endTimeMillis = TimingAction.getStartTime(node);
+                ended.recordWarning(node);
+                ended.recordEnd(node);
+                continue;
+            }
+            Stage owner = getEnclosingStage(enclosing, enclosingBlocks, stagesById);
+            if (owner == null && legacyStage != null) {
+                owner = legacyStage;
+                legacyLastNode = node;
+            }
+            if (owner == null) continue;
+            owner.childIds.add(node.getId());
+            owner.recordWarning(node);
+            if (owner.execNode.isEmpty() && node.getAction(WorkspaceAction.class) != null) {
+                owner.execNode = node.getAction(WorkspaceAction.class).getNode();
+            }
+        }
+        if (legacyStage != null) legacyStage.recordEnd(legacyLastNode);
+
+        boolean complete = execution.isComplete();
+        for (Stage stage : stagesById.values()) {
+            if (stage.endTimeMillis < 0) {
+                stage.endTimeMillis = runEnd;
+                if (!complete && stage.status.equals(SUCCESS)) stage.status = IN_PROGRESS;
+            }
+        }
+        return new ArrayList<>(stagesById.values());
+    }
+
+    private static boolean isBlockStage(FlowNode node) {
+        // parallel branches are labelled blocks as well, but they also carry a thread name
+        return node.getAction(LabelAction.class) != null && node.getAction(ThreadNameAction.class) == null;
+    }
+
+    private static boolean isSkipped(FlowNode node) {
+        Object status = invokeOnAction(node, tagsActionType, "getTagValue", STAGE_STATUS_TAG);
+        return status instanceof String && ((String) status).startsWith(SKIPPED_PREFIX);
+    }
+
+    /**
+     * @return the status a warning on {@code node} gives its stage, or null when it has none
+     */
+    private static String getWarningStatus(FlowNode node) {
+        Object result = invokeOnAction(node, warningActionType, "getResult");
+        if (Result.UNSTABLE.equals(result)) return UNSTABLE;
+        if (Result.FAILURE.equals(result)) return FAILED;
+        return null;
+    }
+
+    private static Object invokeOnAction(FlowNode node, Class<? extends Action> type, String method, String... args) {
+        if (type == null) return null;
+        Action action = node.getAction(type);
+        if (action == null) return null;
+        Class<?>[] parameterTypes = new Class<?>[args.length];
+        Arrays.fill(parameterTypes, String.class);
+        try {
+            return type.getMethod(method, parameterTypes).invoke(action, (Object[]) args);
+        } catch (ReflectiveOperationException e) {
+            logger.log(Level.FINE, "Hygieia: Unable to call " + method + " on " + type.getName(), e);
+            return null;
+        }
+    }
+
+    private static Class<? extends Action> findActionType(String className) {
+        try {
+            return Class.forName(className, false, FlowNode.class.getClassLoader()).asSubclass(Action.class);
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static BlockStartNode getEnclosingBlock(FlowNode node, Map<String, BlockStartNode> enclosingBlocks) {
+        if (node instanceof BlockEndNode) {
+            return enclosingBlocks.get(((BlockEndNode<?>) node).getStartNode().getId());
+        }
+        List<FlowNode> parents = node.getParents();
+        if (parents.isEmpty()) return null;
+        FlowNode parent = parents.get(0);
+        if (parent instanceof BlockStartNode) return (BlockStartNode) parent;
+        if (parent instanceof BlockEndNode) return enclosingBlocks.get(((BlockEndNode<?>) parent).getStartNode().getId());
+        return enclosingBlocks.get(parent.getId());
+    }
+
+    private static Stage getEnclosingStage(BlockStartNode block, Map<String, BlockStartNode> enclosingBlocks, Map<String, Stage> stagesById) {
+        for (; block != null; block = enclosingBlocks.get(block.getId())) {
+            Stage stage = stagesById.get(block.getId());
+            if (stage != null) return stage;
+        }
+        return null;
+    }
+
+    /**
+     * The agent a stage runs on is usually set by a {@code node} block around it.
+     */
+    private static String getExecNode(FlowNode node, Map<String, BlockStartNode> enclosingBlocks) {
+        for (FlowNode block = node; block != null; block = enclosingBlocks.get(block.getId())) {
+            WorkspaceAction workspace = block.getAction(WorkspaceAction.class);
+            if (workspace != null) return workspace.getNode();
+        }
+        return "";
+    }
+
+    public static class Stage {
+        private final String id;
+        private final String name;
+        private final Stage parent;
+        private final long startTimeMillis;
+        private final List<String> childIds = new ArrayList<>();
+        private long endTimeMillis = -1;
+        private String status = SUCCESS;
+        private String execNode = "";
+
+        Stage(FlowNode node, String name, Stage parent) {
+            this.id = node.getId();
+            this.name = name;
+            this.parent = parent;
+            this.startTimeMillis = TimingAction.getStartTime(node);
+        }
+
+        /**
+         * @param end the node that ended this stage, or null if it has no steps
+         */
+        void recordEnd(FlowNode end) {
+            ErrorAction error = end != null ? end.getAction(ErrorAction.class) : null;
+            if (error == null) return;
+            if (!(error.getError() instanceof FlowInterruptedException)) {
+                status = FAILED;
+            } else {
+                status = Result.UNSTABLE.equals(((FlowInterruptedException) error.getError()).getResult()) ? UNSTABLE : ABORTED;
+            }
+        }
+
+        /**
+         * Gives this stage and the stages around it the result of a warning left on {@code node}, unless they already
+         * ended worse.
+         */
+        void recordWarning(FlowNode node) {
+            String warning = getWarningStatus(node);
+            if (warning == null) return;
+            for (Stage stage = this; stage != null; stage = stage.parent) {
+                if (stage.status.equals(SUCCESS) || stage.status.equals(UNSTABLE) && warning.equals(FAILED)) {
+                    stage.status = warning;
+                }
+            }
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the stage this one is nested in, or null for a top level stage
+         */
+        public Stage getParent() {
+            return parent;
+        }
+
+        /**
+         * @return ids of the flow nodes directly inside this stage, in execution order
+         */
+        public List<String> getChildIds() {
+            return Collections.unmodifiableList(childIds);
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public String getExecNode() {
+            return execNode;
+        }
+
+        public long getStartTimeMillis() {
+            return startTimeMillis;
+        }
+
+        public long getDurationMillis() {
+            return Math.max(0, endTimeMillis - startTimeMillis);
+        }
+
+        /**
+         * Same shape as a stage in the {@code /wfapi/describe} response, so it maps onto {@link BuildStage} exactly
+         * like the HTTP result did.
+         */
+        JsonObject toJson(WorkflowRun run) {
+            JsonObject self = new JsonObject();
+            self.addProperty("href", getNodeUrl(run, id) + "wfapi/describe");
+            JsonObject links = new JsonObject();
+            links.add("self", self);
+
+            JsonObject json = new JsonObject();
+            json.add("_links", links);
+            json.addProperty("id", id);
+            json.addProperty("name", name);
+            json.addProperty("execNode", execNode);
+            json.addProperty("status", status);
+            json.addProperty("startTimeMillis", startTimeMillis);
+            json.addProperty("durationMillis", getDurationMillis());
+            json.addProperty("pauseDurationMillis", 0);
+            return json;
+        }
+    }
+
+    /**
+     * @return the instance relative url of a flow node, e.g. {@code /job/name/61/execution/node/7/}
+     */
+    public static String getNodeUrl(WorkflowRun run, String nodeId) {
+        return "/" + run.getUrl() + "execution/node/" + nodeId + "/";
+    }
+}
@@ -1,49 +1,86 @@
 package hygieia.builder;
 
 import com.capitalone.dashboard.model.SCM;
+import hudson.model.AbstractBuild;
+import hudson.model.Run;
 import hudson.scm.ChangeLogSet;
+import org.apache.commons.lang3.StringUtils;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class CommitBuilder {
     private static final Logger logger = Logger.getLogger(CommitBuilder.class.getName());
-    private List<SCM> commitList = new LinkedList<>();
+    public static final int DEFAULT_MAX_COMMITS = 1000;
+    public static final int DEFAULT_MAX_MESSAGE_LENGTH = 4096;
+    // StringUtils.abbreviate needs room for the ellipsis
+    private static final int MIN_MESSAGE_LENGTH = 4;
+
+    private static volatile int maxCommits = DEFAULT_MAX_COMMITS;
+    private static volatile int maxMessageLength = DEFAULT_MAX_MESSAGE_LENGTH;
+
+    private final int commitLimit = maxCommits;
+    private final int messageLimit = maxMessageLength;
+    private final List<SCM> commitList = new ArrayList<>();
+    private final Set<String> revisions = new HashSet<>();
+    private final Set<ChangeLogSet> visited = Collections.newSetFromMap(new IdentityHashMap<ChangeLogSet, Boolean>());
+    private int dropped;
 
 
     public CommitBuilder(ChangeLogSet changeLogSet) {
         buildCommits(changeLogSet);
+        logDropped();
     }
 
     public CommitBuilder(List<ChangeLogSet<? extends ChangeLogSet.Entry>> changeLogSets) {
         if (changeLogSets != null) {
             buildCommits(changeLogSets);
         }
+        logDropped();
+    }
+
+    /**
+     * Applies the global configuration to commit lists built from now on.
+     *
+     * @param maxCommits       most commits sent for one change set list, the default when not positive
+     * @param maxMessageLength longest commit message sent, longer ones are cut; the default when not positive
+     */
+    public static void configure(int maxCommits, int maxMessageLength) {
+        CommitBuilder.maxCommits = maxCommits > 0 ? maxCommits : DEFAULT_MAX_COMMITS;
+        CommitBuilder.maxMessageLength = maxMessageLength > 0 ? Math.max(maxMessageLength, MIN_MESSAGE_LENGTH) : DEFAULT_MAX_MESSAGE_LENGTH;
+    }
+
+    /**
+     * @return the change sets of a pipeline or freestyle run, empty for other runs
+     */
+    public static List<ChangeLogSet<? extends ChangeLogSet.Entry>> getChangeLogSets(Run<?, ?> run) {
+        if (run instanceof WorkflowRun) {
+            List<ChangeLogSet<? extends ChangeLogSet.Entry>> changeSets = ((WorkflowRun) run).getChangeSets();
+            return changeSets == null ? Collections.<ChangeLogSet<? extends ChangeLogSet.Entry>>emptyList() : changeSets;
+        } else if (run instanceof AbstractBuild) {
+            ChangeLogSet<? extends ChangeLogSet.Entry> sets = ((AbstractBuild<?, ?>) run).getChangeSet();
+            return (sets == null || sets.isEmptySet()) ? Collections.<ChangeLogSet<? extends ChangeLogSet.Entry>>emptyList() : Collections.<ChangeLogSet<? extends ChangeLogSet.Entry>>singletonList(sets);
+        }
+        return Collections.emptyList();
     }
 
 
     private void buildCommits(ChangeLogSet changeLogSet) {
+        // a parent change set is shared by its entries, and may be reached again through another list
+        if (!visited.add(changeLogSet)) return;
         for (Object o : changeLogSet.getItems()) {
             ChangeLogSet.Entry entry = (ChangeLogSet.Entry) o;
-            SCM commit = new SCM();
-
-            if (entry.getAffectedFiles() != null) {
-                commit.setNumberOfChanges(entry.getAffectedFiles().size());
-            } else {
-                commit.setNumberOfChanges(0);
-            }
-            if (!"".equals(entry.getAuthor().getFullName())) {
-                commit.setScmAuthor(entry.getAuthor().getFullName());
+            if (commitList.size() >= commitLimit) {
+                dropped++;
             } else {
-                commit.setScmAuthor(entry.getAuthor().getId());
-            }
-            commit.setScmCommitLog(entry.getMsg());
-            commit.setScmCommitTimestamp(entry.getTimestamp()); //Timestamp will be -1 mostly per Jenkins documentation - as commits span over time.
-            commit.setScmRevisionNumber(entry.getCommitId());
-            if (isNewCommit(commit)) {
-                logger.info("Adding commit:" + commit.getScmUrl()+":"+commit.getScmBranch()+":"+commit.getScmRevisionNumber()+":"+commit.getScmCommitLog());
-                commitList.add(commit);
+                addCommit(entry);
             }
             if ((entry.getParent() != null) && (!changeLogSet.equals(entry.getParent()))) {
                 buildCommits(entry.getParent());
@@ -51,6 +88,31 @@ public class CommitBuilder {
         }
     }
 
+    private void addCommit(ChangeLogSet.Entry entry) {
+        String revision = entry.getCommitId();
+        // commits without a revision cannot be told apart, so all of them are kept
+        if (revision != null && !revisions.add(revision)) return;
+
+        SCM commit = new SCM();
+        if (entry.getAffectedFiles() != null) {
+            commit.setNumberOfChanges(entry.getAffectedFiles().size());
+        } else {
+            commit.setNumberOfChanges(0);
+        }
+        if (!"".equals(entry.getAuthor().getFullName())) {
+            commit.setScmAuthor(entry.getAuthor().getFullName());
+        } else {
+            commit.setScmAuthor(entry.getAuthor().getId());
+        }
+        commit.setScmCommitLog(StringUtils.abbreviate(entry.getMsg(), messageLimit));
+        commit.setScmCommitTimestamp(entry.getTimestamp()); //Timestamp will be -1 mostly per Jenkins documentation - as commits span over time.
+        commit.setScmRevisionNumber(revision);
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Adding commit:" + commit.getScmUrl() + ":" + commit.getScmBranch() + ":" + commit.getScmRevisionNumber() + ":" + commit.getScmCommitLog());
+        }
+        commitList.add(commit);
+    }
+
 
     private void buildCommits(List<ChangeLogSet<? extends ChangeLogSet.Entry>> changeLogSets) {
         for (ChangeLogSet changeLogSet : changeLogSets) {
@@ -58,14 +120,10 @@ public class CommitBuilder {
         }
     }
 
-
-    private boolean isNewCommit(SCM commit) {
-        for (SCM c : commitList) {
-            if (c.getScmRevisionNumber().equals(commit.getScmRevisionNumber())) {
-                return false;
-            }
+    private void logDropped() {
+        if (dropped > 0) {
+            logger.info("Keeping the first " + commitLimit + " commits of the change set, " + dropped + " more left out");
         }
-        return true;
     }
 
     public List<SCM> getCommits() {
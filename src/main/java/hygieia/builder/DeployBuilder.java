@@ -10,7 +10,9 @@ import hudson.model.AbstractBuild;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hygieia.utils.HygieiaUtils;
+import hygieia.utils.RunContext;
 import jenkins.plugins.hygieia.HygieiaPublisher;
+import jenkins.plugins.hygieia.RunContexts;
 import jenkins.plugins.hygieia.workflow.HygieiaDeployPublishStep;
 import org.apache.commons.lang3.StringUtils;
 import org.jenkinsci.plugins.workflow.job.WorkflowRun;
@@ -74,17 +76,15 @@ public class DeployBuilder {
         environmentName = StringUtils.trim(retrieveFromAbstractBuild ? hygieiaDeploy.getEnvironmentName() : hygieiaDeployPublishStep.getEnvironmentName());
 
 
-        try {
-            envVars = run.getEnvironment(listener);
-
-            if (envVars != null) {
-                artifactVersion = envVars.expand(artifactVersion);
-                artifactName = envVars.expand(artifactName);
-                environmentName = envVars.expand(environmentName);
-                applicationName = envVars.expand(applicationName);
-            }
-        } catch (IOException | InterruptedException e) {
-            listener.getLogger().println("Hygieia BuildArtifact Publisher - IOException getting EnvVars");
+        RunContext context = RunContexts.get(run, listener);
+        envVars = context.getEnvironment();
+        if (envVars != null) {
+            artifactVersion = envVars.expand(artifactVersion);
+            artifactName = envVars.expand(artifactName);
+            environmentName = envVars.expand(environmentName);
+            applicationName = envVars.expand(applicationName);
+        } else {
+            listener.getLogger().println("Hygieia Deployment Publisher - Run environment unavailable, using the configured values without expanding them");
         }
 
         try {
@@ -92,7 +92,16 @@ public class DeployBuilder {
             rootDirectory = (run instanceof WorkflowRun) ? new FilePath(filePath, StringUtils.trim(hygieiaDeployPublishStep.getArtifactDirectory()))
             : new FilePath(Objects.requireNonNull(build.getWorkspace()), StringUtils.trim(hygieiaDeploy.getArtifactDirectory()));
             listener.getLogger().println("Hygieia Deployment Publisher - Looking for file pattern '" + artifactName + "' in directory " + rootDirectory);
-            List<FilePath> artifactFiles = HygieiaUtils.getArtifactFiles(rootDirectory, artifactName, new ArrayList<FilePath>());
+            List<FilePath> artifactFiles = HygieiaUtils.getArtifactFiles(run, rootDirectory, artifactName, new ArrayList<FilePath>());
+
+            // the same for every file
+            BuildDataCreateRequest buildDataCreateRequest = null;
+            if (!artifactFiles.isEmpty()) {
+                String startedBy = context.getStartedBy();
+                buildDataCreateRequest = (run instanceof WorkflowRun)
+                        ? new BuildBuilder().createBuildRequestFromRun(run, jenkinsName, listener, result, false, new LinkedList<BuildStage>(), startedBy)
+                        : new BuildBuilder().createBuildRequest((AbstractBuild) run, jenkinsName, listener, true, false, new LinkedList<BuildStage>(), startedBy);
+            }
 
             for (FilePath f : artifactFiles) {
                 listener.getLogger().println("Hygieia Deployment Publisher: Processing  file: " + f.getRemote());
@@ -105,10 +114,6 @@ public class DeployBuilder {
                 
                 bac.setArtifactVersion(artifactVersion);
                 bac.setArtifactName(artifactName);
-                String startedBy = HygieiaUtils.getUserID(run, listener);
-                BuildDataCreateRequest buildDataCreateRequest = (run instanceof WorkflowRun)
-                        ? new BuildBuilder().createBuildRequestFromRun(run, jenkinsName, listener, result, false, new LinkedList<BuildStage>(), startedBy)
-                        : new BuildBuilder().createBuildRequest((AbstractBuild) run, jenkinsName, listener, true, false, new LinkedList<BuildStage>(), startedBy);
 
                 bac.setDeployStatus(buildDataCreateRequest.getBuildStatus());
                 bac.setDuration(buildDataCreateRequest.getDuration());
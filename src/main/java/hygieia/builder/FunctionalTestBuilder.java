@@ -7,6 +7,7 @@ import com.capitalone.dashboard.model.quality.QualityVisitee;
 import com.capitalone.dashboard.request.BuildDataCreateRequest;
 import com.capitalone.dashboard.request.TestDataCreateRequest;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.google.common.collect.Lists;
 import hudson.EnvVars;
 import hudson.FilePath;
@@ -14,32 +15,38 @@ import hudson.model.Run;
 import hudson.model.TaskListener;
 import hygieia.transformer.TestResultVisitor;
 import hygieia.utils.HygieiaUtils;
+import jenkins.plugins.hygieia.RunContexts;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.logging.Logger;
 
 
 public class FunctionalTestBuilder {
-    private static final Logger logger = Logger.getLogger(FunctionalTestBuilder.class.getName());
-    private ObjectMapper objectMapper;
+    private final ObjectReader reportReader;
 
     public FunctionalTestBuilder(ObjectMapper objectMapper) {
-        this.objectMapper = objectMapper;
+        this(objectMapper.readerFor(QualityVisitee.class));
+    }
+
+    /**
+     * @param reportReader reads a test report file as a {@link QualityVisitee}
+     */
+    public FunctionalTestBuilder(ObjectReader reportReader) {
+        this.reportReader = reportReader;
     }
 
     private TestResult buildTestResults(Run run, TaskListener listener, String filePattern, FilePath filePath, String directory, BuildDataCreateRequest buildDataCreateRequest, String testType) {
         List<FilePath> testFiles = null;
         try {
-            EnvVars envVars = run.getEnvironment(listener);
+            EnvVars envVars = RunContexts.get(run, listener).getEnvironment();
             FilePath rootDirectory = filePath.withSuffix(directory);
             if (envVars != null) {
                 filePattern = envVars.expand(filePattern);
             }
-            testFiles = Lists.newArrayList(HygieiaUtils.getArtifactFiles(rootDirectory, filePattern, new ArrayList<FilePath>()));
+            testFiles = Lists.newArrayList(HygieiaUtils.getArtifactFiles(run, rootDirectory, filePattern, new ArrayList<FilePath>()));
             listener.getLogger().println("Hygieia Test Result Publisher - Looking for file pattern '" + filePattern + "' in directory " + rootDirectory.getRemote());
         } catch (IOException e) {
             e.printStackTrace();
@@ -57,7 +64,7 @@ public class FunctionalTestBuilder {
         for (FilePath file : testFiles) {
             try {
                 listener.getLogger().println("Hygieia Test Publisher: Processing file: " + file.getRemote());
-                QualityVisitee report = objectMapper.readValue(file.readToString(), QualityVisitee.class);
+                QualityVisitee report = reportReader.readValue(file.readToString());
                 cucumberTransformer.setCurrentDescriprion(getCapabilityDescription(file));
                 report.accept(cucumberTransformer);
             } catch (IOException e) {
@@ -88,7 +95,7 @@ public class FunctionalTestBuilder {
 
     public TestDataCreateRequest getTestDataCreateRequest(Run run, TaskListener listener, BuildStatus buildStatus, FilePath filePath, String applicationName, String environmentName, String testType, String filePattern, String directory, String jenkinsName, String buildId) {
 
-        String startedBy = HygieiaUtils.getUserID(run, listener);
+        String startedBy = RunContexts.get(run, listener).getStartedBy();
         BuildDataCreateRequest buildDataCreateRequest = new BuildBuilder()
                 .createBuildRequestFromRun(run, jenkinsName, listener, buildStatus, false, new LinkedList<BuildStage>(), startedBy);
 
@@ -96,12 +103,7 @@ public class FunctionalTestBuilder {
 
         if (testResult != null) {
             TestDataCreateRequest request = new TestDataCreateRequest();
-            EnvVars env = null;
-            try {
-                env = run.getEnvironment(listener);
-            } catch (IOException | InterruptedException e) {
-                logger.warning("Error getting environment variables");
-            }
+            EnvVars env = RunContexts.get(run, listener).getEnvironment();
             if (env != null) {
                 request.setServerUrl(env.get("JENKINS_URL"));
             } else {
@@ -2,7 +2,9 @@ package hygieia.builder;
 
 import com.capitalone.dashboard.request.GenericCollectorItemCreateRequest;
 import hudson.model.Run;
+import hygieia.utils.ConsoleLogScanner;
 import hygieia.utils.HygieiaUtils;
+import jenkins.plugins.hygieia.LogMatches;
 import org.apache.commons.collections4.CollectionUtils;
 
 import javax.validation.constraints.NotNull;
@@ -10,7 +12,6 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 public class GenericCollectorItemBuilder {
 
@@ -22,16 +23,33 @@ public class GenericCollectorItemBuilder {
     }
 
     public List<GenericCollectorItemCreateRequest> getRequests(@NotNull Run<?, ?> run,@NotNull String toolName,@NotNull String pattern, String buildId) throws IOException {
+        ConsoleLogScanner scanner = new ConsoleLogScanner().add(pattern);
+        ConsoleLogScanner.Matches logMatches = LogMatches.getMatches(run, scanner);
+        return getRequests(run, toolName, pattern, buildId, logMatches != null ? logMatches : scanner.scan(run));
+    }
+
+    /**
+     * @param logMatches result of a console log scan that included {@code pattern}
+     */
+    public List<GenericCollectorItemCreateRequest> getRequests(@NotNull Run<?, ?> run,@NotNull String toolName,@NotNull String pattern, String buildId, @NotNull ConsoleLogScanner.Matches logMatches) {
+        return getRequests(run.getParent().getAbsoluteUrl(), toolName, pattern, buildId, logMatches);
+    }
+
+    /**
+     * @param source     absolute url of the job the log belongs to
+     * @param logMatches result of a console log scan that included {@code pattern}
+     */
+    public List<GenericCollectorItemCreateRequest> getRequests(String source,@NotNull String toolName,@NotNull String pattern, String buildId, @NotNull ConsoleLogScanner.Matches logMatches) {
         List<GenericCollectorItemCreateRequest> requests = new ArrayList<>();
-        pattern = ".*" + Pattern.quote(pattern) + "(.*)";
-        Set<String> matchedData = HygieiaUtils.getMatchedLinesFromLog(run, pattern);
+        Set<String> matchedData = logMatches.getAll(pattern);
+        pattern = ConsoleLogScanner.toRegex(pattern);
         if (CollectionUtils.isEmpty(matchedData)) return requests;
         for (String line: matchedData) {
             GenericCollectorItemCreateRequest gc = new GenericCollectorItemCreateRequest();
             gc.setRelatedCollectorItemId(HygieiaUtils.getCollectorItemId(buildId));
             gc.setRawData(line.trim());
             gc.setBuildId(HygieiaUtils.getBuildCollectionId(buildId));
-            gc.setSource(run.getParent().getAbsoluteUrl());
+            gc.setSource(source);
             gc.setToolName(toolName);
             gc.setPattern(pattern);
             requests.add(gc);
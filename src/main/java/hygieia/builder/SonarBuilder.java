@@ -4,11 +4,15 @@ import com.capitalone.dashboard.model.CodeQualityMetric;
 import com.capitalone.dashboard.model.CodeQualityMetricStatus;
 import com.capitalone.dashboard.model.CodeQualityType;
 import com.capitalone.dashboard.request.CodeQualityCreateRequest;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import hudson.model.Run;
 import hudson.model.TaskListener;
+import hygieia.utils.ConsoleLogScanner;
 import hygieia.utils.HygieiaUtils;
+import hygieia.utils.JsonStreams;
+import jenkins.plugins.hygieia.LogMatches;
 import jenkins.plugins.hygieia.RestCall;
-import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.httpclient.HttpStatus;
 import org.apache.commons.lang3.StringUtils;
 import org.json.simple.JSONArray;
@@ -20,19 +24,20 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Pattern;
 
 public class SonarBuilder {
     private static final Logger logger = Logger.getLogger(SonarBuilder.class.getName());
     private static final String URL_VERSION = "/api/server/version";
     /**
-     * Pattern for Sonar project URL in logs
+     * Text before the Sonar project URL in logs
      */
-    private static final String URL_PATTERN_IN_LOGS = ".*" + Pattern.quote("ANALYSIS SUCCESSFUL, you can browse ") + "(.*)";
-    private static final String URL_PROCESSING_STATUS_FRAGMENT = ".*" + Pattern.quote("More about the report processing at ") + "(.*)";
+    private static final String URL_PREFIX_IN_LOGS = "ANALYSIS SUCCESSFUL, you can browse ";
+    private static final String URL_PROCESSING_STATUS_PREFIX = "More about the report processing at ";
 
     private static final String URL_PROJECT_ID_FRAGMENT_PRE6_3 = "/api/projects/index?format=json&key=%s";
     private static final String URL_PROJECT_ID_FRAGMENT_POST6_3 = "/api/components/search?qualifiers=TRK&q=%s";
@@ -109,18 +114,13 @@ public class SonarBuilder {
      * Else returns false
      * @throws ParseException ParseException
      */
-    private boolean sonarProcessingComplete(Run<?, ?> run, TaskListener listener, RestCall restCall, String ceQueryIntervalInSecondsString, String ceQueryMaxAttemptsString) throws ParseException {
+    private boolean sonarProcessingComplete(ConsoleLogScanner.Matches logMatches, TaskListener listener, RestCall restCall, String ceQueryIntervalInSecondsString, String ceQueryMaxAttemptsString) throws ParseException {
         // Sonar 5.2+ check if the sonar ce api url exists. If not,
         // then the project is using old sonar version and hence
         // request to Compute Engine api is not required.
-        String sonarCEAPIUrl = "";
         int ceQueryIntervalInSeconds = HygieiaUtils.getSafePositiveInteger(ceQueryIntervalInSecondsString, DEFAULT_QUERY_INTERVAL);
         int ceQueryMaxAttempts = HygieiaUtils.getSafePositiveInteger(ceQueryMaxAttemptsString, DEFAULT_QUERY_MAX_ATTEMPTS);
-        try {
-            sonarCEAPIUrl = extractSonarProcessingStatusUrlFromLogs(run);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        String sonarCEAPIUrl = extractSonarProcessingStatusUrlFromLogs(logMatches);
         if (StringUtils.isEmpty(sonarCEAPIUrl)) {
             // request to CE API is not required as Sonar Version < 5.2
             return true;
@@ -174,19 +174,51 @@ public class SonarBuilder {
      * @throws ParseException org.json.simple.parser.ParseException
      */
     private String getSonarTaskStatus(String ceTaskResponse) throws org.json.simple.parser.ParseException {
-        JSONObject ceTaskResponseObject = (JSONObject) new org.json.simple.parser.JSONParser().parse(ceTaskResponse);
-        JSONObject task = (JSONObject) ceTaskResponseObject.get("task");
-        return str(task, "status");
+        try (JsonParser parser = JsonStreams.open(ceTaskResponse)) {
+            if (isObject(parser) && JsonStreams.nextField(parser, "task") && isObject(parser) && JsonStreams.nextField(parser, "status")) {
+                return JsonStreams.text(parser);
+            }
+            return "";
+        } catch (IOException e) {
+            throw parseException(e);
+        }
     }
 
 
     public CodeQualityCreateRequest getSonarMetrics(Run<?, ?> run, TaskListener listener, String jenkinsName, String ceQueryIntervalInSeconds, String ceQueryMaxAttempts, String buildId, boolean useProxy) throws ParseException {
+        return getSonarMetrics(run, listener, jenkinsName, ceQueryIntervalInSeconds, ceQueryMaxAttempts, buildId, useProxy, null);
+    }
+
+    /**
+     * @param logMatches result of a console log scan that included {@link #addLogPatterns(ConsoleLogScanner)}, or null
+     *                   to scan the log here
+     */
+    public CodeQualityCreateRequest getSonarMetrics(Run<?, ?> run, TaskListener listener, String jenkinsName, String ceQueryIntervalInSeconds, String ceQueryMaxAttempts, String buildId, boolean useProxy, ConsoleLogScanner.Matches logMatches) throws ParseException {
+        if (logMatches == null) {
+            try {
+                ConsoleLogScanner scanner = addLogPatterns(new ConsoleLogScanner());
+                logMatches = LogMatches.getMatches(run, scanner);
+                if (logMatches == null) logMatches = scanner.scanFromEnd(run);
+            } catch (IOException e) {
+                listener.getLogger().println("Hygieia Publisher: Unable to read the build log for the Sonar analysis: " + e.getMessage());
+                return null;
+            }
+        }
+        return getSonarMetrics(listener, jenkinsName, ceQueryIntervalInSeconds, ceQueryMaxAttempts, buildId, useProxy, logMatches);
+    }
+
+    /**
+     * Reads the metrics without the run, for publishes that happen after its build log is closed.
+     *
+     * @param logMatches result of a console log scan that included {@link #addLogPatterns(ConsoleLogScanner)}
+     */
+    public CodeQualityCreateRequest getSonarMetrics(TaskListener listener, String jenkinsName, String ceQueryIntervalInSeconds, String ceQueryMaxAttempts, String buildId, boolean useProxy, ConsoleLogScanner.Matches logMatches) throws ParseException {
         String sonarServer = "";
         double sonarVersion = 0.0;
         String sonarProjectID = "";
         String sonarBuildLink = "";
         try {
-            sonarBuildLink = extractSonarProjectURLFromLogs(run);
+            sonarBuildLink = extractSonarProjectURLFromLogs(logMatches);
             if (!StringUtils.isEmpty(sonarBuildLink)) {
                 String sonarProjectName = getSonarProjectName(sonarBuildLink);
                 sonarServer = sonarBuildLink.substring(0, sonarBuildLink.indexOf("/dashboard/index/" + sonarProjectName));
@@ -194,7 +226,7 @@ public class SonarBuilder {
                 sonarProjectID = getSonarProjectID(sonarProjectName, sonarVersion, sonarServer, useProxy);
             }
         }
-        catch (IOException | URISyntaxException e) {
+        catch (URISyntaxException e) {
             e.printStackTrace();
         }
 
@@ -203,16 +235,16 @@ public class SonarBuilder {
         if (sonarVersion >= 6.3) {
             return getSonarMetricsPost6_3(sonarServer, sonarProjectID, sonarBuildLink,  useProxy, jenkinsName, HygieiaUtils.getBuildCollectionId(buildId));
         } else {
-            return getSonarMetricsPre6_3(run, listener, sonarServer, sonarProjectID, useProxy, jenkinsName, HygieiaUtils.getBuildCollectionId(buildId), ceQueryIntervalInSeconds, ceQueryMaxAttempts);
+            return getSonarMetricsPre6_3(logMatches, listener, sonarServer, sonarProjectID, useProxy, jenkinsName, HygieiaUtils.getBuildCollectionId(buildId), ceQueryIntervalInSeconds, ceQueryMaxAttempts);
         }
     }
 
 
-    private CodeQualityCreateRequest getSonarMetricsPre6_3(Run<?, ?> run, TaskListener listener, String sonarServer, String sonarProjectID, boolean useProxy, String jenkinsName, String buildId, String ceQueryIntervalInSeconds, String ceQueryMaxAttempts) throws ParseException {
+    private CodeQualityCreateRequest getSonarMetricsPre6_3(ConsoleLogScanner.Matches logMatches, TaskListener listener, String sonarServer, String sonarProjectID, boolean useProxy, String jenkinsName, String buildId, String ceQueryIntervalInSeconds, String ceQueryMaxAttempts) throws ParseException {
         String url = String.format(sonarServer + URL_METRIC_FRAGMENT_PRE_6_3, sonarProjectID, METRICS_PRE6_3);
         RestCall restCall = new RestCall(useProxy);
         //sonar 5.2+ changes - CE api
-        if (sonarProcessingComplete(run, listener, restCall, ceQueryIntervalInSeconds, ceQueryMaxAttempts)) {
+        if (sonarProcessingComplete(logMatches, listener, restCall, ceQueryIntervalInSeconds, ceQueryMaxAttempts)) {
             RestCall.RestCallResponse callResponse = restCall.makeRestCallGet(url);
             int responseCode = callResponse.getResponseCode();
             if (responseCode == HttpStatus.SC_OK) {
@@ -283,57 +315,164 @@ public class SonarBuilder {
         RestCall restCall = new RestCall(useProxy);
         RestCall.RestCallResponse response = restCall.makeRestCallGet(url);
 
-        JSONParser jsonParser = new JSONParser();
-        JSONObject jsonObject = (JSONObject) jsonParser.parse(response.getResponseString());
-        String key = "component";
-
-        if (jsonObject != null) {
-            JSONObject prjData = (JSONObject) jsonObject.get(key);
+        try {
+            SonarComponent prjData = readComponent(response.getResponseString());
+            if (prjData == null) return null;
 
             CodeQualityCreateRequest codeQuality = new CodeQualityCreateRequest();
             codeQuality.setType(CodeQualityType.StaticAnalysis);
-            codeQuality.setProjectName(str(prjData, NAME));
+            codeQuality.setProjectName(prjData.name);
             codeQuality.setProjectUrl(sonarBuildLink);
             codeQuality.setServerUrl(sonarServer);
-            codeQuality.setProjectId(str(prjData, ID));
+            codeQuality.setProjectId(prjData.id);
             codeQuality.setNiceName(jenkinsName);
             codeQuality.setHygieiaId(buildId);
             url = String.format(
-                    sonarServer + URL_PROJECT_ANALYSES, str(prjData, KEY));
+                    sonarServer + URL_PROJECT_ANALYSES, prjData.key);
             RestCall.RestCallResponse analysisResponse = restCall.makeRestCallGet(url);
-            key = "analyses";
-            JSONObject analysisJSONObject = (JSONObject) jsonParser.parse(analysisResponse.getResponseString());
-            JSONArray jsonArray = (JSONArray) analysisJSONObject.get(key);
-            JSONObject prjLatestData = (JSONObject) jsonArray.get(0);
-            codeQuality.setTimestamp(timestamp(prjLatestData, DATE));
-            for (Object eventObj : (JSONArray) prjLatestData.get(EVENTS)) {
-                JSONObject eventJson = (JSONObject) eventObj;
-
-                if (Objects.equals(str(eventJson, "category"), "VERSION")) {
-                    codeQuality.setProjectVersion(str(eventJson, NAME));
-                }
-            }
+            readLatestAnalysis(analysisResponse.getResponseString(), codeQuality);
 
-            for (Object metricObj : (JSONArray) prjData.get(MEASURES)) {
-                JSONObject metricJson = (JSONObject) metricObj;
+            for (String[] measure : prjData.measures) {
+                String value = measure[1];
 
-                CodeQualityMetric metric = new CodeQualityMetric(str(metricJson, METRIC));
-                metric.setValue(str(metricJson, VALUE));
+                CodeQualityMetric metric = new CodeQualityMetric(measure[0]);
+                metric.setValue(value);
                 if (Objects.equals(metric.getName(), "sqale_index")) {
-                    metric.setFormattedValue(format(str(metricJson, VALUE)));
-                } else if (str(metricJson, VALUE).indexOf(".") > 0) {
-                    metric.setFormattedValue(str(metricJson, VALUE) + "%");
-                } else if (str(metricJson, VALUE).matches("\\d+")) {
-                    metric.setFormattedValue(String.format("%,d", integer(metricJson, VALUE)));
+                    metric.setFormattedValue(format(value));
+                } else if (value.indexOf(".") > 0) {
+                    metric.setFormattedValue(value + "%");
+                } else if (value.matches("\\d+")) {
+                    metric.setFormattedValue(String.format("%,d", Integer.valueOf(value)));
                 } else {
-                    metric.setFormattedValue(str(metricJson, VALUE));
+                    metric.setFormattedValue(value);
                 }
                 codeQuality.getMetrics().add(metric);
             }
 
             return codeQuality;
+        } catch (IOException e) {
+            throw parseException(e);
+        }
+    }
+
+    /**
+     * Reads the {@code component} of a measures response, with only the name and value of each measure.
+     *
+     * @return null when the response has no component
+     */
+    private SonarComponent readComponent(String json) throws IOException {
+        try (JsonParser parser = JsonStreams.open(json)) {
+            if (!isObject(parser)) return null;
+            SonarComponent component = null;
+            while (JsonStreams.nextField(parser, "component")) {
+                if (!isObject(parser)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                component = new SonarComponent();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    if (ID.equals(field)) {
+                        component.id = JsonStreams.text(parser);
+                    } else if (KEY.equals(field)) {
+                        component.key = JsonStreams.text(parser);
+                    } else if (NAME.equals(field)) {
+                        component.name = JsonStreams.text(parser);
+                    } else if (MEASURES.equals(field) && parser.getCurrentToken() == JsonToken.START_ARRAY) {
+                        component.measures.clear();
+                        while (JsonStreams.nextElement(parser)) {
+                            component.measures.add(readMeasure(parser));
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+            return component;
         }
-        return null;
+    }
+
+    private String[] readMeasure(JsonParser parser) throws IOException {
+        String[] measure = {"", ""};
+        if (!isObject(parser)) {
+            parser.skipChildren();
+            return measure;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (METRIC.equals(field)) {
+                measure[0] = JsonStreams.text(parser);
+            } else if (VALUE.equals(field)) {
+                measure[1] = JsonStreams.text(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return measure;
+    }
+
+    /**
+     * Sets the timestamp and version of {@code codeQuality} from the first, latest, analysis of a project analyses
+     * response. The older analyses are not read.
+     */
+    private void readLatestAnalysis(String json, CodeQualityCreateRequest codeQuality) throws IOException {
+        try (JsonParser parser = JsonStreams.open(json)) {
+            if (!isObject(parser) || !JsonStreams.nextField(parser, "analyses") || parser.getCurrentToken() != JsonToken.START_ARRAY
+                    || !JsonStreams.nextElement(parser) || !isObject(parser)) {
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if (DATE.equals(field)) {
+                    codeQuality.setTimestamp(timestamp(JsonStreams.readValue(parser)));
+                } else if (EVENTS.equals(field) && parser.getCurrentToken() == JsonToken.START_ARRAY) {
+                    while (JsonStreams.nextElement(parser)) {
+                        String version = readVersionEvent(parser);
+                        if (version != null) codeQuality.setProjectVersion(version);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the name of a VERSION event, null for other events
+     */
+    private String readVersionEvent(JsonParser parser) throws IOException {
+        if (!isObject(parser)) {
+            parser.skipChildren();
+            return null;
+        }
+        String category = null;
+        String name = "";
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("category".equals(field)) {
+                category = JsonStreams.text(parser);
+            } else if (NAME.equals(field)) {
+                name = JsonStreams.text(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return "VERSION".equals(category) ? name : null;
+    }
+
+    private static boolean isObject(JsonParser parser) {
+        return parser != null && parser.getCurrentToken() == JsonToken.START_OBJECT;
+    }
+
+    /**
+     * Callers of this builder handle json-simple's exception for responses that are not valid JSON.
+     */
+    private static ParseException parseException(IOException e) {
+        return new ParseException(ParseException.ERROR_UNEXPECTED_EXCEPTION, e);
     }
 
 
@@ -351,11 +490,18 @@ public class SonarBuilder {
 
     }
 
+    /**
+     * Registers the log lines Sonar needs, so they can be read in the same pass as other log patterns.
+     */
+    public static ConsoleLogScanner addLogPatterns(ConsoleLogScanner scanner) {
+        return scanner.add(URL_PREFIX_IN_LOGS).add(URL_PROCESSING_STATUS_PREFIX);
+    }
+
     /**
      * Read logs of the build to find URL of the project dashboard in Sonar
      */
-    private String extractSonarProjectURLFromLogs(Run run) throws IOException {
-        return HygieiaUtils.getMatchFromLog(run, URL_PATTERN_IN_LOGS);
+    private String extractSonarProjectURLFromLogs(ConsoleLogScanner.Matches logMatches) {
+        return logMatches.getLast(URL_PREFIX_IN_LOGS);
     }
 
 
@@ -364,8 +510,8 @@ public class SonarBuilder {
      * is now processed asynchronously on server. Sonar provides an API called Compute Engine (CE)
      * whihc needs to be polled regularly to determine status of the analysis. URL of CE API can be taken from logs
      */
-    private String extractSonarProcessingStatusUrlFromLogs(Run run) throws IOException {
-        return HygieiaUtils.getMatchFromLog(run, URL_PROCESSING_STATUS_FRAGMENT);
+    private String extractSonarProcessingStatusUrlFromLogs(ConsoleLogScanner.Matches logMatches) {
+        return logMatches.getLast(URL_PROCESSING_STATUS_PREFIX);
     }
 
     private String getSonarProjectName(String url) throws URISyntaxException {
@@ -406,11 +552,9 @@ public class SonarBuilder {
         int responseCode = callResponse.getResponseCode();
         if (responseCode == HttpStatus.SC_OK) {
             String resp = callResponse.getResponseString();
-            JSONObject body = (JSONObject) new JSONParser().parse(resp);
-            JSONArray arr = (JSONArray) body.get("components");
-            if (!CollectionUtils.isEmpty(arr)) {
-                JSONObject obj = (JSONObject) arr.get(0);
-                return str(obj, "id");
+            String id = readFirstComponentId(resp);
+            if (id != null) {
+                return id;
             }
             logger.log(Level.WARNING, "Hygieia getSonarProjectID Failed. Response: " + callResponse.getResponseString());
         }
@@ -419,14 +563,29 @@ public class SonarBuilder {
     }
 
 
-    private String str(JSONObject json, String key) {
-        Object obj = json.get(key);
-        return obj == null ? "" : obj.toString();
+    /**
+     * @return the id of the first of the {@code components} of a search response, null if there is none
+     */
+    private String readFirstComponentId(String json) throws ParseException {
+        try (JsonParser parser = JsonStreams.open(json)) {
+            if (!isObject(parser) || !JsonStreams.nextField(parser, "components") || parser.getCurrentToken() != JsonToken.START_ARRAY
+                    || !JsonStreams.nextElement(parser)) {
+                return null;
+            }
+            if (!isObject(parser)) return "";
+            String id = "";
+            while (JsonStreams.nextField(parser, ID)) {
+                id = JsonStreams.text(parser);
+            }
+            return id;
+        } catch (IOException e) {
+            throw parseException(e);
+        }
     }
 
-    private Integer integer(JSONObject json, String key) {
+    private String str(JSONObject json, String key) {
         Object obj = json.get(key);
-        return obj == null ? 0 : Integer.valueOf(obj.toString());
+        return obj == null ? "" : obj.toString();
     }
 
 
@@ -474,7 +633,10 @@ public class SonarBuilder {
     }
 
     private long timestamp(JSONObject json, String key) {
-        Object obj = json.get(key);
+        return timestamp(json.get(key));
+    }
+
+    private long timestamp(Object obj) {
         if (obj != null) {
             try {
                 return new SimpleDateFormat(DATE_FORMAT).parse(obj.toString()).getTime();
@@ -484,4 +646,12 @@ public class SonarBuilder {
         }
         return 0;
     }
+
+    private static final class SonarComponent {
+        private String id = "";
+        private String key = "";
+        private String name = "";
+        // metric and value of each measure
+        private final List<String[]> measures = new ArrayList<>();
+    }
 }
@@ -0,0 +1,344 @@
+package hygieia.builder;
+
+import hudson.console.AnnotatedLargeText;
+import org.apache.commons.lang3.StringUtils;
+import org.jenkinsci.plugins.workflow.actions.LogAction;
+import org.jenkinsci.plugins.workflow.flow.FlowExecution;
+import org.jenkinsci.plugins.workflow.graph.FlowNode;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.json.simple.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Reads the log of a failed stage straight from the log storage of its flow nodes, keeping at most a fixed number of
+ * bytes however much the stage printed. By default the end of the log is kept. In error window mode only the lines
+ * matching the error pattern and a few lines either side of them are kept, falling back to the end of the log when
+ * nothing matches. Either way memory use depends only on the configured limits, not on the size of the log.
+ * <p>
+ * The result has the same shape as the {@code /wfapi/log} response that used to be stored on the stage.
+ */
+public class StageLogReader {
+    private static final Logger logger = Logger.getLogger(StageLogReader.class.getName());
+
+    public static final int DEFAULT_TAIL_BYTES = 64 * 1024;
+    public static final String DEFAULT_ERROR_PATTERN = "(?i)\\b(error|exception|fail(ed|ure)?)\\b";
+    static final int MAX_LINE_BYTES = 8 * 1024;
+    private static final String GAP = "...\n";
+
+    private final int tailBytes;
+    private final int errorWindowLines;
+    private final Pattern errorPattern;
+
+    /**
+     * @param tailBytes        most bytes of log text kept per stage, non-positive values use the default
+     * @param errorWindowLines lines kept before and after each error line, 0 keeps the end of the log instead
+     * @param errorPattern     regular expression for error lines, blank or invalid values use the default
+     */
+    public StageLogReader(int tailBytes, int errorWindowLines, String errorPattern) {
+        this.tailBytes = tailBytes > 0 ? tailBytes : DEFAULT_TAIL_BYTES;
+        this.errorWindowLines = Math.max(0, errorWindowLines);
+        this.errorPattern = compile(errorPattern);
+    }
+
+    private static Pattern compile(String errorPattern) {
+        if (StringUtils.isNotBlank(errorPattern)) {
+            try {
+                return Pattern.compile(errorPattern);
+            } catch (PatternSyntaxException e) {
+                logger.log(Level.WARNING, "Hygieia: Invalid error pattern " + errorPattern + ", using the default", e);
+            }
+        }
+        return Pattern.compile(DEFAULT_ERROR_PATTERN);
+    }
+
+    /**
+     * Text source of a single flow node's log.
+     */
+    interface LogSource {
+        long length();
+
+        /**
+         * Writes the plain text of the log from byte {@code offset} on.
+         */
+        void writeTo(long offset, OutputStream out) throws IOException;
+    }
+
+    /**
+     * @return the captured log of {@code stage} in the {@code /wfapi/log} format
+     */
+    public String read(WorkflowRun run, BuildStageBuilder.Stage stage) throws IOException {
+        List<LogSource> sources = new ArrayList<>();
+        FlowExecution execution = run.getExecution();
+        if (execution != null) {
+            for (String id : stage.getChildIds()) {
+                FlowNode node = execution.getNode(id);
+                LogAction log = node == null ? null : node.getAction(LogAction.class);
+                if (log != null) sources.add(new LargeTextSource(log.getLogText()));
+            }
+        }
+        Capture capture = capture(sources);
+
+        JSONObject json = new JSONObject();
+        json.put("nodeId", stage.getId());
+        json.put("nodeStatus", stage.getStatus());
+        json.put("length", capture.length);
+        json.put("hasMore", capture.truncated);
+        json.put("text", capture.text);
+        json.put("consoleUrl", BuildStageBuilder.getNodeUrl(run, stage.getId()) + "log");
+        return json.toJSONString();
+    }
+
+    Capture capture(List<LogSource> sources) throws IOException {
+        if (errorWindowLines > 0) {
+            Capture errors = captureErrorWindow(sources);
+            if (errors != null) return errors;
+        }
+        return captureTail(sources);
+    }
+
+    /**
+     * Reads backwards through the node logs until {@code tailBytes} have been collected.
+     */
+    Capture captureTail(List<LogSource> sources) throws IOException {
+        LinkedList<byte[]> chunks = new LinkedList<>();
+        long length = 0;
+        int remaining = tailBytes;
+        boolean truncated = false;
+        for (int i = sources.size() - 1; i >= 0; i--) {
+            LogSource source = sources.get(i);
+            long sourceLength = source.length();
+            length += sourceLength;
+            if (remaining == 0) {
+                truncated |= sourceLength > 0;
+                continue;
+            }
+            long start = Math.max(0, sourceLength - remaining);
+            ByteArrayOutputStream chunk = new ByteArrayOutputStream((int) (sourceLength - start));
+            source.writeTo(start, new BoundedOutputStream(chunk, remaining));
+            byte[] bytes = chunk.toByteArray();
+            if (start > 0) {
+                truncated = true;
+                // keep a cut line when it is the only one
+                byte[] whole = dropPartialFirstLine(bytes);
+                if (whole.length > 0) bytes = whole;
+            }
+            remaining = Math.max(0, remaining - bytes.length);
+            if (start > 0) remaining = 0;
+            chunks.addFirst(bytes);
+        }
+        ByteArrayOutputStream text = new ByteArrayOutputStream(tailBytes - remaining);
+        for (byte[] chunk : chunks) {
+            text.write(chunk);
+        }
+        return new Capture(text.toString(StandardCharsets.UTF_8.name()), length, truncated);
+    }
+
+    /**
+     * Streams every node log forwards once, keeping error lines with their context.
+     *
+     * @return null if no line matched the error pattern
+     */
+    Capture captureErrorWindow(List<LogSource> sources) throws IOException {
+        ErrorWindowOutputStream window = new ErrorWindowOutputStream();
+        long length = 0;
+        for (LogSource source : sources) {
+            length += source.length();
+            source.writeTo(0, window);
+            window.finishLog();
+        }
+        if (!window.matched) return null;
+        return new Capture(window.out.toText(), length, window.skipped || window.out.wrapped);
+    }
+
+    private static byte[] dropPartialFirstLine(byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                byte[] rest = new byte[bytes.length - i - 1];
+                System.arraycopy(bytes, i + 1, rest, 0, rest.length);
+                return rest;
+            }
+        }
+        return new byte[0];
+    }
+
+    static final class Capture {
+        final String text;
+        final long length;
+        final boolean truncated;
+
+        Capture(String text, long length, boolean truncated) {
+            this.text = text;
+            this.length = length;
+            this.truncated = truncated;
+        }
+    }
+
+    private static final class LargeTextSource implements LogSource {
+        private final AnnotatedLargeText<?> text;
+
+        LargeTextSource(AnnotatedLargeText<?> text) {
+            this.text = text;
+        }
+
+        @Override
+        public long length() {
+            return text.length();
+        }
+
+        @Override
+        public void writeTo(long offset, OutputStream out) throws IOException {
+            // strips console notes, so the result is never longer than the raw log
+            text.writeLogTo(offset, out);
+        }
+    }
+
+    /**
+     * Drops everything written past its limit.
+     */
+    private static final class BoundedOutputStream extends OutputStream {
+        private final OutputStream out;
+        private int remaining;
+
+        BoundedOutputStream(OutputStream out, int limit) {
+            this.out = out;
+            this.remaining = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (remaining > 0) {
+                out.write(b);
+                remaining--;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            int count = Math.min(len, remaining);
+            if (count > 0) {
+                out.write(b, off, count);
+                remaining -= count;
+            }
+        }
+    }
+
+    /**
+     * Keeps the last {@code capacity} bytes written to it.
+     */
+    private static final class TailBuffer {
+        private final byte[] buffer;
+        private int position;
+        private boolean wrapped;
+
+        TailBuffer(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        void write(byte[] b, int off, int len) {
+            if (len >= buffer.length) {
+                System.arraycopy(b, off + len - buffer.length, buffer, 0, buffer.length);
+                position = 0;
+                wrapped = true;
+                return;
+            }
+            int first = Math.min(len, buffer.length - position);
+            System.arraycopy(b, off, buffer, position, first);
+            System.arraycopy(b, off + first, buffer, 0, len - first);
+            if (position + len >= buffer.length) wrapped = true;
+            position = (position + len) % buffer.length;
+        }
+
+        void write(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            write(bytes, 0, bytes.length);
+        }
+
+        String toText() {
+            if (!wrapped) return new String(buffer, 0, position, StandardCharsets.UTF_8);
+            byte[] ordered = new byte[buffer.length];
+            System.arraycopy(buffer, position, ordered, 0, buffer.length - position);
+            System.arraycopy(buffer, 0, ordered, buffer.length - position, position);
+            return new String(dropPartialFirstLine(ordered), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Splits what is written into lines and passes on the error lines plus {@code errorWindowLines} lines before and
+     * after each. Over-long lines are cut at {@link #MAX_LINE_BYTES}.
+     */
+    private final class ErrorWindowOutputStream extends OutputStream {
+        private final TailBuffer out = new TailBuffer(tailBytes);
+        private final byte[] line = new byte[MAX_LINE_BYTES];
+        private final Deque<String> before = new ArrayDeque<>();
+        private int lineLength;
+        private boolean lineStarted;
+        private int afterRemaining;
+        private boolean matched;
+        private boolean skipped;
+        private boolean gap;
+
+        @Override
+        public void write(int b) {
+            if (b == '\n') {
+                endLine();
+                return;
+            }
+            lineStarted = true;
+            if (lineLength < line.length) line[lineLength++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                write(b[i]);
+            }
+        }
+
+        /**
+         * Ends a last line that had no line break, at the end of a node log.
+         */
+        void finishLog() {
+            if (lineStarted) endLine();
+        }
+
+        private void endLine() {
+            String text = new String(line, 0, lineLength, StandardCharsets.UTF_8);
+            lineLength = 0;
+            lineStarted = false;
+            if (errorPattern.matcher(text).find()) {
+                if (gap) out.write(GAP);
+                gap = false;
+                for (String context : before) {
+                    out.write(context + "\n");
+                }
+                before.clear();
+                out.write(text + "\n");
+                matched = true;
+                afterRemaining = errorWindowLines;
+            } else if (afterRemaining > 0) {
+                out.write(text + "\n");
+                afterRemaining--;
+            } else {
+                before.addLast(text);
+                if (before.size() > errorWindowLines) {
+                    before.removeFirst();
+                    skipped = true;
+                    gap = true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package hygieia.utils;
+
+import hudson.model.Run;
+import org.apache.commons.io.IOUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts "the rest of the line after this text" for any number of literals in a single read of a console log.
+ * <p>
+ * Each line first goes through an Aho-Corasick automaton built from all literals, and only the literals found in the
+ * line are then matched with their {@code .*literal(.*)} expression. The result is the same as running
+ * {@link HygieiaUtils#getMatchedLinesFromLog(Run, String)} once per literal, without reading the log once per literal.
+ */
+public class ConsoleLogScanner {
+    private final Map<String, Pattern> patterns = new LinkedHashMap<>();
+
+    /**
+     * @return the expression used for {@code literal}, which is also what gets reported as a generic item's pattern
+     */
+    public static String toRegex(String literal) {
+        return ".*" + Pattern.quote(literal) + "(.*)";
+    }
+
+    public ConsoleLogScanner add(String literal) {
+        if (literal != null && !patterns.containsKey(literal)) {
+            patterns.put(literal, Pattern.compile(toRegex(literal)));
+        }
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return patterns.isEmpty();
+    }
+
+    /**
+     * @return true if every literal of {@code other} is also scanned for here
+     */
+    public boolean covers(ConsoleLogScanner other) {
+        return patterns.keySet().containsAll(other.patterns.keySet());
+    }
+
+    public Matches scan(Run run) throws IOException {
+        Reader reader = run.getLogReader();
+        try {
+            return scan(reader);
+        } finally {
+            IOUtils.closeQuietly(reader);
+        }
+    }
+
+    public Matches scan(Reader reader) throws IOException {
+        Matches matches = new Matches();
+        if (patterns.isEmpty()) return matches;
+        LineMatcher lineMatcher = new LineMatcher(false);
+        BufferedReader br = new BufferedReader(reader);
+        String line;
+        while ((line = br.readLine()) != null) {
+            lineMatcher.match(line, matches);
+        }
+        return matches;
+    }
+
+    /**
+     * Like {@link #scan(Run)} for callers that only need {@link Matches#getLast(String)}. An uncompressed log file is
+     * read from its end and reading stops once every literal has matched, which for output printed near the end of a
+     * long build is a small fraction of the log. {@link Matches#getAll(String)} then only holds the last match.
+     */
+    public Matches scanFromEnd(Run run) throws IOException {
+        File logFile = run.getLogFile();
+        if (!ReverseLineReader.canRead(logFile)) return scan(run);
+        Matches matches = new Matches();
+        if (patterns.isEmpty()) return matches;
+        LineMatcher lineMatcher = new LineMatcher(true);
+        try (ReverseLineReader reader = new ReverseLineReader(logFile)) {
+            String line;
+            while (lineMatcher.remaining > 0 && (line = reader.readLine()) != null) {
+                lineMatcher.match(line, matches);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Matches single lines against all literals. When lines are fed from the end of the log, literals that already
+     * matched are skipped.
+     */
+    LineMatcher lineMatcher() {
+        return new LineMatcher(false);
+    }
+
+    final class LineMatcher {
+        private final List<String> literals = new ArrayList<>(patterns.keySet());
+        private final List<Pattern> compiled = new ArrayList<>(patterns.values());
+        private final Automaton automaton = new Automaton(literals);
+        private final BitSet found = new BitSet(literals.size());
+        private final BitSet matched = new BitSet(literals.size());
+        private final boolean fromEnd;
+        private int remaining = literals.size();
+
+        LineMatcher(boolean fromEnd) {
+            this.fromEnd = fromEnd;
+        }
+
+        void match(String line, Matches matches) {
+            automaton.find(line, found);
+            for (int i = found.nextSetBit(0); i >= 0; i = found.nextSetBit(i + 1)) {
+                if (fromEnd && matched.get(i)) continue;
+                Matcher match = compiled.get(i).matcher(line);
+                if (match.matches()) {
+                    matches.add(literals.get(i), match.group(1));
+                    if (!matched.get(i)) {
+                        matched.set(i);
+                        remaining--;
+                    }
+                }
+            }
+            found.clear();
+        }
+    }
+
+    /**
+     * What each literal matched, in log order.
+     */
+    public static final class Matches {
+        private final Map<String, Set<String>> all = new HashMap<>();
+        private final Map<String, String> last = new HashMap<>();
+
+        Matches copy() {
+            Matches copy = new Matches();
+            for (Map.Entry<String, Set<String>> entry : all.entrySet()) {
+                copy.all.put(entry.getKey(), new LinkedHashSet<>(entry.getValue()));
+            }
+            copy.last.putAll(last);
+            return copy;
+        }
+
+        void add(String literal, String value) {
+            Set<String> values = all.get(literal);
+            if (values == null) {
+                values = new LinkedHashSet<>();
+                all.put(literal, values);
+            }
+            values.add(value);
+            last.put(literal, value);
+        }
+
+        /**
+         * @return the distinct texts found after {@code literal}, in the order they first appeared
+         */
+        public Set<String> getAll(String literal) {
+            Set<String> values = all.get(literal);
+            return values == null ? Collections.<String>emptySet() : Collections.unmodifiableSet(values);
+        }
+
+        /**
+         * @return the text after the last line containing {@code literal}, or null if there was none
+         */
+        public String getLast(String literal) {
+            return last.get(literal);
+        }
+    }
+
+    /**
+     * Aho-Corasick automaton over the literals. Transitions of each state are kept as sorted arrays, so a step is a
+     * binary search with no boxing.
+     */
+    private static final class Automaton {
+        private final char[][] keys;
+        private final int[][] targets;
+        private final int[] fail;
+        private final BitSet[] outputs;
+        private final BitSet always = new BitSet();
+
+        Automaton(List<String> literals) {
+            List<TreeMap<Character, Integer>> gotos = new ArrayList<>();
+            List<BitSet> out = new ArrayList<>();
+            gotos.add(new TreeMap<>());
+            out.add(new BitSet());
+            for (int i = 0; i < literals.size(); i++) {
+                String literal = literals.get(i);
+                // an empty literal is in every line
+                if (literal.isEmpty()) always.set(i);
+                int state = 0;
+                for (int j = 0; j < literal.length(); j++) {
+                    Integer next = gotos.get(state).get(literal.charAt(j));
+                    if (next == null) {
+                        next = gotos.size();
+                        gotos.get(state).put(literal.charAt(j), next);
+                        gotos.add(new TreeMap<>());
+                        out.add(new BitSet());
+                    }
+                    state = next;
+                }
+                if (!literal.isEmpty()) out.get(state).set(i);
+            }
+
+            int size = gotos.size();
+            keys = new char[size][];
+            targets = new int[size][];
+            for (int state = 0; state < size; state++) {
+                TreeMap<Character, Integer> edges = gotos.get(state);
+                keys[state] = new char[edges.size()];
+                targets[state] = new int[edges.size()];
+                int k = 0;
+                for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                    keys[state][k] = edge.getKey();
+                    targets[state][k++] = edge.getValue();
+                }
+            }
+
+            fail = new int[size];
+            outputs = out.toArray(new BitSet[size]);
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (int child : targets[0]) {
+                queue.add(child);
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                for (int k = 0; k < keys[state].length; k++) {
+                    int child = targets[state][k];
+                    int target = -1;
+                    for (int f = fail[state]; ; f = fail[f]) {
+                        target = step(f, keys[state][k]);
+                        if (target >= 0 || f == 0) break;
+                    }
+                    fail[child] = Math.max(target, 0);
+                    outputs[child].or(outputs[fail[child]]);
+                    queue.add(child);
+                }
+            }
+        }
+
+        private int step(int state, char c) {
+            int k = Arrays.binarySearch(keys[state], c);
+            return k >= 0 ? targets[state][k] : -1;
+        }
+
+        /**
+         * Sets the index of every literal that occurs in {@code line}.
+         */
+        void find(String line, BitSet found) {
+            found.or(always);
+            int state = 0;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                int next;
+                while ((next = step(state, c)) < 0 && state != 0) {
+                    state = fail[state];
+                }
+                state = Math.max(next, 0);
+                if (!outputs[state].isEmpty()) found.or(outputs[state]);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package hygieia.utils;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Passes console output through unchanged while matching each finished line against a {@link ConsoleLogScanner}, so
+ * the matches are known when the build ends without reading the log again.
+ * <p>
+ * Only the line being written is buffered. Lines are split like {@link java.io.BufferedReader#readLine()} splits them.
+ * A line longer than {@link #MAX_LINE_BYTES} cannot be matched reliably, after one of those {@link #isComplete()} is
+ * false and callers should scan the log instead.
+ */
+public class ConsoleLogWatcher extends FilterOutputStream {
+    static final int MAX_LINE_BYTES = 64 * 1024;
+    private static final int INITIAL_LINE_BYTES = 256;
+
+    private final Charset charset;
+    private final ConsoleLogScanner scanner;
+    private final ConsoleLogScanner.LineMatcher lineMatcher;
+    private final ConsoleLogScanner.Matches matches = new ConsoleLogScanner.Matches();
+    private byte[] line = new byte[INITIAL_LINE_BYTES];
+    private int length;
+    private boolean afterCarriageReturn;
+    private boolean complete = true;
+
+    public ConsoleLogWatcher(OutputStream out, ConsoleLogScanner scanner, Charset charset) {
+        super(out);
+        this.charset = charset;
+        this.scanner = scanner;
+        this.lineMatcher = scanner.lineMatcher();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        synchronized (this) {
+            watch((byte) b);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        synchronized (this) {
+            for (int i = off; i < off + len; i++) {
+                watch(b[i]);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (length > 0) endLine();
+        }
+        super.close();
+    }
+
+    public ConsoleLogScanner getScanner() {
+        return scanner;
+    }
+
+    /**
+     * @return the matches of every line finished so far
+     */
+    public synchronized ConsoleLogScanner.Matches getMatches() {
+        return matches.copy();
+    }
+
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    private void watch(byte b) {
+        if (b == '\n' && afterCarriageReturn) {
+            afterCarriageReturn = false;
+            return;
+        }
+        afterCarriageReturn = b == '\r';
+        if (b == '\n' || b == '\r') {
+            endLine();
+            return;
+        }
+        if (length == line.length) {
+            if (length == MAX_LINE_BYTES) {
+                complete = false;
+                return;
+            }
+            line = Arrays.copyOf(line, Math.min(MAX_LINE_BYTES, 2 * length));
+        }
+        line[length++] = b;
+    }
+
+    private void endLine() {
+        lineMatcher.match(new String(line, 0, length, charset), matches);
+        length = 0;
+        // do not hold on to the buffer of an unusually long line
+        if (line.length > 8 * INITIAL_LINE_BYTES) line = new byte[INITIAL_LINE_BYTES];
+    }
+}
@@ -0,0 +1,227 @@
+package hygieia.utils;
+
+import org.apache.commons.io.IOCase;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Ant style file patterns, compiled once and matched against paths relative to a search root, with {@code /} between
+ * path segments.
+ * <p>
+ * A pattern is a comma separated list of globs, where a glob starting with {@code !} excludes what it matches. Within
+ * a segment {@code *} matches any characters and {@code ?} one character, and a {@code **} segment matches any number
+ * of directories. A glob without a {@code /} matches file names at any depth, as the plain file name wildcards used
+ * before, so {@code *.jar} is the same as {@code **}{@code /*.jar}. A trailing {@code /} stands for everything below.
+ * <p>
+ * Version control directories are always excluded, and an exclude that matches a directory also excludes everything in
+ * it. {@link #canMatchBelow(List)} tells a directory walk which subtrees it can skip without looking inside.
+ */
+public final class GlobMatcher implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final String[] DEFAULT_EXCLUDES = {"**/.git", "**/.svn", "**/.hg", "**/.bzr", "**/CVS"};
+
+    private final List<Glob> includes = new ArrayList<>();
+    private final List<Glob> excludes = new ArrayList<>();
+
+    private GlobMatcher() {
+    }
+
+    /**
+     * Matching is case sensitive where file names are, decided on the machine that does the matching.
+     */
+    public static GlobMatcher compile(String patterns) {
+        GlobMatcher matcher = new GlobMatcher();
+        for (String pattern : StringUtils.split(StringUtils.trimToEmpty(patterns), ',')) {
+            pattern = pattern.trim();
+            if (pattern.startsWith("!")) {
+                String exclude = pattern.substring(1).trim();
+                if (!exclude.isEmpty()) matcher.excludes.add(new Glob(exclude));
+            } else if (!pattern.isEmpty()) {
+                matcher.includes.add(new Glob(pattern));
+            }
+        }
+        for (String exclude : DEFAULT_EXCLUDES) {
+            matcher.excludes.add(new Glob(exclude));
+        }
+        return matcher;
+    }
+
+    public boolean matches(String path) {
+        return matches(split(path));
+    }
+
+    public boolean matches(List<String> segments) {
+        if (isExcluded(segments)) return false;
+        for (Glob include : includes) {
+            if (include.end(segments).get(include.segments.length)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return false if nothing below the directory {@code segments} can match, so a walk need not descend into it
+     */
+    public boolean canMatchBelow(List<String> segments) {
+        if (isExcluded(segments)) return false;
+        for (Glob include : includes) {
+            BitSet states = include.end(segments);
+            // a glob that is not used up yet can still match something deeper
+            int next = states.nextSetBit(0);
+            if (next >= 0 && next < include.segments.length) return true;
+        }
+        return false;
+    }
+
+    private boolean isExcluded(List<String> segments) {
+        for (Glob exclude : excludes) {
+            if (exclude.excludes(segments)) return true;
+        }
+        return false;
+    }
+
+    static List<String> split(String path) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : StringUtils.split(path.replace('\\', '/'), '/')) {
+            segments.add(segment);
+        }
+        return segments;
+    }
+
+    /**
+     * One glob, run as a small automaton over path segments whose states are positions in the glob.
+     */
+    private static final class Glob implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final Segment[] segments;
+
+        Glob(String glob) {
+            String normalized = glob.replace('\\', '/');
+            if (normalized.endsWith("/")) normalized += "**";
+            List<String> parts = split(normalized);
+            // a bare file name wildcard matches at any depth
+            if (normalized.indexOf('/') < 0) parts.add(0, Segment.DOUBLE_STAR);
+            segments = new Segment[parts.size()];
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = new Segment(parts.get(i));
+            }
+        }
+
+        /**
+         * @return the glob positions reachable after matching {@code path}, position {@code segments.length} meaning
+         * the whole glob matched
+         */
+        BitSet end(List<String> path) {
+            BitSet states = start();
+            for (int i = 0; i < path.size() && !states.isEmpty(); i++) {
+                states = step(states, path.get(i));
+            }
+            return states;
+        }
+
+        /**
+         * @return true if the glob matches {@code path} or one of its parent directories, or matches everything below
+         * {@code path}
+         */
+        boolean excludes(List<String> path) {
+            BitSet states = start();
+            for (String name : path) {
+                states = step(states, name);
+                if (states.isEmpty()) return false;
+                if (states.get(segments.length)) return true;
+            }
+            for (int state = states.nextSetBit(0); state >= 0; state = states.nextSetBit(state + 1)) {
+                if (onlyDoubleStarsFrom(state)) return true;
+            }
+            return false;
+        }
+
+        private BitSet start() {
+            BitSet states = new BitSet(segments.length + 1);
+            states.set(0);
+            close(states);
+            return states;
+        }
+
+        private BitSet step(BitSet states, String name) {
+            BitSet next = new BitSet(segments.length + 1);
+            for (int state = states.nextSetBit(0); state >= 0 && state < segments.length; state = states.nextSetBit(state + 1)) {
+                Segment segment = segments[state];
+                if (segment.doubleStar) {
+                    next.set(state);
+                } else if (segment.matches(name)) {
+                    next.set(state + 1);
+                }
+            }
+            close(next);
+            return next;
+        }
+
+        /**
+         * {@code **} also matches no directory at all.
+         */
+        private void close(BitSet states) {
+            for (int state = 0; state < segments.length; state++) {
+                if (states.get(state) && segments[state].doubleStar) states.set(state + 1);
+            }
+        }
+
+        boolean onlyDoubleStarsFrom(int state) {
+            if (state >= segments.length) return false;
+            for (int i = state; i < segments.length; i++) {
+                if (!segments[i].doubleStar) return false;
+            }
+            return true;
+        }
+    }
+
+    private static final class Segment implements Serializable {
+        private static final long serialVersionUID = 1L;
+        static final String DOUBLE_STAR = "**";
+
+        private final String glob;
+        private final boolean doubleStar;
+        private final boolean literal;
+        private transient Pattern pattern;
+        private transient Boolean caseSensitive;
+
+        Segment(String glob) {
+            this.glob = glob;
+            this.doubleStar = DOUBLE_STAR.equals(glob);
+            this.literal = glob.indexOf('*') < 0 && glob.indexOf('?') < 0;
+        }
+
+        boolean matches(String name) {
+            if (caseSensitive == null) caseSensitive = IOCase.SYSTEM.isCaseSensitive();
+            if (literal) return caseSensitive ? glob.equals(name) : glob.equalsIgnoreCase(name);
+            if (pattern == null) pattern = toPattern(glob, caseSensitive);
+            return pattern.matcher(name).matches();
+        }
+
+        private static Pattern toPattern(String glob, boolean caseSensitive) {
+            StringBuilder regex = new StringBuilder();
+            StringBuilder text = new StringBuilder();
+            for (char c : glob.toCharArray()) {
+                if (c == '*' || c == '?') {
+                    if (text.length() > 0) regex.append(Pattern.quote(text.toString()));
+                    text.setLength(0);
+                    // a ** inside a segment is the same as *
+                    if (c == '?') {
+                        regex.append('.');
+                    } else if (regex.length() < 2 || !regex.substring(regex.length() - 2).equals(".*")) {
+                        regex.append(".*");
+                    }
+                } else {
+                    text.append(c);
+                }
+            }
+            if (text.length() > 0) regex.append(Pattern.quote(text.toString()));
+            return Pattern.compile(regex.toString(), caseSensitive ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        }
+    }
+}
@@ -5,10 +5,10 @@ import com.capitalone.dashboard.model.BuildStage;
 import com.capitalone.dashboard.model.BuildStatus;
 import com.capitalone.dashboard.model.RepoBranch;
 import com.capitalone.dashboard.model.adapter.BuildStageAdapter;
-import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import hudson.EnvVars;
 import hudson.FilePath;
 import hudson.model.AbstractBuild;
@@ -18,14 +18,14 @@ import hudson.model.Result;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.plugins.git.GitSCM;
-import hudson.plugins.git.util.Build;
+import hudson.plugins.git.util.BuildData;
 import hudson.scm.SubversionSCM;
 import hudson.util.IOUtils;
 import jenkins.model.Jenkins;
-import jenkins.plugins.hygieia.CustomObjectMapper;
+import jenkins.plugins.hygieia.GitBranchIndex;
+import jenkins.plugins.hygieia.JsonMappers;
+import jenkins.plugins.hygieia.WorkspaceIndex;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOCase;
-import org.apache.commons.io.filefilter.WildcardFileFilter;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.jenkinsci.plugins.workflow.job.WorkflowRun;
@@ -37,13 +37,13 @@ import org.springframework.util.CollectionUtils;
 
 import javax.annotation.Nonnull;
 import java.io.BufferedReader;
-import java.io.FileFilter;
+import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.logging.Level;
@@ -64,36 +64,67 @@ public class HygieiaUtils {
     public static final String LOG="log";
     public static final String HREF="href";
     public static final GsonBuilder buildStageGsonBuilder = new GsonBuilder().registerTypeAdapter(BuildStage.class, new BuildStageAdapter());
+    private static final Gson BUILD_STAGE_GSON = buildStageGsonBuilder.create();
 
     public static byte[] convertObjectToJsonBytes(Object object) throws IOException {
-        ObjectMapper mapper = new CustomObjectMapper();
-        mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
-        return mapper.writeValueAsBytes(object);
+        return JsonMappers.writerForValue(object).writeValueAsBytes(object);
     }
 
     public static <T> T  convertJsonToObject(String json, Class<T> thisClass) throws IOException {
-        ObjectMapper mapper = new CustomObjectMapper();
-        return mapper.readValue(json, thisClass);
+        return JsonMappers.readerFor(thisClass).readValue(json);
     }
 
+    /**
+     * Adds the files and directories below {@code rootDirectory} whose name matches {@code pattern} to {@code results}.
+     * The whole directory tree is walked by a single call to the agent.
+     */
     public static List<FilePath> getArtifactFiles(FilePath rootDirectory, String pattern, List<FilePath> results) throws IOException, InterruptedException {
-        FileFilter filter = new WildcardFileFilter(pattern.replace("**", "*"), IOCase.SYSTEM);
-        List<FilePath> temp = rootDirectory.list(filter);
-        if (!CollectionUtils.isEmpty(temp)) {
-            results.addAll(temp);
+        for (WorkspaceFileFinder.FoundFile file : findArtifactFiles(rootDirectory, pattern)) {
+            results.add(rootDirectory.child(file.getRelativePath()));
         }
+        return results;
+    }
 
-        temp = rootDirectory.list();
-        if (!CollectionUtils.isEmpty(temp)) {
-            for (FilePath currentItem : rootDirectory.list()) {
-                if (currentItem.isDirectory()) {
-                    getArtifactFiles(currentItem, pattern, results);
-                }
+    /**
+     * Like {@link #getArtifactFiles(FilePath, String, List)}, answered without walking {@code rootDirectory} again
+     * when an earlier search of the run for the same pattern is still current.
+     */
+    public static List<FilePath> getArtifactFiles(Run<?, ?> run, FilePath rootDirectory, String pattern, List<FilePath> results) throws IOException, InterruptedException {
+        for (WorkspaceFileFinder.FoundFile file : WorkspaceIndex.find(run, rootDirectory, pattern)) {
+            results.add(rootDirectory.child(file.getRelativePath()));
+        }
+        return results;
+    }
+
+    /**
+     * @return the artifacts archived by {@code run} below {@code directory} whose path relative to it matches
+     * {@code pattern}, listed on the master without touching the workspace
+     */
+    public static List<Run.Artifact> getArchivedArtifacts(Run<?, ?> run, String directory, String pattern) {
+        List<Run.Artifact> results = new ArrayList<>();
+        if (!run.getHasArtifacts()) return results;
+        String prefix = StringUtils.strip(StringUtils.defaultString(directory).replace('\\', '/'), "/");
+        while (prefix.startsWith("./")) prefix = StringUtils.stripStart(prefix.substring(2), "/");
+        if (".".equals(prefix)) prefix = "";
+        GlobMatcher matcher = GlobMatcher.compile(pattern);
+        for (Run.Artifact artifact : run.getArtifacts()) {
+            String path = artifact.relativePath.replace('\\', '/');
+            if (!prefix.isEmpty()) {
+                if (!path.startsWith(prefix + "/")) continue;
+                path = path.substring(prefix.length() + 1);
             }
+            if (matcher.matches(path)) results.add(artifact);
         }
         return results;
     }
 
+    /**
+     * Like {@link #getArtifactFiles(FilePath, String, List)}, with the size and modification time of each match.
+     */
+    public static List<WorkspaceFileFinder.FoundFile> findArtifactFiles(FilePath rootDirectory, String pattern) throws IOException, InterruptedException {
+        return rootDirectory.act(new WorkspaceFileFinder(pattern));
+    }
+
     /**
      * Determine the artifact's name. The name excludes the version string and the file extension.
      *
@@ -104,8 +135,13 @@ public class HygieiaUtils {
      * @return
      */
     public static String determineArtifactName(FilePath file, String version) {
-        String fileName = file.getBaseName();
+        return determineArtifactName(file.getBaseName(), version);
+    }
 
+    /**
+     * Like {@link #determineArtifactName(FilePath, String)}, for a file name without its extension.
+     */
+    public static String determineArtifactName(String fileName, String version) {
         if ("".equals(version)) return fileName;
 
         int vIndex = fileName.indexOf(version);
@@ -201,7 +237,14 @@ public class HygieiaUtils {
     }
 
     public static String getInstanceUrl(Run<?, ?> run, TaskListener listener) {
-        String envValue = getEnvironmentVariable(run, listener, "JENKINS_URL");
+        return getInstanceUrl(run, getEnvironment(run, listener));
+    }
+
+    /**
+     * Like {@link #getInstanceUrl(Run, TaskListener)}, with the run's environment already read.
+     */
+    public static String getInstanceUrl(Run<?, ?> run, EnvVars env) {
+        String envValue = env == null ? null : env.get("JENKINS_URL");
 
         if (envValue != null) {
             return envValue;
@@ -243,12 +286,12 @@ public class HygieiaUtils {
         return null;
     }
 
-    private static boolean isGitScm(AbstractBuild<?, ?> build) {
+    static boolean isGitScm(AbstractBuild<?, ?> build) {
         return "hudson.plugins.git.GitSCM".equalsIgnoreCase(build.getProject().getScm().getType());
     }
 
 
-    private static boolean isSvnScm(AbstractBuild<?, ?> build) {
+    static boolean isSvnScm(AbstractBuild<?, ?> build) {
         return "hudson.scm.SubversionSCM".equalsIgnoreCase(build.getProject().getScm().getType());
     }
 
@@ -316,19 +359,13 @@ public class HygieiaUtils {
 
     private static List<RepoBranch> getGitHubRepoBranch(GitSCM scm, Run r) {
         List<RepoBranch> list = new ArrayList<>();
-        if (!org.apache.commons.collections.CollectionUtils.isEmpty(Objects.requireNonNull(scm.getBuildData(r)).remoteUrls)) {
-            for (String url : Objects.requireNonNull(scm.getBuildData(r)).remoteUrls) {
+        BuildData buildData = Objects.requireNonNull(scm.getBuildData(r));
+        if (!org.apache.commons.collections.CollectionUtils.isEmpty(buildData.remoteUrls)) {
+            String branch = GitBranchIndex.getBranch(r, buildData);
+            for (String url : buildData.remoteUrls) {
                 if (url.endsWith(".git")) {
                     url = url.substring(0, url.lastIndexOf(".git"));
                 }
-                Map<String, Build> branches = Objects.requireNonNull(scm.getBuildData(r)).getBuildsByBranchName();
-                String branch = "";
-                for (String key : branches.keySet()) {
-                    hudson.plugins.git.util.Build b = branches.get(key);
-                    if (b.hudsonBuildNumber == r.getNumber()) {
-                        branch = key;
-                    }
-                }
                 list.add(new RepoBranch(url, branch, RepoBranch.RepoType.GIT));
             }
         }
@@ -382,13 +419,29 @@ public class HygieiaUtils {
         }
     }
 
+    /**
+     * @return group 1 of the last log line matching {@code pattern}, found by reading the log file from its end when it
+     * is stored uncompressed
+     */
     public static String getMatchFromLog(Run run, String pattern) throws IOException {
+        Pattern p = Pattern.compile(pattern);
+        File logFile = run.getLogFile();
+        if (ReverseLineReader.canRead(logFile)) {
+            try (ReverseLineReader reader = new ReverseLineReader(logFile)) {
+                String strLine;
+                while ((strLine = reader.readLine()) != null) {
+                    Matcher match = p.matcher(strLine);
+                    if (match.matches()) return match.group(1);
+                }
+            }
+            return null;
+        }
+
         BufferedReader br = null;
         String matchLine = null;
         try {
             br = new BufferedReader(run.getLogReader());
             String strLine;
-            Pattern p = Pattern.compile(pattern);
             while ((strLine = br.readLine()) != null) {
                 Matcher match = p.matcher(strLine);
                 if (match.matches()) {
@@ -443,24 +496,74 @@ public class HygieiaUtils {
         return Boolean.FALSE;
     }
 
+    /**
+     * @return the Gson that reads build stages, shared since it is thread safe and caches its type adapters
+     */
+    public static Gson getBuildStageGson() {
+        return BUILD_STAGE_GSON;
+    }
+
+    /**
+     * Reads the stages of a wfapi describe response in one pass, each stage straight from the response into a
+     * {@link BuildStage}. The other fields of the response are skipped.
+     */
     public static LinkedList<BuildStage> getBuildStages(String responseJSON) throws HygieiaException{
         if(responseJSON==null) return new LinkedList<>();
+        LinkedList<BuildStage> buildStages = new LinkedList<>();
+        try (JsonReader reader = new JsonReader(new StringReader(responseJSON))) {
+            if (reader.peek() == JsonToken.NULL) return buildStages;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!STAGES.equals(reader.nextName())) {
+                    reader.skipValue();
+                } else if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    buildStages.clear();
+                } else {
+                    buildStages.clear();
+                    readBuildStages(reader, buildStages);
+                }
+            }
+            reader.endObject();
+            return buildStages;
+        }catch (HygieiaException hygieiaException){
+            throw hygieiaException;
+        }catch (IOException parseException){
+            logger.log(Level.INFO,ExceptionUtils.getStackTrace(parseException));
+            throw new HygieiaException("Error parsing stage information - " + ExceptionUtils.getMessage(parseException), HygieiaException.JSON_FORMAT_ERROR);
+        }catch (Exception ex){
+            logger.log(Level.INFO,ExceptionUtils.getStackTrace(ex));
+            throw new HygieiaException("Error in method :: HygieiaUtils.getBuildStages() :: ", HygieiaException.BAD_DATA);
+        }
+    }
+
+    private static void readBuildStages(JsonReader reader, LinkedList<BuildStage> buildStages) throws IOException, HygieiaException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            throw new HygieiaException("Error in method :: HygieiaUtils.getBuildStages() :: ", HygieiaException.BAD_DATA);
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            BuildStage stage = BUILD_STAGE_GSON.fromJson(reader, BuildStage.class);
+            if (stage != null) buildStages.add(stage);
+        }
+        reader.endArray();
+    }
+
+    /**
+     * Same as {@link #getBuildStages(String)} for a response that has already been parsed.
+     */
+    public static LinkedList<BuildStage> getBuildStages(JSONObject buildJSON) throws HygieiaException{
+        if(Objects.isNull(buildJSON)) return new LinkedList<>();
         try{
-            JSONObject buildJSON = (JSONObject) new JSONParser().parse(responseJSON);
-            if(Objects.isNull(buildJSON)) return new LinkedList<>();
             JSONArray stages = (JSONArray) buildJSON.get(STAGES);
             if (stages == null) return new LinkedList<>();
             LinkedList<BuildStage> buildStages = new LinkedList<>();
             for (Object stage: stages) {
                 JSONObject j =(JSONObject) stage;
-                Gson gson = buildStageGsonBuilder.create();
-                BuildStage bs = gson.fromJson(j.toJSONString(), BuildStage.class);
+                BuildStage bs = BUILD_STAGE_GSON.fromJson(j.toJSONString(), BuildStage.class);
                 buildStages.add(bs);
             }
             return buildStages;
-        }catch (ParseException parseException){
-            logger.log(Level.INFO,ExceptionUtils.getStackTrace(parseException));
-            throw new HygieiaException("Error parsing stage information - " + ExceptionUtils.getMessage(parseException), HygieiaException.JSON_FORMAT_ERROR);
         }catch (Exception ex){
             logger.log(Level.INFO,ExceptionUtils.getStackTrace(ex));
             throw new HygieiaException("Error in method :: HygieiaUtils.getBuildStages() :: ", HygieiaException.BAD_DATA);
@@ -479,6 +582,12 @@ public class HygieiaUtils {
         return stage;
     }
 
+    public static BuildStage setLogUrl(JSONObject stageJSON, BuildStage stage){
+        if(stageJSON==null) return stage;
+        stage.setExec_node_logUrl(getLogUrl(stageJSON));
+        return stage;
+    }
+
     public static String getLogUrl(JSONObject jsonObject){
         JSONArray stageFlowNodes = (JSONArray) jsonObject.get(STAGE_FLOW_NODES);
         if (CollectionUtils.isEmpty(stageFlowNodes)) return null;
@@ -505,6 +614,11 @@ public class HygieiaUtils {
         return stage;
     }
 
+    public static BuildStage set_logs(JSONObject logJSON, BuildStage stage){
+        stage.setLog(logJSON!=null?logJSON.toJSONString():"");
+        return stage;
+    }
+
     public static String getUserID(@Nonnull Run run, TaskListener listener) {
         // If build has been triggered form an upstream build, get UserCause from there to set user build variables
         Cause.UpstreamCause upstreamCause = (Cause.UpstreamCause) run.getCause(Cause.UpstreamCause.class);
@@ -0,0 +1,113 @@
+package hygieia.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.io.IOException;
+
+/**
+ * Reads JSON responses token by token, so that only the fields a caller needs are turned into objects and the rest of
+ * a large response is skipped without building a tree for it.
+ * <p>
+ * A caller positions a parser with {@link #nextField(JsonParser, String)} and reads the value there with
+ * {@link #text(JsonParser)}, {@link #readValue(JsonParser)} or a loop of its own.
+ */
+public final class JsonStreams {
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private JsonStreams() {
+    }
+
+    /**
+     * @return a parser over {@code json}, positioned on its first token, or null if {@code json} holds no value
+     */
+    public static JsonParser open(String json) throws IOException {
+        if (json == null) return null;
+        JsonParser parser = FACTORY.createParser(json);
+        if (parser.nextToken() == null) {
+            parser.close();
+            return null;
+        }
+        return parser;
+    }
+
+    /**
+     * Moves the parser, which is inside an object, to the value of the next field named {@code name}, skipping the
+     * values of other fields. The value found has to be read or skipped before the parser is moved again.
+     *
+     * @return false, with the parser on the end of the object, when no such field is left
+     */
+    public static boolean nextField(JsonParser parser, String name) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (name.equals(field)) return true;
+            parser.skipChildren();
+        }
+        if (token != JsonToken.END_OBJECT) throw new IOException("Expected a field or the end of an object, found " + token);
+        return false;
+    }
+
+    /**
+     * Moves the parser, which is inside an array, to its next element. Like a field's value, the element has to be
+     * read or skipped before the parser is moved again.
+     *
+     * @return false, with the parser on the end of the array, when no element is left
+     */
+    public static boolean nextElement(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) throw new IOException("Unexpected end of input in an array");
+        return token != JsonToken.END_ARRAY;
+    }
+
+    /**
+     * Reads the value the parser is on as a String, the way {@code toString} prints what json-simple parses: empty for
+     * null, the text of a scalar, and the JSON of an object or array.
+     */
+    public static String text(JsonParser parser) throws IOException {
+        Object value = readValue(parser);
+        return value == null ? "" : value.toString();
+    }
+
+    /**
+     * Reads the value the parser is on into the types json-simple parses to: {@link JSONObject}, {@link JSONArray},
+     * String, Long, Double, Boolean or null. The parser is left on the last token of the value.
+     */
+    @SuppressWarnings("unchecked")
+    public static Object readValue(JsonParser parser) throws IOException {
+        switch (parser.getCurrentToken()) {
+            case START_OBJECT:
+                JSONObject object = new JSONObject();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    parser.nextToken();
+                    object.put(name, readValue(parser));
+                }
+                return object;
+            case START_ARRAY:
+                JSONArray array = new JSONArray();
+                while (nextElement(parser)) {
+                    array.add(readValue(parser));
+                }
+                return array;
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+                return parser.getLongValue();
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                throw new IOException("Unexpected " + parser.getCurrentToken());
+        }
+    }
+}
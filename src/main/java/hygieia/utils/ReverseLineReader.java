@@ -0,0 +1,120 @@
+package hygieia.utils;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the lines of a file from the last one to the first, so a search for the last match can stop as soon as it
+ * finds one instead of reading the whole file.
+ * <p>
+ * Lines are split like {@link java.io.BufferedReader#readLine()} splits them, on {@code \n}, {@code \r} or
+ * {@code \r\n}, and come out in the opposite order. Splitting is done on the raw bytes, which is safe for UTF-8
+ * because neither byte ever occurs inside a multi-byte character.
+ */
+final class ReverseLineReader implements Closeable {
+    private static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final int blockSize;
+    private byte[] buffer = new byte[0];
+    /** file offset of {@code buffer[0]} */
+    private long position;
+    private int end;
+    private boolean started;
+    private boolean afterLineFeed;
+    private boolean done;
+
+    ReverseLineReader(File file) throws IOException {
+        this(file, DEFAULT_BLOCK_SIZE);
+    }
+
+    ReverseLineReader(File file, int blockSize) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.blockSize = blockSize;
+        this.position = channel.size();
+        this.done = position == 0;
+    }
+
+    /**
+     * Compressed logs cannot be read backwards, callers read those forwards instead.
+     */
+    static boolean canRead(File file) {
+        return file != null && file.isFile() && !file.getName().endsWith(".gz");
+    }
+
+    /**
+     * @return the line before the one returned last, or null once the first line has been returned
+     */
+    String readLine() throws IOException {
+        if (done) return null;
+        if (!started) {
+            // a terminator at the very end of the file does not start another line
+            started = true;
+            loadBlock();
+            if (end > 0 && (buffer[end - 1] == '\n' || buffer[end - 1] == '\r')) {
+                afterLineFeed = buffer[end - 1] == '\n';
+                end--;
+            }
+        }
+        if (afterLineFeed) {
+            afterLineFeed = false;
+            if (end == 0) loadBlock();
+            if (end > 0 && buffer[end - 1] == '\r') end--;
+        }
+
+        int from = end;
+        while (true) {
+            for (int i = from - 1; i >= 0; i--) {
+                byte b = buffer[i];
+                if (b == '\n' || b == '\r') {
+                    String line = decode(i + 1, end);
+                    end = i;
+                    afterLineFeed = b == '\n';
+                    return line;
+                }
+            }
+            if (position == 0) {
+                done = true;
+                return decode(0, end);
+            }
+            // the bytes already searched move up behind the new block
+            from = loadBlock();
+        }
+    }
+
+    /**
+     * Reads the block before {@code buffer[0]} into the front of the buffer.
+     *
+     * @return the number of bytes read
+     */
+    private int loadBlock() throws IOException {
+        int read = (int) Math.min(blockSize, position);
+        if (read == 0) return 0;
+        byte[] target = buffer;
+        if (read + end > buffer.length) target = new byte[Math.max(read + end, 2 * buffer.length)];
+        System.arraycopy(buffer, 0, target, read, end);
+        buffer = target;
+        position -= read;
+        ByteBuffer block = ByteBuffer.wrap(buffer, 0, read);
+        while (block.hasRemaining()) {
+            if (channel.read(block, position + block.position()) < 0) throw new EOFException("Log file shrank while reading it");
+        }
+        end += read;
+        return read;
+    }
+
+    private String decode(int from, int to) {
+        return new String(buffer, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
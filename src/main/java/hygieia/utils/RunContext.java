@@ -0,0 +1,109 @@
+package hygieia.utils;
+
+import hudson.EnvVars;
+import hudson.model.AbstractBuild;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+
+/**
+ * The values every Hygieia request repeats about a run: its identity and URLs, its environment, who started it and,
+ * for freestyle builds, the SCM revision. The environment is read once when the snapshot is taken, the other values
+ * the first time they are asked for, so a snapshot shared by several builders computes each of them once.
+ */
+public final class RunContext {
+    private final Run<?, ?> run;
+    private final TaskListener listener;
+    private final EnvVars environment;
+
+    private String buildUrl;
+    private String jobUrl;
+    private String jobName;
+    private String instanceUrl;
+    private String startedBy;
+    private boolean scmLoaded;
+    private String scmUrl;
+    private String scmBranch;
+    private String scmRevisionNumber;
+
+    public RunContext(Run<?, ?> run, TaskListener listener) {
+        this.run = run;
+        this.listener = listener;
+        this.environment = HygieiaUtils.getEnvironment(run, listener);
+    }
+
+    public Run<?, ?> getRun() {
+        return run;
+    }
+
+    /**
+     * @return a copy of the run's environment, or null if it could not be read
+     */
+    public EnvVars getEnvironment() {
+        return environment == null ? null : new EnvVars(environment);
+    }
+
+    public String getBuildNumber() {
+        return HygieiaUtils.getBuildNumber(run);
+    }
+
+    public synchronized String getBuildUrl() {
+        if (buildUrl == null) buildUrl = HygieiaUtils.getBuildUrl(run);
+        return buildUrl;
+    }
+
+    public synchronized String getJobUrl() {
+        if (jobUrl == null) jobUrl = HygieiaUtils.getJobUrl(run);
+        return jobUrl;
+    }
+
+    public synchronized String getJobName() {
+        if (jobName == null) jobName = HygieiaUtils.getJobName(run);
+        return jobName;
+    }
+
+    /**
+     * Same as {@link HygieiaUtils#getInstanceUrl(Run, TaskListener)}.
+     */
+    public synchronized String getInstanceUrl() {
+        if (instanceUrl == null) instanceUrl = HygieiaUtils.getInstanceUrl(run, environment);
+        return instanceUrl;
+    }
+
+    public synchronized String getStartedBy() {
+        if (startedBy == null) startedBy = HygieiaUtils.getUserID(run, listener);
+        return startedBy;
+    }
+
+    /**
+     * Same as {@link HygieiaUtils#getScmUrl(AbstractBuild, TaskListener)}, null for pipelines.
+     */
+    public synchronized String getScmUrl() {
+        loadScm();
+        return scmUrl;
+    }
+
+    public synchronized String getScmBranch() {
+        loadScm();
+        return scmBranch;
+    }
+
+    public synchronized String getScmRevisionNumber() {
+        loadScm();
+        return scmRevisionNumber;
+    }
+
+    private void loadScm() {
+        if (scmLoaded) return;
+        scmLoaded = true;
+        if (!(run instanceof AbstractBuild) || environment == null) return;
+        AbstractBuild<?, ?> build = (AbstractBuild<?, ?>) run;
+        if (HygieiaUtils.isGitScm(build)) {
+            scmUrl = environment.get("GIT_URL");
+            scmBranch = environment.get("GIT_BRANCH");
+            scmRevisionNumber = environment.get("GIT_COMMIT");
+        } else if (HygieiaUtils.isSvnScm(build)) {
+            scmUrl = environment.get("SVN_URL");
+            scmRevisionNumber = environment.get("SVN_REVISION");
+        }
+    }
+}
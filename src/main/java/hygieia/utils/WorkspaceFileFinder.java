@@ -0,0 +1,158 @@
+package hygieia.utils;
+
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Finds the files and directories under a workspace directory that match a {@link GlobMatcher} pattern, in one call
+ * to the agent that holds the workspace. The walk runs there with {@link Files#walkFileTree}, and only the matches
+ * come back. Directories that nothing below can match, such as excluded ones or those off an anchored pattern's path,
+ * are not entered.
+ * <p>
+ * Matches are returned in the order the old recursive {@code FilePath.list} lookup produced them: the matches directly
+ * in a directory first, then those of each subdirectory. Symbolic links are followed, link cycles and unreadable
+ * directories are skipped.
+ */
+public class WorkspaceFileFinder extends MasterToSlaveFileCallable<List<WorkspaceFileFinder.FoundFile>> {
+    private static final long serialVersionUID = 1L;
+
+    private final GlobMatcher matcher;
+
+    /**
+     * @param pattern comma separated globs as described in {@link GlobMatcher}
+     */
+    public WorkspaceFileFinder(String pattern) {
+        this.matcher = GlobMatcher.compile(pattern);
+    }
+
+    @Override
+    public List<FoundFile> invoke(File root, VirtualChannel channel) throws IOException {
+        return walk(root, null);
+    }
+
+    /**
+     * @param listed receives every directory the walk lists, the root first with an empty path, and the modification
+     *               time it had before it was listed; null if not needed
+     * @return the matches below {@code root}
+     */
+    List<FoundFile> walk(File root, final List<FoundFile> listed) throws IOException {
+        if (!root.isDirectory()) return Collections.emptyList();
+        final Path rootPath = root.toPath();
+        final Deque<Directory> directories = new ArrayDeque<>();
+        final List<FoundFile> found = new ArrayList<>();
+        // path of the visited entry below the root, one name per directory level
+        final List<String> segments = new ArrayList<>();
+
+        Files.walkFileTree(rootPath, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (!directories.isEmpty()) {
+                    segments.add(dir.getFileName().toString());
+                    match(dir, attrs, directories.peek().own);
+                    if (!matcher.canMatchBelow(segments)) {
+                        segments.remove(segments.size() - 1);
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                }
+                if (listed != null) listed.add(found(dir, attrs));
+                directories.push(new Directory());
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (!directories.isEmpty()) {
+                    segments.add(file.getFileName().toString());
+                    match(file, attrs, directories.peek().own);
+                    segments.remove(segments.size() - 1);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                // unreadable entries and symbolic link loops
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                Directory done = directories.pop();
+                done.own.addAll(done.nested);
+                if (directories.isEmpty()) {
+                    found.addAll(done.own);
+                } else {
+                    directories.peek().nested.addAll(done.own);
+                    segments.remove(segments.size() - 1);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            private void match(Path path, BasicFileAttributes attrs, List<FoundFile> into) {
+                if (matcher.matches(segments)) into.add(found(path, attrs));
+            }
+
+            private FoundFile found(Path path, BasicFileAttributes attrs) {
+                return new FoundFile(rootPath.relativize(path).toString(), attrs.isDirectory(),
+                        attrs.isDirectory() ? 0 : attrs.size(), attrs.lastModifiedTime().toMillis());
+            }
+        });
+        return found;
+    }
+
+    private static final class Directory {
+        private final List<FoundFile> own = new ArrayList<>();
+        private final List<FoundFile> nested = new ArrayList<>();
+    }
+
+    public static final class FoundFile implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String relativePath;
+        private final boolean directory;
+        private final long size;
+        private final long lastModified;
+
+        FoundFile(String relativePath, boolean directory, long size, long lastModified) {
+            this.relativePath = relativePath;
+            this.directory = directory;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * @return the path below the searched directory, with the agent's file separator
+         */
+        public String getRelativePath() {
+            return relativePath;
+        }
+
+        public boolean isDirectory() {
+            return directory;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package hygieia.utils;
+
+import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The matches of one pattern below a workspace directory, together with every directory the pruned walk listed to find
+ * them, so that the same search can be answered again without walking while none of those directories has changed.
+ * <p>
+ * Adding, removing or renaming an entry changes the modification time of its directory. A change made within the file
+ * system's timestamp granularity of the listing may leave it unchanged, so a directory modified that close to the walk
+ * is not trusted. The granularity is taken as {@link #FINE_MTIME_GRANULARITY_MILLIS} when the walk saw sub-second
+ * times and {@link #COARSE_MTIME_GRANULARITY_MILLIS} otherwise. Sizes and modification times of the matches are those
+ * seen by the walk.
+ */
+public final class WorkspaceFileIndex implements Serializable {
+    private static final long serialVersionUID = 1L;
+    static final long FINE_MTIME_GRANULARITY_MILLIS = 50;
+    static final long COARSE_MTIME_GRANULARITY_MILLIS = 2000;
+
+    private final String pattern;
+    private final long trustedBefore;
+    private final List<WorkspaceFileFinder.FoundFile> matches;
+    private final List<WorkspaceFileFinder.FoundFile> listed;
+
+    private WorkspaceFileIndex(String pattern, long trustedBefore, List<WorkspaceFileFinder.FoundFile> matches,
+                               List<WorkspaceFileFinder.FoundFile> listed) {
+        this.pattern = pattern;
+        this.trustedBefore = trustedBefore;
+        this.matches = Collections.unmodifiableList(matches);
+        this.listed = listed;
+    }
+
+    /**
+     * Walks {@code rootDirectory} for {@code pattern}, entering only the directories the pattern can match below.
+     */
+    public static WorkspaceFileIndex build(FilePath rootDirectory, String pattern) throws IOException, InterruptedException {
+        return rootDirectory.act(new Build(pattern));
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return the entries matching the pattern, in the order {@link WorkspaceFileFinder} returns them
+     */
+    public List<WorkspaceFileFinder.FoundFile> getMatches() {
+        return matches;
+    }
+
+    /**
+     * @return true if nothing was added to or removed from the listed directories since the walk
+     */
+    public boolean isCurrent(FilePath rootDirectory) throws IOException, InterruptedException {
+        return rootDirectory.act(new Check(this));
+    }
+
+    private static final class Build extends MasterToSlaveFileCallable<WorkspaceFileIndex> {
+        private static final long serialVersionUID = 1L;
+
+        private final String pattern;
+
+        Build(String pattern) {
+            this.pattern = pattern;
+        }
+
+        @Override
+        public WorkspaceFileIndex invoke(File root, VirtualChannel channel) throws IOException {
+            long walkStarted = System.currentTimeMillis();
+            List<WorkspaceFileFinder.FoundFile> listed = new ArrayList<>();
+            List<WorkspaceFileFinder.FoundFile> matches = new WorkspaceFileFinder(pattern).walk(root, listed);
+            long granularity = COARSE_MTIME_GRANULARITY_MILLIS;
+            for (WorkspaceFileFinder.FoundFile directory : listed) {
+                if (directory.getLastModified() % 1000 != 0) {
+                    granularity = FINE_MTIME_GRANULARITY_MILLIS;
+                    break;
+                }
+            }
+            return new WorkspaceFileIndex(pattern, walkStarted - granularity, matches, listed);
+        }
+    }
+
+    /**
+     * Runs on the agent, where the directory times and the walk start time come from the same clock.
+     */
+    private static final class Check extends MasterToSlaveFileCallable<Boolean> {
+        private static final long serialVersionUID = 1L;
+
+        private final long trustedBefore;
+        private final List<String> directories = new ArrayList<>();
+        private final List<Long> lastModified = new ArrayList<>();
+
+        Check(WorkspaceFileIndex index) {
+            this.trustedBefore = index.trustedBefore;
+            for (WorkspaceFileFinder.FoundFile directory : index.listed) {
+                directories.add(directory.getRelativePath());
+                lastModified.add(directory.getLastModified());
+            }
+        }
+
+        @Override
+        public Boolean invoke(File root, VirtualChannel channel) {
+            // an empty list means the root was not a directory when it was walked
+            if (directories.isEmpty()) return !root.exists();
+            for (int i = 0; i < directories.size(); i++) {
+                File directory = directories.get(i).isEmpty() ? root : new File(root, directories.get(i));
+                if (!isUnchanged(directory, lastModified.get(i))) return false;
+            }
+            return true;
+        }
+
+        private boolean isUnchanged(File directory, long indexed) {
+            return directory.isDirectory() && directory.lastModified() == indexed && indexed < trustedBefore;
+        }
+    }
+}
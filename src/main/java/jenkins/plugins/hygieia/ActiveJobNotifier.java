@@ -2,13 +2,10 @@ package jenkins.plugins.hygieia;
 
 import com.capitalone.dashboard.model.BuildStage;
 import com.capitalone.dashboard.model.BuildStatus;
-import com.capitalone.dashboard.model.quality.CucumberJsonReport;
-import com.capitalone.dashboard.model.quality.MochaJsSpecReport;
 import com.capitalone.dashboard.request.BinaryArtifactCreateRequest;
 import com.capitalone.dashboard.request.CodeQualityCreateRequest;
 import com.capitalone.dashboard.request.DeployDataCreateRequest;
 import com.capitalone.dashboard.request.TestDataCreateRequest;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import hudson.model.AbstractBuild;
 import hudson.model.BuildListener;
 import hygieia.builder.ArtifactBuilder;
@@ -48,7 +45,7 @@ public class ActiveJobNotifier implements FineGrainedNotifier {
 
         if (publish) {
 
-            String startedBy = HygieiaUtils.getUserID(r, listener);
+            String startedBy = RunContexts.get(r, listener).getStartedBy();
             HygieiaResponse response = getHygieiaService(r)
                     .publishBuildData(
                             new BuildBuilder().createBuildRequest(r, publisher.getDescriptor().getHygieiaJenkinsName(),
@@ -78,7 +75,7 @@ public class ActiveJobNotifier implements FineGrainedNotifier {
         publishBuild = publishBuild && !publisher.getDescriptor().isHygieiaPublishBuildDataGlobal() && !publisher.getDescriptor().isHygieiaPublishSonarDataGlobal();
 
         if (publishBuild) {
-            String startedBy = HygieiaUtils.getUserID(r, listener);
+            String startedBy = RunContexts.get(r, listener).getStartedBy();
             HygieiaResponse buildResponse = getHygieiaService(r)
                     .publishBuildData(new BuildBuilder()
                             .createBuildRequestFromRun(r, publisher.getDescriptor().getHygieiaJenkinsName(),
@@ -113,11 +110,9 @@ public class ActiveJobNotifier implements FineGrainedNotifier {
             boolean publishTest = (publisher.getHygieiaTest() != null) && (successBuild || publisher.getHygieiaTest().isPublishEvenBuildFails());
 
             if (publishTest) {
-                ObjectMapper objectMapper = new ObjectMapper();
-                objectMapper.registerSubtypes(CucumberJsonReport.class, MochaJsSpecReport.class);
 //                FunctionalTestBuilder(Run run, TaskListener listener, BuildStatus buildStatus, FilePath filePath, String applicationName, String environmentName, String testType, String filePattern, String directory, String jenkinsName, String buildId)
                 BuildStatus buildStatus = BuildStatus.fromString(r.getResult().toString());
-                TestDataCreateRequest request = new FunctionalTestBuilder(objectMapper).getTestDataCreateRequest(r, listener, buildStatus, r.getWorkspace(), publisher.getHygieiaTest().getTestApplicationName(),
+                TestDataCreateRequest request = new FunctionalTestBuilder(JsonMappers.testReportReader()).getTestDataCreateRequest(r, listener, buildStatus, r.getWorkspace(), publisher.getHygieiaTest().getTestApplicationName(),
                         publisher.getHygieiaTest().getTestEnvironmentName(), publisher.getHygieiaTest().getTestType(), publisher.getHygieiaTest().getTestFileNamePattern(), publisher.getHygieiaTest().getTestResultsDirectory(),
                         publisher.getDescriptor().getHygieiaJenkinsName(), HygieiaUtils.getBuildCollectionId(buildResponse.getResponseValue()));
                 if (request != null) {
@@ -0,0 +1,36 @@
+package jenkins.plugins.hygieia;
+
+import com.capitalone.dashboard.request.BinaryArtifactCreateRequest;
+import com.capitalone.dashboard.request.BuildDataCreateRequest;
+import com.capitalone.dashboard.request.CodeQualityCreateRequest;
+import com.capitalone.dashboard.request.DeployDataCreateRequest;
+import com.capitalone.dashboard.request.GenericCollectorItemCreateRequest;
+import com.capitalone.dashboard.request.MetadataCreateRequest;
+import com.capitalone.dashboard.request.TestDataCreateRequest;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous counterpart of {@link HygieiaService}. Each publish runs on the executor the service
+ * was created with, and the future completes with the Hygieia API response. Futures never complete exceptionally for
+ * transport errors, they complete with the same response codes the blocking service returns.
+ */
+public interface AsyncHygieiaService {
+    CompletableFuture<HygieiaResponse> publishBuildData(BuildDataCreateRequest request);
+
+    CompletableFuture<HygieiaResponse> publishBuildDataV3(BuildDataCreateRequest request);
+
+    CompletableFuture<HygieiaResponse> publishArtifactData(BinaryArtifactCreateRequest request);
+
+    CompletableFuture<HygieiaResponse> publishTestResults(TestDataCreateRequest request);
+
+    CompletableFuture<HygieiaResponse> publishSonarResults(CodeQualityCreateRequest request);
+
+    CompletableFuture<HygieiaResponse> publishDeployData(DeployDataCreateRequest request);
+
+    CompletableFuture<HygieiaResponse> publishGenericCollectorItemData(GenericCollectorItemCreateRequest request);
+
+    CompletableFuture<HygieiaResponse> publishGenericArtifactData(GenericCollectorItemCreateRequest request);
+
+    CompletableFuture<HygieiaResponse> publishMetaData(MetadataCreateRequest request);
+}
@@ -0,0 +1,58 @@
+package jenkins.plugins.hygieia;
+
+import com.capitalone.dashboard.model.SCM;
+import hudson.model.Run;
+import hudson.scm.ChangeLogSet;
+import hygieia.builder.CommitBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Remembers the commit list built from a run's change sets, so the build request and every artifact of the run share
+ * one list instead of each walking the change sets again.
+ * <p>
+ * The list is kept in the {@link RunCache} and rebuilt when the run's change sets are no longer the ones it was built
+ * from, such as after another checkout in a pipeline.
+ */
+public class CommitList {
+    private volatile Memo memo;
+
+    /**
+     * @return the commits of {@code run}, not to be modified
+     */
+    public static List<SCM> getCommits(Run<?, ?> run) {
+        List<ChangeLogSet<? extends ChangeLogSet.Entry>> changeLogSets = CommitBuilder.getChangeLogSets(run);
+        if (changeLogSets.isEmpty()) return Collections.emptyList();
+
+        CommitList cached = RunCache.get(run, CommitList.class, CommitList::new);
+        Memo memo = cached.memo;
+        if (memo == null || !memo.isFor(changeLogSets)) {
+            memo = new Memo(changeLogSets, new CommitBuilder(changeLogSets).getCommits());
+            cached.memo = memo;
+        }
+        return memo.commits;
+    }
+
+    private static final class Memo {
+        private final List<ChangeLogSet<? extends ChangeLogSet.Entry>> changeLogSets;
+        private final List<SCM> commits;
+
+        Memo(List<ChangeLogSet<? extends ChangeLogSet.Entry>> changeLogSets, List<SCM> commits) {
+            this.changeLogSets = new ArrayList<>(changeLogSets);
+            this.commits = Collections.unmodifiableList(commits);
+        }
+
+        /**
+         * Change sets do not implement equals, so this compares them by identity.
+         */
+        boolean isFor(List<ChangeLogSet<? extends ChangeLogSet.Entry>> current) {
+            if (current.size() != changeLogSets.size()) return false;
+            for (int i = 0; i < current.size(); i++) {
+                if (current.get(i) != changeLogSets.get(i)) return false;
+            }
+            return true;
+        }
+    }
+}
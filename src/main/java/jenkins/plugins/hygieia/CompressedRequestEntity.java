@@ -0,0 +1,11 @@
+package jenkins.plugins.hygieia;
+
+import org.apache.commons.httpclient.methods.RequestEntity;
+
+/**
+ * Request entity that may write a gzip-compressed body, in which case {@link RestCall} sends {@code Content-Encoding: gzip}.
+ */
+interface CompressedRequestEntity extends RequestEntity {
+
+    boolean isGzip();
+}
@@ -0,0 +1,127 @@
+package jenkins.plugins.hygieia;
+
+import com.capitalone.dashboard.request.BinaryArtifactCreateRequest;
+import com.capitalone.dashboard.request.BuildDataCreateRequest;
+import com.capitalone.dashboard.request.CodeQualityCreateRequest;
+import com.capitalone.dashboard.request.DeployDataCreateRequest;
+import com.capitalone.dashboard.request.GenericCollectorItemCreateRequest;
+import com.capitalone.dashboard.request.MetadataCreateRequest;
+import com.capitalone.dashboard.request.TestDataCreateRequest;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.methods.RequestEntity;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Default {@link AsyncHygieiaService}. Requests are sent over the pooled {@link RestCall} transport
+ * on the supplied executor, which the caller owns. Retryable failures are queued in the
+ * {@link PublishOutbox} when it is enabled.
+ */
+public class DefaultAsyncHygieiaService implements AsyncHygieiaService {
+
+    private static final Logger logger = Logger.getLogger(DefaultAsyncHygieiaService.class.getName());
+
+    public static final String BUILD_V2 = "/v2/build";
+    public static final String BUILD_V3 = "/v3/build";
+    public static final String ARTIFACT = "/artifact";
+    public static final String TEST = "/v2/quality/test";
+    public static final String STATIC_ANALYSIS = "/v2/quality/static-analysis";
+    public static final String DEPLOY = "/v2/deploy";
+    public static final String GENERIC_ITEM = "/generic-item";
+    public static final String GENERIC_BINARY_ARTIFACT = "/generic-binary-artifact";
+    public static final String METADATA = "/metadata/create";
+
+    private final String hygieiaAPIUrl;
+    private final boolean useProxy;
+    private final RestCall restCall;
+    private final Executor executor;
+
+    public DefaultAsyncHygieiaService(String hygieiaAPIUrl, boolean useProxy, Executor executor) {
+        this.hygieiaAPIUrl = hygieiaAPIUrl;
+        this.useProxy = useProxy;
+        this.restCall = new RestCall(useProxy);
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<HygieiaResponse> publishBuildData(BuildDataCreateRequest request) {
+        return post(BUILD_V2, request, Level.SEVERE, "Hygieia: Build Publisher post may have failed.")
+                .thenApply(response -> new HygieiaResponse(response.getResponseCode(), response.getResponseValue().replaceAll("\"", "")));
+    }
+
+    @Override
+    public CompletableFuture<HygieiaResponse> publishBuildDataV3(BuildDataCreateRequest request) {
+        return post(BUILD_V3, request, Level.SEVERE, "Hygieia: Build Publisher post may have failed.");
+    }
+
+    @Override
+    public CompletableFuture<HygieiaResponse> publishArtifactData(BinaryArtifactCreateRequest request) {
+        return post(ARTIFACT, request, Level.WARNING, "Hygieia Artifact Publisher post may have failed.");
+    }
+
+    @Override
+    public CompletableFuture<HygieiaResponse> publishTestResults(TestDataCreateRequest request) {
+        return post(TEST, request, Level.WARNING, "Hygieia Test Publisher post may have failed.");
+    }
+
+    @Override
+    public CompletableFuture<HygieiaResponse> publishSonarResults(CodeQualityCreateRequest request) {
+        return post(STATIC_ANALYSIS, request, Level.WARNING, "Hygieia Sonar Publisher post may have failed.");
+    }
+
+    @Override
+    public CompletableFuture<HygieiaResponse> publishDeployData(DeployDataCreateRequest request) {
+        return post(DEPLOY, request, Level.WARNING, "Hygieia Deploy post may have failed.");
+    }
+
+    @Override
+    public CompletableFuture<HygieiaResponse> publishGenericCollectorItemData(GenericCollectorItemCreateRequest request) {
+        return post(GENERIC_ITEM, request, Level.WARNING, "Hygieia Generic Collector Item post may have failed.");
+    }
+
+    @Override
+    public CompletableFuture<HygieiaResponse> publishGenericArtifactData(GenericCollectorItemCreateRequest request) {
+        return post(GENERIC_BINARY_ARTIFACT, request, Level.SEVERE, "Hygieia publish artifact post may have failed.");
+    }
+
+    @Override
+    public CompletableFuture<HygieiaResponse> publishMetaData(MetadataCreateRequest request) {
+        return post(METADATA, request, Level.SEVERE, "Hygieia publish metadata post may have failed.");
+    }
+
+    private CompletableFuture<HygieiaResponse> post(final String path, final Object request, final Level level,
+                                                    final String failureMessage) {
+        return CompletableFuture.supplyAsync(() -> send(path, request, level, failureMessage), executor);
+    }
+
+    private HygieiaResponse send(String path, Object request, Level level, String failureMessage) {
+        RequestEntity entity;
+        try {
+            boolean gzip = PayloadCompression.isEnabledFor(hygieiaAPIUrl);
+            EncodedPayload shared = EncodedPayload.lookup(request);
+            entity = shared != null ? shared.toRequestEntity(gzip, PayloadCompression.getThresholdBytes())
+                    : JsonRequestEntity.create(request, gzip, PayloadCompression.getThresholdBytes());
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Hygieia: Error posting to Hygieia", e);
+            return new HygieiaResponse(HttpStatus.SC_NO_CONTENT, "");
+        }
+        RestCall.RestCallResponse callResponse = restCall.makeRestCallPost(hygieiaAPIUrl + path, entity);
+        int responseCode = callResponse.getResponseCode();
+        if (responseCode != HttpStatus.SC_CREATED) {
+            logger.log(level, failureMessage + " Response: " + responseCode);
+            spoolForRetry(path, request, callResponse);
+        }
+        return new HygieiaResponse(responseCode, callResponse.getResponseString());
+    }
+
+    private void spoolForRetry(String path, Object request, RestCall.RestCallResponse callResponse) {
+        PublishOutbox outbox = PublishOutbox.getInstance();
+        if (outbox != null && PublishOutbox.isRetryable(callResponse) && outbox.spool(hygieiaAPIUrl, path, useProxy, request)) {
+            logger.info("Hygieia: Queued publish to " + hygieiaAPIUrl + path + " for retry");
+        }
+    }
+}
@@ -7,15 +7,14 @@ import com.capitalone.dashboard.request.DeployDataCreateRequest;
 import com.capitalone.dashboard.request.GenericCollectorItemCreateRequest;
 import com.capitalone.dashboard.request.MetadataCreateRequest;
 import com.capitalone.dashboard.request.TestDataCreateRequest;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import hudson.model.BuildListener;
-import hygieia.utils.HygieiaUtils;
+import hygieia.utils.JsonStreams;
 import org.apache.commons.httpclient.HttpStatus;
 import org.apache.commons.lang3.exception.ExceptionUtils;
-import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
-import org.springframework.util.CollectionUtils;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -24,6 +23,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -37,8 +37,11 @@ public class DefaultHygieiaService implements HygieiaService {
     private String hygieiaJenkinsName;
     private boolean useProxy;
     private BuildListener listener;
+    private final RestCall restCall;
+    private AsyncHygieiaService asyncService;
 
     private static final int RETRY_COUNT = 3;
+    private static final Executor CALLING_THREAD = Runnable::run;
 
     public DefaultHygieiaService(String hygieiaAPIUrl, String hygieiaToken, String hygieiaJenkinsName, boolean useProxy) {
         super();
@@ -46,268 +49,157 @@ public class DefaultHygieiaService implements HygieiaService {
         this.hygieiaToken = hygieiaToken;
         this.hygieiaJenkinsName = hygieiaJenkinsName;
         this.useProxy = useProxy;
+        this.restCall = new RestCall(useProxy);
+        this.asyncService = newAsyncService(hygieiaAPIUrl, useProxy);
     }
 
     public void setHygieiaAPIUrl(String hygieiaAPIUrl) {
         this.hygieiaAPIUrl = hygieiaAPIUrl;
+        this.asyncService = newAsyncService(hygieiaAPIUrl, useProxy);
+    }
+
+    /**
+     * The publish methods below run the asynchronous service on the calling thread, so blocking callers
+     * do not pay for a thread hand-off.
+     */
+    private static AsyncHygieiaService newAsyncService(String hygieiaAPIUrl, boolean useProxy) {
+        return new DefaultAsyncHygieiaService(hygieiaAPIUrl, useProxy, CALLING_THREAD);
     }
 
     @Override
     public HygieiaResponse publishBuildData(BuildDataCreateRequest request) {
-        String responseValue;
-        int responseCode = HttpStatus.SC_NO_CONTENT;
-        try {
-            String jsonString = new String(HygieiaUtils.convertObjectToJsonBytes(request));
-            RestCall restCall = new RestCall(useProxy);
-            RestCall.RestCallResponse callResponse = restCall.makeRestCallPost(hygieiaAPIUrl + "/v2/build", jsonString);
-            responseCode = callResponse.getResponseCode();
-            responseValue = callResponse.getResponseString().replaceAll("\"", "");
-            if (responseCode != HttpStatus.SC_CREATED) {
-                logger.log(Level.SEVERE, "Hygieia: Build Publisher post may have failed. Response: " + responseCode);
-            }
-            return new HygieiaResponse(responseCode, responseValue);
-        } catch (IOException e) {
-            logger.log(Level.SEVERE, "Hygieia: Error posting to Hygieia", e);
-            responseValue = "";
-        }
-
-        return new HygieiaResponse(responseCode, responseValue);
+        return asyncService.publishBuildData(request).join();
     }
+
     @Override
     public HygieiaResponse publishBuildDataV3(BuildDataCreateRequest request) {
-        String responseValue;
-        int responseCode = HttpStatus.SC_NO_CONTENT;
-        try {
-            String jsonString = new String(HygieiaUtils.convertObjectToJsonBytes(request));
-            RestCall restCall = new RestCall(useProxy);
-            RestCall.RestCallResponse callResponse = restCall.makeRestCallPost(hygieiaAPIUrl + "/v3/build", jsonString);
-            responseCode = callResponse.getResponseCode();
-            responseValue = callResponse.getResponseString();
-            if (responseCode != HttpStatus.SC_CREATED) {
-                logger.log(Level.SEVERE, "Hygieia: Build Publisher post may have failed. Response: " + responseCode);
-            }
-            return new HygieiaResponse(responseCode, responseValue);
-        } catch (IOException e) {
-            logger.log(Level.SEVERE, "Hygieia: Error posting to Hygieia", e);
-            responseValue = "";
-        }
-
-        return new HygieiaResponse(responseCode, responseValue);
+        return asyncService.publishBuildDataV3(request).join();
     }
 
     @Override
     public HygieiaResponse publishArtifactData(BinaryArtifactCreateRequest request) {
-        String responseValue;
-        int responseCode = HttpStatus.SC_NO_CONTENT;
-        try {
-            String jsonString = new String(HygieiaUtils.convertObjectToJsonBytes(request));
-            RestCall restCall = new RestCall(useProxy);
-            RestCall.RestCallResponse callResponse = restCall.makeRestCallPost(hygieiaAPIUrl + "/artifact", jsonString);
-            responseCode = callResponse.getResponseCode();
-            responseValue = callResponse.getResponseString();
-            if (responseCode != HttpStatus.SC_CREATED) {
-                logger.log(Level.WARNING, "Hygieia Artifact Publisher post may have failed. Response: " + responseCode);
-            }
-            return new HygieiaResponse(responseCode, responseValue);
-        } catch (IOException ioe) {
-            logger.log(Level.WARNING, "Error posting artifact details to Hygieia", ioe);
-            responseValue = "";
-        }
-        return new HygieiaResponse(responseCode, responseValue);
+        return asyncService.publishArtifactData(request).join();
     }
 
     @Override
     public HygieiaResponse publishTestResults(TestDataCreateRequest request) {
-        String responseValue;
-        int responseCode = HttpStatus.SC_NO_CONTENT;
-        try {
-            String jsonString = new String(HygieiaUtils.convertObjectToJsonBytes(request));
-            RestCall restCall = new RestCall(useProxy);
-            RestCall.RestCallResponse callResponse = restCall.makeRestCallPost(hygieiaAPIUrl + "/v2/quality/test", jsonString);
-            responseCode = callResponse.getResponseCode();
-            responseValue = callResponse.getResponseString();
-            if (responseCode != HttpStatus.SC_CREATED) {
-                logger.log(Level.WARNING, "Hygieia Artifact Publisher post may have failed. Response: " + responseCode);
-            }
-            return new HygieiaResponse(responseCode, responseValue);
-        } catch (IOException ioe) {
-            logger.log(Level.WARNING, "Error posting test results to Hygieia", ioe);
-            responseValue = "";
-        }
-        return new HygieiaResponse(responseCode, responseValue);
+        return asyncService.publishTestResults(request).join();
     }
 
     @Override
     public HygieiaResponse publishSonarResults(CodeQualityCreateRequest request) {
-        String responseValue = "";
-        int responseCode = HttpStatus.SC_NO_CONTENT;
-        try {
-            String jsonString = new String(HygieiaUtils.convertObjectToJsonBytes(request));
-            RestCall restCall = new RestCall(useProxy);
-            RestCall.RestCallResponse callResponse = restCall.makeRestCallPost(hygieiaAPIUrl + "/v2/quality/static-analysis", jsonString);
-            responseCode = callResponse.getResponseCode();
-            responseValue = callResponse.getResponseString();
-            if (responseCode != HttpStatus.SC_CREATED) {
-                logger.log(Level.WARNING, "Hygieia Sonar Publisher post may have failed. Response: " + responseCode);
-            }
-        } catch (IOException ioe) {
-            logger.log(Level.WARNING, "Error posting sonar results to Hygieia", ioe);
-        }
-        return new HygieiaResponse(responseCode, responseValue);
+        return asyncService.publishSonarResults(request).join();
     }
 
     @Override
     public HygieiaResponse publishDeployData(DeployDataCreateRequest request) {
-        String responseValue;
-        int responseCode = HttpStatus.SC_NO_CONTENT;
-        try {
-            String jsonString = new String(HygieiaUtils.convertObjectToJsonBytes(request));
-            RestCall restCall = new RestCall(useProxy);
-            RestCall.RestCallResponse callResponse = restCall.makeRestCallPost(hygieiaAPIUrl + "/v2/deploy", jsonString);
-            responseCode = callResponse.getResponseCode();
-            responseValue = callResponse.getResponseString();
-            if (responseCode != HttpStatus.SC_CREATED) {
-                logger.log(Level.WARNING, "Hygieia Deploy post may have failed. Response: " + responseCode);
-            }
-            return new HygieiaResponse(responseCode, responseValue);
-        } catch (IOException ioe) {
-            logger.log(Level.WARNING, "Error posting to Hygieia", ioe);
-            responseValue = "";
-        }
-        return new HygieiaResponse(responseCode, responseValue);
+        return asyncService.publishDeployData(request).join();
     }
 
     @Override
     public HygieiaResponse publishGenericCollectorItemData(GenericCollectorItemCreateRequest request) {
-        String responseValue;
-        int responseCode = HttpStatus.SC_NO_CONTENT;
-        try {
-            String jsonString = new String(HygieiaUtils.convertObjectToJsonBytes(request));
-            RestCall restCall = new RestCall(useProxy);
-            RestCall.RestCallResponse callResponse = restCall.makeRestCallPost(hygieiaAPIUrl + "/generic-item", jsonString);
-            responseCode = callResponse.getResponseCode();
-            responseValue = callResponse.getResponseString();
-            if (responseCode != HttpStatus.SC_CREATED) {
-                logger.log(Level.WARNING, "Hygieia Deploy post may have failed. Response: " + responseCode);
-            }
-            return new HygieiaResponse(responseCode, responseValue);
-        } catch (IOException ioe) {
-            logger.log(Level.WARNING, "Error posting generic item to Hygieia", ioe);
-            responseValue = "";
-        }
-        return new HygieiaResponse(responseCode, responseValue);
+        return asyncService.publishGenericCollectorItemData(request).join();
     }
 
     @Override
     public HygieiaResponse publishGenericArtifactData(GenericCollectorItemCreateRequest request){
-        String responseValue;
-        int responseCode = HttpStatus.SC_NO_CONTENT;
-        try {
-            String jsonString = new String(HygieiaUtils.convertObjectToJsonBytes(request));
-            RestCall restCall = new RestCall(useProxy);
-            RestCall.RestCallResponse callResponse = restCall.makeRestCallPost(hygieiaAPIUrl + "/generic-binary-artifact", jsonString);
-            responseCode = callResponse.getResponseCode();
-            responseValue = callResponse.getResponseString();
-            if (responseCode != HttpStatus.SC_CREATED) {
-                logger.log(Level.SEVERE, "Hygieia publish artifact post may have failed. Response: " + responseCode);
-            }
-            return new HygieiaResponse(responseCode, responseValue);
-        } catch (IOException ioe) {
-            logger.log(Level.SEVERE, "Error posting generic artifact data to Hygieia", ioe);
-            responseValue = "";
-        }
-        return new HygieiaResponse(responseCode, responseValue);
+        return asyncService.publishGenericArtifactData(request).join();
     }
 
-
     @Override
     public HygieiaResponse publishMetaData(MetadataCreateRequest request){
-        String responseValue;
-        int responseCode = HttpStatus.SC_NO_CONTENT;
-        try {
-            String jsonString = new String(HygieiaUtils.convertObjectToJsonBytes(request));
-            RestCall restCall = new RestCall(useProxy);
-            RestCall.RestCallResponse callResponse = restCall.makeRestCallPost(hygieiaAPIUrl + "/metadata/create", jsonString);
-            responseCode = callResponse.getResponseCode();
-            responseValue = callResponse.getResponseString();
-            if (responseCode != HttpStatus.SC_CREATED) {
-                logger.log(Level.SEVERE, "Hygieia publish metadata post may have failed. Response: " + responseCode);
-            }
-            return new HygieiaResponse(responseCode, responseValue);
-        } catch (IOException ioe) {
-            logger.log(Level.SEVERE, "Error posting meta data to Hygieia", ioe);
-            responseValue = "";
-        }
-        return new HygieiaResponse(responseCode, responseValue);
+        return asyncService.publishMetaData(request).join();
     }
 
-
-
-    private String getCollectorItemJSON(String type) {
-        RestCall restCall = new RestCall(useProxy);
-        RestCall.RestCallResponse callResponse = restCall.makeRestCallGet(hygieiaAPIUrl + "/collector/item/type/" + type);
+    /**
+     * @return the response body, or null if the call failed
+     */
+    private String getLookupJSON(String url) {
+        RestCall.RestCallResponse callResponse = restCall.makeRestCallGet(url);
         int responseCode = callResponse.getResponseCode();
         if (responseCode != HttpStatus.SC_OK) {
             logger.log(Level.WARNING, "Hygieia get collector items failed: " + responseCode);
-            return "";
+            return null;
         }
         return callResponse.getResponseString();
     }
 
-    private String getDeploymentDetailsJSON(String appName) {
-        ///deploy/status/application/
-        RestCall restCall = new RestCall(useProxy);
-        RestCall.RestCallResponse callResponse = restCall.makeRestCallGet(hygieiaAPIUrl + "/deploy/status/application/" + appName);
-        int responseCode = callResponse.getResponseCode();
-        if (responseCode != HttpStatus.SC_OK) {
-            logger.log(Level.WARNING, "Hygieia get collector items failed: " + responseCode);
-            return "";
-        }
-        return callResponse.getResponseString();
+    /**
+     * Environments are looked up through the shared {@link LookupCache}; each call gets its own copy of the set.
+     */
+    public Set<String> getDeploymentEnvironments(String appName) {
+        String url = hygieiaAPIUrl + "/deploy/status/application/" + appName;
+        Set<String> environments = LookupCache.getInstance().get(url, () -> readDeploymentEnvironments(url));
+        return environments == null ? new HashSet<>() : new HashSet<>(environments);
     }
 
-    public Set<String> getDeploymentEnvironments(String appName) {
+    private Set<String> readDeploymentEnvironments(String url) {
+        String json = getLookupJSON(url);
+        if (json == null) return null;
         Set<String> list = new HashSet<>();
-        JSONParser parser = new JSONParser();
-        try {
-            JSONObject json = (JSONObject) parser.parse(getDeploymentDetailsJSON(appName));
-            if (json != null) {
-                JSONArray itemArray = (JSONArray) json.get("result");
-                if (!CollectionUtils.isEmpty(itemArray)) {
-                    for (Object o : itemArray) {
-                        list.add((String) ((JSONObject) o).get("name"));
+        try (JsonParser parser = JsonStreams.open(json)) {
+            if (parser != null && parser.getCurrentToken() == JsonToken.START_OBJECT && JsonStreams.nextField(parser, "result")
+                    && parser.getCurrentToken() == JsonToken.START_ARRAY) {
+                while (JsonStreams.nextElement(parser)) {
+                    if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        continue;
                     }
+                    String name = null;
+                    while (JsonStreams.nextField(parser, "name")) {
+                        name = parser.getCurrentToken() == JsonToken.VALUE_NULL ? null : JsonStreams.text(parser);
+                    }
+                    list.add(name);
                 }
             }
-        } catch (ParseException e) {
+            return list;
+        } catch (IOException e) {
             logger.log(Level.WARNING, "Hygieia fill deployment environments failed: Parsing JSON error.");
+            return null;
         }
-        return list;
     }
 
+    /**
+     * Options are looked up through the shared {@link LookupCache}; each call gets its own copy of the list.
+     */
     public List<JSONObject> getCollectorItemOptions(String type) {
+        String url = hygieiaAPIUrl + "/collector/item/type/" + type;
+        List<JSONObject> options = LookupCache.getInstance().get(url, () -> readCollectorItemOptions(url));
+        return options == null ? new ArrayList<>() : new ArrayList<>(options);
+    }
+
+    /**
+     * Reads only the {@code options} of each collector item; the rest of a possibly long item list is skipped.
+     */
+    private List<JSONObject> readCollectorItemOptions(String url) {
+        String json = getLookupJSON(url);
+        if (json == null) return null;
         List<JSONObject> options = new ArrayList<>();
 
-        JSONParser parser = new JSONParser();
-        try {
-            JSONArray itemArray = (JSONArray) parser.parse(getCollectorItemJSON(type));
-            if (!CollectionUtils.isEmpty(itemArray)) {
-                for (Object o : itemArray) {
-                    JSONObject jo = (JSONObject) o;
-                    JSONObject option = (JSONObject) jo.get("options");
+        try (JsonParser parser = JsonStreams.open(json)) {
+            if (parser != null && parser.getCurrentToken() == JsonToken.START_ARRAY) {
+                while (JsonStreams.nextElement(parser)) {
+                    if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    JSONObject option = null;
+                    while (JsonStreams.nextField(parser, "options")) {
+                        Object value = JsonStreams.readValue(parser);
+                        option = value instanceof JSONObject ? (JSONObject) value : null;
+                    }
                     if (option != null) options.add(option);
                 }
             }
             return options;
-        } catch (ParseException e) {
+        } catch (IOException e) {
             logger.log(Level.WARNING, "Hygieia get collector items failed: Parsing JSON error.");
-            return options;
+            return null;
         }
     }
 
 
     public boolean testConnection() {
-        RestCall restCall = new RestCall(useProxy);
         RestCall.RestCallResponse callResponse;
         List<String> hygieiaAPIUrls = Arrays.asList(hygieiaAPIUrl.split(";"));
         if(hygieiaAPIUrls.isEmpty()) {
@@ -332,22 +224,20 @@ public class DefaultHygieiaService implements HygieiaService {
         logger.log(Level.FINE, METHOD_NAME + " Attempting Call to Jenkins api for : <" + url+"> using user : " +
                 "<"+jenkinsUser+">");
         RestCall.RestCallResponse callResponse = null;
-        synchronized (this){
-            while(attempt_call < RETRY_COUNT) {
-                callResponse = makeRestCallForStageResponse(url, jenkinsUser, token);
-                if(!Objects.isNull(callResponse)) {
-                    String jsonString = callResponse.getResponseString();
-                    try {
-                        //check if the response is a valid json String
-                        new JSONParser().parse(jsonString);
-                        return callResponse;
-                    }
-                    catch (Exception e) {
-                        attempt_call++;
-                        logger.log(Level.WARNING,METHOD_NAME +" Rest Call try # " + attempt_call + " failed due to "
-                                + ExceptionUtils.getMessage(e) + ". Will retry after 1 Second.");
-                        sleepOneSecond();
-                    }
+        while(attempt_call < RETRY_COUNT) {
+            callResponse = makeRestCallForStageResponse(url, jenkinsUser, token);
+            if(!Objects.isNull(callResponse)) {
+                String jsonString = callResponse.getResponseString();
+                try {
+                    //check if the response is a valid json String, and keep the result so callers do not parse it again
+                    callResponse.setJson(new JSONParser().parse(jsonString));
+                    return callResponse;
+                }
+                catch (Exception e) {
+                    attempt_call++;
+                    logger.log(Level.WARNING,METHOD_NAME +" Rest Call try # " + attempt_call + " failed due to "
+                            + ExceptionUtils.getMessage(e) + ". Will retry after 1 Second.");
+                    sleepOneSecond();
                 }
             }
         }
@@ -355,7 +245,6 @@ public class DefaultHygieiaService implements HygieiaService {
     }
 
     private RestCall.RestCallResponse makeRestCallForStageResponse(String url, String jenkinsUser, String token){
-        RestCall restCall = new RestCall(useProxy);
         RestCall.RestCallResponse callResponse;
         callResponse = restCall.makeRestCallGet(url,jenkinsUser,token);
         return callResponse;
@@ -0,0 +1,104 @@
+package jenkins.plugins.hygieia;
+
+import com.google.common.collect.MapMaker;
+import org.apache.commons.httpclient.methods.RequestEntity;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A request serialized once so that publishing the same object to several Hygieia endpoints reuses the same bytes.
+ * {@link #share(Object)} registers the encoding against the request instance; {@link DefaultAsyncHygieiaService} and
+ * {@link PublishOutbox} pick it up from there. The gzip form is built on first use and then reused as well.
+ * A shared request must not be modified afterwards. Requests that are not shared keep streaming straight to the socket.
+ */
+public final class EncodedPayload {
+    private static final Logger logger = Logger.getLogger(EncodedPayload.class.getName());
+
+    private static final ConcurrentMap<Object, EncodedPayload> SHARED = new MapMaker().weakKeys().makeMap();
+
+    private final byte[] json;
+    private volatile byte[] gzipped;
+
+    private EncodedPayload(byte[] json) {
+        this.json = json;
+    }
+
+    /**
+     * Serializes {@code request} now and registers the bytes for every later publish of the same instance.
+     */
+    public static EncodedPayload share(Object request) throws IOException {
+        EncodedPayload payload = SHARED.get(request);
+        if (payload == null) {
+            payload = new EncodedPayload(JsonRequestEntity.toBytes(request));
+            EncodedPayload existing = SHARED.putIfAbsent(request, payload);
+            if (existing != null) payload = existing;
+        }
+        return payload;
+    }
+
+    /**
+     * Shares {@code request} when it is about to go to more than one of {@code apiEndpoints}. Failures are only logged,
+     * each endpoint then serializes the request itself.
+     */
+    public static void shareAcross(Object request, List<String> apiEndpoints) {
+        if (request == null) return;
+        int endpoints = 0;
+        for (String apiEndpoint : apiEndpoints) {
+            if (StringUtils.isNotEmpty(apiEndpoint)) endpoints++;
+        }
+        if (endpoints < 2) return;
+        try {
+            share(request);
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Hygieia: Unable to pre-serialize request, each endpoint will serialize it", e);
+        }
+    }
+
+    /**
+     * @return the shared encoding of {@code request}, or null if it was never shared
+     */
+    static EncodedPayload lookup(Object request) {
+        return request == null ? null : SHARED.get(request);
+    }
+
+    public int size() {
+        return json.length;
+    }
+
+    /**
+     * The serialized JSON; callers must not modify the array.
+     */
+    byte[] getJson() {
+        return json;
+    }
+
+    RequestEntity toRequestEntity(boolean gzip, int thresholdBytes) throws IOException {
+        if (!gzip || json.length < thresholdBytes) return new JsonRequestEntity.Buffered(json, false);
+        return new JsonRequestEntity.Buffered(getGzipped(), true);
+    }
+
+    private byte[] getGzipped() throws IOException {
+        byte[] result = gzipped;
+        if (result == null) {
+            synchronized (this) {
+                result = gzipped;
+                if (result == null) {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, json.length / 4));
+                    try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+                        gzipOut.write(json);
+                    }
+                    result = out.toByteArray();
+                    gzipped = result;
+                }
+            }
+        }
+        return result;
+    }
+}
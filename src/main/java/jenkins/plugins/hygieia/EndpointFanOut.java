@@ -0,0 +1,171 @@
+package jenkins.plugins.hygieia;
+
+import hudson.model.TaskListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publishes to several Hygieia API endpoints at once, so one slow dashboard does not hold up the others.
+ * Results come back in endpoint order; endpoints still running when the overall deadline passes are reported as
+ * timed out and their HTTP calls through the {@link HttpClientPool} are aborted, since an interrupt does not stop a
+ * thread blocked on a socket. A single endpoint runs on the caller's thread.
+ */
+public final class EndpointFanOut {
+
+    public static final int DEFAULT_DEADLINE_SECONDS = 300;
+    private static final int MAX_THREADS = 32;
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(0, MAX_THREADS, KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS, new SynchronousQueue<>(), new NamingThreadFactory(new DaemonThreadFactory(), "Hygieia endpoint publisher"),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+    private static volatile long deadlineMillis = DEFAULT_DEADLINE_SECONDS * 1000L;
+
+    private EndpointFanOut() {
+    }
+
+    /**
+     * Sets the overall deadline from the global configuration. Non-positive values fall back to the default.
+     */
+    public static void configure(int deadlineSeconds) {
+        deadlineMillis = (deadlineSeconds > 0 ? deadlineSeconds : DEFAULT_DEADLINE_SECONDS) * 1000L;
+    }
+
+    public interface EndpointTask<T> {
+        /**
+         * @param index position of the endpoint among the non-empty configured endpoints
+         */
+        T publish(String apiEndpoint, int index) throws Exception;
+    }
+
+    public static <T> List<Result<T>> publish(List<String> apiEndpoints, EndpointTask<T> task) {
+        return publish(apiEndpoints, task, deadlineMillis);
+    }
+
+    static <T> List<Result<T>> publish(List<String> apiEndpoints, final EndpointTask<T> task, long deadlineMillis) {
+        List<String> endpoints = new ArrayList<>();
+        for (String apiEndpoint : apiEndpoints) {
+            if (StringUtils.isNotEmpty(apiEndpoint)) endpoints.add(apiEndpoint);
+        }
+        List<Result<T>> results = new ArrayList<>();
+        if (endpoints.size() == 1) {
+            results.add(run(task, endpoints.get(0), 0));
+            return results;
+        }
+
+        List<Future<Result<T>>> futures = new ArrayList<>();
+        List<HttpClientPool.AbortableCalls> calls = new ArrayList<>();
+        for (int i = 0; i < endpoints.size(); i++) {
+            final String endpoint = endpoints.get(i);
+            final int index = i;
+            final HttpClientPool.AbortableCalls endpointCalls = new HttpClientPool.AbortableCalls();
+            calls.add(endpointCalls);
+            futures.add(EXECUTOR.submit(() -> HttpClientPool.callAbortably(endpointCalls, () -> run(task, endpoint, index))));
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        for (int i = 0; i < futures.size(); i++) {
+            Future<Result<T>> future = futures.get(i);
+            try {
+                results.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                calls.get(i).abort();
+                future.cancel(true);
+                results.add(new Result<T>(endpoints.get(i), null, null, true, deadlineMillis));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                calls.get(i).abort();
+                future.cancel(true);
+                results.add(new Result<T>(endpoints.get(i), null, e, false, 0));
+            } catch (ExecutionException e) {
+                results.add(new Result<T>(endpoints.get(i), null, e.getCause(), false, 0));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Response codes in endpoint order for the pipeline steps. Endpoints that timed out report 408 and endpoints that
+     * threw report 500; both are written to the build log.
+     */
+    public static List<Integer> getResponseCodes(List<Result<Integer>> results, TaskListener listener) {
+        List<Integer> responseCodes = new ArrayList<>();
+        for (Result<Integer> result : results) {
+            if (result.isCompleted()) {
+                responseCodes.add(result.getValue());
+                continue;
+            }
+            listener.error("Hygieia: Publish to API " + result);
+            responseCodes.add(result.isTimedOut() ? HttpStatus.SC_REQUEST_TIMEOUT : HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+        return responseCodes;
+    }
+
+    private static <T> Result<T> run(EndpointTask<T> task, String endpoint, int index) {
+        long start = System.currentTimeMillis();
+        try {
+            T value = task.publish(endpoint, index);
+            return new Result<>(endpoint, value, null, false, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            return new Result<>(endpoint, null, e, false, System.currentTimeMillis() - start);
+        }
+    }
+
+    public static final class Result<T> {
+        private final String endpoint;
+        private final T value;
+        private final Throwable error;
+        private final boolean timedOut;
+        private final long elapsedMillis;
+
+        Result(String endpoint, T value, Throwable error, boolean timedOut, long elapsedMillis) {
+            this.endpoint = endpoint;
+            this.value = value;
+            this.error = error;
+            this.timedOut = timedOut;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public Throwable getError() {
+            return error;
+        }
+
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        public boolean isCompleted() {
+            return !timedOut && error == null;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public String toString() {
+            if (timedOut) return endpoint + " timed out after " + elapsedMillis + " ms";
+            if (error != null) return endpoint + " failed after " + elapsedMillis + " ms: " + ExceptionUtils.getRootCauseMessage(error);
+            return endpoint + " completed in " + elapsedMillis + " ms";
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package jenkins.plugins.hygieia;
+
+import hudson.model.Run;
+import hudson.plugins.git.util.Build;
+import hudson.plugins.git.util.BuildData;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Keeps, for each Git {@link BuildData} of a run, an index from build number to the branch built, so that finding the
+ * branch of a run does not search every branch the repository has built, once per remote URL and publish.
+ * <p>
+ * Build data only changes when a checkout records another build, which also replaces its last build, so an index is
+ * rebuilt when the last build or the number of branches is no longer the one it was built from. The indexes are kept in
+ * the {@link RunCache}.
+ */
+public class GitBranchIndex {
+    // by instance, an index only describes the build data it was built from; guarded by this
+    private final Map<BuildData, BranchIndex> indexes = new IdentityHashMap<>();
+
+    /**
+     * @return the branch {@code buildData} records for the build of {@code run}, empty if there is none
+     */
+    public static String getBranch(Run<?, ?> run, BuildData buildData) {
+        GitBranchIndex cached = RunCache.get(run, GitBranchIndex.class, GitBranchIndex::new);
+        synchronized (cached) {
+            BranchIndex index = cached.indexes.get(buildData);
+            if (index == null || !index.isFor(buildData)) {
+                index = new BranchIndex(buildData);
+                cached.indexes.put(buildData, index);
+            }
+            return index.getBranch(run.getNumber());
+        }
+    }
+
+    private static final class BranchIndex {
+        private final Build lastBuild;
+        private final int branchCount;
+        private final Map<Integer, String> branches = new HashMap<>();
+
+        BranchIndex(BuildData buildData) {
+            Map<String, Build> buildsByBranchName = buildData.getBuildsByBranchName();
+            this.lastBuild = buildData.lastBuild;
+            this.branchCount = buildsByBranchName.size();
+            // as before, the last branch listed wins when several were built by the same build
+            for (Map.Entry<String, Build> entry : buildsByBranchName.entrySet()) {
+                branches.put(entry.getValue().hudsonBuildNumber, entry.getKey());
+            }
+        }
+
+        boolean isFor(BuildData buildData) {
+            return buildData.lastBuild == lastBuild && buildData.getBuildsByBranchName().size() == branchCount;
+        }
+
+        String getBranch(int buildNumber) {
+            String branch = branches.get(buildNumber);
+            return branch == null ? "" : branch;
+        }
+    }
+}
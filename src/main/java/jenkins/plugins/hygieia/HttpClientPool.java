@@ -0,0 +1,272 @@
+package jenkins.plugins.hygieia;
+
+import hudson.ProxyConfiguration;
+import jenkins.model.Jenkins;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.UsernamePasswordCredentials;
+import org.apache.commons.httpclient.auth.AuthScope;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.commons.httpclient.util.IdleConnectionTimeoutThread;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Process-wide pool of keep-alive HTTP connections shared by every {@link RestCall}.
+ * Connections are pooled per route (scheme, host and port), so each Hygieia or Sonar endpoint
+ * keeps a bounded set of open sockets across publishes instead of paying a TCP/TLS handshake per call.
+ * The proxied client is only rebuilt when the Jenkins {@link ProxyConfiguration} instance changes.
+ * <p>
+ * Connecting, each read and waiting for a free pooled connection are bounded, so an endpoint that stops answering
+ * fails its calls instead of holding every connection of its route and every thread that publishes to it.
+ */
+public final class HttpClientPool {
+    private static final Logger logger = Logger.getLogger(HttpClientPool.class.getName());
+
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 10;
+    public static final int DEFAULT_IDLE_TIMEOUT_SECONDS = 60;
+    public static final int DEFAULT_CONNECT_TIMEOUT_SECONDS = 10;
+    public static final int DEFAULT_SOCKET_TIMEOUT_SECONDS = 60;
+    private static final int MAX_TOTAL_CONNECTIONS = 200;
+    private static final long IDLE_CHECK_INTERVAL_MILLIS = 5000;
+
+    private static final HttpClientPool INSTANCE = new HttpClientPool();
+    private static final ThreadLocal<AbortableCalls> ABORTABLE_CALLS = new ThreadLocal<>();
+
+    private final MultiThreadedHttpConnectionManager connectionManager;
+    private final IdleConnectionTimeoutThread idleConnectionThread;
+    private final HttpClient directClient;
+    private final ConcurrentMap<String, HostConfiguration> routes = new ConcurrentHashMap<>();
+    private final AtomicLong requestsExecuted = new AtomicLong();
+
+    private volatile ProxyConfiguration proxyConfiguration;
+    private volatile HttpClient proxyClient;
+    private volatile int maxConnectionsPerRoute;
+    private volatile int idleTimeoutSeconds;
+    private volatile int connectTimeoutSeconds;
+    private volatile int socketTimeoutSeconds;
+
+    private HttpClientPool() {
+        connectionManager = new MultiThreadedHttpConnectionManager();
+        HttpConnectionManagerParams params = connectionManager.getParams();
+        params.setMaxTotalConnections(MAX_TOTAL_CONNECTIONS);
+        params.setStaleCheckingEnabled(true);
+        directClient = new HttpClient(connectionManager);
+
+        idleConnectionThread = new IdleConnectionTimeoutThread();
+        idleConnectionThread.setName("Hygieia HTTP idle connection evictor");
+        idleConnectionThread.addConnectionManager(connectionManager);
+        idleConnectionThread.setTimeoutInterval(IDLE_CHECK_INTERVAL_MILLIS);
+        configure(DEFAULT_MAX_CONNECTIONS_PER_ROUTE, DEFAULT_IDLE_TIMEOUT_SECONDS, DEFAULT_CONNECT_TIMEOUT_SECONDS,
+                DEFAULT_SOCKET_TIMEOUT_SECONDS);
+        idleConnectionThread.start();
+    }
+
+    public static HttpClientPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Applies pool sizing and timeouts from the global configuration. Non-positive values fall back to the defaults.
+     * Waiting for a free pooled connection is bounded by the connect timeout.
+     */
+    public synchronized void configure(int maxConnectionsPerRoute, int idleTimeoutSeconds, int connectTimeoutSeconds,
+                                       int socketTimeoutSeconds) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute > 0 ? maxConnectionsPerRoute : DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+        this.idleTimeoutSeconds = idleTimeoutSeconds > 0 ? idleTimeoutSeconds : DEFAULT_IDLE_TIMEOUT_SECONDS;
+        this.connectTimeoutSeconds = connectTimeoutSeconds > 0 ? connectTimeoutSeconds : DEFAULT_CONNECT_TIMEOUT_SECONDS;
+        this.socketTimeoutSeconds = socketTimeoutSeconds > 0 ? socketTimeoutSeconds : DEFAULT_SOCKET_TIMEOUT_SECONDS;
+        HttpConnectionManagerParams params = connectionManager.getParams();
+        params.setDefaultMaxConnectionsPerHost(this.maxConnectionsPerRoute);
+        params.setConnectionTimeout(this.connectTimeoutSeconds * 1000);
+        params.setSoTimeout(this.socketTimeoutSeconds * 1000);
+        idleConnectionThread.setConnectionTimeout(this.idleTimeoutSeconds * 1000L);
+        applyPoolTimeout(directClient);
+        if (proxyClient != null) applyPoolTimeout(proxyClient);
+    }
+
+    private void applyPoolTimeout(HttpClient client) {
+        client.getParams().setConnectionManagerTimeout(connectTimeoutSeconds * 1000L);
+    }
+
+    public HttpClient getHttpClient(boolean useProxy) {
+        if (!useProxy) return directClient;
+        Jenkins jenkins = Jenkins.getInstance();
+        ProxyConfiguration proxy = (jenkins != null) ? jenkins.proxy : null;
+        if (proxy == null) return directClient;
+        if (proxy != proxyConfiguration || proxyClient == null) {
+            refreshProxyClient(proxy);
+        }
+        return proxyClient;
+    }
+
+    private synchronized void refreshProxyClient(ProxyConfiguration proxy) {
+        if (proxy == proxyConfiguration && proxyClient != null) return;
+        HttpClient client = new HttpClient(connectionManager);
+        applyPoolTimeout(client);
+        client.getHostConfiguration().setProxy(proxy.name, proxy.port);
+        String username = StringUtils.trimToEmpty(proxy.getUserName());
+        String password = StringUtils.trimToEmpty(proxy.getPassword());
+        if (!StringUtils.isEmpty(username) && !StringUtils.isEmpty(password)) {
+            logger.info("Using proxy authentication (user=" + username + ")");
+            client.getState().setProxyCredentials(AuthScope.ANY, new UsernamePasswordCredentials(username, password));
+        }
+        proxyClient = client;
+        proxyConfiguration = proxy;
+    }
+
+    /**
+     * Executes the method on the given client and records the route it used for the pool statistics. When the calling
+     * thread runs inside {@link #callAbortably}, the method can be aborted from another thread while it executes.
+     * Callers must still call {@link HttpMethod#releaseConnection()} so the connection goes back to the pool.
+     */
+    public int execute(HttpClient client, HttpMethod method) throws IOException {
+        requestsExecuted.incrementAndGet();
+        recordRoute(client, method);
+        AbortableCalls calls = ABORTABLE_CALLS.get();
+        if (calls == null) return client.executeMethod(method);
+        calls.add(method);
+        try {
+            return client.executeMethod(method);
+        } finally {
+            calls.remove(method);
+        }
+    }
+
+    /**
+     * Runs {@code task} on this thread so that {@link AbortableCalls#abort()} aborts the HTTP calls it makes through the
+     * pool, which an interrupt cannot do while they wait on a socket.
+     */
+    static <T> T callAbortably(AbortableCalls calls, Callable<T> task) throws Exception {
+        AbortableCalls previous = ABORTABLE_CALLS.get();
+        ABORTABLE_CALLS.set(calls);
+        try {
+            return task.call();
+        } finally {
+            if (previous == null) ABORTABLE_CALLS.remove(); else ABORTABLE_CALLS.set(previous);
+        }
+    }
+
+    private void recordRoute(HttpClient client, HttpMethod method) {
+        try {
+            HostConfiguration route = new HostConfiguration(client.getHostConfiguration());
+            route.setHost(method.getURI());
+            String key = route.getHostURL() + (route.getProxyHost() != null ? " via " + route.getProxyHost() : "");
+            routes.putIfAbsent(key, route);
+        } catch (Exception e) {
+            // statistics only, never fail a request for it
+        }
+    }
+
+    /**
+     * The HTTP calls in flight for one task. Once aborted, the calls in flight fail and later calls fail at once.
+     */
+    static final class AbortableCalls {
+        // guarded by this
+        private final Set<HttpMethod> methods = new HashSet<>();
+        private boolean aborted;
+
+        synchronized void add(HttpMethod method) throws IOException {
+            if (aborted) throw new InterruptedIOException("Hygieia: Call to " + method.getURI() + " aborted");
+            methods.add(method);
+        }
+
+        synchronized void remove(HttpMethod method) {
+            methods.remove(method);
+        }
+
+        synchronized void abort() {
+            aborted = true;
+            for (HttpMethod method : methods) {
+                method.abort();
+            }
+        }
+    }
+
+    public Statistics getStatistics() {
+        Map<String, Integer> perRoute = new TreeMap<>();
+        for (Map.Entry<String, HostConfiguration> route : routes.entrySet()) {
+            perRoute.put(route.getKey(), connectionManager.getConnectionsInPool(route.getValue()));
+        }
+        return new Statistics(maxConnectionsPerRoute, MAX_TOTAL_CONNECTIONS, idleTimeoutSeconds, connectTimeoutSeconds,
+                socketTimeoutSeconds, connectionManager.getConnectionsInPool(), requestsExecuted.get(), perRoute);
+    }
+
+    public static class Statistics {
+        private final int maxConnectionsPerRoute;
+        private final int maxTotalConnections;
+        private final int idleTimeoutSeconds;
+        private final int connectTimeoutSeconds;
+        private final int socketTimeoutSeconds;
+        private final int connectionsInPool;
+        private final long requestsExecuted;
+        private final Map<String, Integer> connectionsPerRoute;
+
+        Statistics(int maxConnectionsPerRoute, int maxTotalConnections, int idleTimeoutSeconds, int connectTimeoutSeconds,
+                   int socketTimeoutSeconds, int connectionsInPool, long requestsExecuted, Map<String, Integer> connectionsPerRoute) {
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            this.maxTotalConnections = maxTotalConnections;
+            this.idleTimeoutSeconds = idleTimeoutSeconds;
+            this.connectTimeoutSeconds = connectTimeoutSeconds;
+            this.socketTimeoutSeconds = socketTimeoutSeconds;
+            this.connectionsInPool = connectionsInPool;
+            this.requestsExecuted = requestsExecuted;
+            this.connectionsPerRoute = Collections.unmodifiableMap(connectionsPerRoute);
+        }
+
+        public int getMaxConnectionsPerRoute() {
+            return maxConnectionsPerRoute;
+        }
+
+        public int getMaxTotalConnections() {
+            return maxTotalConnections;
+        }
+
+        public int getIdleTimeoutSeconds() {
+            return idleTimeoutSeconds;
+        }
+
+        public int getConnectTimeoutSeconds() {
+            return connectTimeoutSeconds;
+        }
+
+        public int getSocketTimeoutSeconds() {
+            return socketTimeoutSeconds;
+        }
+
+        public int getConnectionsInPool() {
+            return connectionsInPool;
+        }
+
+        public long getRequestsExecuted() {
+            return requestsExecuted;
+        }
+
+        public Map<String, Integer> getConnectionsPerRoute() {
+            return connectionsPerRoute;
+        }
+
+        public String toString() {
+            return "Connections in pool: " + connectionsInPool + "/" + maxTotalConnections
+                    + ", max per route: " + maxConnectionsPerRoute
+                    + ", idle timeout: " + idleTimeoutSeconds + "s"
+                    + ", connect/socket timeout: " + connectTimeoutSeconds + "/" + socketTimeoutSeconds + "s"
+                    + ", requests executed: " + requestsExecuted
+                    + ", per route: " + connectionsPerRoute;
+        }
+    }
+}
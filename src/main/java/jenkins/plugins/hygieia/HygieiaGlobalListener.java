@@ -3,6 +3,7 @@ package jenkins.plugins.hygieia;
 import com.capitalone.dashboard.misc.HygieiaException;
 import com.capitalone.dashboard.model.BuildStage;
 import com.capitalone.dashboard.model.BuildStatus;
+import com.capitalone.dashboard.request.BuildDataCreateRequest;
 import com.capitalone.dashboard.request.CodeQualityCreateRequest;
 import com.capitalone.dashboard.request.GenericCollectorItemCreateRequest;
 import com.capitalone.dashboard.response.BuildDataCreateResponse;
@@ -11,9 +12,13 @@ import hudson.model.AbstractBuild;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.model.listeners.RunListener;
+import hudson.util.StreamTaskListener;
 import hygieia.builder.BuildBuilder;
+import hygieia.builder.BuildStageBuilder;
 import hygieia.builder.GenericCollectorItemBuilder;
 import hygieia.builder.SonarBuilder;
+import hygieia.utils.ConsoleLogScanner;
+import hygieia.builder.StageLogReader;
 import hygieia.utils.HygieiaUtils;
 import jenkins.model.Jenkins;
 import org.apache.commons.collections4.CollectionUtils;
@@ -21,22 +26,34 @@ import org.apache.commons.httpclient.HttpStatus;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.commons.lang3.tuple.Triple;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.json.simple.JSONObject;
 import org.json.simple.parser.ParseException;
 
 import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 @Extension
 public class HygieiaGlobalListener extends RunListener<Run<?, ?>> {
+    private static final Logger logger = Logger.getLogger(HygieiaGlobalListener.class.getName());
 
     public static final String WFAPI_DESCRIBE = "/wfapi/describe";
     public static final String FAILED = "FAILED";
 
+    private static final AtomicLong skippedNodeLinkCalls = new AtomicLong();
+
     public HygieiaGlobalListener() {
         super();
     }
@@ -44,21 +61,22 @@ public class HygieiaGlobalListener extends RunListener<Run<?, ?>> {
     @Override
     public void onFinalized(hudson.model.Run<?, ?> run) {
         super.onFinalized(run);
+        RunCache.clear(run);
     }
 
     @Override
-    public void onCompleted(Run run, @Nonnull TaskListener listener) {
+    public void onCompleted(final Run run, @Nonnull final TaskListener listener) {
         super.onCompleted(run, listener);
-        HygieiaPublisher.DescriptorImpl hygieiaGlobalListenerDescriptor = getDescriptor();
+        final HygieiaPublisher.DescriptorImpl hygieiaGlobalListenerDescriptor = getDescriptor();
         final long starttime = System.currentTimeMillis();
         boolean showConsoleOutput = hygieiaGlobalListenerDescriptor.isShowConsoleOutput();
 
         // if publish is not enabled and generic items collection is empty do not proceed.
-        boolean publish = hygieiaGlobalListenerDescriptor.isHygieiaPublishBuildDataGlobal()
+        boolean publishEnabled = hygieiaGlobalListenerDescriptor.isHygieiaPublishBuildDataGlobal()
                             || hygieiaGlobalListenerDescriptor.isHygieiaPublishSonarDataGlobal()
                             || CollectionUtils.isNotEmpty(hygieiaGlobalListenerDescriptor.getHygieiaPublishGenericCollectorItems());
 
-        if(!publish) { super.onCompleted(run, listener); return; }
+        if(!publishEnabled) { super.onCompleted(run, listener); return; }
 
         //added to print the Status of Jenkins Job before attempting to publish to Hygieia
         listener.getLogger().println("Finished: " + run.getResult());
@@ -76,7 +94,6 @@ public class HygieiaGlobalListener extends RunListener<Run<?, ?>> {
         String rawApiEndopints = StringUtils.trimToEmpty(hygieiaGlobalListenerDescriptor.getHygieiaAPIUrl());
         List<String> apiEndpints = Arrays.asList(rawApiEndopints.split(HygieiaUtils.SEPERATOR));
 
-        int index = 0;
         if (CollectionUtils.isEmpty(apiEndpints)) {
             if (showConsoleOutput) { listener.getLogger().println("Hygieia: Skipping Automatic publish to Hygieia as no service endpoints were configured. "); }
             super.onCompleted(run, listener);
@@ -84,58 +101,151 @@ public class HygieiaGlobalListener extends RunListener<Run<?, ?>> {
         }
 
         String rawAppUrls = StringUtils.trimToEmpty(hygieiaGlobalListenerDescriptor.getHygieiaAppUrl());
-        List<String> appUrls = Arrays.asList(rawAppUrls.split(HygieiaUtils.SEPERATOR));
+        final List<String> appUrls = Collections.unmodifiableList(Arrays.asList(rawAppUrls.split(HygieiaUtils.SEPERATOR)));
+        final List<String> apiEndpoints = Collections.unmodifiableList(apiEndpints);
+
+        // everything that reads the run happens here, while its build log is open and before onFinalized drops its
+        // cached lookups; only the posts to Hygieia may move to a pool thread
+        final Publish publish = prepare(run, listener, hygieiaGlobalListenerDescriptor, apiEndpoints, appUrls, starttime);
+        if (publish == null) { return; }
+        final Thread completionThread = Thread.currentThread();
+        boolean queued = PublishWorkerPool.getInstance().submit(run.getParent().getFullName(),
+                () -> {
+                    if (Thread.currentThread() == completionThread) { send(publish, listener); } else { sendInBackground(publish); }
+                },
+                () -> spool(publish, Thread.currentThread() == completionThread ? listener : TaskListener.NULL));
+        if (queued && showConsoleOutput) {
+            listener.getLogger().println("Hygieia: Publishing asynchronously, the responses and the dashboard link will be written to the Jenkins system log ("
+                    + HygieiaGlobalListener.class.getName() + ").");
+        }
+    }
+
+    /**
+     * Sends a publish from a pool thread, when the run's build log may already be closed. What would have gone to the
+     * build log is written to the system log as one record instead.
+     */
+    private void sendInBackground(Publish publish) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        send(publish, new StreamTaskListener(output, StandardCharsets.UTF_8));
+        String messages = new String(output.toByteArray(), StandardCharsets.UTF_8).trim();
+        if (!messages.isEmpty()) {
+            logger.info("Hygieia: Published " + publish.displayName + "\n" + messages);
+        }
+    }
 
+    private Publish prepare(Run run, TaskListener listener, HygieiaPublisher.DescriptorImpl hygieiaGlobalListenerDescriptor,
+                            List<String> apiEndpints, List<String> appUrls, long starttime) {
+        List<String> endpoints = new ArrayList<>();
+        List<HygieiaService> services = new ArrayList<>();
         for (String apiEndPoint : apiEndpints) {
             if (StringUtils.isEmpty(apiEndPoint)) { continue; }
-            HygieiaService hygieiaService = getHygieiaService(hygieiaGlobalListenerDescriptor, apiEndPoint);
-            String hygieiaAppUrl = (CollectionUtils.size(appUrls) > index) ? appUrls.get(index) : null;
-            String convertedBuildResponseString = null;
-            String dashboardLink = null;
-
-            Triple<String, String, BuildDataCreateResponse> buildResponseTriple = publishBuildData(run, listener, hygieiaGlobalListenerDescriptor, hygieiaService, hygieiaAppUrl);
+            endpoints.add(apiEndPoint);
+            services.add(getHygieiaService(hygieiaGlobalListenerDescriptor, apiEndPoint));
+        }
+        if (endpoints.isEmpty()) { return null; }
+
+        // stage lookups go to Jenkins, not Hygieia, so any endpoint's service can make them
+        BuildDataCreateRequest buildRequest = createBuildRequest(run, listener, hygieiaGlobalListenerDescriptor, services.get(0));
+        if (buildRequest == null) { return null; }
+        EncodedPayload.shareAcross(buildRequest, endpoints);
+        ConsoleLogScanner.Matches logMatches = scanConsoleLog(run, hygieiaGlobalListenerDescriptor);
+        return new Publish(run.getFullDisplayName(), run.getParent().getAbsoluteUrl(), hygieiaGlobalListenerDescriptor,
+                endpoints, services, appUrls, buildRequest, logMatches, starttime);
+    }
 
-            if (buildResponseTriple != null) {
-                convertedBuildResponseString = buildResponseTriple.getLeft();
-                dashboardLink = buildResponseTriple.getMiddle();
+    private void send(Publish publish, TaskListener listener) {
+        List<EndpointFanOut.Result<Void>> results = EndpointFanOut.publish(publish.endpoints,
+                (apiEndPoint, index) -> publishToEndpoint(publish, listener, index));
+        for (EndpointFanOut.Result<Void> result : results) {
+            if (!result.isCompleted()) {
+                logger.log(Level.WARNING, "Hygieia: Publish of " + publish.displayName + " to " + result, result.getError());
             }
-            publishSonarData(run, listener, hygieiaGlobalListenerDescriptor, hygieiaService, StringUtils.trimToNull(convertedBuildResponseString));
-            publishGenericCollectorItems(run, listener, hygieiaGlobalListenerDescriptor, hygieiaService, StringUtils.trimToNull(convertedBuildResponseString));
-
-            // publish the dashboard link
-            if (showConsoleOutput && StringUtils.isNotEmpty(dashboardLink)) {
-                listener.getLogger().println("Hygieia: Link to the Hygieia Dashboard for API Endpoint " + (index + 1) + " - " + dashboardLink);
+            if (publish.showConsoleOutput && (results.size() > 1 || !result.isCompleted())) {
+                listener.getLogger().println("Hygieia: Publish to API Endpoint " + result);
             }
-            index++;
         }
         final long endtime = System.currentTimeMillis();
-        if (showConsoleOutput) { listener.getLogger().println("Hygieia: *** Hygieia publish completed in " + (endtime-starttime)/1000 + " seconds at " + org.joda.time.LocalDateTime.now().toString()+" ***"); }
+        if (publish.showConsoleOutput) { listener.getLogger().println("Hygieia: *** Hygieia publish completed in " + (endtime-publish.starttime)/1000 + " seconds at " + org.joda.time.LocalDateTime.now().toString()+" ***"); }
     }
 
-    private Triple<String, String, BuildDataCreateResponse> publishBuildData(Run run, TaskListener listener, HygieiaPublisher.DescriptorImpl hygieiaGlobalListenerDescriptor, HygieiaService hygieiaService, String hygieiaAppUrl) {
+    /**
+     * Keeps the build data in the outbox when the publish cannot be queued. The Sonar and generic item requests carry
+     * the build id Hygieia returns for the build data, so they cannot be built yet and are dropped, which is logged.
+     */
+    private void spool(Publish publish, TaskListener listener) {
+        PublishOutbox outbox = PublishOutbox.getInstance();
+        for (String apiEndPoint : publish.endpoints) {
+            if (outbox != null && outbox.spool(apiEndPoint, DefaultAsyncHygieiaService.BUILD_V3, publish.useProxy, publish.buildRequest)) {
+                if (publish.showConsoleOutput) { listener.getLogger().println("Hygieia: Publish could not be queued, build data for " + apiEndPoint + " was kept in the outbox for delivery."); }
+            } else {
+                logger.warning("Hygieia: Publish could not be queued and the outbox did not take the build data, dropping publish of " + publish.displayName + " to " + apiEndPoint);
+                if (publish.showConsoleOutput) { listener.getLogger().println("Hygieia: Publish could not be queued, build data for " + apiEndPoint + " was not published."); }
+            }
+        }
+        if (publish.publishSonar || !publish.genericItems.isEmpty()) {
+            logger.warning("Hygieia: Publish could not be queued, dropping the Sonar and generic item data of " + publish.displayName
+                    + " as it needs the build id Hygieia returns for the build data");
+            if (publish.showConsoleOutput) { listener.getLogger().println("Hygieia: Publish could not be queued, Sonar and generic item data was not published."); }
+        }
+    }
+
+    private Void publishToEndpoint(Publish publish, TaskListener listener, int index) {
+        HygieiaService hygieiaService = publish.services.get(index);
+        String hygieiaAppUrl = (CollectionUtils.size(publish.appUrls) > index) ? publish.appUrls.get(index) : null;
+        String convertedBuildResponseString = null;
         String dashboardLink = null;
-        String buildString = null;
-        BuildDataCreateResponse buildDataResponse;
+
+        Triple<String, String, BuildDataCreateResponse> buildResponseTriple = publishBuildData(listener, publish.showConsoleOutput, hygieiaService, hygieiaAppUrl, publish.buildRequest);
+
+        if (buildResponseTriple != null) {
+            convertedBuildResponseString = buildResponseTriple.getLeft();
+            dashboardLink = buildResponseTriple.getMiddle();
+        }
+        publishSonarData(publish, listener, hygieiaService, StringUtils.trimToNull(convertedBuildResponseString));
+        publishGenericCollectorItems(publish, listener, hygieiaService, StringUtils.trimToNull(convertedBuildResponseString));
+
+        // publish the dashboard link
+        if (publish.showConsoleOutput && StringUtils.isNotEmpty(dashboardLink)) {
+            listener.getLogger().println("Hygieia: Link to the Hygieia Dashboard for API Endpoint " + (index + 1) + " - " + dashboardLink);
+        }
+        return null;
+    }
+
+    /**
+     * Builds the build request once per run; it does not depend on the Hygieia endpoint it is published to.
+     */
+    private BuildDataCreateRequest createBuildRequest(Run run, TaskListener listener, HygieiaPublisher.DescriptorImpl hygieiaGlobalListenerDescriptor, HygieiaService hygieiaService) {
         boolean publishBuildData = hygieiaGlobalListenerDescriptor.isHygieiaPublishBuildDataGlobal()
                 || hygieiaGlobalListenerDescriptor.isHygieiaPublishSonarDataGlobal()
                 || CollectionUtils.isNotEmpty(hygieiaGlobalListenerDescriptor.getHygieiaPublishGenericCollectorItems());
         if (!publishBuildData) { return null; }
 
-        boolean showConsoleOutput = hygieiaGlobalListenerDescriptor.isShowConsoleOutput();
         BuildStatus buildStatus = HygieiaUtils.getBuildStatus(run.getResult());
         LinkedList<BuildStage> buildStages = new LinkedList<>();
         try{
-            buildStages = processStages(run, listener, hygieiaGlobalListenerDescriptor, hygieiaService);
-            buildStages = process_node_links(run, listener, hygieiaGlobalListenerDescriptor, hygieiaService,buildStages);
-            buildStages = process_logs(run, listener, hygieiaGlobalListenerDescriptor, hygieiaService,buildStages);
+            LinkedList<BuildStage> flowGraphStages = readFlowGraphStages(run, hygieiaGlobalListenerDescriptor);
+            if (flowGraphStages != null) {
+                buildStages = flowGraphStages;
+            } else {
+                buildStages = processStages(run, listener, hygieiaGlobalListenerDescriptor, hygieiaService);
+                buildStages = process_logs(run, listener, hygieiaGlobalListenerDescriptor, hygieiaService,buildStages);
+            }
         }catch (Exception e){
             listener.getLogger().println("Hygieia: Cause for Jenkins API call failure : " + ExceptionUtils.getRootCauseMessage(e));
         }
 
-        String startedBy = HygieiaUtils.getUserID(run, listener);
+        String startedBy = RunContexts.get(run, listener).getStartedBy();
         listener.getLogger().println("Hygieia: This build was initiated by " + startedBy);
-        HygieiaResponse buildResponse = hygieiaService.publishBuildDataV3(new BuildBuilder().createBuildRequestFromRun(run, hygieiaGlobalListenerDescriptor.getHygieiaJenkinsName(),
-                listener, buildStatus, true, buildStages, startedBy));
+        return new BuildBuilder().createBuildRequestFromRun(run, hygieiaGlobalListenerDescriptor.getHygieiaJenkinsName(),
+                listener, buildStatus, true, buildStages, startedBy);
+    }
+
+    private Triple<String, String, BuildDataCreateResponse> publishBuildData(TaskListener listener, boolean showConsoleOutput, HygieiaService hygieiaService, String hygieiaAppUrl, BuildDataCreateRequest buildRequest) {
+        if (buildRequest == null) { return null; }
+        String dashboardLink = null;
+        String buildString = null;
+        BuildDataCreateResponse buildDataResponse;
+        HygieiaResponse buildResponse = hygieiaService.publishBuildDataV3(buildRequest);
         if (buildResponse.getResponseCode() == HttpStatus.SC_CREATED) {
             try {
                 buildDataResponse = HygieiaUtils.convertJsonToObject(buildResponse.getResponseValue(), BuildDataCreateResponse.class);
@@ -159,6 +269,25 @@ public class HygieiaGlobalListener extends RunListener<Run<?, ?>> {
         return Triple.of(buildString, dashboardLink, buildDataResponse);
     }
 
+    /**
+     * Reads the stages, and the logs of failed stages when log capture is on, in-process from the flow graph.
+     *
+     * @return null if {@code run} is not a pipeline or its graph could not be read, the wfapi is used then
+     */
+    private LinkedList<BuildStage> readFlowGraphStages(Run run, HygieiaPublisher.DescriptorImpl hygieiaGlobalListenerDescriptor) {
+        if (!(run instanceof WorkflowRun)) { return null; }
+        StageLogReader logReader = hygieiaGlobalListenerDescriptor.isCaptureLogs()
+                ? new StageLogReader(hygieiaGlobalListenerDescriptor.getLogTailBytes(), hygieiaGlobalListenerDescriptor.getLogErrorWindowLines(),
+                        hygieiaGlobalListenerDescriptor.getLogErrorPattern())
+                : null;
+        try{
+            return BuildStageBuilder.getInstance().getBuildStages((WorkflowRun) run, logReader);
+        }catch (RuntimeException e){
+            logger.log(Level.FINE, "Hygieia: Unable to read stages of " + run.getFullDisplayName() + " from its flow graph, asking the wfapi instead", e);
+            return null;
+        }
+    }
+
     private LinkedList<BuildStage> processStages(Run run, TaskListener listener, HygieiaPublisher.DescriptorImpl hygieiaGlobalListenerDescriptor, HygieiaService hygieiaService) throws HygieiaException{
         LinkedList<BuildStage> buildStages=null;
         // BuildJob will not have any stages hence do not attempt restful calls to Jenkins API.
@@ -172,7 +301,7 @@ public class HygieiaGlobalListener extends RunListener<Run<?, ?>> {
             RestCall.RestCallResponse callResponse = hygieiaService.getStageResponse(wfapiUrl,hygieiaGlobalListenerDescriptor.getJenkinsUserId(),hygieiaGlobalListenerDescriptor.getJenkinsToken());
             if(Objects.nonNull(callResponse)){
                 responseString = callResponse.getResponseString();
-                buildStages=  HygieiaUtils.getBuildStages(responseString);
+                buildStages = HygieiaUtils.getBuildStages(responseString);
             }
         }catch (Exception e){
 
@@ -181,63 +310,102 @@ public class HygieiaGlobalListener extends RunListener<Run<?, ?>> {
         return buildStages;
     }
 
-    private LinkedList<BuildStage> process_node_links(Run run, TaskListener listener, HygieiaPublisher.DescriptorImpl hygieiaGlobalListenerDescriptor, HygieiaService hygieiaService, LinkedList<BuildStage> buildStages) throws HygieiaException{
+    /**
+     * Fetches the logs of failed stages when log capture is on. A stage's node link is only looked up when its log is
+     * needed, so other stages, and every stage of a green build, cost no calls at all.
+     */
+    private LinkedList<BuildStage> process_logs(Run run, TaskListener listener, HygieiaPublisher.DescriptorImpl hygieiaGlobalListenerDescriptor, HygieiaService hygieiaService, LinkedList<BuildStage> buildStages) throws HygieiaException{
         if (CollectionUtils.isEmpty(buildStages)) return buildStages;
-        for (BuildStage stage: buildStages) {
-                String self_url = getSelfUrl(stage.get_links());
-                String instanceUrl = HygieiaUtils.getInstanceUrl(run,listener);
-                String exec_node_url = instanceUrl+self_url;
-                String responseString ="";
-            try{
-                RestCall.RestCallResponse callResponse = hygieiaService.getStageResponse(exec_node_url,hygieiaGlobalListenerDescriptor.getJenkinsUserId(),hygieiaGlobalListenerDescriptor.getJenkinsToken());
-                if(Objects.nonNull(callResponse)){
-                    responseString = callResponse.getResponseString();
-                    HygieiaUtils.setLogUrl(responseString,stage);
-                }
-            }catch (Exception e){
-                throw new HygieiaException("HygieiaGlobalListener.process_node_links() - " + ExceptionUtils.getRootCauseMessage(e), e.getCause(),HygieiaException.BAD_DATA);
+        List<BuildStage> failedStages = new ArrayList<>();
+        if (hygieiaGlobalListenerDescriptor.isCaptureLogs()) {
+            for (BuildStage stage: buildStages) {
+                if (FAILED.equalsIgnoreCase(stage.getStatus())) failedStages.add(stage);
             }
-
         }
-    return buildStages;
-    }
-
-    private LinkedList<BuildStage> process_logs(Run run, TaskListener listener, HygieiaPublisher.DescriptorImpl hygieiaGlobalListenerDescriptor, HygieiaService hygieiaService, LinkedList<BuildStage> buildStages) throws HygieiaException{
-        if (CollectionUtils.isEmpty(buildStages)) return buildStages;
-        for (BuildStage stage: buildStages) {
-            boolean isCaptureLog = hygieiaGlobalListenerDescriptor.isCaptureLogs();
-            if(FAILED.equalsIgnoreCase(stage.getStatus()) && isCaptureLog){
+        skippedNodeLinkCalls.addAndGet(buildStages.size() - failedStages.size());
+        if (failedStages.isEmpty()) return buildStages;
+        final String instanceUrl = RunContexts.get(run, listener).getInstanceUrl();
+        try{
+            StageFetcher.forEach(failedStages, stage -> {
+                if (StringUtils.isEmpty(stage.getExec_node_logUrl())) {
+                    resolveNodeLink(instanceUrl, hygieiaGlobalListenerDescriptor, hygieiaService, stage);
+                }
                 String logUrl = stage.getExec_node_logUrl();
-                String instanceUrl = HygieiaUtils.getInstanceUrl(run,listener);
                 String wfapi_log_url = instanceUrl+logUrl;
-                String responseString ="";
-                try{
-                    RestCall.RestCallResponse callResponse = hygieiaService.getStageResponse(wfapi_log_url,hygieiaGlobalListenerDescriptor.getJenkinsUserId(),hygieiaGlobalListenerDescriptor.getJenkinsToken());
-                    if(Objects.nonNull(callResponse)){
-                        responseString = callResponse.getResponseString();
-                        HygieiaUtils.set_logs(responseString,stage);
+                RestCall.RestCallResponse callResponse = hygieiaService.getStageResponse(wfapi_log_url,hygieiaGlobalListenerDescriptor.getJenkinsUserId(),hygieiaGlobalListenerDescriptor.getJenkinsToken());
+                if(Objects.nonNull(callResponse)){
+                    if (callResponse.getJson() instanceof JSONObject) {
+                        HygieiaUtils.set_logs((JSONObject) callResponse.getJson(), stage);
+                    } else {
+                        HygieiaUtils.set_logs(callResponse.getResponseString(), stage);
                     }
-                }catch (Exception e){
-                    throw new HygieiaException("HygieiaGlobalListener.process_logs() - " + ExceptionUtils.getRootCauseMessage(e), e.getCause(),HygieiaException.BAD_DATA);
                 }
-            }
+            });
+        }catch (Exception e){
+            throw new HygieiaException("HygieiaGlobalListener.process_logs() - " + ExceptionUtils.getRootCauseMessage(e), e.getCause(),HygieiaException.BAD_DATA);
         }
         return buildStages;
     }
 
+    private void resolveNodeLink(String instanceUrl, HygieiaPublisher.DescriptorImpl hygieiaGlobalListenerDescriptor, HygieiaService hygieiaService, BuildStage stage) {
+        String self_url = getSelfUrl(stage.get_links());
+        String exec_node_url = instanceUrl+self_url;
+        RestCall.RestCallResponse callResponse = hygieiaService.getStageResponse(exec_node_url,hygieiaGlobalListenerDescriptor.getJenkinsUserId(),hygieiaGlobalListenerDescriptor.getJenkinsToken());
+        if(Objects.nonNull(callResponse)){
+            if (callResponse.getJson() instanceof JSONObject) {
+                HygieiaUtils.setLogUrl((JSONObject) callResponse.getJson(), stage);
+            } else {
+                HygieiaUtils.setLogUrl(callResponse.getResponseString(), stage);
+            }
+        }
+    }
+
+    /**
+     * @return how many stage node link lookups were not made because the stage's log was not needed
+     */
+    public static long getSkippedNodeLinkCalls() {
+        return skippedNodeLinkCalls.get();
+    }
+
     private String getSelfUrl(Map<String,Object> _links){
        Map<String,String> href = (Map<String, String>) _links.get("self");
        String url = href.get("href");
        return url;
     }
 
-    private void publishSonarData(Run run, TaskListener listener, HygieiaPublisher.DescriptorImpl hygieiaGlobalListenerDescriptor, HygieiaService hygieiaService, @Nonnull String convertedBuildResponseString) {
-        if (!hygieiaGlobalListenerDescriptor.isHygieiaPublishSonarDataGlobal()) { return; }
-        boolean showConsoleOutput = hygieiaGlobalListenerDescriptor.isShowConsoleOutput();
+    /**
+     * Reads the console log once for the Sonar links and every generic collector item, instead of once per pattern and
+     * endpoint. When {@link HygieiaLogFilter} watched the log as it was written, its matches are used and the log is not
+     * read at all.
+     *
+     * @return null if nothing needs the log or it could not be read, in which case each publisher reads it itself
+     */
+    private ConsoleLogScanner.Matches scanConsoleLog(Run run, HygieiaPublisher.DescriptorImpl hygieiaGlobalListenerDescriptor) {
+        ConsoleLogScanner scanner = HygieiaLogFilter.getScanner(hygieiaGlobalListenerDescriptor);
+        if (scanner.isEmpty()) { return null; }
+        ConsoleLogScanner.Matches liveMatches = LogMatches.getMatches(run, scanner);
+        if (liveMatches != null) { return liveMatches; }
+        // Sonar only needs the last match of its lines, generic items need every match
+        boolean lastMatchesOnly = CollectionUtils.isEmpty(hygieiaGlobalListenerDescriptor.getHygieiaPublishGenericCollectorItems());
+        try {
+            return lastMatchesOnly ? scanner.scanFromEnd(run) : scanner.scan(run);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Hygieia: Unable to read the console log of " + run.getFullDisplayName(), e);
+            return null;
+        }
+    }
+
+    private void publishSonarData(Publish publish, TaskListener listener, HygieiaService hygieiaService, @Nonnull String convertedBuildResponseString) {
+        if (!publish.publishSonar) { return; }
+        boolean showConsoleOutput = publish.showConsoleOutput;
+        if (publish.logMatches == null) {
+            if (showConsoleOutput) { listener.getLogger().println("Hygieia: Error Auto Publishing Sonar data, the console log could not be read."); }
+            return;
+        }
         try {
             // Quickfix by using convertedBuildResponseString to make it work with current SonarBuilder will revisit later.
-            CodeQualityCreateRequest request = buildCodeQualityCreateRequest(run, listener, hygieiaGlobalListenerDescriptor.getHygieiaJenkinsName(),
-                    convertedBuildResponseString, hygieiaGlobalListenerDescriptor.isUseProxy());
+            CodeQualityCreateRequest request = SonarBuilder.getInstance().getSonarMetrics(listener, publish.jenkinsName, null,
+                    null, convertedBuildResponseString, publish.useProxy, publish.logMatches);
             if (request != null) {
                 HygieiaResponse sonarResponse = hygieiaService.publishSonarResults(request);
                 if (sonarResponse.getResponseCode() == HttpStatus.SC_CREATED) {
@@ -253,29 +421,24 @@ public class HygieiaGlobalListener extends RunListener<Run<?, ?>> {
         }
     }
 
-    private void publishGenericCollectorItems(Run run, TaskListener listener, HygieiaPublisher.DescriptorImpl hygieiaGlobalListenerDescriptor, HygieiaService hygieiaService, @Nonnull String convertedBuildResponseString) {
-        if (CollectionUtils.isEmpty(hygieiaGlobalListenerDescriptor.getHygieiaPublishGenericCollectorItems())) { return; }
-        boolean showConsoleOutput = hygieiaGlobalListenerDescriptor.isShowConsoleOutput();
-        List<HygieiaPublisher.GenericCollectorItem> items = hygieiaGlobalListenerDescriptor.getHygieiaPublishGenericCollectorItems();
-        for (HygieiaPublisher.GenericCollectorItem item : items) {
-            try {
-                List<GenericCollectorItemCreateRequest> genericCollectorItemCreateRequests = GenericCollectorItemBuilder.getInstance().getRequests(run, item.toolName, item.pattern, convertedBuildResponseString);
-                if (CollectionUtils.isEmpty(genericCollectorItemCreateRequests)) continue;
-                for (GenericCollectorItemCreateRequest gcir : genericCollectorItemCreateRequests) {
-                    HygieiaResponse genericItemResponse = hygieiaService.publishGenericCollectorItemData(gcir);
-                    if (showConsoleOutput) { listener.getLogger().println("Hygieia: Auto Published " + gcir.getToolName() + " Data. " + genericItemResponse.toString()); }
-                }
-            } catch (IOException e) {
-                if (showConsoleOutput) { listener.getLogger().println("Hygieia: Error Auto Publishing Generic Collector Item data." + '\n' + e.getMessage()); }
+    private void publishGenericCollectorItems(Publish publish, TaskListener listener, HygieiaService hygieiaService, @Nonnull String convertedBuildResponseString) {
+        if (publish.genericItems.isEmpty()) { return; }
+        boolean showConsoleOutput = publish.showConsoleOutput;
+        if (publish.logMatches == null) {
+            if (showConsoleOutput) { listener.getLogger().println("Hygieia: Error Auto Publishing Generic Collector Item data, the console log could not be read."); }
+            return;
+        }
+        for (HygieiaPublisher.GenericCollectorItem item : publish.genericItems) {
+            List<GenericCollectorItemCreateRequest> genericCollectorItemCreateRequests = GenericCollectorItemBuilder.getInstance()
+                    .getRequests(publish.jobUrl, item.toolName, item.pattern, convertedBuildResponseString, publish.logMatches);
+            if (CollectionUtils.isEmpty(genericCollectorItemCreateRequests)) continue;
+            for (GenericCollectorItemCreateRequest gcir : genericCollectorItemCreateRequests) {
+                HygieiaResponse genericItemResponse = hygieiaService.publishGenericCollectorItemData(gcir);
+                if (showConsoleOutput) { listener.getLogger().println("Hygieia: Auto Published " + gcir.getToolName() + " Data. " + genericItemResponse.toString()); }
             }
         }
     }
 
-    private CodeQualityCreateRequest buildCodeQualityCreateRequest(Run run, TaskListener listener, String jenkinsName, String convertedBuildResponseString, boolean useProxy) throws ParseException {
-       return SonarBuilder.getInstance().getSonarMetrics(run, listener, jenkinsName, null,
-                null, convertedBuildResponseString, useProxy);
-    }
-
     private HygieiaPublisher.DescriptorImpl getDescriptor() {
         return Objects.requireNonNull(Jenkins.getInstance()).getDescriptorByType(HygieiaPublisher.DescriptorImpl.class);
     }
@@ -285,4 +448,43 @@ public class HygieiaGlobalListener extends RunListener<Run<?, ?>> {
                 hygieiaGlobalListenerDescriptor.getHygieiaJenkinsName(), hygieiaGlobalListenerDescriptor.isUseProxy());
     }
 
+    /**
+     * What one run publishes, read from the run and the global configuration when it completed.
+     */
+    private static final class Publish {
+        private final String displayName;
+        private final String jobUrl;
+        private final boolean showConsoleOutput;
+        private final boolean publishSonar;
+        private final boolean useProxy;
+        private final String jenkinsName;
+        private final List<HygieiaPublisher.GenericCollectorItem> genericItems;
+        private final List<String> endpoints;
+        private final List<HygieiaService> services;
+        private final List<String> appUrls;
+        private final BuildDataCreateRequest buildRequest;
+        private final ConsoleLogScanner.Matches logMatches;
+        private final long starttime;
+
+        Publish(String displayName, String jobUrl, HygieiaPublisher.DescriptorImpl hygieiaGlobalListenerDescriptor,
+                List<String> endpoints, List<HygieiaService> services, List<String> appUrls,
+                BuildDataCreateRequest buildRequest, ConsoleLogScanner.Matches logMatches, long starttime) {
+            this.displayName = displayName;
+            this.jobUrl = jobUrl;
+            this.showConsoleOutput = hygieiaGlobalListenerDescriptor.isShowConsoleOutput();
+            this.publishSonar = hygieiaGlobalListenerDescriptor.isHygieiaPublishSonarDataGlobal();
+            this.useProxy = hygieiaGlobalListenerDescriptor.isUseProxy();
+            this.jenkinsName = hygieiaGlobalListenerDescriptor.getHygieiaJenkinsName();
+            List<HygieiaPublisher.GenericCollectorItem> items = hygieiaGlobalListenerDescriptor.getHygieiaPublishGenericCollectorItems();
+            this.genericItems = items == null ? Collections.<HygieiaPublisher.GenericCollectorItem>emptyList()
+                    : Collections.unmodifiableList(new ArrayList<>(items));
+            this.endpoints = Collections.unmodifiableList(endpoints);
+            this.services = Collections.unmodifiableList(services);
+            this.appUrls = appUrls;
+            this.buildRequest = buildRequest;
+            this.logMatches = logMatches;
+            this.starttime = starttime;
+        }
+    }
+
 }
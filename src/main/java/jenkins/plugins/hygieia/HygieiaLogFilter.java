@@ -0,0 +1,53 @@
+package jenkins.plugins.hygieia;
+
+import hudson.Extension;
+import hudson.console.ConsoleLogFilter;
+import hudson.model.Run;
+import hygieia.builder.SonarBuilder;
+import hygieia.utils.ConsoleLogScanner;
+import hygieia.utils.ConsoleLogWatcher;
+import hygieia.utils.HygieiaUtils;
+import jenkins.model.Jenkins;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Watches the console output of every run that the global listener will mine for Sonar links or generic collector
+ * items, and keeps the matches in a {@link LogMatches}. At completion they are read from there instead of
+ * scanning the log file again. Runs whose log does not pass through Jenkins' global console filters simply have no
+ * matches kept and are scanned as before.
+ */
+@Extension
+public class HygieiaLogFilter extends ConsoleLogFilter {
+
+    @Override
+    public OutputStream decorateLogger(Run build, OutputStream logger) throws IOException, InterruptedException {
+        Jenkins jenkins = Jenkins.getInstance();
+        HygieiaPublisher.DescriptorImpl descriptor = jenkins == null ? null : jenkins.getDescriptorByType(HygieiaPublisher.DescriptorImpl.class);
+        if (descriptor == null || HygieiaUtils.isJobExcluded(build.getParent().getName(), descriptor.getHygieiaExcludeJobNames())) {
+            return logger;
+        }
+        ConsoleLogScanner scanner = getScanner(descriptor);
+        if (scanner.isEmpty()) return logger;
+
+        ConsoleLogWatcher watcher = new ConsoleLogWatcher(logger, scanner, build.getCharset());
+        return LogMatches.watch(build, watcher) ? watcher : logger;
+    }
+
+    /**
+     * @return a scanner for every log line the global listener publishes, empty when it publishes none
+     */
+    static ConsoleLogScanner getScanner(HygieiaPublisher.DescriptorImpl descriptor) {
+        ConsoleLogScanner scanner = new ConsoleLogScanner();
+        if (descriptor.isHygieiaPublishSonarDataGlobal()) SonarBuilder.addLogPatterns(scanner);
+        List<HygieiaPublisher.GenericCollectorItem> items = descriptor.getHygieiaPublishGenericCollectorItems();
+        if (items != null) {
+            for (HygieiaPublisher.GenericCollectorItem item : items) {
+                scanner.add(item.pattern);
+            }
+        }
+        return scanner;
+    }
+}
@@ -16,11 +16,14 @@ import hudson.tasks.Notifier;
 import hudson.tasks.Publisher;
 import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
+import hygieia.builder.CommitBuilder;
+import hygieia.builder.StageLogReader;
 import hygieia.transformer.HygieiaConstants;
 import hygieia.utils.HygieiaUtils;
 import net.sf.json.JSONObject;
 import org.apache.commons.lang3.StringUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 
@@ -28,6 +31,7 @@ import javax.servlet.ServletException;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.logging.Logger;
 
 
@@ -77,6 +81,7 @@ public class HygieiaPublisher extends Notifier {
         private final String artifactDirectory;
         private final String artifactGroup;
         private final String artifactVersion;
+        private boolean useArchivedArtifacts;
 
         @DataBoundConstructor
         public HygieiaArtifact(String artifactDirectory, String artifactName, String artifactGroup, String artifactVersion) {
@@ -102,6 +107,15 @@ public class HygieiaPublisher extends Notifier {
             return artifactVersion;
         }
 
+        public boolean isUseArchivedArtifacts() {
+            return useArchivedArtifacts;
+        }
+
+        @DataBoundSetter
+        public void setUseArchivedArtifacts(boolean useArchivedArtifacts) {
+            this.useArchivedArtifacts = useArchivedArtifacts;
+        }
+
         public boolean checkFileds() {
             return (!"".equals(artifactName));
         }
@@ -384,6 +398,27 @@ public class HygieiaPublisher extends Notifier {
         private volatile boolean showConsoleOutput;
         private volatile boolean captureLogs;
         private volatile GenericCollectorItem[] hygieiaPublishGenericCollectorItems =  new GenericCollectorItem[0];
+        private volatile int httpMaxConnectionsPerRoute = HttpClientPool.DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+        private volatile int httpIdleConnectionTimeout = HttpClientPool.DEFAULT_IDLE_TIMEOUT_SECONDS;
+        private volatile int httpConnectTimeout = HttpClientPool.DEFAULT_CONNECT_TIMEOUT_SECONDS;
+        private volatile int httpSocketTimeout = HttpClientPool.DEFAULT_SOCKET_TIMEOUT_SECONDS;
+        private volatile String gzipEndpoints;
+        private volatile int gzipThresholdBytes = PayloadCompression.DEFAULT_THRESHOLD_BYTES;
+        private volatile boolean outboxEnabled = true;
+        private volatile int outboxMaxSizeMb = PublishOutbox.DEFAULT_MAX_SIZE_MB;
+        private volatile int outboxMaxAgeHours = PublishOutbox.DEFAULT_MAX_AGE_HOURS;
+        private volatile int outboxMaxAttempts = PublishOutbox.DEFAULT_MAX_ATTEMPTS;
+        private volatile int publishWorkerThreads = PublishWorkerPool.DEFAULT_THREADS;
+        private volatile int publishQueueCapacity = PublishWorkerPool.DEFAULT_QUEUE_CAPACITY;
+        private volatile int publishDeadlineSeconds = EndpointFanOut.DEFAULT_DEADLINE_SECONDS;
+        private volatile int stageFetchParallelism = StageFetcher.DEFAULT_PARALLELISM;
+        private volatile int logTailBytes = StageLogReader.DEFAULT_TAIL_BYTES;
+        private volatile int logErrorWindowLines;
+        private volatile String logErrorPattern = StageLogReader.DEFAULT_ERROR_PATTERN;
+        private volatile int maxCommits = CommitBuilder.DEFAULT_MAX_COMMITS;
+        private volatile int maxCommitMessageLength = CommitBuilder.DEFAULT_MAX_MESSAGE_LENGTH;
+        private volatile int lookupCacheTtlSeconds = LookupCache.DEFAULT_TTL_SECONDS;
+        private volatile int lookupCacheMaxEntries = LookupCache.DEFAULT_MAX_ENTRIES;
         public String pluginVersionInfo;
 
         private String deployApplicationNameSelected;
@@ -393,6 +428,14 @@ public class HygieiaPublisher extends Notifier {
 
         public DescriptorImpl() {
             load();
+            HttpClientPool.getInstance().configure(httpMaxConnectionsPerRoute, httpIdleConnectionTimeout, httpConnectTimeout, httpSocketTimeout);
+            PayloadCompression.configure(gzipEndpoints, gzipThresholdBytes);
+            PublishOutbox.configure(outboxEnabled, outboxMaxSizeMb, outboxMaxAgeHours, outboxMaxAttempts);
+            PublishWorkerPool.getInstance().configure(publishWorkerThreads, publishQueueCapacity);
+            EndpointFanOut.configure(publishDeadlineSeconds);
+            StageFetcher.configure(stageFetchParallelism);
+            CommitBuilder.configure(maxCommits, maxCommitMessageLength);
+            LookupCache.getInstance().configure(lookupCacheTtlSeconds, lookupCacheMaxEntries);
         }
 
         public String getJenkinsUserId() {
@@ -459,6 +502,90 @@ public class HygieiaPublisher extends Notifier {
             this.captureLogs = captureLogs;
         }
 
+        public int getHttpMaxConnectionsPerRoute() {
+            return httpMaxConnectionsPerRoute;
+        }
+
+        public int getHttpIdleConnectionTimeout() {
+            return httpIdleConnectionTimeout;
+        }
+
+        public int getHttpConnectTimeout() {
+            return httpConnectTimeout;
+        }
+
+        public int getHttpSocketTimeout() {
+            return httpSocketTimeout;
+        }
+
+        public String getGzipEndpoints() {
+            return gzipEndpoints;
+        }
+
+        public int getGzipThresholdBytes() {
+            return gzipThresholdBytes;
+        }
+
+        public boolean isOutboxEnabled() {
+            return outboxEnabled;
+        }
+
+        public int getOutboxMaxSizeMb() {
+            return outboxMaxSizeMb;
+        }
+
+        public int getOutboxMaxAgeHours() {
+            return outboxMaxAgeHours;
+        }
+
+        public int getOutboxMaxAttempts() {
+            return outboxMaxAttempts;
+        }
+
+        public int getPublishWorkerThreads() {
+            return publishWorkerThreads;
+        }
+
+        public int getPublishQueueCapacity() {
+            return publishQueueCapacity;
+        }
+
+        public int getPublishDeadlineSeconds() {
+            return publishDeadlineSeconds;
+        }
+
+        public int getStageFetchParallelism() {
+            return stageFetchParallelism;
+        }
+
+        public int getLogTailBytes() {
+            return logTailBytes;
+        }
+
+        public int getLogErrorWindowLines() {
+            return logErrorWindowLines;
+        }
+
+        public String getLogErrorPattern() {
+            return logErrorPattern;
+        }
+
+        public int getMaxCommits() {
+            return maxCommits;
+        }
+
+        public int getMaxCommitMessageLength() {
+            return maxCommitMessageLength;
+        }
+
+        public int getLookupCacheTtlSeconds() {
+            return lookupCacheTtlSeconds;
+        }
+
+        public int getLookupCacheMaxEntries() {
+            return lookupCacheMaxEntries;
+        }
+
         public String getPluginVersionInfo() {
             return StringUtils.isNotEmpty(pluginVersionInfo) ? pluginVersionInfo : this.getPlugin().getShortName()+" version "+this.getPlugin().getVersion(); }
 
@@ -530,6 +657,35 @@ public class HygieiaPublisher extends Notifier {
                 hygieiaPublishGenericCollectorItems = new GenericCollectorItem[0];
             }
             useProxy = jsonObject.getBoolean("useProxy");
+            httpMaxConnectionsPerRoute = jsonObject.optInt("httpMaxConnectionsPerRoute", HttpClientPool.DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+            httpIdleConnectionTimeout = jsonObject.optInt("httpIdleConnectionTimeout", HttpClientPool.DEFAULT_IDLE_TIMEOUT_SECONDS);
+            httpConnectTimeout = jsonObject.optInt("httpConnectTimeout", HttpClientPool.DEFAULT_CONNECT_TIMEOUT_SECONDS);
+            httpSocketTimeout = jsonObject.optInt("httpSocketTimeout", HttpClientPool.DEFAULT_SOCKET_TIMEOUT_SECONDS);
+            HttpClientPool.getInstance().configure(httpMaxConnectionsPerRoute, httpIdleConnectionTimeout, httpConnectTimeout, httpSocketTimeout);
+            gzipEndpoints = jsonObject.optString("gzipEndpoints", "");
+            gzipThresholdBytes = jsonObject.optInt("gzipThresholdBytes", PayloadCompression.DEFAULT_THRESHOLD_BYTES);
+            PayloadCompression.configure(gzipEndpoints, gzipThresholdBytes);
+            outboxEnabled = jsonObject.optBoolean("outboxEnabled", true);
+            outboxMaxSizeMb = jsonObject.optInt("outboxMaxSizeMb", PublishOutbox.DEFAULT_MAX_SIZE_MB);
+            outboxMaxAgeHours = jsonObject.optInt("outboxMaxAgeHours", PublishOutbox.DEFAULT_MAX_AGE_HOURS);
+            outboxMaxAttempts = jsonObject.optInt("outboxMaxAttempts", PublishOutbox.DEFAULT_MAX_ATTEMPTS);
+            PublishOutbox.configure(outboxEnabled, outboxMaxSizeMb, outboxMaxAgeHours, outboxMaxAttempts);
+            publishWorkerThreads = jsonObject.optInt("publishWorkerThreads", PublishWorkerPool.DEFAULT_THREADS);
+            publishQueueCapacity = jsonObject.optInt("publishQueueCapacity", PublishWorkerPool.DEFAULT_QUEUE_CAPACITY);
+            PublishWorkerPool.getInstance().configure(publishWorkerThreads, publishQueueCapacity);
+            publishDeadlineSeconds = jsonObject.optInt("publishDeadlineSeconds", EndpointFanOut.DEFAULT_DEADLINE_SECONDS);
+            EndpointFanOut.configure(publishDeadlineSeconds);
+            stageFetchParallelism = jsonObject.optInt("stageFetchParallelism", StageFetcher.DEFAULT_PARALLELISM);
+            StageFetcher.configure(stageFetchParallelism);
+            logTailBytes = jsonObject.optInt("logTailBytes", StageLogReader.DEFAULT_TAIL_BYTES);
+            logErrorWindowLines = jsonObject.optInt("logErrorWindowLines", 0);
+            logErrorPattern = jsonObject.optString("logErrorPattern", StageLogReader.DEFAULT_ERROR_PATTERN);
+            maxCommits = jsonObject.optInt("maxCommits", CommitBuilder.DEFAULT_MAX_COMMITS);
+            maxCommitMessageLength = jsonObject.optInt("maxCommitMessageLength", CommitBuilder.DEFAULT_MAX_MESSAGE_LENGTH);
+            CommitBuilder.configure(maxCommits, maxCommitMessageLength);
+            lookupCacheTtlSeconds = jsonObject.optInt("lookupCacheTtlSeconds", LookupCache.DEFAULT_TTL_SECONDS);
+            lookupCacheMaxEntries = jsonObject.optInt("lookupCacheMaxEntries", LookupCache.DEFAULT_MAX_ENTRIES);
+            LookupCache.getInstance().configure(lookupCacheTtlSeconds, lookupCacheMaxEntries);
             save();
             return super.configure(sr, formData);
         }
@@ -538,6 +694,10 @@ public class HygieiaPublisher extends Notifier {
             return new DefaultHygieiaService(hygieiaAPIUrl, hygieiaToken, hygieiaJenkinsName, useProxy);
         }
 
+        public AsyncHygieiaService getAsyncHygieiaService(final String hygieiaAPIUrl, final boolean useProxy, final Executor executor) {
+            return new DefaultAsyncHygieiaService(hygieiaAPIUrl, useProxy, executor);
+        }
+
         @Override
         public String getDisplayName() {
             return "Hygieia Publisher";
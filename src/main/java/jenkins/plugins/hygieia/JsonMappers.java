@@ -0,0 +1,107 @@
+package jenkins.plugins.hygieia;
+
+import com.capitalone.dashboard.model.quality.QualityVisitee;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import hygieia.transformer.QualityVisiteeDeserializer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The readers and writers every Hygieia request, response and test report is serialized with.
+ * <p>
+ * A mapper keeps the serializers and deserializers it has built for a type, so the plugin configures its mappers once
+ * and hands out readers and writers bound to a type, which are immutable and safe to share between threads. Setting
+ * the system property {@value #AFTERBURNER_PROPERTY} to true registers Jackson's Afterburner module, which generates
+ * bytecode for property access, when it is on the classpath.
+ */
+public final class JsonMappers {
+    private static final Logger logger = Logger.getLogger(JsonMappers.class.getName());
+    public static final String AFTERBURNER_PROPERTY = "jenkins.plugins.hygieia.JsonMappers.afterburner";
+    private static final String AFTERBURNER_MODULE = "com.fasterxml.jackson.module.afterburner.AfterburnerModule";
+
+    // requests leave out null values; streamed requests must not close the connection's stream
+    private static final ObjectMapper REQUEST_MAPPER = accelerate(new CustomObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET));
+    private static final ObjectMapper RESPONSE_MAPPER = accelerate(new CustomObjectMapper());
+    private static final ObjectReader TEST_REPORT_READER = accelerate(testReportMapper()).readerFor(QualityVisitee.class);
+
+    private static final ObjectWriter WRITER = REQUEST_MAPPER.writer();
+    private static final ConcurrentMap<Class<?>, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+
+    private JsonMappers() {
+    }
+
+    /**
+     * @return the writer for requests of exactly {@code type}
+     */
+    public static ObjectWriter writerFor(Class<?> type) {
+        ObjectWriter writer = WRITERS.get(type);
+        if (writer == null) {
+            writer = REQUEST_MAPPER.writerFor(type);
+            ObjectWriter existing = WRITERS.putIfAbsent(type, writer);
+            if (existing != null) writer = existing;
+        }
+        return writer;
+    }
+
+    /**
+     * @return the writer for {@code request}, by its class
+     */
+    public static ObjectWriter writerForValue(Object request) {
+        return request == null ? WRITER : writerFor(request.getClass());
+    }
+
+    /**
+     * @return the reader for responses of {@code type}
+     */
+    public static ObjectReader readerFor(Class<?> type) {
+        ObjectReader reader = READERS.get(type);
+        if (reader == null) {
+            reader = RESPONSE_MAPPER.readerFor(type);
+            ObjectReader existing = READERS.putIfAbsent(type, reader);
+            if (existing != null) reader = existing;
+        }
+        return reader;
+    }
+
+    /**
+     * @return the reader for Cucumber and Mocha test reports, which ignores properties the model does not know
+     */
+    public static ObjectReader testReportReader() {
+        return TEST_REPORT_READER;
+    }
+
+    private static ObjectMapper testReportMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        SimpleModule module = new SimpleModule();
+        module.addDeserializer(QualityVisitee.class, new QualityVisiteeDeserializer());
+        mapper.registerModule(module);
+        return mapper;
+    }
+
+    private static ObjectMapper accelerate(ObjectMapper mapper) {
+        if (!Boolean.getBoolean(AFTERBURNER_PROPERTY)) return mapper;
+        try {
+            Class<?> moduleClass = Class.forName(AFTERBURNER_MODULE, true, JsonMappers.class.getClassLoader());
+            mapper.registerModule((Module) moduleClass.newInstance());
+        } catch (ClassNotFoundException e) {
+            logger.warning(AFTERBURNER_PROPERTY + " is set, but " + AFTERBURNER_MODULE + " is not on the classpath");
+        } catch (ReflectiveOperationException | LinkageError e) {
+            logger.log(Level.WARNING, "Could not register " + AFTERBURNER_MODULE, e);
+        }
+        return mapper;
+    }
+}
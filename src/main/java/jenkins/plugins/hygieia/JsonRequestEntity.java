@@ -0,0 +1,165 @@
+package jenkins.plugins.hygieia;
+
+import hygieia.utils.HygieiaUtils;
+import org.apache.commons.httpclient.methods.ByteArrayRequestEntity;
+import org.apache.commons.httpclient.methods.RequestEntity;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Request entity that serializes its payload with Jackson straight into the connection's output stream.
+ * The body is sent chunked, so the JSON is never materialized as a byte array or String on the heap.
+ * When gzip is on, the JSON is compressed as it is written.
+ * <p>
+ * Payloads under the threshold given to {@link #create(Object, boolean, int)} are sent raw from a buffer with their
+ * length instead. Servers that answer a chunked body with 411 Length Required get it again from
+ * {@link #toBuffered()}; see {@link RestCall#makeRestCallPost(String, RequestEntity)}.
+ */
+public class JsonRequestEntity implements CompressedRequestEntity {
+
+    static final String CONTENT_TYPE = HygieiaUtils.APPLICATION_JSON_VALUE + "; charset=UTF-8";
+    private static final int GZIP_BUFFER_SIZE = 8192;
+
+    private final Object payload;
+    private final boolean gzip;
+
+    public JsonRequestEntity(Object payload) {
+        this(payload, false);
+    }
+
+    public JsonRequestEntity(Object payload, boolean gzip) {
+        this.payload = payload;
+        this.gzip = gzip;
+    }
+
+    /**
+     * Creates the entity for a publish. At most {@code thresholdBytes} of JSON are serialized up front: a payload that
+     * fits is sent raw, with its length, from that small buffer; a larger one is streamed, gzipped as it is written
+     * when {@code gzip} is set.
+     */
+    public static RequestEntity create(Object payload, boolean gzip, int thresholdBytes) throws IOException {
+        ThresholdOutputStream probe = new ThresholdOutputStream(thresholdBytes);
+        try {
+            JsonMappers.writerForValue(payload).writeValue(probe, payload);
+        } catch (IOException e) {
+            if (ExceptionUtils.indexOfThrowable(e, ThresholdExceededException.class) < 0) throw e;
+            return new JsonRequestEntity(payload, gzip);
+        }
+        return new Buffered(probe.toByteArray(), false);
+    }
+
+    /**
+     * Serializes {@code payload} exactly as {@link #writeRequest(OutputStream)} would.
+     */
+    static byte[] toBytes(Object payload) throws IOException {
+        return JsonMappers.writerForValue(payload).writeValueAsBytes(payload);
+    }
+
+    public Object getPayload() {
+        return payload;
+    }
+
+    /**
+     * @return the same body serialized into memory, so that it is sent with a Content-Length
+     */
+    public CompressedRequestEntity toBuffered() throws IOException {
+        if (!gzip) return new Buffered(toBytes(payload), false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeRequest(out);
+        return new Buffered(out.toByteArray(), true);
+    }
+
+    @Override
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public void writeRequest(OutputStream out) throws IOException {
+        if (gzip) {
+            GZIPOutputStream gzipOut = new GZIPOutputStream(new CloseShieldOutputStream(out), GZIP_BUFFER_SIZE);
+            try {
+                JsonMappers.writerForValue(payload).writeValue(gzipOut, payload);
+            } finally {
+                gzipOut.close();
+            }
+        } else {
+            JsonMappers.writerForValue(payload).writeValue(out, payload);
+        }
+        out.flush();
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+
+    /**
+     * Buffers up to {@code threshold} bytes and fails the write as soon as the payload reaches it.
+     */
+    private static class ThresholdOutputStream extends OutputStream {
+        private final byte[] buffer;
+        private int count;
+
+        ThresholdOutputStream(int threshold) {
+            this.buffer = new byte[threshold];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            checkThreshold(1);
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            checkThreshold(len);
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+        }
+
+        private void checkThreshold(int len) throws ThresholdExceededException {
+            if (count + len >= buffer.length) throw new ThresholdExceededException();
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, count);
+        }
+    }
+
+    private static class ThresholdExceededException extends IOException {
+    }
+
+    /**
+     * A JSON body already serialized, and possibly gzipped, into memory.
+     */
+    static final class Buffered extends ByteArrayRequestEntity implements CompressedRequestEntity {
+        private final boolean gzip;
+
+        Buffered(byte[] content, boolean gzip) {
+            super(content, CONTENT_TYPE);
+            this.gzip = gzip;
+        }
+
+        @Override
+        public boolean isGzip() {
+            return gzip;
+        }
+    }
+}
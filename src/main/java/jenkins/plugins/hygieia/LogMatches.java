@@ -0,0 +1,50 @@
+package jenkins.plugins.hygieia;
+
+import hudson.model.Run;
+import hygieia.utils.ConsoleLogScanner;
+import hygieia.utils.ConsoleLogWatcher;
+
+/**
+ * Holds the console log matches collected by {@link HygieiaLogFilter} while a run was writing its log.
+ * <p>
+ * The matches are kept in the {@link RunCache} only. After a restart, or once the run is finalized,
+ * {@link #getMatches(Run, ConsoleLogScanner)} returns null so callers scan the log instead.
+ */
+public class LogMatches {
+    private volatile ConsoleLogWatcher watcher;
+
+    LogMatches(ConsoleLogWatcher watcher) {
+        this.watcher = watcher;
+    }
+
+    /**
+     * Starts collecting the matches of {@code run} with {@code watcher}.
+     *
+     * @return false if the run's log is already watched
+     */
+    static boolean watch(Run<?, ?> run, ConsoleLogWatcher watcher) {
+        LogMatches existing = RunCache.putIfAbsent(run, LogMatches.class, new LogMatches(watcher));
+        if (existing == null) return true;
+        // a second stream only sees part of the log
+        existing.invalidate();
+        return false;
+    }
+
+    /**
+     * Stops answering for the run, used when its log is written through more than one stream.
+     */
+    void invalidate() {
+        watcher = null;
+    }
+
+    /**
+     * @return the matches for every literal in {@code needed}, or null if they were not collected while the log was
+     * written
+     */
+    public static ConsoleLogScanner.Matches getMatches(Run<?, ?> run, ConsoleLogScanner needed) {
+        LogMatches cached = RunCache.get(run, LogMatches.class);
+        ConsoleLogWatcher watcher = cached == null ? null : cached.watcher;
+        if (watcher == null || !watcher.isComplete() || !watcher.getScanner().covers(needed)) return null;
+        return watcher.getMatches();
+    }
+}
@@ -0,0 +1,288 @@
+package jenkins.plugins.hygieia;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Process-wide cache of the lists the plugin looks up from the Hygieia API, such as collector item options and
+ * deployment environments, keyed by the URL they were read from.
+ * <p>
+ * An entry is served for {@code ttlSeconds} after it was loaded. A hit in the last fifth of that time reloads the
+ * entry in the background, so busy callers keep getting a cached value instead of waiting when it expires. Callers
+ * that miss on the same key while it is being loaded wait for that one load instead of starting their own. A load
+ * that returns null failed and is not cached. The least recently used entry is dropped past {@code maxEntries}.
+ */
+public final class LookupCache {
+    private static final Logger logger = Logger.getLogger(LookupCache.class.getName());
+
+    public static final int DEFAULT_TTL_SECONDS = 300;
+    public static final int DEFAULT_MAX_ENTRIES = 100;
+    private static final int REFRESH_THREADS = 2;
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private static final LookupCache INSTANCE = new LookupCache(System::nanoTime, new ThreadPoolExecutor(0, REFRESH_THREADS,
+            KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<>(),
+            new NamingThreadFactory(new DaemonThreadFactory(), "Hygieia lookup refresher")));
+
+    private final LongSupplier nanoClock;
+    private final Executor refresher;
+    private final ConcurrentMap<String, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+    // access ordered, guarded by this
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() <= maxEntries) return false;
+            evictions.incrementAndGet();
+            return true;
+        }
+    };
+
+    private volatile long ttlNanos;
+    private volatile int maxEntries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong loadFailures = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong totalLoadNanos = new AtomicLong();
+
+    LookupCache(LongSupplier nanoClock, Executor refresher) {
+        this.nanoClock = nanoClock;
+        this.refresher = refresher;
+        configure(DEFAULT_TTL_SECONDS, DEFAULT_MAX_ENTRIES);
+    }
+
+    public static LookupCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Applies cache sizing from the global configuration. A TTL of zero or less turns caching off, though concurrent
+     * lookups of the same key still share one load; a non-positive size falls back to the default.
+     */
+    public synchronized void configure(int ttlSeconds, int maxEntries) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(0, ttlSeconds));
+        this.maxEntries = maxEntries > 0 ? maxEntries : DEFAULT_MAX_ENTRIES;
+        if (ttlNanos == 0) {
+            entries.clear();
+        } else {
+            while (entries.size() > this.maxEntries) {
+                entries.remove(entries.keySet().iterator().next());
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @return the value cached for {@code key}, or the one {@code loader} returns for it; null if the load failed
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Supplier<T> loader) {
+        long now = nanoClock.getAsLong();
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        long ttl = ttlNanos;
+        if (entry != null && now - entry.loadedAt < ttl) {
+            hits.incrementAndGet();
+            if (now - entry.loadedAt >= ttl - ttl / 5) refreshAhead(key, loader, entry);
+            return (T) entry.value;
+        }
+        misses.incrementAndGet();
+
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> running = loading.putIfAbsent(key, load);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            try {
+                return (T) running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                throw e;
+            }
+        }
+        return (T) load(key, loader, load);
+    }
+
+    /**
+     * Drops every cached value, for example after the Hygieia server changed.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private void refreshAhead(String key, Supplier<?> loader, Entry entry) {
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        if (loading.putIfAbsent(key, load) != null) return;
+        try {
+            refresher.execute(() -> {
+                try {
+                    load(key, loader, load);
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Hygieia: Refreshing " + key + " failed", e);
+                }
+            });
+            refreshes.incrementAndGet();
+        } catch (RejectedExecutionException e) {
+            // every refresher is busy; a later hit tries again, and meanwhile the entry is still valid
+            loading.remove(key, load);
+            load.complete(entry.value);
+        }
+    }
+
+    private Object load(String key, Supplier<?> loader, CompletableFuture<Object> load) {
+        long started = nanoClock.getAsLong();
+        try {
+            Object value = loader.get();
+            loads.incrementAndGet();
+            if (value == null) {
+                loadFailures.incrementAndGet();
+            } else if (ttlNanos > 0) {
+                synchronized (this) {
+                    entries.put(key, new Entry(value, nanoClock.getAsLong()));
+                }
+            }
+            load.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            loads.incrementAndGet();
+            loadFailures.incrementAndGet();
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            totalLoadNanos.addAndGet(nanoClock.getAsLong() - started);
+            loading.remove(key, load);
+        }
+    }
+
+    public Statistics getStatistics() {
+        int size;
+        synchronized (this) {
+            size = entries.size();
+        }
+        return new Statistics(TimeUnit.NANOSECONDS.toSeconds(ttlNanos), maxEntries, size, hits.get(), misses.get(),
+                coalesced.get(), loads.get(), refreshes.get(), loadFailures.get(), evictions.get(), totalLoadNanos.get());
+    }
+
+    private static class Entry {
+        private final Object value;
+        private final long loadedAt;
+
+        Entry(Object value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    public static class Statistics {
+        private final long ttlSeconds;
+        private final int maxEntries;
+        private final int size;
+        private final long hits;
+        private final long misses;
+        private final long coalescedMisses;
+        private final long loads;
+        private final long refreshes;
+        private final long loadFailures;
+        private final long evictions;
+        private final long averageLoadMillis;
+
+        Statistics(long ttlSeconds, int maxEntries, int size, long hits, long misses, long coalescedMisses, long loads,
+                   long refreshes, long loadFailures, long evictions, long totalLoadNanos) {
+            this.ttlSeconds = ttlSeconds;
+            this.maxEntries = maxEntries;
+            this.size = size;
+            this.hits = hits;
+            this.misses = misses;
+            this.coalescedMisses = coalescedMisses;
+            this.loads = loads;
+            this.refreshes = refreshes;
+            this.loadFailures = loadFailures;
+            this.evictions = evictions;
+            this.averageLoadMillis = loads == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLoadNanos / loads);
+        }
+
+        public long getTtlSeconds() {
+            return ttlSeconds;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * @return misses that waited for a load another caller had already started
+         */
+        public long getCoalescedMisses() {
+            return coalescedMisses;
+        }
+
+        /**
+         * @return calls made to the Hygieia API, including background refreshes
+         */
+        public long getLoads() {
+            return loads;
+        }
+
+        public long getRefreshes() {
+            return refreshes;
+        }
+
+        public long getLoadFailures() {
+            return loadFailures;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public long getAverageLoadMillis() {
+            return averageLoadMillis;
+        }
+
+        public double getHitRatio() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        public String toString() {
+            return "Entries: " + size + "/" + maxEntries + ", ttl: " + ttlSeconds + "s"
+                    + ", hits: " + hits + ", misses: " + misses + " (" + coalescedMisses + " coalesced)"
+                    + ", loads: " + loads + " (" + refreshes + " refreshes, " + loadFailures + " failed)"
+                    + ", evictions: " + evictions + ", load avg: " + averageLoadMillis + "ms";
+        }
+    }
+}
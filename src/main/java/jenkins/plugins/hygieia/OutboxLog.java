@@ -0,0 +1,352 @@
+package jenkins.plugins.hygieia;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of publish requests for a single Hygieia endpoint, kept as numbered segment files in its own directory.
+ * The segment being appended to is memory-mapped; older segments are read through a file channel and deleted once the
+ * checkpoint has moved past them.
+ * <p>
+ * Record layout: {@code int length, int crc32} followed by {@code length} bytes of
+ * {@code [byte flags][long spooled at millis][unsigned short path length][path][JSON body]}. The low flag bit is
+ * useProxy. A zero length or a CRC mismatch marks the end of a segment, so a record torn by a crash is never replayed.
+ */
+final class OutboxLog {
+    private static final Logger logger = Logger.getLogger(OutboxLog.class.getName());
+
+    static final String ENDPOINT_FILE = "endpoint";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_BYTES = 8;
+    private static final int FLAG_USE_PROXY = 1;
+
+    private final File directory;
+    private final String endpoint;
+    private final int segmentSize;
+    private final TreeMap<Long, File> segments = new TreeMap<>();
+
+    private long writeSegmentId;
+    private MappedByteBuffer writeBuffer;
+
+    private long readSegmentId;
+    private long readOffset;
+    private FileChannel readChannel;
+    private long readChannelSegmentId = -1;
+
+    private long pendingEntries;
+    private boolean checkpointDirty;
+
+    private OutboxLog(File directory, String endpoint, int segmentSize) {
+        this.directory = directory;
+        this.endpoint = endpoint;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Opens the log in {@code directory}, creating it for {@code endpoint} if needed. Pass a null endpoint to reopen
+     * an existing log, in which case the endpoint is read back from the directory.
+     */
+    static OutboxLog open(File directory, String endpoint, int segmentSize) throws IOException {
+        File endpointFile = new File(directory, ENDPOINT_FILE);
+        if (endpoint == null) {
+            endpoint = new String(Files.readAllBytes(endpointFile.toPath()), StandardCharsets.UTF_8);
+        } else if (!endpointFile.exists()) {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Unable to create outbox directory " + directory);
+            }
+            Files.write(endpointFile.toPath(), endpoint.getBytes(StandardCharsets.UTF_8));
+        }
+        OutboxLog log = new OutboxLog(directory, endpoint, segmentSize);
+        log.recover();
+        return log;
+    }
+
+    String getEndpoint() {
+        return endpoint;
+    }
+
+    synchronized long getPendingEntries() {
+        return pendingEntries;
+    }
+
+    synchronized long getDiskBytes() {
+        long bytes = 0;
+        for (Map.Entry<Long, File> segment : segments.entrySet()) {
+            bytes += (segment.getKey() == writeSegmentId && writeBuffer != null) ? writeBuffer.capacity() : segment.getValue().length();
+        }
+        return bytes;
+    }
+
+    synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * @return how many bytes {@link #getDiskBytes()} grows by when the record is appended: nothing while it fits in the
+     * segment already mapped, the whole new segment otherwise
+     */
+    synchronized long getAppendBytes(String path, int bodyLength) {
+        int recordSize = HEADER_BYTES + recordLength(path.getBytes(StandardCharsets.UTF_8), bodyLength);
+        if (writeBuffer != null && writeBuffer.remaining() >= recordSize) return 0;
+        return Math.max(segmentSize, recordSize);
+    }
+
+    synchronized void append(String path, boolean useProxy, long spooledAtMillis, byte[] body) throws IOException {
+        byte[] pathBytes = path.getBytes(StandardCharsets.UTF_8);
+        int length = recordLength(pathBytes, body.length);
+        if (writeBuffer == null || writeBuffer.remaining() < HEADER_BYTES + length) {
+            roll(HEADER_BYTES + length);
+        }
+        int start = writeBuffer.position();
+        writeBuffer.position(start + HEADER_BYTES);
+        writeBuffer.put((byte) (useProxy ? FLAG_USE_PROXY : 0)).putLong(spooledAtMillis)
+                .putShort((short) pathBytes.length).put(pathBytes).put(body);
+
+        ByteBuffer written = writeBuffer.duplicate();
+        written.position(start + HEADER_BYTES);
+        written.limit(start + HEADER_BYTES + length);
+        CRC32 crc = new CRC32();
+        crc.update(written);
+        writeBuffer.putInt(start + 4, (int) crc.getValue());
+        // the length goes in last: until it is set the record reads as the end of the segment
+        writeBuffer.putInt(start, length);
+        pendingEntries++;
+    }
+
+    /**
+     * @return the oldest undelivered entry, or null if everything has been delivered
+     */
+    synchronized Entry peek() throws IOException {
+        while (segments.containsKey(readSegmentId)) {
+            Entry entry = readRecord(readSegmentId, readOffset);
+            if (entry != null) return entry;
+            Long next = segments.higherKey(readSegmentId);
+            if (next == null) return null;
+            readSegmentId = next;
+            readOffset = 0;
+            checkpointDirty = true;
+        }
+        return null;
+    }
+
+    /**
+     * Marks {@code entry}, which must be the one last returned by {@link #peek()}, as delivered.
+     */
+    synchronized void ack(Entry entry) {
+        readSegmentId = entry.segmentId;
+        readOffset = entry.nextOffset;
+        pendingEntries = Math.max(0, pendingEntries - 1);
+        checkpointDirty = true;
+    }
+
+    /**
+     * Flushes appended records to disk, persists the delivery position and deletes fully delivered segments.
+     */
+    synchronized void checkpoint() throws IOException {
+        if (writeBuffer != null) writeBuffer.force();
+        if (!checkpointDirty) return;
+        File checkpoint = new File(directory, CHECKPOINT_FILE);
+        File tmp = new File(directory, CHECKPOINT_FILE + ".tmp");
+        Files.write(tmp.toPath(), (readSegmentId + " " + readOffset).getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp.toPath(), checkpoint.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        checkpointDirty = false;
+        compact();
+    }
+
+    synchronized void close() throws IOException {
+        checkpoint();
+        closeReadChannel();
+        writeBuffer = null;
+    }
+
+    private void recover() throws IOException {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        segments.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+                    } catch (NumberFormatException e) {
+                        logger.warning("Hygieia: Ignoring unexpected file in outbox: " + file);
+                    }
+                }
+            }
+        }
+        readCheckpoint();
+        Long first = segments.ceilingKey(readSegmentId);
+        if (first == null) {
+            readSegmentId = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+            readOffset = 0;
+        } else if (first != readSegmentId) {
+            readSegmentId = first;
+            readOffset = 0;
+        }
+        compact();
+        pendingEntries = countPending();
+        // appends always start a fresh segment, so a torn tail from a crash is never extended
+        writeSegmentId = segments.isEmpty() ? readSegmentId - 1 : segments.lastKey();
+    }
+
+    private void readCheckpoint() {
+        readSegmentId = segments.isEmpty() ? 1 : segments.firstKey();
+        readOffset = 0;
+        File checkpoint = new File(directory, CHECKPOINT_FILE);
+        if (!checkpoint.exists()) return;
+        try {
+            String[] position = new String(Files.readAllBytes(checkpoint.toPath()), StandardCharsets.UTF_8).trim().split(" ");
+            readSegmentId = Long.parseLong(position[0]);
+            readOffset = Long.parseLong(position[1]);
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "Hygieia: Unreadable outbox checkpoint " + checkpoint + ", replaying from the oldest segment", e);
+        }
+    }
+
+    private long countPending() throws IOException {
+        long count = 0;
+        long offset = readOffset;
+        for (Long segmentId : segments.tailMap(readSegmentId).keySet()) {
+            Entry entry;
+            while ((entry = readRecord(segmentId, offset)) != null) {
+                count++;
+                offset = entry.nextOffset;
+            }
+            offset = 0;
+        }
+        return count;
+    }
+
+    private static int recordLength(byte[] pathBytes, int bodyLength) {
+        // flags, spooled at and path length
+        return 11 + pathBytes.length + bodyLength;
+    }
+
+    private void roll(int recordSize) throws IOException {
+        if (writeBuffer != null) writeBuffer.force();
+        long id = writeSegmentId + 1;
+        File file = new File(directory, String.format("%s%012d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            writeBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentSize, recordSize));
+        }
+        segments.put(id, file);
+        writeSegmentId = id;
+    }
+
+    private void compact() {
+        Iterator<Map.Entry<Long, File>> delivered = segments.headMap(readSegmentId).entrySet().iterator();
+        while (delivered.hasNext()) {
+            Map.Entry<Long, File> segment = delivered.next();
+            if (segment.getKey() == readChannelSegmentId) closeReadChannel();
+            // a segment that was mapped may not be deletable on Windows until the mapping is collected, retry next time
+            if (segment.getValue().delete() || !segment.getValue().exists()) {
+                delivered.remove();
+            }
+        }
+    }
+
+    private Entry readRecord(long segmentId, long offset) throws IOException {
+        long size = (segmentId == writeSegmentId && writeBuffer != null) ? writeBuffer.capacity() : segments.get(segmentId).length();
+        if (offset + HEADER_BYTES > size) return null;
+        ByteBuffer header = ByteBuffer.wrap(read(segmentId, offset, HEADER_BYTES));
+        int length = header.getInt();
+        int crc = header.getInt();
+        if (length <= 0 || offset + HEADER_BYTES + length > size) return null;
+        byte[] record = read(segmentId, offset + HEADER_BYTES, length);
+        CRC32 actual = new CRC32();
+        actual.update(record, 0, length);
+        if ((int) actual.getValue() != crc) {
+            logger.warning("Hygieia: Ignoring corrupt outbox record in " + segments.get(segmentId) + " at " + offset);
+            return null;
+        }
+        ByteBuffer fields = ByteBuffer.wrap(record);
+        int flags = fields.get();
+        long spooledAt = fields.getLong();
+        int pathLength = fields.getShort() & 0xffff;
+        String path = new String(record, fields.position(), pathLength, StandardCharsets.UTF_8);
+        byte[] body = Arrays.copyOfRange(record, fields.position() + pathLength, length);
+        return new Entry(path, (flags & FLAG_USE_PROXY) != 0, spooledAt, body, segmentId, offset + HEADER_BYTES + length);
+    }
+
+    private byte[] read(long segmentId, long offset, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        if (segmentId == writeSegmentId && writeBuffer != null) {
+            ByteBuffer view = writeBuffer.duplicate();
+            view.position((int) offset);
+            view.get(bytes);
+            return bytes;
+        }
+        if (segmentId != readChannelSegmentId) {
+            closeReadChannel();
+            readChannel = FileChannel.open(segments.get(segmentId).toPath(), StandardOpenOption.READ);
+            readChannelSegmentId = segmentId;
+        }
+        ByteBuffer target = ByteBuffer.wrap(bytes);
+        while (target.hasRemaining()) {
+            if (readChannel.read(target, offset + target.position()) < 0) throw new EOFException();
+        }
+        return bytes;
+    }
+
+    private void closeReadChannel() {
+        if (readChannel == null) return;
+        try {
+            readChannel.close();
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Hygieia: Unable to close outbox segment", e);
+        }
+        readChannel = null;
+        readChannelSegmentId = -1;
+    }
+
+    static final class Entry {
+        private final String path;
+        private final boolean useProxy;
+        private final long spooledAtMillis;
+        private final byte[] body;
+        private final long segmentId;
+        private final long nextOffset;
+
+        Entry(String path, boolean useProxy, long spooledAtMillis, byte[] body, long segmentId, long nextOffset) {
+            this.path = path;
+            this.useProxy = useProxy;
+            this.spooledAtMillis = spooledAtMillis;
+            this.body = body;
+            this.segmentId = segmentId;
+            this.nextOffset = nextOffset;
+        }
+
+        String getPath() {
+            return path;
+        }
+
+        boolean isUseProxy() {
+            return useProxy;
+        }
+
+        long getSpooledAtMillis() {
+            return spooledAtMillis;
+        }
+
+        byte[] getBody() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package jenkins.plugins.hygieia;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Global gzip settings for outgoing publish payloads, applied from {@link HygieiaPublisher.DescriptorImpl}.
+ * Compression is opt-in per Hygieia API endpoint, matched exactly; {@code *} enables it for every endpoint.
+ */
+public final class PayloadCompression {
+
+    public static final int DEFAULT_THRESHOLD_BYTES = 8192;
+    private static final String ALL_ENDPOINTS = "*";
+
+    private static volatile List<String> endpoints = Collections.emptyList();
+    private static volatile int thresholdBytes = DEFAULT_THRESHOLD_BYTES;
+
+    private PayloadCompression() {
+    }
+
+    /**
+     * @param gzipEndpoints comma or semicolon separated list of API endpoints that accept gzip bodies
+     * @param gzipThresholdBytes bodies smaller than this are sent uncompressed, non-positive uses the default
+     */
+    public static void configure(String gzipEndpoints, int gzipThresholdBytes) {
+        List<String> list = new ArrayList<>();
+        for (String endpoint : StringUtils.split(StringUtils.trimToEmpty(gzipEndpoints), ",;")) {
+            String normalized = normalize(endpoint);
+            if (!normalized.isEmpty()) list.add(normalized);
+        }
+        endpoints = Collections.unmodifiableList(list);
+        thresholdBytes = gzipThresholdBytes > 0 ? gzipThresholdBytes : DEFAULT_THRESHOLD_BYTES;
+    }
+
+    public static boolean isEnabledFor(String apiEndpoint) {
+        String target = normalize(apiEndpoint);
+        for (String endpoint : endpoints) {
+            if (ALL_ENDPOINTS.equals(endpoint) || target.equals(endpoint)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static int getThresholdBytes() {
+        return thresholdBytes;
+    }
+
+    /**
+     * Trims the endpoint and its trailing slash, and lower-cases its scheme and host, which are case insensitive.
+     */
+    private static String normalize(String endpoint) {
+        String trimmed = StringUtils.removeEnd(StringUtils.trimToEmpty(endpoint), "/");
+        try {
+            URI uri = new URI(trimmed);
+            if (uri.getScheme() == null || uri.getRawAuthority() == null) return trimmed;
+            return uri.getScheme().toLowerCase(Locale.ROOT) + "://" + uri.getRawAuthority().toLowerCase(Locale.ROOT)
+                    + StringUtils.defaultString(uri.getRawPath());
+        } catch (URISyntaxException e) {
+            return trimmed;
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package jenkins.plugins.hygieia;
+
+import hudson.Util;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import hygieia.utils.HygieiaUtils;
+import jenkins.model.Jenkins;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.methods.ByteArrayRequestEntity;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Durable outbox for publishes that Hygieia could not take, because of a transport error or a 5xx, 408 or 429 response.
+ * Requests are appended to a per-endpoint {@link OutboxLog} under {@code JENKINS_HOME/hygieia-outbox} and replayed in
+ * order by a background drainer, so build events survive Hygieia maintenance windows and controller restarts.
+ * Other 4xx responses are treated as permanent and the entry is dropped.
+ * <p>
+ * An entry older than the maximum age, or that failed the maximum number of replays in a row, is dropped as expired,
+ * so an endpoint that never comes back, such as a mistyped URL, cannot hold its queue or the disk forever.
+ * <p>
+ * A replay only delivers the queued request; its response is discarded. A replayed {@code /v3/build} therefore records
+ * the build, but the Sonar, generic item and artifact publishes that need the build id it returns are not sent.
+ */
+public final class PublishOutbox {
+    private static final Logger logger = Logger.getLogger(PublishOutbox.class.getName());
+
+    public static final int DEFAULT_MAX_SIZE_MB = 512;
+    public static final int DEFAULT_MAX_AGE_HOURS = 24;
+    public static final int DEFAULT_MAX_ATTEMPTS = 50;
+    static final String DIRECTORY_NAME = "hygieia-outbox";
+    private static final int SEGMENT_SIZE = 8 * 1024 * 1024;
+    private static final long DRAIN_INTERVAL_MILLIS = 5000;
+    private static final long MAX_BACKOFF_MILLIS = 5 * 60 * 1000;
+    private static final int CHECKPOINT_INTERVAL = 100;
+    private static final String CONTENT_TYPE = HygieiaUtils.APPLICATION_JSON_VALUE + "; charset=UTF-8";
+
+    private static final Sender REST_SENDER = (url, useProxy, body) ->
+            new RestCall(useProxy).makeRestCallPost(url, new ByteArrayRequestEntity(body, CONTENT_TYPE));
+
+    private static volatile PublishOutbox instance;
+
+    private final File rootDir;
+    private final int segmentSize;
+    private final Sender sender;
+    private final LongSupplier clock;
+    private final ConcurrentMap<String, EndpointState> endpoints = new ConcurrentHashMap<>();
+    private final AtomicLong spooled = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private volatile boolean accepting = true;
+    private volatile long maxBytes = DEFAULT_MAX_SIZE_MB * 1024L * 1024L;
+    private volatile long maxAgeMillis = TimeUnit.HOURS.toMillis(DEFAULT_MAX_AGE_HOURS);
+    private volatile int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private ScheduledExecutorService drainer;
+
+    interface Sender {
+        RestCall.RestCallResponse send(String url, boolean useProxy, byte[] body);
+    }
+
+    PublishOutbox(File rootDir, int segmentSize, Sender sender) {
+        this(rootDir, segmentSize, sender, System::currentTimeMillis);
+    }
+
+    PublishOutbox(File rootDir, int segmentSize, Sender sender, LongSupplier clock) {
+        this.rootDir = rootDir;
+        this.segmentSize = segmentSize;
+        this.sender = sender;
+        this.clock = clock;
+    }
+
+    /**
+     * Applies the global configuration. The outbox is started on first use, and also when disabled if entries from
+     * an earlier run are still waiting on disk, so nothing already accepted is lost.
+     */
+    public static synchronized void configure(boolean enabled, int maxSizeMb, int maxAgeHours, int maxAttempts) {
+        if (instance == null) {
+            Jenkins jenkins = Jenkins.getInstance();
+            if (jenkins == null) return;
+            File rootDir = new File(jenkins.getRootDir(), DIRECTORY_NAME);
+            if (!enabled && !rootDir.isDirectory()) return;
+            PublishOutbox outbox = new PublishOutbox(rootDir, SEGMENT_SIZE, REST_SENDER);
+            outbox.start();
+            instance = outbox;
+        }
+        instance.accepting = enabled;
+        instance.setMaxBytes((maxSizeMb > 0 ? maxSizeMb : DEFAULT_MAX_SIZE_MB) * 1024L * 1024L);
+        instance.setExpiry(TimeUnit.HOURS.toMillis(maxAgeHours > 0 ? maxAgeHours : DEFAULT_MAX_AGE_HOURS),
+                maxAttempts > 0 ? maxAttempts : DEFAULT_MAX_ATTEMPTS);
+    }
+
+    void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    void setExpiry(long maxAgeMillis, int maxAttempts) {
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * @return the running outbox, or null when it has not been enabled
+     */
+    public static PublishOutbox getInstance() {
+        return instance;
+    }
+
+    public static boolean isRetryable(RestCall.RestCallResponse response) {
+        int code = response.getResponseCode();
+        return response.isTransportFailure() || code >= HttpStatus.SC_INTERNAL_SERVER_ERROR
+                || code == HttpStatus.SC_REQUEST_TIMEOUT || code == 429;
+    }
+
+    /**
+     * Queues {@code request} for delivery to {@code hygieiaAPIUrl + path}.
+     *
+     * @return false if the outbox is disabled, full or could not write the entry
+     */
+    public boolean spool(String hygieiaAPIUrl, String path, boolean useProxy, Object request) {
+        if (!accepting) return false;
+        try {
+            EncodedPayload shared = EncodedPayload.lookup(request);
+            byte[] body = shared != null ? shared.getJson() : HygieiaUtils.convertObjectToJsonBytes(request);
+            return append(hygieiaAPIUrl, path, useProxy, body);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Hygieia: Unable to queue publish to " + hygieiaAPIUrl + path + " for retry", e);
+            return false;
+        }
+    }
+
+    boolean append(String hygieiaAPIUrl, String path, boolean useProxy, byte[] body) throws IOException {
+        OutboxLog log = state(hygieiaAPIUrl).log;
+        // a record that does not fit in the mapped segment maps a whole new one
+        if (getDiskBytes() + log.getAppendBytes(path, body.length) > maxBytes) {
+            dropped.incrementAndGet();
+            logger.warning("Hygieia: Outbox is full (" + maxBytes + " bytes), dropping publish to " + hygieiaAPIUrl + path);
+            return false;
+        }
+        log.append(path, useProxy, clock.getAsLong(), body);
+        spooled.incrementAndGet();
+        return true;
+    }
+
+    synchronized void start() {
+        recover();
+        drainer = Executors.newSingleThreadScheduledExecutor(new NamingThreadFactory(new DaemonThreadFactory(), "Hygieia outbox drainer"));
+        drainer.scheduleWithFixedDelay(this::drainQuietly, DRAIN_INTERVAL_MILLIS, DRAIN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void stop() {
+        if (drainer != null) {
+            drainer.shutdownNow();
+            drainer = null;
+        }
+        for (EndpointState state : endpoints.values()) {
+            try {
+                state.log.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Hygieia: Unable to close outbox for " + state.log.getEndpoint(), e);
+            }
+        }
+        endpoints.clear();
+    }
+
+    void recover() {
+        File[] directories = rootDir.listFiles();
+        if (directories == null) return;
+        for (File directory : directories) {
+            if (!new File(directory, OutboxLog.ENDPOINT_FILE).isFile()) continue;
+            try {
+                OutboxLog log = OutboxLog.open(directory, null, segmentSize);
+                endpoints.put(log.getEndpoint(), new EndpointState(log));
+                if (log.getPendingEntries() > 0) {
+                    logger.info("Hygieia: " + log.getPendingEntries() + " queued publishes to " + log.getEndpoint() + " will be replayed");
+                }
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Hygieia: Unable to open outbox " + directory, e);
+            }
+        }
+    }
+
+    private void drainQuietly() {
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Hygieia: Outbox replay failed", e);
+        }
+    }
+
+    /**
+     * Replays queued entries for every endpoint that is not backing off, oldest first. Delivery for an endpoint stops
+     * at its first retryable failure so later entries never overtake it, unless that entry has now expired.
+     *
+     * @return the number of entries delivered
+     */
+    int drain() {
+        int deliveredNow = 0;
+        long now = clock.getAsLong();
+        for (EndpointState state : endpoints.values()) {
+            if (state.nextAttemptMillis > now) continue;
+            try {
+                deliveredNow += drain(state);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Hygieia: Unable to read outbox for " + state.log.getEndpoint(), e);
+            }
+        }
+        return deliveredNow;
+    }
+
+    private int drain(EndpointState state) throws IOException {
+        OutboxLog log = state.log;
+        int deliveredNow = 0;
+        int sinceCheckpoint = 0;
+        try {
+            OutboxLog.Entry entry;
+            while ((entry = log.peek()) != null) {
+                String url = log.getEndpoint() + entry.getPath();
+                if (clock.getAsLong() - entry.getSpooledAtMillis() > maxAgeMillis) {
+                    expired.incrementAndGet();
+                    logger.warning("Hygieia: Dropping queued publish to " + url + ", not delivered within "
+                            + TimeUnit.MILLISECONDS.toHours(maxAgeMillis) + " hours");
+                    ack(state, entry);
+                    continue;
+                }
+                RestCall.RestCallResponse response = sender.send(url, entry.isUseProxy(), entry.getBody());
+                if (isRetryable(response)) {
+                    if (++state.attempts < maxAttempts) {
+                        state.backOff(clock.getAsLong());
+                        logger.fine("Hygieia: Replay to " + url + " failed with " + response.getResponseCode() + ", retrying later");
+                        break;
+                    }
+                    expired.incrementAndGet();
+                    logger.warning("Hygieia: Dropping queued publish to " + url + " after " + state.attempts + " failed replays");
+                    ack(state, entry);
+                    continue;
+                }
+                int code = response.getResponseCode();
+                if (code >= HttpStatus.SC_OK && code < HttpStatus.SC_MULTIPLE_CHOICES) {
+                    delivered.incrementAndGet();
+                    deliveredNow++;
+                } else {
+                    dropped.incrementAndGet();
+                    logger.warning("Hygieia: Dropping queued publish to " + url + ", rejected with response " + code);
+                }
+                ack(state, entry);
+                if (++sinceCheckpoint >= CHECKPOINT_INTERVAL) {
+                    log.checkpoint();
+                    sinceCheckpoint = 0;
+                }
+            }
+        } finally {
+            log.checkpoint();
+        }
+        return deliveredNow;
+    }
+
+    private static void ack(EndpointState state, OutboxLog.Entry entry) {
+        state.log.ack(entry);
+        state.attempts = 0;
+    }
+
+    private EndpointState state(String hygieiaAPIUrl) throws IOException {
+        EndpointState state = endpoints.get(hygieiaAPIUrl);
+        if (state != null) return state;
+        synchronized (this) {
+            state = endpoints.get(hygieiaAPIUrl);
+            if (state == null) {
+                state = new EndpointState(OutboxLog.open(new File(rootDir, Util.getDigestOf(hygieiaAPIUrl)), hygieiaAPIUrl, segmentSize));
+                endpoints.put(hygieiaAPIUrl, state);
+            }
+            return state;
+        }
+    }
+
+    public long getPendingEntries() {
+        long pending = 0;
+        for (EndpointState state : endpoints.values()) {
+            pending += state.log.getPendingEntries();
+        }
+        return pending;
+    }
+
+    public long getPendingEntries(String hygieiaAPIUrl) {
+        EndpointState state = endpoints.get(hygieiaAPIUrl);
+        return state == null ? 0 : state.log.getPendingEntries();
+    }
+
+    public long getDiskBytes() {
+        long bytes = 0;
+        for (EndpointState state : endpoints.values()) {
+            bytes += state.log.getDiskBytes();
+        }
+        return bytes;
+    }
+
+    public long getSpooled() {
+        return spooled.get();
+    }
+
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return entries dropped because they were too old or failed too many replays
+     */
+    public long getExpired() {
+        return expired.get();
+    }
+
+    int getSegmentCount(String hygieiaAPIUrl) {
+        EndpointState state = endpoints.get(hygieiaAPIUrl);
+        return state == null ? 0 : state.log.getSegmentCount();
+    }
+
+    public String toString() {
+        StringBuilder pending = new StringBuilder();
+        for (Map.Entry<String, EndpointState> endpoint : endpoints.entrySet()) {
+            pending.append(pending.length() == 0 ? "" : ", ").append(endpoint.getKey()).append('=')
+                    .append(endpoint.getValue().log.getPendingEntries());
+        }
+        return "Pending: {" + pending + "}, on disk: " + getDiskBytes() + " bytes, spooled: " + spooled.get()
+                + ", delivered: " + delivered.get() + ", dropped: " + dropped.get() + ", expired: " + expired.get();
+    }
+
+    private static class EndpointState {
+        private final OutboxLog log;
+        // failed replays of the oldest entry in a row
+        private int attempts;
+        private long nextAttemptMillis;
+
+        EndpointState(OutboxLog log) {
+            this.log = log;
+        }
+
+        void backOff(long now) {
+            long delay = Math.min(MAX_BACKOFF_MILLIS, DRAIN_INTERVAL_MILLIS << Math.min(attempts, 6));
+            nextAttemptMillis = now + delay;
+        }
+    }
+}
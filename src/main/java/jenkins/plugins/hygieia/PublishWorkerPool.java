@@ -0,0 +1,328 @@
+package jenkins.plugins.hygieia;
+
+import hudson.Extension;
+import hudson.model.listeners.ItemListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded worker pool that runs publish tasks off the run-completion thread. Tasks submitted with the same key,
+ * the job name, run one at a time in submission order; tasks for different jobs run in parallel.
+ * With no threads configured, tasks run on the caller's thread. When the pool is full, and for tasks still waiting
+ * when Jenkins shuts down, the task's hand-off runs instead, so the work can be kept somewhere durable.
+ */
+public final class PublishWorkerPool {
+    private static final Logger logger = Logger.getLogger(PublishWorkerPool.class.getName());
+
+    public static final int DEFAULT_THREADS = 4;
+    public static final int DEFAULT_QUEUE_CAPACITY = 500;
+    private static final long KEEP_ALIVE_SECONDS = 60;
+    private static final long SHUTDOWN_WAIT_SECONDS = 10;
+
+    private static final PublishWorkerPool INSTANCE = new PublishWorkerPool();
+
+    private final ThreadPoolExecutor workers;
+    // tasks waiting per key; a key stays mapped while one of its tasks runs
+    private final Map<String, Queue<Task>> queues = new HashMap<>();
+    private int queued;
+    private int capacity;
+    private boolean shutDown;
+    private volatile int threads;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong ranInline = new AtomicLong();
+    private final AtomicLong handedOff = new AtomicLong();
+    private final AtomicLong totalWaitMillis = new AtomicLong();
+    private final AtomicLong maxWaitMillis = new AtomicLong();
+    private final AtomicLong totalRunMillis = new AtomicLong();
+    private final AtomicLong maxRunMillis = new AtomicLong();
+
+    PublishWorkerPool() {
+        workers = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new NamingThreadFactory(new DaemonThreadFactory(), "Hygieia publisher"));
+        workers.allowCoreThreadTimeOut(true);
+    }
+
+    public static PublishWorkerPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Applies pool sizing from the global configuration. Zero or fewer threads publishes on the caller's thread;
+     * a non-positive capacity falls back to the default.
+     */
+    public synchronized void configure(int threads, int queueCapacity) {
+        this.threads = Math.max(0, threads);
+        this.capacity = queueCapacity > 0 ? queueCapacity : DEFAULT_QUEUE_CAPACITY;
+        if (this.threads > 0) {
+            if (this.threads > workers.getMaximumPoolSize()) {
+                workers.setMaximumPoolSize(this.threads);
+                workers.setCorePoolSize(this.threads);
+            } else {
+                workers.setCorePoolSize(this.threads);
+                workers.setMaximumPoolSize(this.threads);
+            }
+        }
+    }
+
+    /**
+     * Queues {@code task} behind any earlier task with the same key. When the pool is disabled {@code task} runs
+     * immediately on this thread; when it is full or shut down, {@code handOff} runs on this thread instead.
+     *
+     * @return true if the task was queued, false if it or its hand-off already ran on the calling thread
+     */
+    public boolean submit(String key, Runnable task, Runnable handOff) {
+        Task queuedTask = new Task(task, handOff);
+        boolean startKey;
+        boolean inline;
+        boolean stopped;
+        synchronized (this) {
+            stopped = shutDown;
+            inline = threads <= 0 && !stopped;
+            if (inline || stopped || queued >= capacity) {
+                startKey = false;
+                queuedTask = null;
+            } else {
+                Queue<Task> keyQueue = queues.get(key);
+                startKey = keyQueue == null;
+                if (startKey) {
+                    keyQueue = new ArrayDeque<>();
+                    queues.put(key, keyQueue);
+                }
+                keyQueue.add(queuedTask);
+                queued++;
+            }
+        }
+        if (inline) {
+            ranInline.incrementAndGet();
+            task.run();
+            return false;
+        }
+        if (queuedTask == null) {
+            logger.warning("Hygieia: Publish queue is " + (stopped ? "shut down" : "full (" + capacity + ")") + ", handing off publish of " + key);
+            handOff(key, handOff);
+            return false;
+        }
+        if (startKey) execute(key);
+        return true;
+    }
+
+    /**
+     * Stops taking tasks and hands off every task that has not started. Running tasks get a short while to finish.
+     */
+    public void shutdown() {
+        Map<String, List<Task>> pending = new HashMap<>();
+        synchronized (this) {
+            if (shutDown) return;
+            shutDown = true;
+            for (Map.Entry<String, Queue<Task>> entry : queues.entrySet()) {
+                pending.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+                queued -= entry.getValue().size();
+                entry.getValue().clear();
+            }
+        }
+        workers.shutdown();
+        for (Map.Entry<String, List<Task>> entry : pending.entrySet()) {
+            for (Task task : entry.getValue()) {
+                handOff(entry.getKey(), task.handOff);
+            }
+        }
+        try {
+            if (!workers.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warning("Hygieia: " + workers.getActiveCount() + " publishes were still running at shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handOff(String key, Runnable handOff) {
+        handedOff.incrementAndGet();
+        try {
+            handOff.run();
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Hygieia: Handing off publish of " + key + " failed", e);
+        }
+    }
+
+    private void execute(String key) {
+        try {
+            workers.execute(() -> runNext(key));
+        } catch (RejectedExecutionException e) {
+            // shut down in between; shutdown() hands off what is still waiting
+            synchronized (this) {
+                Queue<Task> keyQueue = queues.remove(key);
+                if (keyQueue != null) queued -= keyQueue.size();
+            }
+        }
+    }
+
+    private void runNext(String key) {
+        Task task;
+        synchronized (this) {
+            task = queues.get(key).poll();
+            if (task == null) {
+                queues.remove(key);
+                return;
+            }
+        }
+        long started = System.currentTimeMillis();
+        record(started - task.submitted, totalWaitMillis, maxWaitMillis);
+        try {
+            task.runnable.run();
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Hygieia: Publish for " + key + " failed", e);
+        } finally {
+            record(System.currentTimeMillis() - started, totalRunMillis, maxRunMillis);
+            completed.incrementAndGet();
+            boolean more;
+            synchronized (this) {
+                Queue<Task> keyQueue = queues.get(key);
+                queued--;
+                more = !keyQueue.isEmpty();
+                if (!more) queues.remove(key);
+            }
+            // requeue rather than loop so one busy job cannot hold a worker
+            if (more) execute(key);
+        }
+    }
+
+    private static void record(long millis, AtomicLong total, AtomicLong max) {
+        total.addAndGet(millis);
+        long current;
+        while (millis > (current = max.get()) && !max.compareAndSet(current, millis)) {
+            // retry until the max is updated or another thread has set a larger one
+        }
+    }
+
+    public Statistics getStatistics() {
+        int depth;
+        int capacity;
+        synchronized (this) {
+            depth = queued;
+            capacity = this.capacity;
+        }
+        return new Statistics(threads, capacity, depth, workers.getActiveCount(), completed.get(), ranInline.get(),
+                handedOff.get(), totalWaitMillis.get(), maxWaitMillis.get(), totalRunMillis.get(), maxRunMillis.get());
+    }
+
+    private static class Task {
+        private final Runnable runnable;
+        private final Runnable handOff;
+        private final long submitted = System.currentTimeMillis();
+
+        Task(Runnable runnable, Runnable handOff) {
+            this.runnable = runnable;
+            this.handOff = handOff;
+        }
+    }
+
+    @Extension
+    public static class ShutdownListener extends ItemListener {
+        @Override
+        public void onBeforeShutdown() {
+            getInstance().shutdown();
+        }
+    }
+
+    public static class Statistics {
+        private final int threads;
+        private final int queueCapacity;
+        private final int queueDepth;
+        private final int activeTasks;
+        private final long completedTasks;
+        private final long inlineTasks;
+        private final long handedOffTasks;
+        private final long averageWaitMillis;
+        private final long maxWaitMillis;
+        private final long averageRunMillis;
+        private final long maxRunMillis;
+
+        Statistics(int threads, int queueCapacity, int queueDepth, int activeTasks, long completedTasks, long inlineTasks,
+                   long handedOffTasks, long totalWaitMillis, long maxWaitMillis, long totalRunMillis, long maxRunMillis) {
+            this.threads = threads;
+            this.queueCapacity = queueCapacity;
+            this.queueDepth = queueDepth;
+            this.activeTasks = activeTasks;
+            this.completedTasks = completedTasks;
+            this.inlineTasks = inlineTasks;
+            this.handedOffTasks = handedOffTasks;
+            this.averageWaitMillis = completedTasks == 0 ? 0 : totalWaitMillis / completedTasks;
+            this.maxWaitMillis = maxWaitMillis;
+            this.averageRunMillis = completedTasks == 0 ? 0 : totalRunMillis / completedTasks;
+            this.maxRunMillis = maxRunMillis;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        /**
+         * @return tasks waiting or running, including the running ones
+         */
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public int getActiveTasks() {
+            return activeTasks;
+        }
+
+        public long getCompletedTasks() {
+            return completedTasks;
+        }
+
+        public long getInlineTasks() {
+            return inlineTasks;
+        }
+
+        /**
+         * @return tasks handed off instead of run, because the queue was full or Jenkins was shutting down
+         */
+        public long getHandedOffTasks() {
+            return handedOffTasks;
+        }
+
+        public long getAverageWaitMillis() {
+            return averageWaitMillis;
+        }
+
+        public long getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        public long getAverageRunMillis() {
+            return averageRunMillis;
+        }
+
+        public long getMaxRunMillis() {
+            return maxRunMillis;
+        }
+
+        public String toString() {
+            return "Threads: " + threads + ", queue depth: " + queueDepth + "/" + queueCapacity
+                    + ", active: " + activeTasks + ", completed: " + completedTasks + ", ran inline: " + inlineTasks
+                    + ", handed off: " + handedOffTasks
+                    + ", wait avg/max: " + averageWaitMillis + "/" + maxWaitMillis + "ms"
+                    + ", run avg/max: " + averageRunMillis + "/" + maxRunMillis + "ms";
+        }
+    }
+}
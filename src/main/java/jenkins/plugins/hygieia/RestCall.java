@@ -1,25 +1,30 @@
 package jenkins.plugins.hygieia;
 
-import hudson.ProxyConfiguration;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import hygieia.utils.WildCardURL;
-import jenkins.model.Jenkins;
 import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.HttpException;
+import org.apache.commons.httpclient.HttpMethod;
 import org.apache.commons.httpclient.HttpStatus;
-import org.apache.commons.httpclient.UsernamePasswordCredentials;
-import org.apache.commons.httpclient.auth.AuthScope;
 import org.apache.commons.httpclient.methods.GetMethod;
 import org.apache.commons.httpclient.methods.PostMethod;
+import org.apache.commons.httpclient.methods.RequestEntity;
 import org.apache.commons.httpclient.methods.StringRequestEntity;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.http.HttpHeaders;
 import org.jasypt.contrib.org.apache.commons.codec_1_3.binary.Base64;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -28,6 +33,9 @@ import java.util.regex.Pattern;
 public class RestCall {
     private static final Logger logger = Logger.getLogger(RestCall.class.getName());
 
+    // servers that answered a chunked post with 411 Length Required
+    private static final Set<String> LENGTH_REQUIRED_SERVERS = ConcurrentHashMap.newKeySet();
+
     private boolean useProxy;
 
     public RestCall(boolean useProxy) {
@@ -37,21 +45,11 @@ public class RestCall {
 //Fixme: Need refactoring to remove code duplication.
 
     protected HttpClient getHttpClient() {
-        HttpClient client = new HttpClient();
-        if (Jenkins.getInstance() != null) {
-            ProxyConfiguration proxy = Jenkins.getInstance().proxy;
-            if (useProxy && (proxy != null)){
-                client.getHostConfiguration().setProxy(proxy.name, proxy.port);
-                String username = proxy.getUserName();
-                String password = proxy.getPassword();
-                if (!StringUtils.isEmpty(username.trim()) && !StringUtils.isEmpty(password.trim())) {
-                    logger.info("Using proxy authentication (user=" + username + ")");
-                    client.getState().setProxyCredentials(AuthScope.ANY,
-                            new UsernamePasswordCredentials(username.trim(), password.trim()));
-                }
-            }
-        }
-        return client;
+        return HttpClientPool.getInstance().getHttpClient(useProxy);
+    }
+
+    private int executeMethod(HttpClient client, HttpMethod method) throws IOException {
+        return HttpClientPool.getInstance().execute(client, method);
     }
 
     public RestCallResponse makeRestCallGet(String url, String jenkinsUser, String token) {
@@ -63,7 +61,7 @@ public class RestCall {
             if (!StringUtils.isEmpty(jenkinsUser) && !StringUtils.isEmpty(token)) {
                 get.setRequestHeader(HttpHeaders.AUTHORIZATION, getAuthHeader(jenkinsUser + ':' + token));
             }
-            int responseCode = client.executeMethod(get);
+            int responseCode = executeMethod(client, get);
             String responseString = getResponseString(get.getResponseBodyAsStream());
             response = new RestCallResponse(responseCode, responseString);
         } catch (IOException e) {
@@ -91,21 +89,66 @@ public class RestCall {
     }
 
     public RestCallResponse makeRestCallPost(String url, String jsonString) {
+        try {
+            return makeRestCallPost(url, new StringRequestEntity(jsonString, "application/json", "UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            logger.log(Level.SEVERE, "Hygieia: Error posting to Hygieia", e);
+            return new RestCallResponse(HttpStatus.SC_BAD_REQUEST, "");
+        }
+    }
+
+    /**
+     * Posts {@code requestEntity}. A chunked {@link JsonRequestEntity} that the server refuses with 411 Length Required
+     * is sent again from memory with its length, and so are later chunked posts to the same server.
+     * A payload that fails to serialize is not a transport failure; as before streaming, it is logged and answered
+     * with 204 No Content.
+     */
+    public RestCallResponse makeRestCallPost(String url, RequestEntity requestEntity) {
+        try {
+            RequestEntity entity = requestEntity;
+            boolean streamed = entity instanceof JsonRequestEntity;
+            if (streamed && LENGTH_REQUIRED_SERVERS.contains(server(url))) {
+                entity = ((JsonRequestEntity) entity).toBuffered();
+                streamed = false;
+            }
+            RestCallResponse response = post(url, entity);
+            if (streamed && response.getResponseCode() == HttpStatus.SC_LENGTH_REQUIRED) {
+                logger.info("Hygieia: " + server(url) + " does not accept chunked requests, sending them with a length");
+                LENGTH_REQUIRED_SERVERS.add(server(url));
+                response = post(url, ((JsonRequestEntity) entity).toBuffered());
+            }
+            return response;
+        } catch (IOException e) {
+            // only serialization into memory can fail here
+            logger.log(Level.SEVERE, "Hygieia: Error posting to Hygieia", e);
+            return new RestCallResponse(HttpStatus.SC_NO_CONTENT, "");
+        }
+    }
+
+    private RestCallResponse post(String url, RequestEntity requestEntity) {
         RestCallResponse response;
         HttpClient client = getHttpClient();
 
         PostMethod post = new PostMethod(url);
 
         try {
-            StringRequestEntity requestEntity = new StringRequestEntity(
-                    jsonString,
-                    "application/json",
-                    "UTF-8");
             post.setRequestEntity(requestEntity);
-            int responseCode = client.executeMethod(post);
+            if (requestEntity instanceof CompressedRequestEntity && ((CompressedRequestEntity) requestEntity).isGzip()) {
+                post.setRequestHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            int responseCode = executeMethod(client, post);
             String responseString = getResponseString(post.getResponseBodyAsStream());
             response = new RestCallResponse(responseCode, responseString);
-        } catch (Exception e) {
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Hygieia: Error posting to Hygieia", e);
+            if (ExceptionUtils.indexOfType(e, JsonProcessingException.class) >= 0) {
+                // a streamed entity failed to serialize while it was being written
+                response = new RestCallResponse(HttpStatus.SC_NO_CONTENT, "");
+            } else {
+                response = new RestCallResponse(HttpStatus.SC_BAD_REQUEST, "", true);
+            }
+        } catch (RuntimeException e) {
+            // e.g. a malformed URL; sending it again would fail the same way
             logger.log(Level.SEVERE, "Hygieia: Error posting to Hygieia", e);
             response = new RestCallResponse(HttpStatus.SC_BAD_REQUEST, "");
         } finally {
@@ -114,13 +157,22 @@ public class RestCall {
         return response;
     }
 
+    private static String server(String url) {
+        try {
+            URI uri = new URI(url);
+            return uri.getScheme() + "://" + uri.getAuthority();
+        } catch (URISyntaxException e) {
+            return url;
+        }
+    }
+
     public RestCallResponse makeRestCallGet(String url) {
         RestCallResponse response;
         HttpClient client = getHttpClient();
         GetMethod get = new GetMethod(url);
         try {
             get.getParams().setContentCharset("UTF-8");
-            int responseCode = client.executeMethod(get);
+            int responseCode = executeMethod(client, get);
             String responseString = getResponseString(get.getResponseBodyAsStream());
             response = new RestCallResponse(responseCode, responseString);
         } catch (HttpException e) {
@@ -148,10 +200,21 @@ public class RestCall {
     public class RestCallResponse {
         private int responseCode;
         private String responseString;
+        private boolean transportFailure;
+        private Object json;
 
         public RestCallResponse(int responseCode, String responseString) {
+            this(responseCode, responseString, false);
+        }
+
+        /**
+         * @param transportFailure true when the request failed with an I/O error before it got an HTTP response, e.g.
+         *                         connection refused or timed out
+         */
+        public RestCallResponse(int responseCode, String responseString, boolean transportFailure) {
             this.responseCode = responseCode;
             this.responseString = responseString;
+            this.transportFailure = transportFailure;
         }
 
         public int getResponseCode() {
@@ -169,6 +232,21 @@ public class RestCall {
         public void setResponseString(String responseString) {
             this.responseString = responseString;
         }
+
+        public boolean isTransportFailure() {
+            return transportFailure;
+        }
+
+        /**
+         * @return the response body already parsed by json-simple, or null if it has not been parsed
+         */
+        public Object getJson() {
+            return json;
+        }
+
+        public void setJson(Object json) {
+            this.json = json;
+        }
     }
 
 }
\ No newline at end of file
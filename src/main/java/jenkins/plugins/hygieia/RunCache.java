@@ -0,0 +1,71 @@
+package jenkins.plugins.hygieia;
+
+import hudson.model.Run;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Values this plugin works out from a run and reuses while publishing it, such as its log matches, commit list or
+ * context snapshot, one value per type.
+ * <p>
+ * They are held in memory against the run object, weakly so they go away with it, and are never written to the build
+ * record. {@link HygieiaGlobalListener} drops them when the run is finalized.
+ */
+final class RunCache {
+    // keyed by identity, runs do not override equals; guarded by itself
+    private static final Map<Run<?, ?>, ConcurrentMap<Class<?>, Object>> VALUES = new WeakHashMap<>();
+
+    private RunCache() {
+    }
+
+    /**
+     * @return the value of {@code type} kept for {@code run}, or null if there is none
+     */
+    static <T> T get(Run<?, ?> run, Class<T> type) {
+        Map<Class<?>, Object> values;
+        synchronized (VALUES) {
+            values = VALUES.get(run);
+        }
+        return values == null ? null : type.cast(values.get(type));
+    }
+
+    /**
+     * @return the value of {@code type} kept for {@code run}, created by {@code factory} if there is none
+     */
+    static <T> T get(Run<?, ?> run, Class<T> type, Supplier<? extends T> factory) {
+        return type.cast(values(run).computeIfAbsent(type, key -> factory.get()));
+    }
+
+    /**
+     * Keeps {@code value} for {@code run} unless it already has a value of {@code type}.
+     *
+     * @return the value that was already kept, or null if {@code value} was kept
+     */
+    static <T> T putIfAbsent(Run<?, ?> run, Class<T> type, T value) {
+        return type.cast(values(run).putIfAbsent(type, value));
+    }
+
+    /**
+     * Drops every value kept for {@code run}.
+     */
+    static void clear(Run<?, ?> run) {
+        synchronized (VALUES) {
+            VALUES.remove(run);
+        }
+    }
+
+    private static ConcurrentMap<Class<?>, Object> values(Run<?, ?> run) {
+        synchronized (VALUES) {
+            ConcurrentMap<Class<?>, Object> values = VALUES.get(run);
+            if (values == null) {
+                values = new ConcurrentHashMap<>();
+                VALUES.put(run, values);
+            }
+            return values;
+        }
+    }
+}
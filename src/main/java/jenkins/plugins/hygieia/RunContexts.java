@@ -0,0 +1,47 @@
+package jenkins.plugins.hygieia;
+
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hygieia.utils.RunContext;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+
+/**
+ * Keeps the {@link RunContext} of a run in the {@link RunCache}, so that the requests published for it share one
+ * snapshot.
+ * <p>
+ * A snapshot is taken again when the run's environment may have changed: when an action that can contribute to it
+ * was added, when the run finished, and, for a pipeline that is still running, in every step, since the pipeline can
+ * change its environment in place between steps. A step is recognized by its listener.
+ */
+public class RunContexts {
+    private volatile Snapshot snapshot;
+
+    public static RunContext get(Run<?, ?> run, TaskListener listener) {
+        RunContexts cached = RunCache.get(run, RunContexts.class, RunContexts::new);
+        Snapshot current = cached.snapshot;
+        if (current == null || !current.isValidFor(run, listener)) {
+            current = new Snapshot(new RunContext(run, listener), run, listener);
+            cached.snapshot = current;
+        }
+        return current.context;
+    }
+
+    private static final class Snapshot {
+        private final RunContext context;
+        private final int actionCount;
+        private final boolean building;
+        private final TaskListener listener;
+
+        Snapshot(RunContext context, Run<?, ?> run, TaskListener listener) {
+            this.context = context;
+            this.actionCount = run.getActions().size();
+            this.building = run.isBuilding();
+            this.listener = listener;
+        }
+
+        boolean isValidFor(Run<?, ?> run, TaskListener listener) {
+            if (building != run.isBuilding() || actionCount != run.getActions().size()) return false;
+            return !(building && run instanceof WorkflowRun) || this.listener == listener;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package jenkins.plugins.hygieia;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the per-stage Jenkins API lookups of a pipeline run concurrently, at most {@code parallelism} at a time per run.
+ * Each task fills in its own stage, so the stage list keeps its order. The calling thread takes part in the work, and
+ * when the shared pool is busy it does all of it, as the lookups did before.
+ */
+public final class StageFetcher {
+
+    public static final int DEFAULT_PARALLELISM = 8;
+    private static final int MAX_THREADS = 64;
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(0, MAX_THREADS, KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS, new SynchronousQueue<>(), new NamingThreadFactory(new DaemonThreadFactory(), "Hygieia stage fetcher"),
+            new ThreadPoolExecutor.AbortPolicy());
+
+    private static volatile int parallelism = DEFAULT_PARALLELISM;
+
+    private StageFetcher() {
+    }
+
+    /**
+     * Sets the per-run parallelism from the global configuration. Non-positive values fall back to the default.
+     */
+    public static void configure(int parallelism) {
+        StageFetcher.parallelism = parallelism > 0 ? parallelism : DEFAULT_PARALLELISM;
+    }
+
+    public interface StageTask<T> {
+        void fetch(T stage) throws Exception;
+    }
+
+    /**
+     * Runs {@code task} for every stage and waits for all of them. After the first failure no further stages are
+     * started, and that failure is rethrown once the running tasks have finished.
+     */
+    public static <T> void forEach(List<T> stages, StageTask<T> task) throws Exception {
+        forEach(stages, task, parallelism);
+    }
+
+    static <T> void forEach(List<T> stages, final StageTask<T> task, int parallelism) throws Exception {
+        int workers = Math.min(parallelism, stages.size());
+        if (workers <= 1) {
+            for (T stage : stages) {
+                task.fetch(stage);
+            }
+            return;
+        }
+
+        // the stage list is usually a LinkedList, copy it so workers can index into it
+        final List<T> pending = new ArrayList<>(stages);
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        Runnable worker = () -> {
+            int index;
+            while (failure.get() == null && (index = next.getAndIncrement()) < pending.size()) {
+                try {
+                    task.fetch(pending.get(index));
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        };
+
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 1; i < workers; i++) {
+                futures.add(EXECUTOR.submit(worker));
+            }
+        } catch (RejectedExecutionException e) {
+            // pool is saturated by other runs, the caller works through the rest on its own
+        }
+        worker.run();
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, e);
+                for (Future<?> remaining : futures) {
+                    remaining.cancel(true);
+                }
+                break;
+            } catch (ExecutionException e) {
+                failure.compareAndSet(null, e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+            }
+        }
+        if (failure.get() != null) throw failure.get();
+    }
+}
@@ -0,0 +1,43 @@
+package jenkins.plugins.hygieia;
+
+import hudson.FilePath;
+import hudson.model.Run;
+import hygieia.utils.WorkspaceFileFinder;
+import hygieia.utils.WorkspaceFileIndex;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the {@link WorkspaceFileIndex} of each directory and pattern a run's Hygieia builders and steps searched, so
+ * that the artifact, deploy and test publishers of one run repeat a search without walking the directory again.
+ * <p>
+ * The indexes are kept in the {@link RunCache} and checked against the workspace before each use.
+ */
+public class WorkspaceIndex {
+    private final Map<String, WorkspaceFileIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * @return the files and directories below {@code rootDirectory} matching {@code pattern}, from the run's index of
+     * the search when it is still current
+     */
+    public static List<WorkspaceFileFinder.FoundFile> find(Run<?, ?> run, FilePath rootDirectory, String pattern) throws IOException, InterruptedException {
+        Map<String, WorkspaceFileIndex> indexes = RunCache.get(run, WorkspaceIndex.class, WorkspaceIndex::new).indexes;
+        String key = key(rootDirectory) + "\n" + pattern;
+        WorkspaceFileIndex index = indexes.get(key);
+        if (index == null || !index.isCurrent(rootDirectory)) {
+            index = WorkspaceFileIndex.build(rootDirectory, pattern);
+            indexes.put(key, index);
+        }
+        return index.getMatches();
+    }
+
+    /**
+     * Directories on different agents can have the same path.
+     */
+    private static String key(FilePath rootDirectory) {
+        return rootDirectory.getChannel() + "\n" + rootDirectory.getRemote();
+    }
+}
@@ -1,5 +1,6 @@
 package jenkins.plugins.hygieia.workflow;
 
+import com.capitalone.dashboard.request.BuildDataCreateRequest;
 import com.capitalone.dashboard.model.BuildStage;
 import com.capitalone.dashboard.model.BuildStatus;
 import com.capitalone.dashboard.request.BinaryArtifactCreateRequest;
@@ -10,12 +11,14 @@ import hudson.model.TaskListener;
 import hudson.util.FormValidation;
 import hygieia.builder.ArtifactBuilder;
 import hygieia.builder.BuildBuilder;
-import hygieia.utils.HygieiaUtils;
 import jenkins.model.Jenkins;
 import jenkins.plugins.hygieia.DefaultHygieiaService;
+import jenkins.plugins.hygieia.EncodedPayload;
+import jenkins.plugins.hygieia.EndpointFanOut;
 import jenkins.plugins.hygieia.HygieiaPublisher;
 import jenkins.plugins.hygieia.HygieiaResponse;
 import jenkins.plugins.hygieia.HygieiaService;
+import jenkins.plugins.hygieia.RunContexts;
 import org.apache.commons.httpclient.HttpStatus;
 import org.jenkinsci.plugins.workflow.steps.AbstractStepDescriptorImpl;
 import org.jenkinsci.plugins.workflow.steps.AbstractStepImpl;
@@ -27,7 +30,7 @@ import org.kohsuke.stapler.QueryParameter;
 
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
@@ -38,6 +41,7 @@ public class HygieiaArtifactPublishStep extends AbstractStepImpl {
 	private String artifactDirectory;
 	private String artifactGroup;
 	private String artifactVersion;
+	private boolean useArchivedArtifacts;
 
 	public String getArtifactName() {
 		return artifactName;
@@ -75,6 +79,15 @@ public class HygieiaArtifactPublishStep extends AbstractStepImpl {
 		this.artifactVersion = artifactVersion;
 	}
 
+	public boolean isUseArchivedArtifacts() {
+		return useArchivedArtifacts;
+	}
+
+	@DataBoundSetter
+	public void setUseArchivedArtifacts(boolean useArchivedArtifacts) {
+		this.useArchivedArtifacts = useArchivedArtifacts;
+	}
+
 	@DataBoundConstructor
 	public HygieiaArtifactPublishStep(@Nonnull String artifactName, @Nonnull String artifactDirectory,
 			@Nonnull String artifactGroup, String artifactVersion) {
@@ -143,15 +156,16 @@ public class HygieiaArtifactPublishStep extends AbstractStepImpl {
 
 			HygieiaPublisher.DescriptorImpl hygieiaDesc = jenkins
 					.getDescriptorByType(HygieiaPublisher.DescriptorImpl.class);
-			String[] hygieiaAPIUrls = hygieiaDesc.getHygieiaAPIUrl().split(";");
-			List<Integer> responseCodes = new ArrayList<>();
-			for (String hygieiaAPIUrl : hygieiaAPIUrls) {
+			List<String> hygieiaAPIUrls = Arrays.asList(hygieiaDesc.getHygieiaAPIUrl().split(";"));
+			String startedBy = RunContexts.get(run, listener).getStartedBy();
+			BuildDataCreateRequest buildRequest = new BuildBuilder().createBuildRequestFromRun(this.run, hygieiaDesc.getHygieiaJenkinsName(),
+					this.listener, BuildStatus.Success, true, new LinkedList<BuildStage>(), startedBy);
+			EncodedPayload.shareAcross(buildRequest, hygieiaAPIUrls);
+			List<EndpointFanOut.Result<Integer>> results = EndpointFanOut.publish(hygieiaAPIUrls, (hygieiaAPIUrl, index) -> {
 				this.listener.getLogger().println("Publishing data for API " + hygieiaAPIUrl);
 				HygieiaService hygieiaService = getHygieiaService(hygieiaAPIUrl, hygieiaDesc.getHygieiaToken(),
 						hygieiaDesc.getHygieiaJenkinsName(), hygieiaDesc.isUseProxy());
-				String startedBy = HygieiaUtils.getUserID(run, listener);
-				HygieiaResponse buildResponse = hygieiaService.publishBuildData(new BuildBuilder().createBuildRequestFromRun(this.run, hygieiaDesc.getHygieiaJenkinsName(),
-						this.listener, BuildStatus.Success, true, new LinkedList<BuildStage>(), startedBy));
+				HygieiaResponse buildResponse = hygieiaService.publishBuildData(buildRequest);
 
 				if (buildResponse.getResponseCode() == HttpStatus.SC_CREATED) {
 					listener.getLogger().println(
@@ -178,9 +192,9 @@ public class HygieiaArtifactPublishStep extends AbstractStepImpl {
 										+ ", Group=" + bac.getArtifactGroup() + ". " + artifactResponse.toString());
 					}
 				}
-				responseCodes.add(Integer.valueOf(buildResponse.getResponseCode()));
-			}
-			return responseCodes;
+				return buildResponse.getResponseCode();
+			});
+			return EndpointFanOut.getResponseCodes(results, listener);
 		}
 
 		// streamline unit testing
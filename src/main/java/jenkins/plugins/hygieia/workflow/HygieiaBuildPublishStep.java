@@ -1,5 +1,6 @@
 package jenkins.plugins.hygieia.workflow;
 
+import com.capitalone.dashboard.request.BuildDataCreateRequest;
 import com.capitalone.dashboard.model.BuildStage;
 import com.capitalone.dashboard.model.BuildStatus;
 import hudson.Extension;
@@ -7,12 +8,14 @@ import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.util.ListBoxModel;
 import hygieia.builder.BuildBuilder;
-import hygieia.utils.HygieiaUtils;
 import jenkins.model.Jenkins;
 import jenkins.plugins.hygieia.DefaultHygieiaService;
+import jenkins.plugins.hygieia.EncodedPayload;
+import jenkins.plugins.hygieia.EndpointFanOut;
 import jenkins.plugins.hygieia.HygieiaPublisher;
 import jenkins.plugins.hygieia.HygieiaResponse;
 import jenkins.plugins.hygieia.HygieiaService;
+import jenkins.plugins.hygieia.RunContexts;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.httpclient.HttpStatus;
 import org.jenkinsci.plugins.workflow.steps.AbstractStepDescriptorImpl;
@@ -25,6 +28,7 @@ import org.kohsuke.stapler.DataBoundSetter;
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -112,27 +116,27 @@ public class HygieiaBuildPublishStep extends AbstractStepImpl {
 
 			if(skipPublish) { return new ArrayList<>();}
 
-			String[] hygieiaAPIUrls = hygieiaDesc.getHygieiaAPIUrl().split(";");
-			List<Integer> responseCodes = new ArrayList<>();
-			for (String hygieiaAPIUrl : hygieiaAPIUrls) {
+			List<String> hygieiaAPIUrls = Arrays.asList(hygieiaDesc.getHygieiaAPIUrl().split(";"));
+			String startedBy = RunContexts.get(run, listener).getStartedBy();
+			BuildDataCreateRequest buildRequest = new BuildBuilder().createBuildRequestFromRun(run,
+					hygieiaDesc.getHygieiaJenkinsName(), listener,
+					BuildStatus.fromString(step.buildStatus), true,
+					new LinkedList<BuildStage>(), startedBy);
+			EncodedPayload.shareAcross(buildRequest, hygieiaAPIUrls);
+			List<EndpointFanOut.Result<Integer>> results = EndpointFanOut.publish(hygieiaAPIUrls, (hygieiaAPIUrl, index) -> {
 				this.listener.getLogger().println("Publishing data for API " + hygieiaAPIUrl);
 				HygieiaService hygieiaService = getHygieiaService(hygieiaAPIUrl, hygieiaDesc.getHygieiaToken(),
 						hygieiaDesc.getHygieiaJenkinsName(), hygieiaDesc.isUseProxy());
-				String startedBy = HygieiaUtils.getUserID(run, listener);
-				HygieiaResponse buildResponse = hygieiaService.publishBuildData(
-						new BuildBuilder().createBuildRequestFromRun(run,
-								hygieiaDesc.getHygieiaJenkinsName(), listener,
-								BuildStatus.fromString(step.buildStatus), true,
-								new LinkedList<BuildStage>(), startedBy));
+				HygieiaResponse buildResponse = hygieiaService.publishBuildData(buildRequest);
 				if (buildResponse.getResponseCode() == HttpStatus.SC_CREATED) {
 					listener.getLogger().println("Hygieia: Published Build Complete Data. " + buildResponse.toString());
 				} else {
 					listener.getLogger()
 							.println("Hygieia: Failed Publishing Build Complete Data. " + buildResponse.toString());
 				}
-				responseCodes.add(Integer.valueOf(buildResponse.getResponseCode()));
-			}
-			return responseCodes;
+				return buildResponse.getResponseCode();
+			});
+			return EndpointFanOut.getResponseCodes(results, listener);
 		}
 		
 		// streamline unit testing
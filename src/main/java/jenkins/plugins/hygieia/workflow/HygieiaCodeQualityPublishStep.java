@@ -17,12 +17,12 @@ import hudson.FilePath;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hygieia.builder.BuildBuilder;
-import hygieia.utils.HygieiaUtils;
 import jenkins.model.Jenkins;
 import jenkins.plugins.hygieia.DefaultHygieiaService;
 import jenkins.plugins.hygieia.HygieiaPublisher;
 import jenkins.plugins.hygieia.HygieiaResponse;
 import jenkins.plugins.hygieia.HygieiaService;
+import jenkins.plugins.hygieia.RunContexts;
 import jenkins.plugins.hygieia.utils.CodeQualityMetricsConverter;
 import org.apache.commons.httpclient.HttpStatus;
 import org.jenkinsci.plugins.workflow.steps.AbstractStepDescriptorImpl;
@@ -169,7 +169,7 @@ public class HygieiaCodeQualityPublishStep extends AbstractStepImpl {
         @Override
         protected Void run() throws Exception {
             HygieiaService service = step.getService();
-            String startedBy = HygieiaUtils.getUserID(run, listener);
+            String startedBy = RunContexts.get(run, listener).getStartedBy();
             HygieiaResponse buildResponse = service.publishBuildData(new BuildBuilder()
                     .createBuildRequestFromRun(run, step.getHygieiaDesc().getHygieiaJenkinsName(),
                             listener, BuildStatus.Success, false, new LinkedList<BuildStage>(), startedBy));
@@ -1,5 +1,6 @@
 package jenkins.plugins.hygieia.workflow;
 
+import com.capitalone.dashboard.request.BuildDataCreateRequest;
 import com.capitalone.dashboard.model.BuildStage;
 import com.capitalone.dashboard.model.BuildStatus;
 import com.capitalone.dashboard.request.DeployDataCreateRequest;
@@ -11,12 +12,14 @@ import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
 import hygieia.builder.BuildBuilder;
 import hygieia.builder.DeployBuilder;
-import hygieia.utils.HygieiaUtils;
 import jenkins.model.Jenkins;
 import jenkins.plugins.hygieia.DefaultHygieiaService;
+import jenkins.plugins.hygieia.EncodedPayload;
+import jenkins.plugins.hygieia.EndpointFanOut;
 import jenkins.plugins.hygieia.HygieiaPublisher;
 import jenkins.plugins.hygieia.HygieiaResponse;
 import jenkins.plugins.hygieia.HygieiaService;
+import jenkins.plugins.hygieia.RunContexts;
 import org.apache.commons.httpclient.HttpStatus;
 import org.jenkinsci.plugins.workflow.steps.AbstractStepDescriptorImpl;
 import org.jenkinsci.plugins.workflow.steps.AbstractStepImpl;
@@ -27,7 +30,7 @@ import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 
 import javax.inject.Inject;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
@@ -192,16 +195,17 @@ public class HygieiaDeployPublishStep extends AbstractStepImpl {
 
 			HygieiaPublisher.DescriptorImpl hygieiaDesc = jenkins
 					.getDescriptorByType(HygieiaPublisher.DescriptorImpl.class);
-			List<Integer> responseCodes = new ArrayList<Integer>();
-			String[] hygieiaAPIUrls = hygieiaDesc.getHygieiaAPIUrl().split(";");
-			for (String hygieiaAPIUrl : hygieiaAPIUrls) {
+			List<String> hygieiaAPIUrls = Arrays.asList(hygieiaDesc.getHygieiaAPIUrl().split(";"));
+			String startedBy = RunContexts.get(run, listener).getStartedBy();
+			BuildDataCreateRequest buildRequest = new BuildBuilder().createBuildRequestFromRun(run, hygieiaDesc.getHygieiaJenkinsName(), listener,
+					BuildStatus.Success, true, new LinkedList<BuildStage>(), startedBy);
+			EncodedPayload.shareAcross(buildRequest, hygieiaAPIUrls);
+			List<EndpointFanOut.Result<Integer>> results = EndpointFanOut.publish(hygieiaAPIUrls, (hygieiaAPIUrl, index) -> {
 				this.listener.getLogger().println("Publishing data for API " + hygieiaAPIUrl);
-				HygieiaService hygieiaService = getHygieiaService(hygieiaDesc.getHygieiaAPIUrl(),
+				HygieiaService hygieiaService = getHygieiaService(hygieiaAPIUrl,
 						hygieiaDesc.getHygieiaToken(), hygieiaDesc.getHygieiaJenkinsName(), hygieiaDesc.isUseProxy());
 
-				String startedBy = HygieiaUtils.getUserID(run, listener);
-				HygieiaResponse buildResponse = hygieiaService.publishBuildData(new BuildBuilder().createBuildRequestFromRun(run, hygieiaDesc.getHygieiaJenkinsName(), listener,
-						BuildStatus.Success, true, new LinkedList<BuildStage>(), startedBy));
+				HygieiaResponse buildResponse = hygieiaService.publishBuildData(buildRequest);
 
 				if (buildResponse.getResponseCode() == HttpStatus.SC_CREATED) {
 					listener.getLogger().println(
@@ -224,9 +228,9 @@ public class HygieiaDeployPublishStep extends AbstractStepImpl {
 								.println("Hygieia: Failed Publishing Deploy Data:" + deployResponse.toString());
 					}
 				}
-				responseCodes.add(Integer.valueOf(buildResponse.getResponseCode()));
-			}
-			return responseCodes;
+				return buildResponse.getResponseCode();
+			});
+			return EndpointFanOut.getResponseCodes(results, listener);
 		}
 
 		// streamline unit testing
@@ -8,12 +8,12 @@ import hudson.model.Run;
 import hudson.model.TaskListener;
 import hygieia.builder.BuildBuilder;
 import hygieia.builder.SonarBuilder;
-import hygieia.utils.HygieiaUtils;
 import jenkins.model.Jenkins;
 import jenkins.plugins.hygieia.DefaultHygieiaService;
 import jenkins.plugins.hygieia.HygieiaPublisher;
 import jenkins.plugins.hygieia.HygieiaResponse;
 import jenkins.plugins.hygieia.HygieiaService;
+import jenkins.plugins.hygieia.RunContexts;
 import org.apache.commons.httpclient.HttpStatus;
 import org.jenkinsci.plugins.workflow.steps.AbstractStepDescriptorImpl;
 import org.jenkinsci.plugins.workflow.steps.AbstractStepImpl;
@@ -112,7 +112,7 @@ public class HygieiaSonarPublishStep extends AbstractStepImpl {
             HygieiaService hygieiaService = getHygieiaService(hygieiaDesc.getHygieiaAPIUrl(), hygieiaDesc.getHygieiaToken(),
                     hygieiaDesc.getHygieiaJenkinsName(), hygieiaDesc.isUseProxy());
 
-            String startedBy = HygieiaUtils.getUserID(run, listener);
+            String startedBy = RunContexts.get(run, listener).getStartedBy();
             HygieiaResponse buildResponse = hygieiaService.publishBuildData(new BuildBuilder()
                     .createBuildRequestFromRun(run, hygieiaDesc.getHygieiaJenkinsName(),
                             listener, BuildStatus.Success, false, new LinkedList<BuildStage>(), startedBy));
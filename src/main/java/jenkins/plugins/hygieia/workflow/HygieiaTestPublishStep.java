@@ -3,11 +3,7 @@ package jenkins.plugins.hygieia.workflow;
 import com.capitalone.dashboard.model.BuildStage;
 import com.capitalone.dashboard.model.BuildStatus;
 import com.capitalone.dashboard.model.TestSuiteType;
-import com.capitalone.dashboard.model.quality.QualityVisitee;
 import com.capitalone.dashboard.request.TestDataCreateRequest;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.model.Run;
@@ -17,13 +13,14 @@ import hudson.util.ListBoxModel;
 import hygieia.builder.BuildBuilder;
 import hygieia.builder.FunctionalTestBuilder;
 import hygieia.transformer.HygieiaConstants;
-import hygieia.transformer.QualityVisiteeDeserializer;
 import hygieia.utils.HygieiaUtils;
 import jenkins.model.Jenkins;
 import jenkins.plugins.hygieia.DefaultHygieiaService;
 import jenkins.plugins.hygieia.HygieiaPublisher;
 import jenkins.plugins.hygieia.HygieiaResponse;
 import jenkins.plugins.hygieia.HygieiaService;
+import jenkins.plugins.hygieia.JsonMappers;
+import jenkins.plugins.hygieia.RunContexts;
 import org.apache.commons.httpclient.HttpStatus;
 import org.jenkinsci.plugins.workflow.steps.AbstractStepDescriptorImpl;
 import org.jenkinsci.plugins.workflow.steps.AbstractStepImpl;
@@ -177,13 +174,6 @@ public class HygieiaTestPublishStep extends AbstractStepImpl {
         @Override
         protected Integer run() {
 
-            //setup the object mapper so auto choose between the supported types
-            ObjectMapper objectMapper = new ObjectMapper();
-            objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-            SimpleModule module = new SimpleModule();
-            module.addDeserializer(QualityVisitee.class, new QualityVisiteeDeserializer());
-            objectMapper.registerModule(module);
-
             //default to global config values if not set in step, but allow step to override all global settings
 
             Jenkins jenkins;
@@ -197,7 +187,7 @@ public class HygieiaTestPublishStep extends AbstractStepImpl {
             HygieiaService hygieiaService = getHygieiaService(hygieiaDesc.getHygieiaAPIUrl(), hygieiaDesc.getHygieiaToken(),
                     hygieiaDesc.getHygieiaJenkinsName(), hygieiaDesc.isUseProxy());
 
-            String startedBy = HygieiaUtils.getUserID(run, listener);
+            String startedBy = RunContexts.get(run, listener).getStartedBy();
             HygieiaResponse buildResponse = hygieiaService.publishBuildData(new BuildBuilder()
                     .createBuildRequestFromRun(run, hygieiaDesc.getHygieiaJenkinsName(),
                             listener, BuildStatus.fromString(step.buildStatus), false, new LinkedList<BuildStage>(), startedBy));
@@ -207,7 +197,7 @@ public class HygieiaTestPublishStep extends AbstractStepImpl {
             } else {
                 listener.getLogger().println("Hygieia: Failed Publishing Build Data for Test Publishing. " + buildResponse.toString());
             }
-            TestDataCreateRequest request =  new FunctionalTestBuilder(objectMapper).getTestDataCreateRequest(run, listener, BuildStatus.fromString(step.buildStatus), filepath, step.testApplicationName,
+            TestDataCreateRequest request =  new FunctionalTestBuilder(JsonMappers.testReportReader()).getTestDataCreateRequest(run, listener, BuildStatus.fromString(step.buildStatus), filepath, step.testApplicationName,
                             step.testEnvironmentName, step.testType, step.testFileNamePattern, step.testResultsDirectory,
                             hygieiaDesc.getHygieiaJenkinsName(), HygieiaUtils.getBuildCollectionId(buildResponse.getResponseValue()));
 
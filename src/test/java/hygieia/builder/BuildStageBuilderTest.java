@@ -0,0 +1,295 @@
+package hygieia.builder;
+
+import hudson.model.Action;
+import hudson.model.InvisibleAction;
+import hudson.model.Result;
+import org.jenkinsci.plugins.workflow.actions.ErrorAction;
+import org.jenkinsci.plugins.workflow.actions.LabelAction;
+import org.jenkinsci.plugins.workflow.actions.StageAction;
+import org.jenkinsci.plugins.workflow.actions.ThreadNameAction;
+import org.jenkinsci.plugins.workflow.actions.WorkspaceAction;
+import org.jenkinsci.plugins.workflow.flow.FlowExecution;
+import org.jenkinsci.plugins.workflow.graph.BlockEndNode;
+import org.jenkinsci.plugins.workflow.graph.BlockStartNode;
+import org.jenkinsci.plugins.workflow.graph.FlowNode;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.jenkinsci.plugins.workflow.steps.FlowInterruptedException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({WorkflowRun.class, FlowNode.class, BlockStartNode.class, BlockEndNode.class})
+public class BuildStageBuilderTest {
+
+    private WorkflowRun run;
+    private FlowExecution execution;
+    private int nextId;
+    private FlowNode last;
+
+    private Class<? extends Action> warningActionType;
+    private Class<? extends Action> tagsActionType;
+
+    @Before
+    public void setup() {
+        warningActionType = BuildStageBuilder.warningActionType;
+        tagsActionType = BuildStageBuilder.tagsActionType;
+        BuildStageBuilder.warningActionType = WarningAction.class;
+        BuildStageBuilder.tagsActionType = TagsAction.class;
+        run = PowerMockito.mock(WorkflowRun.class);
+        execution = PowerMockito.mock(FlowExecution.class);
+        when(run.getExecution()).thenReturn(execution);
+        when(execution.isComplete()).thenReturn(true);
+        nextId = 2;
+        last = start(null);
+    }
+
+    @After
+    public void restoreActionTypes() {
+        BuildStageBuilder.warningActionType = warningActionType;
+        BuildStageBuilder.tagsActionType = tagsActionType;
+    }
+
+    @Test
+    public void nestedStagesRunOnTheEnclosingNode() throws IOException {
+        FlowNode node = start(null, workspace("agent-1"));
+        FlowNode outer = start(null, new LabelAction("outer"));
+        FlowNode inner = start(null, new LabelAction("inner"));
+        FlowNode step = atom();
+        end(inner, null);
+        end(outer, null);
+        end(node, null);
+
+        List<BuildStageBuilder.Stage> stages = getStages();
+
+        assertThat(stages).extracting("name").containsExactly("outer", "inner");
+        assertThat(stages).extracting("status").containsExactly(BuildStageBuilder.SUCCESS, BuildStageBuilder.SUCCESS);
+        assertThat(stages).extracting("execNode").containsExactly("agent-1", "agent-1");
+        assertThat(stages.get(1).getParent()).isSameAs(stages.get(0));
+        assertThat(stages.get(1).getChildIds()).containsExactly(step.getId());
+    }
+
+    @Test
+    public void stageUsesTheNodeOfItsFirstWorkspace() throws IOException {
+        FlowNode stage = start(null, new LabelAction("build"));
+        FlowNode node = start(null, workspace("agent-2"));
+        atom();
+        end(node, null);
+        end(stage, null);
+
+        assertThat(getStages().get(0).getExecNode()).isEqualTo("agent-2");
+    }
+
+    @Test
+    public void errorThatEndsAStageFailsItAndItsParents() throws IOException {
+        FlowNode outer = start(null, new LabelAction("outer"));
+        FlowNode passed = start(null, new LabelAction("passed"));
+        atom();
+        end(passed, null);
+        FlowNode failed = start(null, new LabelAction("failed"));
+        atom(new ErrorAction(new IOException("boom")));
+        end(failed, new IOException("boom"));
+        end(outer, new IOException("boom"));
+
+        assertThat(getStages()).extracting("status")
+                .containsExactly(BuildStageBuilder.FAILED, BuildStageBuilder.SUCCESS, BuildStageBuilder.FAILED);
+    }
+
+    @Test
+    public void caughtErrorLeavesTheStageSuccessful() throws IOException {
+        FlowNode stage = start(null, new LabelAction("retried"));
+        atom(new ErrorAction(new IOException("first attempt")));
+        atom();
+        end(stage, null);
+
+        assertThat(getStages().get(0).getStatus()).isEqualTo(BuildStageBuilder.SUCCESS);
+    }
+
+    @Test
+    public void interruptionAbortsTheStage() throws IOException {
+        FlowNode stage = start(null, new LabelAction("waiting"));
+        FlowInterruptedException interrupted = new FlowInterruptedException(Result.ABORTED);
+        atom(new ErrorAction(interrupted));
+        end(stage, interrupted);
+
+        assertThat(getStages().get(0).getStatus()).isEqualTo(BuildStageBuilder.ABORTED);
+    }
+
+    @Test
+    public void warningMakesTheStageAndItsParentsUnstable() throws IOException {
+        FlowNode outer = start(null, new LabelAction("outer"));
+        FlowNode passed = start(null, new LabelAction("passed"));
+        atom();
+        end(passed, null);
+        FlowNode warned = start(null, new LabelAction("warned"));
+        atom(new WarningAction(Result.UNSTABLE));
+        end(warned, null);
+        end(outer, null);
+
+        assertThat(getStages()).extracting("status")
+                .containsExactly(BuildStageBuilder.UNSTABLE, BuildStageBuilder.SUCCESS, BuildStageBuilder.UNSTABLE);
+    }
+
+    @Test
+    public void interruptionWithAnUnstableResultMakesTheStageUnstable() throws IOException {
+        FlowNode stage = start(null, new LabelAction("gate"));
+        FlowInterruptedException interrupted = new FlowInterruptedException(Result.UNSTABLE);
+        atom(new ErrorAction(interrupted));
+        end(stage, interrupted);
+
+        assertThat(getStages().get(0).getStatus()).isEqualTo(BuildStageBuilder.UNSTABLE);
+    }
+
+    @Test
+    public void skippedStagesAreNotExecuted() throws IOException {
+        FlowNode build = start(null, new LabelAction("build"));
+        atom(new ErrorAction(new IOException("boom")));
+        end(build, new IOException("boom"));
+        FlowNode deploy = start(null, new LabelAction("deploy"), new TagsAction("SKIPPED_FOR_FAILURE"));
+        end(deploy, null);
+        FlowNode release = start(null, new LabelAction("release"), new TagsAction("SKIPPED_FOR_CONDITIONAL"));
+        end(release, null);
+
+        assertThat(getStages()).extracting("status")
+                .containsExactly(BuildStageBuilder.FAILED, BuildStageBuilder.NOT_EXECUTED, BuildStageBuilder.NOT_EXECUTED);
+    }
+
+    @Test
+    public void parallelBranchesAreNotStages() throws IOException {
+        FlowNode stage = start(null, new LabelAction("tests"));
+        FlowNode branchA = start(null, new LabelAction("Branch: a"), threadName("a"));
+        FlowNode stepA = atom();
+        end(branchA, null);
+        FlowNode branchB = start(stage, new LabelAction("Branch: b"), threadName("b"));
+        FlowNode stepB = atom(new ErrorAction(new IOException("b failed")));
+        end(branchB, new IOException("b failed"));
+        end(stage, new IOException("b failed"));
+
+        List<BuildStageBuilder.Stage> stages = getStages();
+
+        assertThat(stages).extracting("name").containsExactly("tests");
+        assertThat(stages.get(0).getStatus()).isEqualTo(BuildStageBuilder.FAILED);
+        assertThat(stages.get(0).getChildIds()).contains(stepA.getId(), stepB.getId());
+    }
+
+    @Test
+    public void legacyStageFailsOnlyWhenItsLastStepFailed() throws IOException {
+        atom(stageAction("build"));
+        atom(new ErrorAction(new IOException("caught")));
+        atom();
+        atom(stageAction("test"));
+        atom(new ErrorAction(new IOException("uncaught")));
+        FlowNode flowStart = firstNode();
+        end(flowStart, new IOException("uncaught"));
+
+        assertThat(getStages()).extracting("name").containsExactly("build", "test");
+        assertThat(getStages()).extracting("status").containsExactly(BuildStageBuilder.SUCCESS, BuildStageBuilder.FAILED);
+    }
+
+    private List<BuildStageBuilder.Stage> getStages() {
+        when(execution.getCurrentHeads()).thenReturn(Collections.singletonList(last));
+        return BuildStageBuilder.getInstance().getStages(run);
+    }
+
+    private FlowNode firstNode() {
+        FlowNode node = last;
+        while (!node.getParents().isEmpty()) node = node.getParents().get(0);
+        return node;
+    }
+
+    /**
+     * @param parent the node the block starts after, or null for the last node added
+     */
+    private FlowNode start(FlowNode parent, Action... actions) {
+        BlockStartNode node = PowerMockito.mock(BlockStartNode.class);
+        return add(node, parent, actions);
+    }
+
+    private FlowNode end(FlowNode start, Throwable error) {
+        BlockEndNode<?> node = PowerMockito.mock(BlockEndNode.class);
+        when(node.getStartNode()).thenAnswer(invocation -> start);
+        return add(node, null, error != null ? new Action[]{new ErrorAction(error)} : new Action[0]);
+    }
+
+    private FlowNode atom(Action... actions) {
+        return add(PowerMockito.mock(FlowNode.class), null, actions);
+    }
+
+    private FlowNode add(FlowNode node, FlowNode parent, Action... actions) {
+        final List<Action> nodeActions = new ArrayList<>();
+        Collections.addAll(nodeActions, actions);
+        when(node.getId()).thenReturn(last == null ? "2" : String.valueOf(++nextId));
+        FlowNode previous = parent != null ? parent : last;
+        when(node.getParents()).thenReturn(previous == null ? Collections.<FlowNode>emptyList() : Collections.singletonList(previous));
+        when(node.getAction(any(Class.class))).thenAnswer(invocation -> {
+            Class<?> type = (Class<?>) invocation.getArguments()[0];
+            for (Action action : nodeActions) {
+                if (type.isInstance(action)) return action;
+            }
+            return null;
+        });
+        last = node;
+        return node;
+    }
+
+    private static WorkspaceAction workspace(String nodeName) {
+        WorkspaceAction action = PowerMockito.mock(WorkspaceAction.class);
+        when(action.getNode()).thenReturn(nodeName);
+        return action;
+    }
+
+    private static ThreadNameAction threadName(String name) {
+        ThreadNameAction action = PowerMockito.mock(ThreadNameAction.class);
+        when(action.getThreadName()).thenReturn(name);
+        return action;
+    }
+
+    /**
+     * Stands in for the pipeline API's WarningAction, which is newer than the version this plugin builds against.
+     */
+    public static class WarningAction extends InvisibleAction {
+        private final Result result;
+
+        WarningAction(Result result) {
+            this.result = result;
+        }
+
+        public Result getResult() {
+            return result;
+        }
+    }
+
+    /**
+     * Stands in for the pipeline API's TagsAction, holding only the stage status tag.
+     */
+    public static class TagsAction extends InvisibleAction {
+        private final String stageStatus;
+
+        TagsAction(String stageStatus) {
+            this.stageStatus = stageStatus;
+        }
+
+        public String getTagValue(String tag) {
+            return "STAGE_STATUS".equals(tag) ? stageStatus : null;
+        }
+    }
+
+    private static StageAction stageAction(String name) {
+        StageAction action = PowerMockito.mock(StageAction.class);
+        when(action.getStageName()).thenReturn(name);
+        return action;
+    }
+}
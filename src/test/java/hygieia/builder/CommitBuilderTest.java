@@ -0,0 +1,99 @@
+package hygieia.builder;
+
+import com.capitalone.dashboard.model.SCM;
+import hudson.model.User;
+import hudson.scm.ChangeLogSet;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(User.class)
+public class CommitBuilderTest {
+
+    @After
+    public void restoreDefaults() {
+        CommitBuilder.configure(0, 0);
+    }
+
+    @Test
+    public void commitsInSeveralChangeSetsAreListedOnce() {
+        ChangeLogSet first = changeSet(entry("a1", "first"), entry("b2", "second"));
+        ChangeLogSet second = changeSet(entry("b2", "second"), entry("c3", "third"));
+
+        List<SCM> commits = new CommitBuilder(changeSets(first, second)).getCommits();
+
+        assertThat(revisions(commits)).containsExactly("a1", "b2", "c3");
+        assertThat(commits.get(0).getScmAuthor()).isEqualTo("Jane Doe");
+        assertThat(commits.get(0).getScmCommitLog()).isEqualTo("first");
+    }
+
+    @Test
+    public void commitsBeyondTheLimitAreLeftOut() {
+        CommitBuilder.configure(2, 0);
+
+        List<SCM> commits = new CommitBuilder(changeSets(changeSet(entry("a1", "x"), entry("b2", "x"), entry("c3", "x")))).getCommits();
+
+        assertThat(revisions(commits)).containsExactly("a1", "b2");
+    }
+
+    @Test
+    public void longMessagesAreCut() {
+        CommitBuilder.configure(0, 10);
+        char[] message = new char[100];
+        Arrays.fill(message, 'm');
+
+        List<SCM> commits = new CommitBuilder(changeSets(changeSet(entry("a1", new String(message))))).getCommits();
+
+        assertThat(commits.get(0).getScmCommitLog()).isEqualTo("mmmmmmm...");
+    }
+
+    @Test
+    public void commitsWithoutRevisionAreAllKept() {
+        List<SCM> commits = new CommitBuilder(changeSets(changeSet(entry(null, "one"), entry(null, "two")))).getCommits();
+
+        assertThat(commits).hasSize(2);
+    }
+
+    private static List<ChangeLogSet<? extends ChangeLogSet.Entry>> changeSets(ChangeLogSet... sets) {
+        List<ChangeLogSet<? extends ChangeLogSet.Entry>> list = new ArrayList<>();
+        for (ChangeLogSet set : sets) {
+            list.add(set);
+        }
+        return list;
+    }
+
+    private static ChangeLogSet changeSet(ChangeLogSet.Entry... entries) {
+        ChangeLogSet set = mock(ChangeLogSet.class);
+        when(set.getItems()).thenReturn(entries);
+        return set;
+    }
+
+    private static ChangeLogSet.Entry entry(String revision, String message) {
+        User author = mock(User.class);
+        when(author.getFullName()).thenReturn("Jane Doe");
+        ChangeLogSet.Entry entry = mock(ChangeLogSet.Entry.class);
+        when(entry.getCommitId()).thenReturn(revision);
+        when(entry.getMsg()).thenReturn(message);
+        when(entry.getAuthor()).thenReturn(author);
+        return entry;
+    }
+
+    private static List<String> revisions(List<SCM> commits) {
+        List<String> revisions = new ArrayList<>();
+        for (SCM commit : commits) {
+            revisions.add(commit.getScmRevisionNumber());
+        }
+        return revisions;
+    }
+}
@@ -0,0 +1,124 @@
+package hygieia.builder;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StageLogReaderTest {
+
+    @Test
+    public void shortLogIsKeptWhole() throws IOException {
+        StageLogReader reader = new StageLogReader(1024, 0, null);
+
+        StageLogReader.Capture capture = reader.capture(Arrays.asList(text("one\ntwo\n"), text("three\n")));
+
+        assertThat(capture.text).isEqualTo("one\ntwo\nthree\n");
+        assertThat(capture.truncated).isFalse();
+        assertThat(capture.length).isEqualTo(14);
+    }
+
+    @Test
+    public void tailKeepsWholeLinesFromTheEndAcrossNodes() throws IOException {
+        StageLogReader reader = new StageLogReader(16, 0, null);
+
+        StageLogReader.Capture capture = reader.capture(Arrays.asList(text("first node\n"), text("line 1\nline 2\nline 3\n")));
+
+        assertThat(capture.text).isEqualTo("line 2\nline 3\n");
+        assertThat(capture.truncated).isTrue();
+    }
+
+    @Test
+    public void hugeLogIsReadFromTheEndOnly() throws IOException {
+        // about 200 MB of whole lines
+        long size = GeneratedLog.LINE.length * 7000000L;
+        GeneratedLog log = new GeneratedLog(size);
+        StageLogReader reader = new StageLogReader(4096, 0, null);
+
+        StageLogReader.Capture capture = reader.capture(Collections.singletonList(log));
+
+        assertThat(log.bytesWritten).isLessThanOrEqualTo(4096);
+        assertThat(capture.text.length()).isLessThanOrEqualTo(4096);
+        assertThat(capture.text).endsWith("\n");
+        assertThat(capture.length).isEqualTo(size);
+    }
+
+    @Test
+    public void errorWindowKeepsContextAroundErrorLines() throws IOException {
+        StageLogReader reader = new StageLogReader(1024, 1, null);
+        String log = "a\nb\nc\nERROR: compile failed\nd\ne\nf\ng\nException in thread main\nh\n";
+
+        StageLogReader.Capture capture = reader.capture(Collections.singletonList(text(log)));
+
+        assertThat(capture.text).isEqualTo("...\nc\nERROR: compile failed\nd\n...\ng\nException in thread main\nh\n");
+        assertThat(capture.truncated).isTrue();
+    }
+
+    @Test
+    public void errorWindowFallsBackToTailWithoutMatches() throws IOException {
+        StageLogReader reader = new StageLogReader(8, 2, "NOPE");
+
+        StageLogReader.Capture capture = reader.capture(Collections.singletonList(text("all\ngood\nhere\n")));
+
+        assertThat(capture.text).isEqualTo("here\n");
+    }
+
+    @Test
+    public void errorWindowOutputIsBounded() throws IOException {
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            log.append("error ").append(i).append('\n');
+        }
+
+        StageLogReader.Capture capture = new StageLogReader(64, 1, null).capture(Collections.singletonList(text(log.toString())));
+
+        assertThat(capture.text.length()).isLessThanOrEqualTo(64);
+        assertThat(capture.text).endsWith("error 999\n");
+    }
+
+    private static StageLogReader.LogSource text(final String text) {
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return new StageLogReader.LogSource() {
+            @Override
+            public long length() {
+                return bytes.length;
+            }
+
+            @Override
+            public void writeTo(long offset, OutputStream out) throws IOException {
+                out.write(bytes, (int) offset, bytes.length - (int) offset);
+            }
+        };
+    }
+
+    /**
+     * A log of repeated lines that is generated on the fly, so the test never holds it in memory.
+     */
+    private static class GeneratedLog implements StageLogReader.LogSource {
+        private static final byte[] LINE = "0123456789 build output line\n".getBytes(StandardCharsets.UTF_8);
+        private final long length;
+        private long bytesWritten;
+
+        GeneratedLog(long length) {
+            this.length = length;
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public void writeTo(long offset, OutputStream out) throws IOException {
+            for (long position = offset; position < length; position++) {
+                out.write(LINE[(int) (position % LINE.length)]);
+                bytesWritten++;
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package hygieia.utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConsoleLogScannerTest {
+
+    private static final String LOG = "[INFO] ANALYSIS SUCCESSFUL, you can browse http://sonar/dashboard/index/app\n"
+            + "[INFO] More about the report processing at http://sonar/api/ce/task?id=1\n"
+            + "artifact: http://repo/one.jar\n"
+            + "nothing to see here\n"
+            + "artifact: http://repo/two.jar\n"
+            + "artifact: http://repo/one.jar\n"
+            + "[INFO] ANALYSIS SUCCESSFUL, you can browse http://sonar/dashboard/index/app2\n";
+
+    @Test
+    public void allLiteralsAreMatchedInOnePass() throws IOException {
+        ConsoleLogScanner.Matches matches = new ConsoleLogScanner()
+                .add("ANALYSIS SUCCESSFUL, you can browse ")
+                .add("More about the report processing at ")
+                .add("artifact: ")
+                .add("never printed")
+                .scan(new StringReader(LOG));
+
+        assertThat(matches.getLast("ANALYSIS SUCCESSFUL, you can browse ")).isEqualTo("http://sonar/dashboard/index/app2");
+        assertThat(matches.getLast("More about the report processing at ")).isEqualTo("http://sonar/api/ce/task?id=1");
+        assertThat(matches.getAll("artifact: ")).containsExactly("http://repo/one.jar", "http://repo/two.jar");
+        assertThat(matches.getAll("never printed")).isEmpty();
+        assertThat(matches.getLast("never printed")).isNull();
+    }
+
+    @Test
+    public void overlappingLiteralsAreAllFound() throws IOException {
+        ConsoleLogScanner.Matches matches = new ConsoleLogScanner()
+                .add("she")
+                .add("he")
+                .add("hers")
+                .add("is")
+                .scan(new StringReader("ushers\nthis\n"));
+
+        assertThat(matches.getAll("she")).containsExactly("rs");
+        assertThat(matches.getAll("he")).containsExactly("rs");
+        assertThat(matches.getAll("hers")).containsExactly("");
+        assertThat(matches.getAll("is")).containsExactly("");
+    }
+
+    @Test
+    public void resultsAgreeWithTheRegex() throws IOException {
+        String log = "a.b a.b tail\nno dot ab\n(x) [y] a.b\n.*\\Q\\E\n";
+        String[] literals = {"a.b", "ab", "(x) [y]", ".*", "\\E", "a.b a.b"};
+        ConsoleLogScanner scanner = new ConsoleLogScanner();
+        for (String literal : literals) {
+            scanner.add(literal);
+        }
+
+        ConsoleLogScanner.Matches matches = scanner.scan(new StringReader(log));
+
+        for (String literal : literals) {
+            assertThat(matches.getAll(literal)).as(literal).isEqualTo(matchEachLine(log, literal));
+        }
+    }
+
+    @Test
+    public void emptyLiteralMatchesEveryLine() throws IOException {
+        ConsoleLogScanner.Matches matches = new ConsoleLogScanner().add("").scan(new StringReader("one\ntwo\n"));
+
+        assertThat(matches.getAll("")).containsExactly("one", "two");
+    }
+
+    private static Set<String> matchEachLine(String log, String literal) {
+        Set<String> expected = new LinkedHashSet<>();
+        Pattern pattern = Pattern.compile(ConsoleLogScanner.toRegex(literal));
+        for (String line : log.split("\n")) {
+            Matcher match = pattern.matcher(line);
+            if (match.matches()) expected.add(match.group(1));
+        }
+        return expected;
+    }
+}
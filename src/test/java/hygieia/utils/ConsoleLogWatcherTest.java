@@ -0,0 +1,59 @@
+package hygieia.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConsoleLogWatcherTest {
+
+    private static final String LOG = "[INFO] ANALYSIS SUCCESSFUL, you can browse http://sonar/dashboard/index/app\r\n"
+            + "Downloading 10%\rDownloading 100%\rartifact: http://repo/one.jar\n"
+            + "café artifact: http://repo/naïve.jar\n"
+            + "artifact: http://repo/last.jar";
+
+    @Test
+    public void outputIsPassedThroughAndMatchesAgreeWithAScan() throws IOException {
+        ConsoleLogScanner scanner = new ConsoleLogScanner().add("ANALYSIS SUCCESSFUL, you can browse ").add("artifact: ");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] bytes = LOG.getBytes(StandardCharsets.UTF_8);
+
+        ConsoleLogWatcher watcher = new ConsoleLogWatcher(out, scanner, StandardCharsets.UTF_8);
+        // odd sized writes split lines, line terminators and multi-byte characters
+        for (int i = 0; i < bytes.length; i += 7) {
+            watcher.write(bytes, i, Math.min(7, bytes.length - i));
+        }
+        watcher.close();
+
+        ConsoleLogScanner.Matches expected = scanner.scan(new StringReader(LOG));
+        ConsoleLogScanner.Matches matches = watcher.getMatches();
+        assertThat(out.toByteArray()).isEqualTo(bytes);
+        assertThat(watcher.isComplete()).isTrue();
+        assertThat(matches.getAll("artifact: ")).isEqualTo(expected.getAll("artifact: "))
+                .containsExactly("http://repo/one.jar", "http://repo/naïve.jar", "http://repo/last.jar");
+        assertThat(matches.getLast("ANALYSIS SUCCESSFUL, you can browse ")).isEqualTo("http://sonar/dashboard/index/app");
+    }
+
+    @Test
+    public void unfinishedLineIsNotMatchedUntilClosed() throws IOException {
+        ConsoleLogWatcher watcher = new ConsoleLogWatcher(new ByteArrayOutputStream(), new ConsoleLogScanner().add("url: "), StandardCharsets.UTF_8);
+
+        watcher.write("url: http://one\nurl: http://tw".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(watcher.getMatches().getAll("url: ")).containsExactly("http://one");
+    }
+
+    @Test
+    public void overlongLineMakesTheMatchesIncomplete() throws IOException {
+        ConsoleLogWatcher watcher = new ConsoleLogWatcher(new ByteArrayOutputStream(), new ConsoleLogScanner().add("url: "), StandardCharsets.UTF_8);
+
+        watcher.write(new byte[ConsoleLogWatcher.MAX_LINE_BYTES + 1]);
+        watcher.write('\n');
+
+        assertThat(watcher.isComplete()).isFalse();
+    }
+}
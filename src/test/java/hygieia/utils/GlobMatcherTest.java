@@ -0,0 +1,117 @@
+package hygieia.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GlobMatcherTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void bareFileNamePatternMatchesAtAnyDepth() {
+        GlobMatcher matcher = GlobMatcher.compile("*.jar");
+
+        assertThat(matcher.matches("app.jar")).isTrue();
+        assertThat(matcher.matches("a/b/app.jar")).isTrue();
+        assertThat(matcher.matches("a/b/app.war")).isFalse();
+        assertThat(matcher.canMatchBelow(GlobMatcher.split("a/b"))).isTrue();
+    }
+
+    @Test
+    public void anchoredPatternOnlyDescendsAlongItsPath() {
+        GlobMatcher matcher = GlobMatcher.compile("target/*.jar");
+
+        assertThat(matcher.matches("target/app.jar")).isTrue();
+        assertThat(matcher.matches("app.jar")).isFalse();
+        assertThat(matcher.matches("module/target/app.jar")).isFalse();
+        assertThat(matcher.canMatchBelow(GlobMatcher.split("target"))).isTrue();
+        assertThat(matcher.canMatchBelow(GlobMatcher.split("src"))).isFalse();
+        assertThat(matcher.canMatchBelow(GlobMatcher.split("target/classes"))).isFalse();
+    }
+
+    @Test
+    public void doubleStarSegmentMatchesAnyNumberOfDirectories() {
+        GlobMatcher matcher = GlobMatcher.compile("**/lib/*.jar");
+
+        assertThat(matcher.matches("lib/a.jar")).isTrue();
+        assertThat(matcher.matches("x/y/lib/a.jar")).isTrue();
+        assertThat(matcher.matches("x/lib/y/a.jar")).isFalse();
+    }
+
+    @Test
+    public void wildcardsWithinASegment() {
+        GlobMatcher matcher = GlobMatcher.compile("c*.?ar, report-**.json");
+
+        assertThat(matcher.matches("core.jar")).isTrue();
+        assertThat(matcher.matches("c.war")).isTrue();
+        assertThat(matcher.matches("core.ear.bak")).isFalse();
+        assertThat(matcher.matches("x/report-1.json")).isTrue();
+        assertThat(matcher.matches("x/report.json")).isFalse();
+    }
+
+    @Test
+    public void excludedDirectoriesArePrunedWithEverythingInThem() {
+        GlobMatcher matcher = GlobMatcher.compile("*.js, !**/node_modules");
+
+        assertThat(matcher.matches("src/app.js")).isTrue();
+        assertThat(matcher.matches("node_modules/lib/index.js")).isFalse();
+        assertThat(matcher.canMatchBelow(GlobMatcher.split("web/node_modules"))).isFalse();
+        assertThat(matcher.canMatchBelow(GlobMatcher.split("web/src"))).isTrue();
+    }
+
+    @Test
+    public void versionControlDirectoriesAreAlwaysExcluded() {
+        GlobMatcher matcher = GlobMatcher.compile("*");
+
+        assertThat(matcher.matches("pom.xml")).isTrue();
+        assertThat(matcher.matches(".git")).isFalse();
+        assertThat(matcher.matches(".git/config")).isFalse();
+        assertThat(matcher.canMatchBelow(GlobMatcher.split("module/.svn"))).isFalse();
+    }
+
+    @Test
+    public void emptyPatternMatchesNothing() {
+        GlobMatcher matcher = GlobMatcher.compile("");
+
+        assertThat(matcher.matches("a.jar")).isFalse();
+        assertThat(matcher.canMatchBelow(new ArrayList<String>())).isFalse();
+    }
+
+    @Test
+    public void finderSkipsDirectoriesThatCannotMatch() throws IOException {
+        File root = folder.getRoot();
+        write(root, "target/app.jar");
+        write(root, "target/classes/inner.jar");
+        write(root, "lib/other.jar");
+        write(root, "node_modules/dep/dep.jar");
+
+        List<String> paths = new ArrayList<>();
+        for (WorkspaceFileFinder.FoundFile file : new WorkspaceFileFinder("target/*.jar").invoke(root, null)) {
+            paths.add(file.getRelativePath().replace(File.separatorChar, '/'));
+        }
+        assertThat(paths).containsExactly("target/app.jar");
+
+        paths.clear();
+        for (WorkspaceFileFinder.FoundFile file : new WorkspaceFileFinder("*.jar,!node_modules/").invoke(root, null)) {
+            paths.add(file.getRelativePath().replace(File.separatorChar, '/'));
+        }
+        assertThat(paths).containsExactlyInAnyOrder("lib/other.jar", "target/app.jar", "target/classes/inner.jar");
+    }
+
+    private static void write(File root, String path) throws IOException {
+        File file = new File(root, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), path.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,61 @@
+package hygieia.utils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonStreamsTest {
+
+    private static final String JSON = "{\"skip\":{\"nested\":[1,{\"name\":\"inner\"}]},\"name\":\"outer\","
+            + "\"values\":[1,2.5,\"three\",true,null,{\"a\":[]}]}";
+
+    @Test
+    public void emptyInputHasNoParser() throws IOException {
+        assertThat(JsonStreams.open(null)).isNull();
+        assertThat(JsonStreams.open("")).isNull();
+        assertThat(JsonStreams.open("  ")).isNull();
+    }
+
+    @Test
+    public void nextFieldSkipsOtherFieldsWithoutDescending() throws IOException {
+        try (JsonParser parser = JsonStreams.open(JSON)) {
+            assertThat(JsonStreams.nextField(parser, "name")).isTrue();
+            assertThat(JsonStreams.text(parser)).isEqualTo("outer");
+            assertThat(JsonStreams.nextField(parser, "name")).isFalse();
+            assertThat(parser.getCurrentToken()).isEqualTo(JsonToken.END_OBJECT);
+        }
+    }
+
+    @Test
+    public void readValueMatchesJsonSimple() throws IOException, ParseException {
+        try (JsonParser parser = JsonStreams.open(JSON)) {
+            assertThat(JsonStreams.readValue(parser)).isEqualTo(new JSONParser().parse(JSON));
+        }
+    }
+
+    @Test
+    public void textPrintsValuesAsJsonSimpleDoes() throws IOException {
+        try (JsonParser parser = JsonStreams.open(JSON)) {
+            JsonStreams.nextField(parser, "values");
+            StringBuilder texts = new StringBuilder();
+            while (JsonStreams.nextElement(parser)) {
+                texts.append(JsonStreams.text(parser)).append('|');
+            }
+            assertThat(texts.toString()).isEqualTo("1|2.5|three|true||{\"a\":[]}|");
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedInputFails() throws IOException {
+        try (JsonParser parser = JsonStreams.open("{\"values\":[1,2")) {
+            JsonStreams.nextField(parser, "values");
+            JsonStreams.readValue(parser);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package hygieia.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReverseLineReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void linesComeOutLastFirstWithTheSameSplitAsBufferedReader() throws IOException {
+        String[] logs = {
+                "",
+                "\n",
+                "one",
+                "one\n",
+                "one\ntwo\nthree\n",
+                "one\r\ntwo\r\n",
+                "progress 10%\rprogress 100%\ndone",
+                "\n\nafter blank lines\n\n",
+                "\r\r\n\n\r",
+                "café 中文\nnaïve\r\nüber",
+        };
+        for (String log : logs) {
+            for (int blockSize = 1; blockSize <= 8; blockSize++) {
+                assertThat(readBackwards(log, blockSize)).as(log + " in blocks of " + blockSize).isEqualTo(readForwardsReversed(log));
+            }
+        }
+    }
+
+    @Test
+    public void lastMatchIsFoundWithoutReadingTheWholeFile() throws IOException {
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            log.append("build output line ").append(i).append('\n');
+        }
+        log.append("ANALYSIS SUCCESSFUL, you can browse http://sonar/dashboard/index/app\n");
+        log.append("Finished: SUCCESS\n");
+        File file = write(log.toString());
+
+        try (ReverseLineReader reader = new ReverseLineReader(file)) {
+            assertThat(reader.readLine()).isEqualTo("Finished: SUCCESS");
+            assertThat(reader.readLine()).startsWith("ANALYSIS SUCCESSFUL");
+            assertThat(reader.readLine()).isEqualTo("build output line 99999");
+        }
+    }
+
+    @Test
+    public void compressedLogsAreNotReadBackwards() throws IOException {
+        assertThat(ReverseLineReader.canRead(write("x"))).isTrue();
+        assertThat(ReverseLineReader.canRead(folder.newFile("log.gz"))).isFalse();
+        assertThat(ReverseLineReader.canRead(new File(folder.getRoot(), "missing"))).isFalse();
+        assertThat(ReverseLineReader.canRead(null)).isFalse();
+    }
+
+    private List<String> readBackwards(String log, int blockSize) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (ReverseLineReader reader = new ReverseLineReader(write(log), blockSize)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    private static List<String> readForwardsReversed(String log) throws IOException {
+        List<String> lines = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new StringReader(log));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lines.add(line);
+        }
+        Collections.reverse(lines);
+        return lines;
+    }
+
+    private File write(String log) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), log.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,75 @@
+package hygieia.utils;
+
+import hudson.FilePath;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WorkspaceFileFinderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void matchesInADirectoryComeBeforeThoseOfItsSubdirectories() throws IOException {
+        File root = folder.getRoot();
+        write(root, "a/b/deep.jar", "deep");
+        write(root, "a/lib.jar", "lib");
+        write(root, "a/readme.txt", "not a jar");
+        write(root, "top.jar", "top");
+
+        List<WorkspaceFileFinder.FoundFile> found = new WorkspaceFileFinder("*.jar").invoke(root, null);
+
+        List<String> paths = new ArrayList<>();
+        for (WorkspaceFileFinder.FoundFile file : found) {
+            paths.add(file.getRelativePath().replace(File.separatorChar, '/'));
+        }
+        assertThat(paths).containsExactly("top.jar", "a/lib.jar", "a/b/deep.jar");
+        assertThat(found.get(0).getSize()).isEqualTo(3);
+        assertThat(found.get(0).getLastModified()).isEqualTo(new File(root, "top.jar").lastModified());
+    }
+
+    @Test
+    public void doubleStarIsTreatedAsSingleStar() throws IOException {
+        File root = folder.getRoot();
+        write(root, "x/report-1.json", "{}");
+        write(root, "x/other.json", "{}");
+
+        List<WorkspaceFileFinder.FoundFile> found = new WorkspaceFileFinder("report-**.json").invoke(root, null);
+
+        assertThat(found).hasSize(1);
+        assertThat(found.get(0).getRelativePath()).endsWith("report-1.json");
+    }
+
+    @Test
+    public void missingDirectoryHasNoMatches() throws IOException {
+        assertThat(new WorkspaceFileFinder("*").invoke(new File(folder.getRoot(), "missing"), null)).isEmpty();
+    }
+
+    @Test
+    public void artifactFilesAreResolvedAgainstTheRootDirectory() throws IOException, InterruptedException {
+        File root = folder.getRoot();
+        write(root, "target/app-1.0.jar", "app");
+
+        List<FilePath> files = HygieiaUtils.getArtifactFiles(new FilePath(root), "*.jar", new ArrayList<FilePath>());
+
+        assertThat(files).hasSize(1);
+        assertThat(files.get(0).getName()).isEqualTo("app-1.0.jar");
+        assertThat(files.get(0).readToString()).isEqualTo("app");
+    }
+
+    private static void write(File root, String path, String content) throws IOException {
+        File file = new File(root, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
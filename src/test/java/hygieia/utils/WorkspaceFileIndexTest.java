@@ -0,0 +1,107 @@
+package hygieia.utils;
+
+import hudson.FilePath;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WorkspaceFileIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void findAgreesWithAWalkForEachPattern() throws IOException, InterruptedException {
+        File root = folder.getRoot();
+        write(root, "top.jar");
+        write(root, "a/lib.jar");
+        write(root, "a/b/deep.jar");
+        write(root, "a/b/report-1.json");
+        write(root, ".git/objects/x.jar");
+
+        for (String pattern : new String[]{"*.jar", "a/*.jar", "report-**.json", "**/b/*", "*.jar,!a/b/"}) {
+            WorkspaceFileIndex index = WorkspaceFileIndex.build(new FilePath(root), pattern);
+            assertThat(paths(index.getMatches())).as(pattern).isEqualTo(paths(new WorkspaceFileFinder(pattern).invoke(root, null)));
+        }
+        assertThat(paths(WorkspaceFileIndex.build(new FilePath(root), "*.jar").getMatches()))
+                .containsExactly("top.jar", "a/lib.jar", "a/b/deep.jar");
+    }
+
+    @Test
+    public void indexIsCurrentUntilADirectoryChanges() throws IOException, InterruptedException {
+        File root = folder.getRoot();
+        write(root, "a/lib.jar");
+        long past = System.currentTimeMillis() - 60000;
+        assertThat(new File(root, "a").setLastModified(past)).isTrue();
+        assertThat(root.setLastModified(past)).isTrue();
+        FilePath rootDirectory = new FilePath(root);
+
+        WorkspaceFileIndex index = WorkspaceFileIndex.build(rootDirectory, "a/*.jar");
+        assertThat(index.isCurrent(rootDirectory)).isTrue();
+
+        write(root, "a/new.jar");
+        assertThat(index.isCurrent(rootDirectory)).isFalse();
+    }
+
+    @Test
+    public void directoriesThePatternSkipsDoNotMatter() throws IOException, InterruptedException {
+        File root = folder.getRoot();
+        write(root, "a/lib.jar");
+        write(root, "node_modules/x/index.js");
+        long past = System.currentTimeMillis() - 60000;
+        for (String directory : new String[]{"", "a", "node_modules", "node_modules/x"}) {
+            assertThat(new File(root, directory).setLastModified(past)).isTrue();
+        }
+        FilePath rootDirectory = new FilePath(root);
+
+        WorkspaceFileIndex index = WorkspaceFileIndex.build(rootDirectory, "a/*.jar");
+        write(root, "node_modules/x/other.js");
+
+        assertThat(index.isCurrent(rootDirectory)).isTrue();
+    }
+
+    @Test
+    public void freshlyWrittenTreeIsTrustedAfterTheTimestampGranularity() throws IOException, InterruptedException {
+        File root = folder.getRoot();
+        write(root, "a/lib.jar");
+        long fresh = System.currentTimeMillis() - 200;
+        if (fresh % 1000 == 0) fresh++;
+        assertThat(new File(root, "a").setLastModified(fresh)).isTrue();
+        assertThat(root.setLastModified(fresh)).isTrue();
+        FilePath rootDirectory = new FilePath(root);
+
+        assertThat(WorkspaceFileIndex.build(rootDirectory, "**/*.jar").isCurrent(rootDirectory)).isTrue();
+    }
+
+    @Test
+    public void directoryChangedDuringTheWalkIsNotTrusted() throws IOException, InterruptedException {
+        write(folder.getRoot(), "a/lib.jar");
+        assertThat(new File(folder.getRoot(), "a").setLastModified(System.currentTimeMillis() + 10001)).isTrue();
+        FilePath rootDirectory = new FilePath(folder.getRoot());
+
+        assertThat(WorkspaceFileIndex.build(rootDirectory, "**/*.jar").isCurrent(rootDirectory)).isFalse();
+    }
+
+    private static List<String> paths(List<WorkspaceFileFinder.FoundFile> found) {
+        List<String> paths = new ArrayList<>();
+        for (WorkspaceFileFinder.FoundFile file : found) {
+            paths.add(file.getRelativePath().replace(File.separatorChar, '/'));
+        }
+        return paths;
+    }
+
+    private static void write(File root, String path) throws IOException {
+        File file = new File(root, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), path.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -15,6 +15,9 @@ import hudson.model.Result;
 import hudson.model.Run;
 import hudson.scm.ChangeLogSet;
 import hudson.scm.SCM;
+import hudson.tasks.Fingerprinter;
+import jenkins.model.ArtifactManager;
+import jenkins.util.VirtualFile;
 import org.apache.http.HttpStatus;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -22,6 +25,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
+import org.powermock.reflect.Whitebox;
 
 import java.io.File;
 import java.io.IOException;
@@ -29,10 +33,13 @@ import java.io.PrintStream;
 import java.io.Reader;
 import java.io.StringReader;
 import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Collections;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -73,6 +80,9 @@ public class ActiveJobNotifierTest {
     @Mock
     private HygieiaPublisher.DescriptorImpl mockDescriptor;
 
+    @Mock
+    private ArtifactManager mockArtifactManager;
+
     private ActiveJobNotifier activeJobNotifier;
     private HygieiaResponse hygieiaResponse;
 
@@ -233,6 +243,74 @@ public class ActiveJobNotifierTest {
         assertThat(capturedRequest.getNiceName()).isEqualTo("jenkins");
     }
 
+    @Test
+    public void completedBuildPublishArtifactFallsBackToWorkspaceWithoutArchivedArtifacts() throws URISyntaxException {
+        setup();
+        HygieiaPublisher.HygieiaArtifact hygieiaArtifact = new HygieiaPublisher.HygieiaArtifact(".", "*", "com.hygieia", "1.0.0");
+        hygieiaArtifact.setUseArchivedArtifacts(true);
+        when(mockPublisher.getHygieiaArtifact()).thenReturn(hygieiaArtifact);
+        when(mockBuild.getResult()).thenReturn(Result.SUCCESS);
+        when(mockBuild.getChangeSet()).thenReturn(mockChangeSet);
+        when(mockChangeSet.isEmptySet()).thenReturn(true);
+        when(mockBuild.getHasArtifacts()).thenReturn(false);
+        when(mockBuild.getWorkspace()).thenReturn(new FilePath(new File(this.getClass().getResource("").toURI())));
+        activeJobNotifier.completed(mockBuild);
+
+        verify(mockHygieiaService, atLeastOnce()).publishArtifactData(any(BinaryArtifactCreateRequest.class));
+    }
+
+    @Test
+    public void completedBuildPublishArchivedArtifactWithoutWorkspace() {
+        setup();
+        HygieiaPublisher.HygieiaArtifact hygieiaArtifact = new HygieiaPublisher.HygieiaArtifact(".", "*", "com.hygieia", "1.0.0");
+        hygieiaArtifact.setUseArchivedArtifacts(true);
+        when(mockPublisher.getHygieiaArtifact()).thenReturn(hygieiaArtifact);
+        when(mockBuild.getResult()).thenReturn(Result.SUCCESS);
+        when(mockBuild.getChangeSet()).thenReturn(mockChangeSet);
+        when(mockChangeSet.isEmptySet()).thenReturn(true);
+        when(mockBuild.getWorkspace()).thenReturn(null);
+        activeJobNotifier.completed(mockBuild);
+
+        verify(mockHygieiaService).publishBuildData(any(BuildDataCreateRequest.class));
+        verify(mockHygieiaService, never()).publishArtifactData(any(BinaryArtifactCreateRequest.class));
+    }
+
+    @Test
+    public void completedBuildPublishMatchingArchivedArtifactWithFingerprint() {
+        setup();
+        HygieiaPublisher.HygieiaArtifact hygieiaArtifact = new HygieiaPublisher.HygieiaArtifact(".", "*.jar", "com.hygieia", "1.0.0");
+        hygieiaArtifact.setUseArchivedArtifacts(true);
+        when(mockPublisher.getHygieiaArtifact()).thenReturn(hygieiaArtifact);
+        when(mockBuild.getResult()).thenReturn(Result.SUCCESS);
+        when(mockBuild.getChangeSet()).thenReturn(mockChangeSet);
+        when(mockChangeSet.isEmptySet()).thenReturn(true);
+        when(mockBuild.getWorkspace()).thenReturn(null);
+        when(mockBuild.getHasArtifacts()).thenReturn(true);
+        when(mockBuild.getArtifacts()).thenReturn(Arrays.asList(archived("target/app-1.0.0.jar"), archived("build.log")));
+        when(mockBuild.getArtifactManager()).thenReturn(mockArtifactManager);
+        when(mockArtifactManager.root()).thenReturn(VirtualFile.forFile(new File("archive")));
+        Fingerprinter.FingerprintAction fingerprintAction = mock(Fingerprinter.FingerprintAction.class);
+        when(fingerprintAction.getRecords()).thenReturn(Collections.singletonMap("target/app-1.0.0.jar", "0123456789abcdef"));
+        when(mockBuild.getAction(Fingerprinter.FingerprintAction.class)).thenReturn(fingerprintAction);
+        activeJobNotifier.completed(mockBuild);
+
+        ArgumentCaptor<BinaryArtifactCreateRequest> captorArtifact = ArgumentCaptor.forClass(BinaryArtifactCreateRequest.class);
+        verify(mockHygieiaService).publishArtifactData(captorArtifact.capture());
+
+        BinaryArtifactCreateRequest capturedRequest = captorArtifact.getValue();
+        assertThat(capturedRequest.getCanonicalName()).isEqualTo("app-1.0.0.jar");
+        assertThat(capturedRequest.getArtifactName()).isEqualTo("app");
+        assertThat(capturedRequest.getArtifactVersion()).isEqualTo("1.0.0");
+        assertThat(capturedRequest.getArtifactExtension()).isEqualTo("jar");
+        assertThat(capturedRequest.getMetadata()).containsEntry("fingerprint", "0123456789abcdef");
+    }
+
+    private static Run.Artifact archived(String relativePath) {
+        Run.Artifact artifact = mock(Run.Artifact.class);
+        Whitebox.setInternalState(artifact, "relativePath", relativePath);
+        return artifact;
+    }
+
 
     @Test
     public void completedBuildPublishDeploy() throws URISyntaxException {
@@ -0,0 +1,50 @@
+package jenkins.plugins.hygieia;
+
+import com.capitalone.dashboard.request.BuildDataCreateRequest;
+import org.apache.commons.httpclient.HttpStatus;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DefaultAsyncHygieiaServiceTest {
+
+    @Test
+    public void publishRunsOnSuppliedExecutor() {
+        final AtomicInteger submitted = new AtomicInteger();
+        Executor countingExecutor = command -> {
+            submitted.incrementAndGet();
+            command.run();
+        };
+        AsyncHygieiaService service = new DefaultAsyncHygieiaService("hostvaluethatwillcausepublishtofail", false, countingExecutor);
+
+        service.publishBuildDataV3(makeBuildDataRequestData()).join();
+
+        assertThat(submitted.get()).isEqualTo(1);
+    }
+
+    /**
+     * Transport errors complete the future with a failure code rather than exceptionally.
+     */
+    @Test
+    public void publishWithBadHostCompletesNormally() {
+        AsyncHygieiaService service = new DefaultAsyncHygieiaService("hostvaluethatwillcausepublishtofail", false, Runnable::run);
+
+        CompletableFuture<HygieiaResponse> future = service.publishBuildData(makeBuildDataRequestData());
+
+        assertThat(future.join().getResponseCode()).isEqualTo(HttpStatus.SC_BAD_REQUEST);
+        assertThat(future.isCompletedExceptionally()).isFalse();
+    }
+
+    private BuildDataCreateRequest makeBuildDataRequestData() {
+        BuildDataCreateRequest build = new BuildDataCreateRequest();
+        build.setNumber("1");
+        build.setBuildUrl("buildUrl");
+        build.setBuildStatus("Success");
+        build.setJobName("MyJob");
+        return build;
+    }
+}
@@ -0,0 +1,83 @@
+package jenkins.plugins.hygieia;
+
+import com.capitalone.dashboard.request.BuildDataCreateRequest;
+import hygieia.utils.HygieiaUtils;
+import org.apache.commons.httpclient.methods.RequestEntity;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EncodedPayloadTest {
+
+    @Test
+    public void sharesOneEncodingPerRequest() throws IOException {
+        BuildDataCreateRequest request = makeBuildRequest();
+
+        EncodedPayload payload = EncodedPayload.share(request);
+
+        assertThat(EncodedPayload.share(request)).isSameAs(payload);
+        assertThat(EncodedPayload.lookup(request)).isSameAs(payload);
+        assertThat(payload.getJson()).isEqualTo(HygieiaUtils.convertObjectToJsonBytes(request));
+        assertThat(EncodedPayload.lookup(makeBuildRequest())).isNull();
+    }
+
+    @Test
+    public void sharesOnlyAcrossSeveralEndpoints() {
+        BuildDataCreateRequest single = makeBuildRequest();
+        BuildDataCreateRequest several = makeBuildRequest();
+
+        EncodedPayload.shareAcross(single, Arrays.asList("http://hygieia-a/api", ""));
+        EncodedPayload.shareAcross(several, Arrays.asList("http://hygieia-a/api", "http://hygieia-b/api"));
+
+        assertThat(EncodedPayload.lookup(single)).isNull();
+        assertThat(EncodedPayload.lookup(several)).isNotNull();
+    }
+
+    @Test
+    public void gzipIsBuiltOnceAndDecompressesToTheSameJson() throws IOException {
+        EncodedPayload payload = EncodedPayload.share(makeBuildRequest());
+
+        RequestEntity first = payload.toRequestEntity(true, 0);
+        RequestEntity second = payload.toRequestEntity(true, 0);
+
+        assertThat(((CompressedRequestEntity) first).isGzip()).isTrue();
+        byte[] firstBytes = write(first);
+        assertThat(write(second)).isEqualTo(firstBytes);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(firstBytes))) {
+            assertThat(IOUtils.toByteArray(in)).isEqualTo(payload.getJson());
+        }
+    }
+
+    @Test
+    public void smallPayloadIsSentUncompressed() throws IOException {
+        EncodedPayload payload = EncodedPayload.share(makeBuildRequest());
+
+        RequestEntity entity = payload.toRequestEntity(true, payload.size() + 1);
+
+        assertThat(((CompressedRequestEntity) entity).isGzip()).isFalse();
+        assertThat(write(entity)).isEqualTo(payload.getJson());
+        assertThat(entity.getContentLength()).isEqualTo(payload.size());
+    }
+
+    private static byte[] write(RequestEntity entity) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entity.writeRequest(out);
+        return out.toByteArray();
+    }
+
+    private static BuildDataCreateRequest makeBuildRequest() {
+        BuildDataCreateRequest build = new BuildDataCreateRequest();
+        build.setNumber("1");
+        build.setBuildUrl("buildUrl");
+        build.setBuildStatus("Success");
+        build.setJobName("MyJob");
+        return build;
+    }
+}
@@ -0,0 +1,112 @@
+package jenkins.plugins.hygieia;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EndpointFanOutTest {
+
+    @Test
+    public void singleEndpointRunsOnCallerThread() {
+        final Thread caller = Thread.currentThread();
+
+        List<EndpointFanOut.Result<Boolean>> results = EndpointFanOut.publish(Arrays.asList("http://a/api", ""),
+                (endpoint, index) -> Thread.currentThread() == caller);
+
+        assertThat(results).hasSize(1);
+        assertThat(results.get(0).getValue()).isTrue();
+    }
+
+    @Test
+    public void endpointsArePublishedConcurrentlyAndReturnedInOrder() {
+        // each task waits for all the others to start, so this only completes if they run at the same time
+        final CountDownLatch started = new CountDownLatch(3);
+
+        List<EndpointFanOut.Result<String>> results = EndpointFanOut.publish(Arrays.asList("http://a/api", "http://b/api", "http://c/api"),
+                (endpoint, index) -> {
+                    started.countDown();
+                    started.await(10, TimeUnit.SECONDS);
+                    return index + ":" + endpoint;
+                });
+
+        assertThat(results).extracting("value").containsExactly("0:http://a/api", "1:http://b/api", "2:http://c/api");
+        assertThat(started.getCount()).isZero();
+    }
+
+    @Test
+    public void slowEndpointTimesOutWithoutHoldingOthers() {
+        final CountDownLatch release = new CountDownLatch(1);
+
+        List<EndpointFanOut.Result<String>> results = EndpointFanOut.publish(Arrays.asList("http://slow/api", "http://fast/api"),
+                (endpoint, index) -> {
+                    if (index == 0) release.await(10, TimeUnit.SECONDS);
+                    return endpoint;
+                }, 200);
+        release.countDown();
+
+        assertThat(results.get(0).isTimedOut()).isTrue();
+        assertThat(results.get(1).isCompleted()).isTrue();
+        assertThat(results.get(1).getValue()).isEqualTo("http://fast/api");
+    }
+
+    @Test
+    public void callToAHungEndpointIsAbortedAtTheDeadline() throws IOException, InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/v3/build", exchange -> {
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        try {
+            final String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/api/v3/build";
+            final CountDownLatch finished = new CountDownLatch(1);
+            final AtomicReference<RestCall.RestCallResponse> response = new AtomicReference<>();
+
+            List<EndpointFanOut.Result<String>> results = EndpointFanOut.publish(Arrays.asList("http://hung/api", "http://fast/api"),
+                    (endpoint, index) -> {
+                        if (index == 0) {
+                            response.set(new RestCall(false).makeRestCallPost(url, "{}"));
+                            finished.countDown();
+                        }
+                        return endpoint;
+                    }, 200);
+
+            assertThat(results.get(0).isTimedOut()).isTrue();
+            assertThat(finished.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(response.get().isTransportFailure()).isTrue();
+        } finally {
+            release.countDown();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void failureIsReportedPerEndpoint() {
+        List<EndpointFanOut.Result<Integer>> results = EndpointFanOut.publish(Arrays.asList("http://bad/api", "http://good/api"),
+                (endpoint, index) -> {
+                    if (index == 0) throw new IOException("connection refused");
+                    return 201;
+                });
+
+        assertThat(results.get(0).isCompleted()).isFalse();
+        assertThat(results.get(0).getError()).isInstanceOf(IOException.class);
+        assertThat(results.get(0).toString()).contains("connection refused");
+        assertThat(results.get(1).getValue()).isEqualTo(201);
+    }
+}
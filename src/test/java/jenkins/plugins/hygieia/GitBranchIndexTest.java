@@ -0,0 +1,65 @@
+package jenkins.plugins.hygieia;
+
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.plugins.git.Revision;
+import hudson.plugins.git.util.Build;
+import hudson.plugins.git.util.BuildData;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(Run.class)
+public class GitBranchIndexTest {
+
+    @Mock
+    private Run mockRun;
+
+    private void setup(int number) {
+        when(mockRun.getNumber()).thenReturn(number);
+    }
+
+    @Test
+    public void branchOfTheRunIsFound() {
+        setup(2);
+        BuildData buildData = new BuildData();
+        record(buildData, "origin/master", 1);
+        record(buildData, "origin/feature", 2);
+
+        assertThat(GitBranchIndex.getBranch(mockRun, buildData)).isEqualTo("origin/feature");
+    }
+
+    @Test
+    public void branchIsEmptyWhenTheRunBuiltNone() {
+        setup(3);
+        BuildData buildData = new BuildData();
+        record(buildData, "origin/master", 1);
+
+        assertThat(GitBranchIndex.getBranch(mockRun, buildData)).isEmpty();
+    }
+
+    @Test
+    public void indexFollowsLaterCheckouts() {
+        setup(2);
+        BuildData buildData = new BuildData();
+        record(buildData, "origin/master", 1);
+        assertThat(GitBranchIndex.getBranch(mockRun, buildData)).isEmpty();
+
+        record(buildData, "origin/master", 2);
+
+        assertThat(GitBranchIndex.getBranch(mockRun, buildData)).isEqualTo("origin/master");
+    }
+
+    private static void record(BuildData buildData, String branch, int number) {
+        Build build = new Build(new Revision(ObjectId.zeroId()), number, Result.SUCCESS);
+        buildData.getBuildsByBranchName().put(branch, build);
+        buildData.lastBuild = build;
+    }
+}
@@ -0,0 +1,57 @@
+package jenkins.plugins.hygieia;
+
+import org.apache.commons.httpclient.HttpClient;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HttpClientPoolTest {
+
+    @After
+    public void resetPool() {
+        HttpClientPool.getInstance().configure(HttpClientPool.DEFAULT_MAX_CONNECTIONS_PER_ROUTE, HttpClientPool.DEFAULT_IDLE_TIMEOUT_SECONDS,
+                HttpClientPool.DEFAULT_CONNECT_TIMEOUT_SECONDS, HttpClientPool.DEFAULT_SOCKET_TIMEOUT_SECONDS);
+    }
+
+    @Test
+    public void clientIsSharedAcrossCalls() {
+        HttpClient first = HttpClientPool.getInstance().getHttpClient(false);
+        HttpClient second = new RestCall(false).getHttpClient();
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    public void proxyFallsBackToDirectClientWithoutJenkins() {
+        assertThat(HttpClientPool.getInstance().getHttpClient(true)).isSameAs(HttpClientPool.getInstance().getHttpClient(false));
+    }
+
+    @Test
+    public void configureAppliesToStatistics() {
+        HttpClientPool.getInstance().configure(25, 30, 5, 20);
+        HttpClientPool.Statistics statistics = HttpClientPool.getInstance().getStatistics();
+        assertThat(statistics.getMaxConnectionsPerRoute()).isEqualTo(25);
+        assertThat(statistics.getIdleTimeoutSeconds()).isEqualTo(30);
+        assertThat(statistics.getConnectTimeoutSeconds()).isEqualTo(5);
+        assertThat(statistics.getSocketTimeoutSeconds()).isEqualTo(20);
+    }
+
+    @Test
+    public void configureIgnoresNonPositiveValues() {
+        HttpClientPool.getInstance().configure(0, -1, 0, -1);
+        HttpClientPool.Statistics statistics = HttpClientPool.getInstance().getStatistics();
+        assertThat(statistics.getMaxConnectionsPerRoute()).isEqualTo(HttpClientPool.DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+        assertThat(statistics.getIdleTimeoutSeconds()).isEqualTo(HttpClientPool.DEFAULT_IDLE_TIMEOUT_SECONDS);
+        assertThat(statistics.getConnectTimeoutSeconds()).isEqualTo(HttpClientPool.DEFAULT_CONNECT_TIMEOUT_SECONDS);
+        assertThat(statistics.getSocketTimeoutSeconds()).isEqualTo(HttpClientPool.DEFAULT_SOCKET_TIMEOUT_SECONDS);
+    }
+
+    @Test
+    public void timeoutsApplyToConnectionsAndPoolWaits() {
+        HttpClientPool.getInstance().configure(10, 60, 5, 20);
+        HttpClient client = HttpClientPool.getInstance().getHttpClient(false);
+        assertThat(client.getHttpConnectionManager().getParams().getConnectionTimeout()).isEqualTo(5000);
+        assertThat(client.getHttpConnectionManager().getParams().getSoTimeout()).isEqualTo(20000);
+        assertThat(client.getParams().getConnectionManagerTimeout()).isEqualTo(5000L);
+    }
+}
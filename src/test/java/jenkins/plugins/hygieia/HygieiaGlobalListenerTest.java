@@ -5,7 +5,7 @@ import com.capitalone.dashboard.request.BuildDataCreateRequest;
 import com.capitalone.dashboard.request.CodeQualityCreateRequest;
 import com.capitalone.dashboard.request.GenericCollectorItemCreateRequest;
 import com.capitalone.dashboard.response.BuildDataCreateResponse;
-import com.google.common.collect.Sets;
+import hudson.EnvVars;
 import hudson.model.Build;
 import hudson.model.BuildListener;
 import hudson.model.Job;
@@ -16,6 +16,7 @@ import hudson.scm.ChangeLogSet;
 import hudson.scm.SCM;
 import hygieia.builder.BuildBuilder;
 import hygieia.builder.SonarBuilder;
+import hygieia.utils.ConsoleLogScanner;
 import hygieia.utils.HygieiaUtils;
 import jenkins.model.Jenkins;
 import org.apache.http.HttpStatus;
@@ -35,13 +36,11 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.io.Reader;
 import java.io.StringReader;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Set;
-import java.util.regex.Pattern;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -103,6 +102,7 @@ public class HygieiaGlobalListenerTest {
         PowerMockito.when(HygieiaUtils.convertJsonToObject("1234", BuildDataCreateResponse.class)).thenReturn(getBuildDataCreateResponse());
         PowerMockito.when(HygieiaUtils.getInstanceUrl(mockBuild, mockBuildListener)).thenReturn("http://jenkins.test.com");
         PowerMockito.when(HygieiaUtils.getInstanceUrl(mockRun, mockBuildListener)).thenReturn("http://jenkins.test.com");
+        PowerMockito.when(HygieiaUtils.getInstanceUrl(mockRun, (EnvVars) null)).thenReturn("http://jenkins.test.com");
         PowerMockito.when(HygieiaUtils.getBuildStatus(Result.SUCCESS)).thenReturn(BuildStatus.Success);
         PowerMockito.when(HygieiaUtils.getUserID(mockRun, mockBuildListener)).thenReturn("jenkinsuser");
         when(mockDescriptor.getHygieiaService(any(String.class), any(String.class), any(String.class), any(Boolean.class))).thenReturn(mockHygieiaService);
@@ -191,16 +191,13 @@ public class HygieiaGlobalListenerTest {
         when(mockRun.getResult()).thenReturn(Result.SUCCESS);
         when(mockBuild.getChangeSet()).thenReturn(mockChangeSet);
         when(mockChangeSet.isEmptySet()).thenReturn(true);
-        String initialString = "";
-        Reader targetReader = new StringReader(initialString);
-        targetReader.close();
-        //when(new SonarBuilder().getSonarMetrics(mockRun, mockBuildListener,"jenkins",null,null,"5bda33528d6a01caebd4be20,5bda33528d6a01caebd4be1f", false)).thenReturn(new CodeQualityCreateRequest());
-        //when(hygieiaGlobalListener.getSonarBuilder()).thenReturn(mockSonarBuilder);
+        when(mockRun.getLogReader()).thenReturn(new StringReader(""));
         PowerMockito.mockStatic(SonarBuilder.class);
         PowerMockito.when(SonarBuilder.getInstance()).thenReturn(mockSonarBuilder);
         PowerMockito.when(mockSonarBuilder
-                .getSonarMetrics(mockRun, mockBuildListener, "jenkins", null,
-                        null, "5bda33528d6a01caebd4be20,5bda33528d6a01caebd4be1f", false))
+                .getSonarMetrics(eq(mockBuildListener), eq("jenkins"), (String) isNull(),
+                        (String) isNull(), eq("5bda33528d6a01caebd4be20,5bda33528d6a01caebd4be1f"), eq(false),
+                        (ConsoleLogScanner.Matches) any()))
                 .thenReturn(new CodeQualityCreateRequest());
         hygieiaGlobalListener.onCompleted(mockRun, mockBuildListener);
 
@@ -243,12 +240,9 @@ public class HygieiaGlobalListenerTest {
         when(mockDescriptor.getHygieiaPublishGenericCollectorItems()).thenReturn(Lists.newArrayList(item));
         when(mockRun.getResult()).thenReturn(Result.SUCCESS);
 
-        Reader reader = new StringReader("this is a pattern http://whatever");
+        Reader reader = new StringReader("this is a pattern http://whatever\nsome pattern line1");
         when(mockBuild.getLogReader()).thenReturn(reader);
         when(mockRun.getLogReader()).thenReturn(reader);
-        Set<String> matchedLines = Sets.newHashSet(Collections.singletonList("line1"));
-        String pattern = ".*" + Pattern.quote("some pattern") + "(.*)";
-        PowerMockito.when(HygieiaUtils.getMatchedLinesFromLog(mockRun, pattern)).thenReturn(matchedLines);
         hygieiaGlobalListener.onCompleted(mockRun, mockBuildListener);
         ArgumentCaptor<GenericCollectorItemCreateRequest> captorBuild = ArgumentCaptor.forClass(GenericCollectorItemCreateRequest.class);
         verify(mockHygieiaService, times(1)).publishGenericCollectorItemData(captorBuild.capture());
@@ -264,11 +258,8 @@ public class HygieiaGlobalListenerTest {
         when(mockDescriptor.getHygieiaPublishGenericCollectorItems()).thenReturn(Lists.newArrayList(item));
         when(mockRun.getResult()).thenReturn(Result.SUCCESS);
 
-        Reader reader = new StringReader("this is a pattern http://whatever");
+        Reader reader = new StringReader("some pattern line1\nthis is a pattern http://whatever\nsome pattern line2");
         when(mockRun.getLogReader()).thenReturn(reader);
-        Set<String> matchedLines = Sets.newHashSet(Arrays.asList("line1", "line2"));
-        String pattern = ".*" + Pattern.quote("some pattern") + "(.*)";
-        PowerMockito.when(HygieiaUtils.getMatchedLinesFromLog(mockRun, pattern)).thenReturn(matchedLines);
 
         hygieiaGlobalListener.onCompleted(mockRun, mockBuildListener);
 
@@ -0,0 +1,76 @@
+package jenkins.plugins.hygieia;
+
+import com.capitalone.dashboard.request.TestDataCreateRequest;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Compares the bytes allocated and the time taken to serialize publish requests with a new mapper per call, as
+ * HygieiaUtils used to, and with the shared writers of {@link JsonMappers}. Allocation counters and timings depend on
+ * the JVM and its JIT state, so this only reports them and is excluded from the surefire run; run it with
+ * {@code mvn test -Dtest=JsonMappersBenchmark}.
+ */
+public class JsonMappersBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int CALLS = 2000;
+
+    @Test
+    public void newMapperPerCallAgainstSharedWriters() throws IOException {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled());
+        Object[] requests = {JsonMappersTest.makeBuildRequest(), makeTestRequest()};
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            writeWithNewMappers(requests);
+            writeWithSharedWriters(requests);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long bytes = threadMXBean.getThreadAllocatedBytes(threadId);
+        long nanos = System.nanoTime();
+        writeWithNewMappers(requests);
+        report("new mapper per call", threadMXBean.getThreadAllocatedBytes(threadId) - bytes, System.nanoTime() - nanos);
+
+        bytes = threadMXBean.getThreadAllocatedBytes(threadId);
+        nanos = System.nanoTime();
+        writeWithSharedWriters(requests);
+        report("shared writers", threadMXBean.getThreadAllocatedBytes(threadId) - bytes, System.nanoTime() - nanos);
+    }
+
+    private static void report(String path, long allocatedBytes, long elapsedNanos) {
+        System.out.println(String.format("%-20s %,12d bytes/call %,10d ns/call", path,
+                allocatedBytes / CALLS, elapsedNanos / CALLS));
+    }
+
+    private static void writeWithNewMappers(Object[] requests) throws IOException {
+        for (int i = 0; i < CALLS; i++) {
+            for (Object request : requests) {
+                JsonMappersTest.newMapper().writeValueAsBytes(request);
+            }
+        }
+    }
+
+    private static void writeWithSharedWriters(Object[] requests) throws IOException {
+        for (int i = 0; i < CALLS; i++) {
+            for (Object request : requests) {
+                JsonMappers.writerForValue(request).writeValueAsBytes(request);
+            }
+        }
+    }
+
+    private static TestDataCreateRequest makeTestRequest() {
+        TestDataCreateRequest test = new TestDataCreateRequest();
+        test.setExecutionId("1");
+        test.setTestJobName("testJob");
+        test.setTestJobUrl("http://jenkins.test.com/job/testJob/");
+        test.setTotalCount(10);
+        test.setSuccessCount(9);
+        test.setFailureCount(1);
+        return test;
+    }
+}
@@ -0,0 +1,60 @@
+package jenkins.plugins.hygieia;
+
+import com.capitalone.dashboard.model.quality.CucumberJsonReport;
+import com.capitalone.dashboard.model.quality.MochaJsSpecReport;
+import com.capitalone.dashboard.model.quality.QualityVisitee;
+import com.capitalone.dashboard.request.BuildDataCreateRequest;
+import com.capitalone.dashboard.request.TestDataCreateRequest;
+import com.capitalone.dashboard.response.BuildDataCreateResponse;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonMappersTest {
+
+    @Test
+    public void writersAndReadersAreSharedPerType() {
+        assertThat(JsonMappers.writerFor(BuildDataCreateRequest.class)).isSameAs(JsonMappers.writerFor(BuildDataCreateRequest.class));
+        assertThat(JsonMappers.writerForValue(new TestDataCreateRequest())).isSameAs(JsonMappers.writerFor(TestDataCreateRequest.class));
+        assertThat(JsonMappers.readerFor(BuildDataCreateResponse.class)).isSameAs(JsonMappers.readerFor(BuildDataCreateResponse.class));
+    }
+
+    @Test
+    public void writesSameBytesAsANewMapper() throws IOException {
+        BuildDataCreateRequest request = makeBuildRequest();
+
+        assertThat(JsonMappers.writerForValue(request).writeValueAsBytes(request)).isEqualTo(newMapper().writeValueAsBytes(request));
+    }
+
+    @Test
+    public void readsBothTestReportFormats() throws IOException {
+        QualityVisitee cucumber = JsonMappers.testReportReader().readValue(getClass().getResource("/cucumber.json"));
+        QualityVisitee mocha = JsonMappers.testReportReader().readValue(getClass().getResource("/mochjsspec.json"));
+
+        assertThat(cucumber).isInstanceOf(CucumberJsonReport.class);
+        assertThat(mocha).isInstanceOf(MochaJsSpecReport.class);
+    }
+
+    static ObjectMapper newMapper() {
+        ObjectMapper mapper = new CustomObjectMapper();
+        mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        return mapper;
+    }
+
+    static BuildDataCreateRequest makeBuildRequest() {
+        BuildDataCreateRequest build = new BuildDataCreateRequest();
+        build.setNumber("1");
+        build.setBuildUrl("http://jenkins.test.com/job/testJob/1/");
+        build.setBuildStatus("Success");
+        build.setJobName("testJob");
+        build.setJobUrl("http://jenkins.test.com/job/testJob/");
+        build.setInstanceUrl("http://jenkins.test.com");
+        build.setStartTime(1L);
+        build.setEndTime(2L);
+        return build;
+    }
+}
@@ -0,0 +1,157 @@
+package jenkins.plugins.hygieia;
+
+import com.capitalone.dashboard.model.SCM;
+import com.capitalone.dashboard.request.BuildDataCreateRequest;
+import com.sun.net.httpserver.HttpServer;
+import hygieia.utils.HygieiaUtils;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.methods.RequestEntity;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonRequestEntityTest {
+
+    private static final int COMMITS = 5000;
+
+    @Test
+    public void writesSameBytesAsConvertObjectToJsonBytes() throws IOException {
+        BuildDataCreateRequest request = makeLargeBuildRequest();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new JsonRequestEntity(request).writeRequest(out);
+
+        assertThat(out.toByteArray()).isEqualTo(HygieiaUtils.convertObjectToJsonBytes(request));
+    }
+
+    @Test
+    public void isChunkedAndRepeatable() {
+        JsonRequestEntity entity = new JsonRequestEntity(new BuildDataCreateRequest());
+        assertThat(entity.getContentLength()).isEqualTo(-1);
+        assertThat(entity.isRepeatable()).isTrue();
+        assertThat(entity.getContentType()).startsWith("application/json");
+    }
+
+    @Test
+    public void payloadUnderThresholdIsSentWithItsLength() throws IOException {
+        BuildDataCreateRequest request = new BuildDataCreateRequest();
+
+        RequestEntity entity = JsonRequestEntity.create(request, false, 8192);
+
+        assertThat(entity.getContentLength()).isEqualTo(HygieiaUtils.convertObjectToJsonBytes(request).length);
+    }
+
+    @Test
+    public void gzipOverThresholdIsStreamedChunked() throws IOException {
+        BuildDataCreateRequest request = makeLargeBuildRequest();
+
+        RequestEntity entity = JsonRequestEntity.create(request, true, 8192);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entity.writeRequest(out);
+
+        assertThat(((CompressedRequestEntity) entity).isGzip()).isTrue();
+        assertThat(entity.getContentLength()).isEqualTo(-1);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertThat(IOUtils.toByteArray(in)).isEqualTo(HygieiaUtils.convertObjectToJsonBytes(request));
+        }
+        assertThat(((CompressedRequestEntity) JsonRequestEntity.create(new BuildDataCreateRequest(), true, 8192)).isGzip()).isFalse();
+    }
+
+    @Test
+    public void chunkedBodyRefusedWithLengthRequiredIsSentAgainWithItsLength() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        List<String> lengths = new CopyOnWriteArrayList<>();
+        server.createContext("/api/v3/build", exchange -> {
+            String length = exchange.getRequestHeaders().getFirst("Content-Length");
+            lengths.add(String.valueOf(length));
+            IOUtils.toByteArray(exchange.getRequestBody());
+            exchange.sendResponseHeaders(length == null ? HttpStatus.SC_LENGTH_REQUIRED : HttpStatus.SC_CREATED, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/api/v3/build";
+            BuildDataCreateRequest request = makeLargeBuildRequest();
+
+            RestCall.RestCallResponse first = new RestCall(false).makeRestCallPost(url, new JsonRequestEntity(request));
+            RestCall.RestCallResponse second = new RestCall(false).makeRestCallPost(url, new JsonRequestEntity(request));
+
+            String length = String.valueOf(HygieiaUtils.convertObjectToJsonBytes(request).length);
+            assertThat(first.getResponseCode()).isEqualTo(HttpStatus.SC_CREATED);
+            assertThat(second.getResponseCode()).isEqualTo(HttpStatus.SC_CREATED);
+            assertThat(lengths).containsExactly("null", length, length);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void payloadThatFailsToSerializeIsNotATransportFailure() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/v3/build", exchange -> {
+            exchange.sendResponseHeaders(HttpStatus.SC_CREATED, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/api/v3/build";
+
+            RestCall.RestCallResponse response = new RestCall(false).makeRestCallPost(url, new JsonRequestEntity(new Unserializable()));
+
+            assertThat(response.getResponseCode()).isEqualTo(HttpStatus.SC_NO_CONTENT);
+            assertThat(response.isTransportFailure()).isFalse();
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Jackson hands the body over in pieces of its own buffer size, so no write holds the whole multi-megabyte payload.
+     */
+    @Test
+    public void largePayloadIsStreamedChunkedWithoutBufferingIt() throws IOException {
+        BuildDataCreateRequest request = makeLargeBuildRequest();
+        CountingOutputStream sink = new CountingOutputStream();
+
+        RequestEntity entity = JsonRequestEntity.create(request, false, 8192);
+        entity.writeRequest(sink);
+
+        assertThat(entity.getContentLength()).isEqualTo(-1);
+        assertThat(sink.count).isGreaterThan(4L * 1024 * 1024);
+        assertThat(sink.largestWrite).isLessThanOrEqualTo(64 * 1024);
+    }
+
+    public static class Unserializable {
+        public String getValue() {
+            throw new IllegalStateException("not serializable");
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+        private int largestWrite;
+
+        @Override
+        public void write(int b) {
+            count++;
+            largestWrite = Math.max(largestWrite, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+            largestWrite = Math.max(largestWrite, len);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package jenkins.plugins.hygieia;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LookupCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final List<Runnable> refreshes = new ArrayList<>();
+    private final LookupCache cache = new LookupCache(now::get, refreshes::add);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final Supplier<String> loader = () -> "value" + loads.incrementAndGet();
+
+    private void advanceSeconds(long seconds) {
+        now.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+
+    @Test
+    public void servesCachedValueUntilItExpires() {
+        cache.configure(10, 10);
+
+        assertThat(cache.get("key", loader)).isEqualTo("value1");
+        advanceSeconds(5);
+        assertThat(cache.get("key", loader)).isEqualTo("value1");
+        advanceSeconds(5);
+        assertThat(cache.get("key", loader)).isEqualTo("value2");
+
+        LookupCache.Statistics statistics = cache.getStatistics();
+        assertThat(statistics.getHits()).isEqualTo(1);
+        assertThat(statistics.getMisses()).isEqualTo(2);
+        assertThat(statistics.getLoads()).isEqualTo(2);
+    }
+
+    @Test
+    public void hitNearExpiryRefreshesInTheBackground() {
+        cache.configure(10, 10);
+        cache.get("key", loader);
+
+        advanceSeconds(9);
+        assertThat(cache.get("key", loader)).isEqualTo("value1");
+        assertThat(cache.get("key", loader)).isEqualTo("value1");
+        assertThat(refreshes).hasSize(1);
+
+        refreshes.get(0).run();
+        advanceSeconds(5);
+
+        assertThat(cache.get("key", loader)).isEqualTo("value2");
+        assertThat(cache.getStatistics().getRefreshes()).isEqualTo(1);
+        assertThat(cache.getStatistics().getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    public void failedLoadsAreNotCached() {
+        cache.configure(10, 10);
+
+        assertThat(cache.<String>get("key", () -> null)).isNull();
+        assertThat(cache.get("key", loader)).isEqualTo("value1");
+        assertThat(cache.getStatistics().getLoadFailures()).isEqualTo(1);
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvicted() {
+        cache.configure(10, 2);
+        cache.get("a", loader);
+        cache.get("b", loader);
+        cache.get("a", loader);
+
+        cache.get("c", loader);
+
+        assertThat(cache.getStatistics().getEvictions()).isEqualTo(1);
+        assertThat(cache.get("a", loader)).isEqualTo("value1");
+        assertThat(cache.get("b", loader)).isEqualTo("value4");
+    }
+
+    @Test
+    public void zeroTtlDisablesCaching() {
+        cache.configure(0, 10);
+
+        assertThat(cache.get("key", loader)).isEqualTo("value1");
+        assertThat(cache.get("key", loader)).isEqualTo("value2");
+        assertThat(cache.getStatistics().getSize()).isZero();
+    }
+
+    @Test
+    public void concurrentMissesShareOneLoad() throws Exception {
+        cache.configure(10, 10);
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Supplier<String> slowLoader = () -> {
+            loading.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "value" + loads.incrementAndGet();
+        };
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = callers.submit(() -> cache.get("key", slowLoader));
+            assertThat(loading.await(10, TimeUnit.SECONDS)).isTrue();
+            Future<String> second = callers.submit(() -> cache.get("key", slowLoader));
+            long deadline = System.currentTimeMillis() + 10000;
+            while (cache.getStatistics().getCoalescedMisses() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo("value1");
+            assertThat(second.get(10, TimeUnit.SECONDS)).isEqualTo("value1");
+            assertThat(loads.get()).isEqualTo(1);
+            assertThat(cache.getStatistics().getCoalescedMisses()).isEqualTo(1);
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+}
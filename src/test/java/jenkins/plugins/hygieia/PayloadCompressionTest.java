@@ -0,0 +1,111 @@
+package jenkins.plugins.hygieia;
+
+import com.capitalone.dashboard.model.SCM;
+import com.capitalone.dashboard.request.BuildDataCreateRequest;
+import com.sun.net.httpserver.HttpServer;
+import hygieia.utils.HygieiaUtils;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PayloadCompressionTest {
+
+    private HttpServer server;
+    private String apiUrl;
+    private volatile String contentEncoding;
+    private volatile byte[] receivedBody;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/v3/build", exchange -> {
+            contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+            InputStream body = "gzip".equals(contentEncoding)
+                    ? new GZIPInputStream(exchange.getRequestBody()) : exchange.getRequestBody();
+            receivedBody = IOUtils.toByteArray(body);
+            exchange.sendResponseHeaders(HttpStatus.SC_CREATED, -1);
+            exchange.close();
+        });
+        server.start();
+        apiUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/api";
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+        PayloadCompression.configure(null, PayloadCompression.DEFAULT_THRESHOLD_BYTES);
+    }
+
+    @Test
+    public void largePayloadIsGzippedAndDecompressesToSameBytes() throws IOException {
+        PayloadCompression.configure(apiUrl, 1024);
+        BuildDataCreateRequest request = makeBuildRequest(500);
+
+        HygieiaResponse response = new DefaultAsyncHygieiaService(apiUrl, false, Runnable::run).publishBuildDataV3(request).join();
+
+        assertThat(response.getResponseCode()).isEqualTo(HttpStatus.SC_CREATED);
+        assertThat(contentEncoding).isEqualTo("gzip");
+        assertThat(receivedBody).isEqualTo(HygieiaUtils.convertObjectToJsonBytes(request));
+    }
+
+    @Test
+    public void payloadBelowThresholdIsSentRaw() throws IOException {
+        PayloadCompression.configure("*", 1024);
+        BuildDataCreateRequest request = makeBuildRequest(0);
+
+        HygieiaResponse response = new DefaultAsyncHygieiaService(apiUrl, false, Runnable::run).publishBuildDataV3(request).join();
+
+        assertThat(response.getResponseCode()).isEqualTo(HttpStatus.SC_CREATED);
+        assertThat(contentEncoding).isNull();
+        assertThat(receivedBody).isEqualTo(HygieiaUtils.convertObjectToJsonBytes(request));
+    }
+
+    @Test
+    public void endpointsNotListedAreSentRaw() throws IOException {
+        PayloadCompression.configure("http://other-hygieia/api", 1024);
+        BuildDataCreateRequest request = makeBuildRequest(500);
+
+        new DefaultAsyncHygieiaService(apiUrl, false, Runnable::run).publishBuildDataV3(request).join();
+
+        assertThat(contentEncoding).isNull();
+        assertThat(receivedBody).isEqualTo(HygieiaUtils.convertObjectToJsonBytes(request));
+    }
+
+    @Test
+    public void endpointMatchingIgnoresTrailingSlashAndSeparators() {
+        PayloadCompression.configure(" http://a/api/ ; http://b/api", 0);
+        assertThat(PayloadCompression.isEnabledFor("http://a/api")).isTrue();
+        assertThat(PayloadCompression.isEnabledFor("http://b/api/")).isTrue();
+        assertThat(PayloadCompression.isEnabledFor("HTTP://A/api")).isTrue();
+        assertThat(PayloadCompression.isEnabledFor("http://c/api")).isFalse();
+        assertThat(PayloadCompression.isEnabledFor("http://a/api2")).isFalse();
+        assertThat(PayloadCompression.isEnabledFor("http://a/api/v2")).isFalse();
+        assertThat(PayloadCompression.getThresholdBytes()).isEqualTo(PayloadCompression.DEFAULT_THRESHOLD_BYTES);
+    }
+
+    private BuildDataCreateRequest makeBuildRequest(int commits) {
+        BuildDataCreateRequest build = new BuildDataCreateRequest();
+        build.setNumber("1");
+        build.setBuildUrl("buildUrl");
+        build.setBuildStatus("Success");
+        build.setJobName("MyJob");
+        for (int i = 0; i < commits; i++) {
+            SCM scm = new SCM();
+            scm.setScmUrl("https://github.com/org/repo");
+            scm.setScmRevisionNumber("rev" + i);
+            scm.setScmCommitLog("Commit message " + i);
+            scm.setScmAuthor("bob");
+            build.getSourceChangeSet().add(scm);
+        }
+        return build;
+    }
+}
@@ -0,0 +1,249 @@
+package jenkins.plugins.hygieia;
+
+import org.apache.commons.httpclient.HttpStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PublishOutboxTest {
+
+    private static final String HYGIEIA_A = "http://hygieia-a/api";
+    private static final String HYGIEIA_B = "http://hygieia-b/api";
+    private static final int SEGMENT_SIZE = 256;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final RestCall restCall = new RestCall(false);
+    private final List<String> sent = new ArrayList<>();
+    private final Map<String, Integer> responseCodes = new HashMap<>();
+    private final AtomicLong now = new AtomicLong(1000000);
+    private File rootDir;
+    private PublishOutbox outbox;
+
+    @Before
+    public void setUp() throws IOException {
+        rootDir = folder.newFolder("hygieia-outbox");
+        outbox = newOutbox();
+    }
+
+    @After
+    public void tearDown() {
+        outbox.stop();
+    }
+
+    private PublishOutbox newOutbox() {
+        PublishOutbox created = new PublishOutbox(rootDir, SEGMENT_SIZE, (url, useProxy, body) -> {
+            String endpoint = url.substring(0, url.indexOf("/api") + 4);
+            int code = responseCodes.containsKey(endpoint) ? responseCodes.get(endpoint) : HttpStatus.SC_CREATED;
+            if (code == HttpStatus.SC_CREATED) sent.add(url + " " + new String(body, StandardCharsets.UTF_8));
+            return restCall.new RestCallResponse(code, "");
+        }, now::get);
+        created.recover();
+        return created;
+    }
+
+    @Test
+    public void replaysEntriesInOrderPerEndpoint() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            outbox.append(HYGIEIA_A, "/v3/build", false, body(i));
+        }
+        outbox.append(HYGIEIA_B, "/v2/deploy", false, body(9));
+
+        assertThat(outbox.drain()).isEqualTo(6);
+
+        assertThat(sent).containsSubsequence(
+                HYGIEIA_A + "/v3/build {\"n\":0}",
+                HYGIEIA_A + "/v3/build {\"n\":1}",
+                HYGIEIA_A + "/v3/build {\"n\":2}",
+                HYGIEIA_A + "/v3/build {\"n\":3}",
+                HYGIEIA_A + "/v3/build {\"n\":4}");
+        assertThat(sent).contains(HYGIEIA_B + "/v2/deploy {\"n\":9}");
+        assertThat(outbox.getPendingEntries()).isZero();
+        assertThat(outbox.getDelivered()).isEqualTo(6);
+    }
+
+    @Test
+    public void failingEndpointBacksOffWithoutBlockingOthers() throws IOException {
+        responseCodes.put(HYGIEIA_A, HttpStatus.SC_SERVICE_UNAVAILABLE);
+        outbox.append(HYGIEIA_A, "/v3/build", false, body(1));
+        outbox.append(HYGIEIA_B, "/v3/build", false, body(2));
+
+        assertThat(outbox.drain()).isEqualTo(1);
+        assertThat(outbox.getPendingEntries(HYGIEIA_A)).isEqualTo(1);
+        assertThat(outbox.getPendingEntries(HYGIEIA_B)).isZero();
+
+        responseCodes.remove(HYGIEIA_A);
+        assertThat(outbox.drain()).as("endpoint is backing off").isZero();
+    }
+
+    @Test
+    public void permanentRejectionIsDropped() throws IOException {
+        responseCodes.put(HYGIEIA_A, HttpStatus.SC_BAD_REQUEST);
+        outbox.append(HYGIEIA_A, "/v3/build", false, body(1));
+
+        outbox.drain();
+
+        assertThat(outbox.getPendingEntries()).isZero();
+        assertThat(outbox.getDropped()).isEqualTo(1);
+    }
+
+    @Test
+    public void undeliveredEntriesSurviveRestart() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            outbox.append(HYGIEIA_A, "/v3/build", i % 2 == 0, body(i));
+        }
+        responseCodes.put(HYGIEIA_A, HttpStatus.SC_BAD_GATEWAY);
+        outbox.drain();
+        outbox.stop();
+
+        responseCodes.clear();
+        outbox = newOutbox();
+        assertThat(outbox.getPendingEntries(HYGIEIA_A)).isEqualTo(20);
+        outbox.drain();
+
+        assertThat(sent).hasSize(20);
+        assertThat(sent.get(0)).isEqualTo(HYGIEIA_A + "/v3/build {\"n\":0}");
+        assertThat(sent.get(19)).isEqualTo(HYGIEIA_A + "/v3/build {\"n\":19}");
+    }
+
+    @Test
+    public void deliveredEntriesAreNotReplayedAfterRestart() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            outbox.append(HYGIEIA_A, "/v3/build", false, body(i));
+        }
+        outbox.drain();
+        outbox.append(HYGIEIA_A, "/v3/build", false, body(3));
+        outbox.stop();
+
+        sent.clear();
+        outbox = newOutbox();
+        outbox.drain();
+
+        assertThat(sent).containsExactly(HYGIEIA_A + "/v3/build {\"n\":3}");
+    }
+
+    @Test
+    public void deliveredSegmentsAreCompacted() throws IOException {
+        for (int i = 0; i < 50; i++) {
+            outbox.append(HYGIEIA_A, "/v3/build", false, body(i));
+        }
+        assertThat(outbox.getSegmentCount(HYGIEIA_A)).isGreaterThan(5);
+
+        outbox.drain();
+
+        assertThat(outbox.getSegmentCount(HYGIEIA_A)).isEqualTo(1);
+    }
+
+    @Test
+    public void tornRecordIsIgnoredOnRecovery() throws IOException {
+        outbox.append(HYGIEIA_A, "/v3/build", false, body(1));
+        outbox.append(HYGIEIA_A, "/v3/build", false, body(2));
+        outbox.stop();
+
+        File segment = findSegment();
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            // flip a byte in the body of the second record
+            long secondBody = 8 + 11 + "/v3/build".length() + body(1).length + 8 + 11 + "/v3/build".length();
+            file.seek(secondBody);
+            file.write('X');
+        }
+
+        outbox = newOutbox();
+        assertThat(outbox.getPendingEntries(HYGIEIA_A)).isEqualTo(1);
+        outbox.append(HYGIEIA_A, "/v3/build", false, body(3));
+        outbox.drain();
+
+        assertThat(sent).containsExactly(HYGIEIA_A + "/v3/build {\"n\":1}", HYGIEIA_A + "/v3/build {\"n\":3}");
+    }
+
+    @Test
+    public void appendIsRejectedWhenFull() throws IOException {
+        outbox.setMaxBytes(SEGMENT_SIZE);
+        int accepted = 0;
+        while (outbox.append(HYGIEIA_A, "/v3/build", false, body(accepted + 1))) {
+            accepted++;
+        }
+
+        assertThat(accepted).isGreaterThan(1);
+        assertThat(outbox.getDiskBytes()).isEqualTo(SEGMENT_SIZE);
+        assertThat(outbox.getDropped()).isEqualTo(1);
+    }
+
+    @Test
+    public void newSegmentCountsAgainstTheCap() throws IOException {
+        outbox.setMaxBytes(SEGMENT_SIZE - 1);
+
+        assertThat(outbox.append(HYGIEIA_A, "/v3/build", false, body(1))).isFalse();
+        assertThat(outbox.getDiskBytes()).isZero();
+        assertThat(outbox.getDropped()).isEqualTo(1);
+    }
+
+    @Test
+    public void entryOlderThanMaxAgeIsDroppedWithoutReplay() throws IOException {
+        outbox.setExpiry(TimeUnit.HOURS.toMillis(1), 10);
+        outbox.append(HYGIEIA_A, "/v3/build", false, body(1));
+        now.addAndGet(TimeUnit.HOURS.toMillis(2));
+        outbox.append(HYGIEIA_A, "/v3/build", false, body(2));
+
+        outbox.drain();
+
+        assertThat(sent).containsExactly(HYGIEIA_A + "/v3/build {\"n\":2}");
+        assertThat(outbox.getExpired()).isEqualTo(1);
+    }
+
+    @Test
+    public void unreachableEndpointDropsEntryAfterMaxAttempts() throws IOException {
+        outbox.setExpiry(TimeUnit.HOURS.toMillis(1), 3);
+        responseCodes.put(HYGIEIA_A, HttpStatus.SC_BAD_GATEWAY);
+        outbox.append(HYGIEIA_A, "/v3/build", false, body(1));
+        outbox.append(HYGIEIA_A, "/v3/build", false, body(2));
+
+        for (int i = 0; i < 3; i++) {
+            outbox.drain();
+            now.addAndGet(TimeUnit.MINUTES.toMillis(10));
+        }
+
+        assertThat(outbox.getExpired()).isEqualTo(1);
+        assertThat(outbox.getPendingEntries(HYGIEIA_A)).isEqualTo(1);
+        responseCodes.remove(HYGIEIA_A);
+        outbox.drain();
+        assertThat(sent).containsExactly(HYGIEIA_A + "/v3/build {\"n\":2}");
+    }
+
+    @Test
+    public void onlyTransportErrorsAndServerErrorsAreRetryable() {
+        assertThat(PublishOutbox.isRetryable(restCall.new RestCallResponse(HttpStatus.SC_BAD_REQUEST, "", true))).isTrue();
+        assertThat(PublishOutbox.isRetryable(restCall.new RestCallResponse(HttpStatus.SC_SERVICE_UNAVAILABLE, ""))).isTrue();
+        assertThat(PublishOutbox.isRetryable(restCall.new RestCallResponse(429, ""))).isTrue();
+        assertThat(PublishOutbox.isRetryable(restCall.new RestCallResponse(HttpStatus.SC_BAD_REQUEST, ""))).isFalse();
+        assertThat(PublishOutbox.isRetryable(restCall.new RestCallResponse(HttpStatus.SC_CREATED, ""))).isFalse();
+    }
+
+    private File findSegment() {
+        for (File directory : rootDir.listFiles()) {
+            File[] segments = directory.listFiles((dir, name) -> name.startsWith("segment-"));
+            if (segments != null && segments.length > 0) return segments[0];
+        }
+        throw new AssertionError("no segment written");
+    }
+
+    private static byte[] body(int n) {
+        return ("{\"n\":" + n + "}").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,150 @@
+package jenkins.plugins.hygieia;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PublishWorkerPoolTest {
+
+    @Test
+    public void runsOnCallerThreadWhenNotConfigured() {
+        PublishWorkerPool pool = new PublishWorkerPool();
+        final Thread caller = Thread.currentThread();
+        final List<Thread> ranOn = new CopyOnWriteArrayList<>();
+
+        boolean queued = pool.submit("job", () -> ranOn.add(Thread.currentThread()), () -> {});
+
+        assertThat(queued).isFalse();
+        assertThat(ranOn).containsExactly(caller);
+        assertThat(pool.getStatistics().getInlineTasks()).isEqualTo(1);
+    }
+
+    @Test
+    public void tasksForSameJobRunInOrder() throws InterruptedException {
+        PublishWorkerPool pool = new PublishWorkerPool();
+        pool.configure(4, 100);
+        final List<Integer> order = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(20);
+
+        for (int i = 0; i < 20; i++) {
+            final int n = i;
+            pool.submit("job", () -> {
+                order.add(n);
+                done.countDown();
+            }, () -> {});
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        List<Integer> sorted = new CopyOnWriteArrayList<>(order);
+        Collections.sort(sorted);
+        assertThat(order).isEqualTo(sorted);
+    }
+
+    @Test
+    public void differentJobsDoNotWaitForEachOther() throws InterruptedException {
+        PublishWorkerPool pool = new PublishWorkerPool();
+        pool.configure(2, 100);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch otherJobRan = new CountDownLatch(1);
+
+        pool.submit("slow", () -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, () -> {});
+        pool.submit("fast", otherJobRan::countDown, () -> {});
+
+        assertThat(otherJobRan.await(10, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+    }
+
+    @Test
+    public void fullQueueHandsOffOnCallerThread() throws InterruptedException {
+        PublishWorkerPool pool = new PublishWorkerPool();
+        pool.configure(1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Thread caller = Thread.currentThread();
+        final List<Thread> handedOffOn = new CopyOnWriteArrayList<>();
+        final List<Thread> ranOn = new CopyOnWriteArrayList<>();
+
+        assertThat(pool.submit("job", () -> await(release), () -> {})).isTrue();
+        assertThat(pool.submit("job", () -> ranOn.add(Thread.currentThread()),
+                () -> handedOffOn.add(Thread.currentThread()))).isFalse();
+
+        assertThat(ranOn).isEmpty();
+        assertThat(handedOffOn).containsExactly(caller);
+        assertThat(pool.getStatistics().getQueueDepth()).isEqualTo(1);
+        assertThat(pool.getStatistics().getHandedOffTasks()).isEqualTo(1);
+        release.countDown();
+    }
+
+    @Test
+    public void shutdownHandsOffWaitingTasks() throws InterruptedException {
+        PublishWorkerPool pool = new PublishWorkerPool();
+        pool.configure(1, 10);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> ran = new CopyOnWriteArrayList<>();
+        final List<String> handedOff = new CopyOnWriteArrayList<>();
+
+        pool.submit("job", () -> {
+            started.countDown();
+            await(release);
+            ran.add("first");
+        }, () -> handedOff.add("first"));
+        pool.submit("job", () -> ran.add("second"), () -> handedOff.add("second"));
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // keep the first task running until shutdown has taken the waiting one
+        Thread stopper = new Thread(pool::shutdown);
+        stopper.start();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (pool.getStatistics().getQueueDepth() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        stopper.join(10000);
+        pool.submit("job", () -> ran.add("third"), () -> handedOff.add("third"));
+
+        assertThat(ran).containsExactly("first");
+        assertThat(handedOff).containsExactly("second", "third");
+        assertThat(pool.getStatistics().getQueueDepth()).isZero();
+    }
+
+    @Test
+    public void statisticsReportCompletedTasks() throws InterruptedException {
+        PublishWorkerPool pool = new PublishWorkerPool();
+        pool.configure(2, 10);
+        final CountDownLatch done = new CountDownLatch(3);
+        for (int i = 0; i < 3; i++) {
+            pool.submit("job" + i, done::countDown, () -> {});
+        }
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // completion is counted just after the task body returns
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pool.getStatistics().getCompletedTasks() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        PublishWorkerPool.Statistics statistics = pool.getStatistics();
+        assertThat(statistics.getCompletedTasks()).isEqualTo(3);
+        assertThat(statistics.getQueueDepth()).isZero();
+        assertThat(statistics.getThreads()).isEqualTo(2);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
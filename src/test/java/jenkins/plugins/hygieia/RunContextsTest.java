@@ -0,0 +1,101 @@
+package jenkins.plugins.hygieia;
+
+import hudson.EnvVars;
+import hudson.model.Action;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hygieia.utils.RunContext;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({Job.class, Run.class})
+public class RunContextsTest {
+
+    @Mock
+    private Run mockRun;
+
+    @Mock
+    private Job mockJob;
+
+    @Mock
+    private TaskListener mockListener;
+
+    private void setup(EnvVars env) throws IOException, InterruptedException {
+        when(mockRun.getParent()).thenReturn(mockJob);
+        when(mockRun.getEnvironment(mockListener)).thenReturn(env);
+        when(mockJob.getAbsoluteUrl()).thenReturn("http://jenkins.test.com/job/testJob/");
+        when(mockJob.getName()).thenReturn("testJob");
+    }
+
+    @Test
+    public void snapshotIsSharedWhileTheRunIsUnchanged() throws Exception {
+        setup(new EnvVars());
+
+        RunContext first = RunContexts.get(mockRun, mockListener);
+        RunContext second = RunContexts.get(mockRun, mockListener);
+
+        assertThat(second).isSameAs(first);
+        verify(mockRun, times(1)).getEnvironment(mockListener);
+    }
+
+    @Test
+    public void snapshotIsTakenAgainWhenAnActionIsAdded() throws Exception {
+        setup(new EnvVars());
+
+        RunContext first = RunContexts.get(mockRun, mockListener);
+        when(mockRun.getActions()).thenReturn(Collections.singletonList(mock(Action.class)));
+        RunContext second = RunContexts.get(mockRun, mockListener);
+
+        assertThat(second).isNotSameAs(first);
+    }
+
+    @Test
+    public void snapshotIsTakenAgainAfterTheCacheIsCleared() throws Exception {
+        setup(new EnvVars());
+
+        RunContext first = RunContexts.get(mockRun, mockListener);
+        RunCache.clear(mockRun);
+
+        assertThat(RunContexts.get(mockRun, mockListener)).isNotSameAs(first);
+    }
+
+    @Test
+    public void instanceUrlComesFromTheEnvironment() throws Exception {
+        EnvVars env = new EnvVars();
+        env.put("JENKINS_URL", "http://jenkins.example.com/");
+        setup(env);
+
+        assertThat(RunContexts.get(mockRun, mockListener).getInstanceUrl()).isEqualTo("http://jenkins.example.com/");
+    }
+
+    @Test
+    public void instanceUrlFallsBackToTheJobUrl() throws Exception {
+        setup(null);
+
+        assertThat(RunContexts.get(mockRun, mockListener).getInstanceUrl()).isEqualTo("http://jenkins.test.com");
+    }
+
+    @Test
+    public void environmentIsCopied() throws Exception {
+        setup(new EnvVars());
+
+        RunContext context = RunContexts.get(mockRun, mockListener);
+        context.getEnvironment().put("FOO", "bar");
+
+        assertThat(context.getEnvironment()).doesNotContainKey("FOO");
+    }
+}
@@ -0,0 +1,90 @@
+package jenkins.plugins.hygieia;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class StageFetcherTest {
+
+    @Test
+    public void everyStageIsFetchedAndListKeepsItsOrder() throws Exception {
+        List<StringBuilder> stages = new LinkedList<>();
+        for (int i = 0; i < 60; i++) {
+            stages.add(new StringBuilder("stage-" + i));
+        }
+
+        StageFetcher.forEach(stages, stage -> stage.append(":fetched"), 8);
+
+        for (int i = 0; i < 60; i++) {
+            assertThat(stages.get(i).toString()).isEqualTo("stage-" + i + ":fetched");
+        }
+    }
+
+    @Test
+    public void fetchesRunConcurrentlyUpToTheLimit() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        // the first four fetches wait for each other, so this only completes if they run at the same time
+        final CountDownLatch started = new CountDownLatch(4);
+        final List<String> threads = Collections.synchronizedList(new ArrayList<>());
+
+        StageFetcher.forEach(numbers(40), stage -> {
+            int now = running.incrementAndGet();
+            maxRunning.accumulateAndGet(now, Math::max);
+            started.countDown();
+            started.await(10, TimeUnit.SECONDS);
+            threads.add(Thread.currentThread().getName());
+            running.decrementAndGet();
+        }, 4);
+
+        assertThat(started.getCount()).isZero();
+        assertThat(maxRunning.get()).isEqualTo(4);
+        assertThat(threads).contains(Thread.currentThread().getName());
+    }
+
+    @Test
+    public void firstFailureIsRethrownAndStopsFurtherFetches() {
+        final IllegalStateException failure = new IllegalStateException("bad stage");
+        final ConcurrentHashMap<Integer, Boolean> fetched = new ConcurrentHashMap<>();
+
+        try {
+            StageFetcher.forEach(numbers(1000), stage -> {
+                fetched.put(stage, Boolean.TRUE);
+                if (stage == 0) throw failure;
+                Thread.sleep(1);
+            }, 2);
+            fail("expected the failure to be rethrown");
+        } catch (Exception e) {
+            assertThat(e).isSameAs(failure);
+        }
+        assertThat(fetched.size()).isLessThan(1000);
+    }
+
+    @Test
+    public void singleStageRunsOnCallerThread() throws Exception {
+        final Thread caller = Thread.currentThread();
+        final List<Thread> ranOn = new ArrayList<>();
+
+        StageFetcher.forEach(numbers(1), stage -> ranOn.add(Thread.currentThread()), 8);
+
+        assertThat(ranOn).containsExactly(caller);
+    }
+
+    private static List<Integer> numbers(int count) {
+        List<Integer> numbers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            numbers.add(i);
+        }
+        return numbers;
+    }
+}
@@ -0,0 +1,93 @@
+package jenkins.plugins.hygieia;
+
+import hudson.FilePath;
+import hudson.model.Run;
+import hygieia.utils.WorkspaceFileFinder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({Run.class})
+public class WorkspaceIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    private Run mockRun;
+
+    @Test
+    public void secondSearchOfAFreshlyWrittenTreeSkipsTheWalk() throws IOException, InterruptedException {
+        File root = folder.getRoot();
+        write(root, "target/app.jar");
+        long fresh = System.currentTimeMillis() - 200;
+        if (fresh % 1000 == 0) fresh++;
+        File target = new File(root, "target");
+        assertThat(target.setLastModified(fresh)).isTrue();
+        assertThat(root.setLastModified(fresh)).isTrue();
+        FilePath rootDirectory = new FilePath(root);
+
+        assertThat(paths(WorkspaceIndex.find(mockRun, rootDirectory, "target/*.jar"))).containsExactly("target/app.jar");
+
+        // a walk would see this file, the cached search cannot since the directory looks unchanged
+        write(root, "target/sources.jar");
+        assertThat(target.setLastModified(fresh)).isTrue();
+
+        assertThat(paths(WorkspaceIndex.find(mockRun, rootDirectory, "target/*.jar"))).containsExactly("target/app.jar");
+    }
+
+    @Test
+    public void changedDirectoryIsWalkedAgain() throws IOException, InterruptedException {
+        File root = folder.getRoot();
+        write(root, "target/app.jar");
+        long past = System.currentTimeMillis() - 60000;
+        assertThat(new File(root, "target").setLastModified(past)).isTrue();
+        assertThat(root.setLastModified(past)).isTrue();
+        FilePath rootDirectory = new FilePath(root);
+
+        WorkspaceIndex.find(mockRun, rootDirectory, "target/*.jar");
+        write(root, "target/sources.jar");
+
+        assertThat(paths(WorkspaceIndex.find(mockRun, rootDirectory, "target/*.jar")))
+                .containsExactlyInAnyOrder("target/app.jar", "target/sources.jar");
+    }
+
+    @Test
+    public void eachPatternHasItsOwnIndex() throws IOException, InterruptedException {
+        File root = folder.getRoot();
+        write(root, "target/app.jar");
+        write(root, "target/app.war");
+        FilePath rootDirectory = new FilePath(root);
+
+        assertThat(paths(WorkspaceIndex.find(mockRun, rootDirectory, "target/*.jar"))).containsExactly("target/app.jar");
+        assertThat(paths(WorkspaceIndex.find(mockRun, rootDirectory, "target/*.war"))).containsExactly("target/app.war");
+    }
+
+    private static List<String> paths(List<WorkspaceFileFinder.FoundFile> found) {
+        List<String> paths = new ArrayList<>();
+        for (WorkspaceFileFinder.FoundFile file : found) {
+            paths.add(file.getRelativePath().replace(File.separatorChar, '/'));
+        }
+        return paths;
+    }
+
+    private static void write(File root, String path) throws IOException {
+        File file = new File(root, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), path.getBytes(StandardCharsets.UTF_8));
+    }
+}